@@ -86,6 +86,14 @@ public interface Annotation extends FeatureBearer, Serializable, FeatureEncodeDe
 	 */
 	public String getType();
 
+	/**
+	 * Return the SymbolTable id of this annotation's type, so that type checks
+	 * can be done with an int compare against the ids in AnnotationConstants.
+	 * 
+	 * @return
+	 */
+	public int getTypeId();
+
 	/**
 	 * Return the Id of annotation.
 	 * 
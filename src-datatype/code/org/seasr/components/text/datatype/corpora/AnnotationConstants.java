@@ -118,7 +118,8 @@ public interface AnnotationConstants {
 	public static final String NGRAM_ANNOT_FEAT_ARITY_INT = "$@ngram_arity";
 
 	/**
-	 * List of Annotation Objects
+	 * Ids of the token annotations that make up an ngram, in order. Stored as
+	 * an int array, see FeatureMap.getIntArray().
 	 */
 	public static final String NGRAM_ANNOT_FEAT_TOKEN_LIST = "$@ngram_tok_lst";
 	
@@ -187,4 +188,66 @@ public interface AnnotationConstants {
 	
 	public static final String ANNOTATION_PARSER_NO_PARSE = "NO PARSE";
 
+	// === INTERNED IDS =============================================================
+	// SymbolTable ids of the types and features above, for the int-keyed
+	// accessors of Annotation and FeatureMap.
+
+	public static final int TOKEN_ANNOT_TYPE_ID = SymbolTable.intern(TOKEN_ANNOT_TYPE);
+
+	public static final int PARSE_ANNOT_TYPE_ID = SymbolTable.intern(PARSE_ANNOT_TYPE);
+
+	public static final int SENTENCE_ANNOT_TYPE_ID = SymbolTable.intern(SENTENCE_ANNOT_TYPE);
+
+	public static final int NGRAM_ANNOT_TYPE_ID = SymbolTable.intern(NGRAM_ANNOT_TYPE);
+
+	public static final int SEGMENTATION_ANNOT_TYPE_ID = SymbolTable.intern(SEGMENTATION_ANNOT_TYPE);
+
+	public static final int TOKEN_ANNOT_FEAT_INTITLE_BOOL_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_INTITLE_BOOL);
+
+	public static final int TOKEN_ANNOT_FEAT_POS_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_POS);
+
+	public static final int TOKEN_ANNOT_FEAT_NORM_IMAGE_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_NORM_IMAGE);
+
+	public static final int TOKEN_ANNOT_FEAT_PRETAGGED_BOOL_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_PRETAGGED_BOOL);
+
+	public static final int TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL);
+
+	public static final int TOKEN_ANNOT_FEAT_CONTAGGED_BOOL_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_CONTAGGED_BOOL);
+
+	public static final int TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL);
+
+	public static final int TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL);
+
+	public static final int TOKEN_ANNOT_FEAT_PRETAGGED_DESC_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_PRETAGGED_DESC);
+
+	public static final int TOKEN_ANNOT_FEAT_LEXTAGGED_DESC_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_LEXTAGGED_DESC);
+
+	public static final int TOKEN_ANNOT_FEAT_CONTAGGED_DESC_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_CONTAGGED_DESC);
+
+	public static final int TOKEN_ANNOT_FEAT_OCCURENCE_MULTIPLIER_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_OCCURENCE_MULTIPLIER);
+
+	public static final int TOKEN_ANNOT_FEAT_ANTECEDENT_ID = SymbolTable
+			.intern(TOKEN_ANNOT_FEAT_ANTECEDENT);
+
+	public static final int NGRAM_ANNOT_FEAT_NORM_IMAGE_ID = SymbolTable
+			.intern(NGRAM_ANNOT_FEAT_NORM_IMAGE);
+
+	public static final int NGRAM_ANNOT_FEAT_ARITY_INT_ID = SymbolTable
+			.intern(NGRAM_ANNOT_FEAT_ARITY_INT);
+
+	public static final int NGRAM_ANNOT_FEAT_TOKEN_LIST_ID = SymbolTable
+			.intern(NGRAM_ANNOT_FEAT_TOKEN_LIST);
+
 }
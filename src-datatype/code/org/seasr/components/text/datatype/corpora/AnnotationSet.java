@@ -51,6 +51,20 @@ import java.util.*;
 
 /**
  * AnnotationSet interface keeps a set of annotations for easy access.
+ * <p>
+ * The sets returned by the query methods may be read-only views backed by
+ * this set rather than copies; use <code>get()</code> on a result to obtain
+ * a modifiable copy. Iterating a view while this set is added to or removed
+ * from throws <code>ConcurrentModificationException</code>, so a loop that
+ * changes this set should walk such a copy, or collect its changes and
+ * apply them after the loop with <code>removeAll</code>.
+ * <p>
+ * The offset queries and the document order methods share an index that is
+ * sorted once and then kept up to date: the first of these calls after
+ * annotations were added or removed merges the changes in, at a cost
+ * linear in the size of the set. Interleaving single changes with such
+ * queries therefore costs O(n) per query; add or remove in batches and
+ * query afterwards where possible.
  * 
  * @author Xiaolei Li
  * @author D. Searsmith
@@ -100,6 +114,22 @@ public interface AnnotationSet extends Set<Annotation>, Serializable {
 	 */
 	public boolean remove(Object o);
 
+	/**
+	 * Remove all the given annotations from this set in a single pass over
+	 * the argument.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean removeAll(Collection<?> c);
+
+	/**
+	 * Remove every annotation that satisfies the given predicate in a single
+	 * pass over this set.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean removeMatching(AnnotationPredicate filter);
+
 	/**
 	 * Get an annotation by ID.
 	 */
@@ -180,10 +210,31 @@ public interface AnnotationSet extends Set<Annotation>, Serializable {
 	/**
 	 * Return all annotations in this set in an ArrayList as sorted by their
 	 * starting node's offset in ascending order. If two annotations have the
-	 * same starting node, the order is arbitrary.
+	 * same starting node, the longer one comes first.
 	 */
 	public ArrayList<Annotation> getAllSortedAsArrayList();
 
+	/**
+	 * Get an iterator over this set in document order: ascending starting
+	 * offset, the longer annotation first when two start together, then
+	 * ascending ID. The order is computed once and updated as the set
+	 * changes. The iterator walks the annotations present when it was
+	 * created, so the set may be modified while it is in use.
+	 */
+	public Iterator<Annotation> sortedIterator();
+
+	/**
+	 * Return the annotation at the given position in document order, or null
+	 * if the position is out of range.
+	 */
+	public Annotation getAnnotationAtPos(int pos);
+
+	/**
+	 * Return the position of the given annotation in document order, or -1 if
+	 * it is not in this set.
+	 */
+	public int getPosition(Annotation annot);
+
 	/**
 	 * Get the name of this set.
 	 */
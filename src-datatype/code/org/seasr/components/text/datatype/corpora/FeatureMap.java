@@ -52,6 +52,17 @@ import java.util.Set;
 
 /**
  * An attribute-value mapping. Usually a String-Numerical mapping.
+ * <p>
+ * Besides the String keyed Map methods, features can be addressed by the
+ * SymbolTable id of their name, which avoids hashing the name on every
+ * access.
+ * <p>
+ * Values may also be stored typed (boolean, int, long, double, or a reference
+ * to another annotation) through the typed setters, and read back without
+ * parsing through the typed getters. The String view of a typed value is
+ * only built when it is asked for through the Map methods. The typed getters
+ * also accept features that were set as strings, so producers and consumers
+ * can move to the typed API independently.
  * 
  * @author Xiaolei Li
  * @author D. Searsmith
@@ -67,4 +78,102 @@ public interface FeatureMap extends Map<String, String> {
 	 * and also in <b>fmap</b>.
 	 */
 	public boolean subsumes(FeatureMap fmap, Set<String> nameset);
+
+	/**
+	 * Return the value of the feature with the given SymbolTable id, or null.
+	 */
+	public String get(int key);
+
+	/**
+	 * Set the value of the feature with the given SymbolTable id.
+	 * 
+	 * @return the previous value, or null.
+	 */
+	public String put(int key, String value);
+
+	/**
+	 * Returns true if this map has a feature with the given SymbolTable id.
+	 */
+	public boolean containsKey(int key);
+
+	/**
+	 * Remove the feature with the given SymbolTable id.
+	 * 
+	 * @return the previous value, or null.
+	 */
+	public String remove(int key);
+
+	/**
+	 * Returns the feature with the given SymbolTable id as a boolean. A
+	 * missing feature is false.
+	 */
+	public boolean getBoolean(int key);
+
+	/**
+	 * Set a boolean feature.
+	 */
+	public void setBoolean(int key, boolean value);
+
+	/**
+	 * Returns the feature with the given SymbolTable id as an int, or
+	 * <b>defaultValue</b> if it is missing or not a number.
+	 */
+	public int getInt(int key, int defaultValue);
+
+	/**
+	 * Set an int feature.
+	 */
+	public void setInt(int key, int value);
+
+	/**
+	 * Returns the feature with the given SymbolTable id as a long, or
+	 * <b>defaultValue</b> if it is missing or not a number.
+	 */
+	public long getLong(int key, long defaultValue);
+
+	/**
+	 * Set a long feature.
+	 */
+	public void setLong(int key, long value);
+
+	/**
+	 * Returns the feature with the given SymbolTable id as a double, or
+	 * <b>defaultValue</b> if it is missing or not a number.
+	 */
+	public double getDouble(int key, double defaultValue);
+
+	/**
+	 * Set a double feature.
+	 */
+	public void setDouble(int key, double value);
+
+	/**
+	 * Returns the annotation referenced by the feature with the given
+	 * SymbolTable id, or null. A feature set as a string is decoded from the
+	 * SEASR annotation encoding.
+	 */
+	public Annotation getAnnotation(int key);
+
+	/**
+	 * Set a feature referencing another annotation. Its String view is the
+	 * SEASR encoding of the annotation. A null value removes the feature.
+	 */
+	public void setAnnotation(int key, Annotation value);
+
+	/**
+	 * Returns the feature with the given SymbolTable id as an array of
+	 * annotation ids, or null. The ids are resolved with
+	 * {@link AnnotationSet#get(int)} on the set that owns them. A feature set
+	 * as a string is decoded from the SEASR list encoding.
+	 * <p>
+	 * The array is not copied, callers must not modify it.
+	 */
+	public int[] getIntArray(int key);
+
+	/**
+	 * Set a feature holding an array of annotation ids. The array is kept,
+	 * not copied. Its String view is the SEASR list encoding of the ids. A
+	 * null value removes the feature.
+	 */
+	public void setIntArray(int key, int[] value);
 }
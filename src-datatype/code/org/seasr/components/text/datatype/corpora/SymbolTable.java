@@ -0,0 +1,157 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table that interns annotation type and feature names into
+ * small integer ids, so that type checks become an int compare and feature
+ * lookups a probe of a small int array instead of String hashing and
+ * equals().
+ * <p>
+ * Ids are assigned in order of first use and are only meaningful within the
+ * running VM; anything serialized must carry the names, never the ids.
+ * Names are stored as their <code>String.intern()</code> form so they can be
+ * compared by identity against string constants.
+ */
+public final class SymbolTable {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	/**
+	 * Id returned for names that have not been interned.
+	 */
+	public static final int NO_SYMBOL = -1;
+
+	static private final ConcurrentHashMap<String, Integer> _ids = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * Names by id. Replaced, never resized in place, when it fills up.
+	 */
+	static private volatile String[] _names = new String[256];
+
+	static private int _count = 0;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	private SymbolTable() {
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * Return the id of the given name, assigning the next free id if the name
+	 * has not been seen before.
+	 * 
+	 * @return the id, or NO_SYMBOL for a null name.
+	 */
+	static public int intern(String name) {
+		if (name == null)
+			return NO_SYMBOL;
+
+		Integer id = _ids.get(name);
+		if (id != null)
+			return id.intValue();
+
+		synchronized (SymbolTable.class) {
+			id = _ids.get(name);
+			if (id != null)
+				return id.intValue();
+
+			String[] names = _names;
+			if (_count == names.length) {
+				String[] grown = new String[names.length * 2];
+				System.arraycopy(names, 0, grown, 0, names.length);
+				names = grown;
+			}
+			int sym = _count++;
+			names[sym] = name.intern();
+			_names = names;
+			_ids.put(names[sym], new Integer(sym));
+			return sym;
+		}
+	}
+
+	/**
+	 * Return the id of the given name without interning it.
+	 * 
+	 * @return the id, or NO_SYMBOL if the name has never been interned.
+	 */
+	static public int lookup(String name) {
+		if (name == null)
+			return NO_SYMBOL;
+
+		Integer id = _ids.get(name);
+		return (id == null) ? NO_SYMBOL : id.intValue();
+	}
+
+	/**
+	 * Return the name for the given id, or null if no such id has been
+	 * assigned.
+	 */
+	static public String nameOf(int id) {
+		String[] names = _names;
+		if ((id < 0) || (id >= names.length))
+			return null;
+
+		return names[id];
+	}
+
+	/**
+	 * Return the number of names interned so far.
+	 */
+	static public synchronized int size() {
+		return _count;
+	}
+}
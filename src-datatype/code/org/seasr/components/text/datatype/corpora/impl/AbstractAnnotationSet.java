@@ -0,0 +1,157 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+
+/**
+ * Common base of the annotation set implementations, giving
+ * <code>AnnotationSetView</code> what it needs to answer queries lazily
+ * against its parent: a modification count, the interval index and
+ * iteration by type straight from the parent's own storage.
+ */
+abstract class AbstractAnnotationSet extends AbstractSet<Annotation> implements
+		AnnotationSet {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static final long serialVersionUID = 1L;
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * Returns true if the annotation carries all the given feature values and
+	 * feature names; either may be null.
+	 */
+	static boolean hasFeatures(Annotation a, FeatureMap features,
+			Set<String> featureNames) {
+		if ((features != null)
+				&& !a.getFeatures().entrySet().containsAll(features.entrySet()))
+			return false;
+		if ((featureNames != null)
+				&& !a.getFeatures().keySet().containsAll(featureNames))
+			return false;
+		return true;
+	}
+
+	// ==================
+	// Package Methods
+	// ==================
+
+	/**
+	 * Count of structural modifications, used by views of this set to tell
+	 * when cached values are stale and when they are iterated concurrently
+	 * with a change.
+	 */
+	abstract int getModCount();
+
+	/**
+	 * Return the interval index for this set, up to date with its changes.
+	 */
+	abstract IntervalIndex getIntervalIndex();
+
+	/**
+	 * Iterate over the annotations of the given type, or return null if there
+	 * are none.
+	 */
+	abstract Iterator<Annotation> typeIterator(String type);
+
+	/**
+	 * Iterate over the annotations of the given type that carry the given
+	 * feature values and feature names, either of which may be null, or
+	 * return null if there are none. This filters
+	 * <code>typeIterator()</code>; sets that can test features without
+	 * materializing annotations override it.
+	 */
+	Iterator<Annotation> featureIterator(String type,
+			final FeatureMap features, final Set<String> featureNames) {
+		final Iterator<Annotation> source = typeIterator(type);
+		if ((source == null) || ((features == null) && (featureNames == null)))
+			return source;
+
+		return new Iterator<Annotation>() {
+			private Annotation _next;
+
+			public boolean hasNext() {
+				while ((_next == null) && source.hasNext()) {
+					Annotation a = source.next();
+					if (hasFeatures(a, features, featureNames)) {
+						_next = a;
+					}
+				}
+				return _next != null;
+			}
+
+			public Annotation next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Annotation a = _next;
+				_next = null;
+				return a;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
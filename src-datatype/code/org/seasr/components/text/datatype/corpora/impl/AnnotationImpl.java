@@ -46,9 +46,10 @@ package org.seasr.components.text.datatype.corpora.impl;
 // Java Imports
 //==============
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringTokenizer;
 
 //===============
 // Other Imports
@@ -59,6 +60,7 @@ import org.seasr.components.text.datatype.corpora.AnnotationConstants;
 import org.seasr.components.text.datatype.corpora.Document;
 import org.seasr.components.text.datatype.corpora.FeatureBearer;
 import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.corpora.SymbolTable;
 import org.seasr.components.text.util.feature_maps.*;
 import org.seasr.components.text.util.Factory;
 
@@ -88,6 +90,12 @@ public class AnnotationImpl extends AbstractFeatureBearer implements
 	 */
 	private String type;
 
+	/**
+	 * SymbolTable id of the type. Ids are not stable across VMs, so it is
+	 * recomputed from the type name when the annotation is deserialized.
+	 */
+	private transient int typeId = SymbolTable.NO_SYMBOL;
+
 	/**
 	 * Start node.
 	 */
@@ -111,7 +119,7 @@ public class AnnotationImpl extends AbstractFeatureBearer implements
 		this.id = id;
 		this.startOffset = start;
 		this.endOffset = end;
-		this.type = type;
+		setType(type);
 		this.features = features;
 	}
 
@@ -123,12 +131,25 @@ public class AnnotationImpl extends AbstractFeatureBearer implements
 		this.id = id;
 		this.startOffset = start;
 		this.endOffset = end;
-		this.type = type;
+		setType(type);
 		this.features = features;
 	}	
+
+	private void setType(String type) {
+		this.typeId = SymbolTable.intern(type);
+		this.type = SymbolTable.nameOf(typeId);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		setType(type);
+	}
 	
 	public String getContent(Document sofa) {
-		if (getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL) != null) {
+		if ((features != null)
+				&& (features
+						.get(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL_ID) != null)) {
 			return sofa.getTitle()
 					.substring((int) startOffset, (int) endOffset);
 		} else {
@@ -153,6 +174,15 @@ public class AnnotationImpl extends AbstractFeatureBearer implements
 		return type;
 	}
 
+	/**
+	 * Return the SymbolTable id of the type of annotation.
+	 * 
+	 * @return
+	 */
+	public int getTypeId() {
+		return typeId;
+	}
+
 	/**
 	 * Return the starting node of the annotation.
 	 * 
@@ -418,20 +448,34 @@ public class AnnotationImpl extends AbstractFeatureBearer implements
 					"String submitted to method 'decode' not properly encoded: "
 							+ val);
 		}
-		int end = val.indexOf("}");
-		if (end == -1) {
+		// the feature map is nested, so the closing brace is the last one
+		int end = val.lastIndexOf("}");
+		if (end <= beg) {
 			throw new FeatureValueEncoderDecoderException(
 					"String submitted to method 'decode' not properly encoded: "
 							+ val);
 		}
 		val = val.substring(beg + 1, end);
-		StringTokenizer toker = new StringTokenizer(val, ",");
+
+		// the encoded map is everything after the fourth comma
+		String[] fields = new String[4];
+		int pos = 0;
+		for (int i = 0; i < fields.length; i++) {
+			int comma = val.indexOf(',', pos);
+			if (comma == -1) {
+				throw new FeatureValueEncoderDecoderException(
+						"String submitted to method 'decode' not properly encoded: "
+								+ val);
+			}
+			fields[i] = val.substring(pos, comma);
+			pos = comma + 1;
+		}
 		
-		id  = Integer.parseInt(toker.nextToken());
-		type  = toker.nextToken();
-		bOffset = Long.parseLong(toker.nextToken());
-		eOffset = Long.parseLong(toker.nextToken());
-		Map<String, String> dmap = FeatureValueEncoderDecoder.decodeToMap(toker.nextToken());
+		id  = Integer.parseInt(fields[0]);
+		type  = fields[1];
+		bOffset = Long.parseLong(fields[2]);
+		eOffset = Long.parseLong(fields[3]);
+		Map<String, String> dmap = FeatureValueEncoderDecoder.decodeToMap(val.substring(pos));
 		
 		for (String k:dmap.keySet()) {
 			String v = dmap.get(k);
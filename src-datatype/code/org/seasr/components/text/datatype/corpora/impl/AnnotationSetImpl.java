@@ -46,20 +46,21 @@ package org.seasr.components.text.datatype.corpora.impl;
 // Java Imports
 //==============
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Set;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Comparator;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.AbstractSet;
 
 //===============
 // Other Imports
 //===============
 
 import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationPredicate;
 import org.seasr.components.text.datatype.corpora.AnnotationSet;
 import org.seasr.components.text.datatype.corpora.Document;
 import org.seasr.components.text.datatype.corpora.FeatureMap;
@@ -70,7 +71,7 @@ import org.seasr.components.text.datatype.corpora.FeatureMap;
  * @author Xiaolei Li
  * @author D. Searsmith
  */
-public class AnnotationSetImpl extends AbstractSet<Annotation> implements
+public class AnnotationSetImpl extends AbstractAnnotationSet implements
 		AnnotationSet {
 
 	// ==============
@@ -104,6 +105,28 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 	 */
 	private HashMap<String, ArrayList<Annotation>> _annotsByType;
 
+	/**
+	 * Start offsets and types whose buckets may still hold removed
+	 * annotations. A removal only drops the annotation from the id map; a
+	 * stale bucket is compacted the next time it is used.
+	 */
+	private transient HashSet<Long> _staleStarts;
+
+	private transient HashSet<String> _staleTypes;
+
+	/**
+	 * Interval index over the annotations in this set. Built lazily on the
+	 * first range query, then told of every change and brought up to date
+	 * by the next query.
+	 */
+	private transient IntervalIndex _intervalIndex;
+
+	/**
+	 * Count of structural modifications, used by views of this set to tell
+	 * when cached values are stale.
+	 */
+	private transient int _modCount;
+
 	// ==============
 	// Constructors
 	// ==============
@@ -180,31 +203,41 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 	 */
 	public boolean add(Annotation a) {
 
-		// store the annotation into the hash map
-		_annotsById.put(new Integer(a.getId()), a);
-
-		// store the hash from this annotation's starting offset
+		// the buckets are compacted before the id map changes, so that an
+		// annotation removed earlier and added again is not kept twice
 		long start = a.getStartNodeOffset();
+		ArrayList<Annotation> byStart = getStartBucket(start);
+		ArrayList<Annotation> byType = getTypeBucket(a.getType());
+
+		// store the annotation into the hash map, an annotation with the
+		// same id is replaced and must leave the other indexes too
+		Annotation old = _annotsById.put(new Integer(a.getId()), a);
+		if (old == a) {
+			// already in this set
+			return true;
+		}
 
-		if (_annotsByStartOffset.containsKey(start)) {
-			ArrayList<Annotation> list = _annotsByStartOffset.get(start);
-			list.add(a);
-		} else {
-			ArrayList<Annotation> list = new ArrayList<Annotation>();
-			list.add(a);
-			_annotsByStartOffset.put(start, list);
+		modified();
+		if (old != null) {
+			markStale(old);
+		}
+		if (_intervalIndex != null) {
+			_intervalIndex.add(a);
 		}
 
+		// store the hash from this annotation's starting offset
+		if (byStart == null) {
+			byStart = new ArrayList<Annotation>();
+			_annotsByStartOffset.put(start, byStart);
+		}
+		byStart.add(a);
+
 		// store the annotation by its type
-		if (_annotsByType.containsKey(a.getType())) {
-			ArrayList<Annotation> list = (ArrayList<Annotation>) _annotsByType
-					.get(a.getType());
-			list.add(a);
-		} else {
-			ArrayList<Annotation> list = new ArrayList<Annotation>();
-			list.add(a);
-			_annotsByType.put(a.getType(), list);
+		if (byType == null) {
+			byType = new ArrayList<Annotation>();
+			_annotsByType.put(a.getType(), byType);
 		}
+		byType.add(a);
 
 		return true;
 	}
@@ -224,19 +257,105 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 	}
 
 	/**
-	 * Remove an element from this set.
+	 * Remove an element from this set. Only the id map is updated here, the
+	 * offset and type buckets it leaves are compacted when next used.
 	 * 
 	 * @return true if removal is successful.
 	 */
 	public boolean remove(Object o) {
 		Annotation a = (Annotation) o;
 
-		if (_annotsById.remove(new Integer(a.getId())) == null)
+		// the instance stored under this id is the one held by the other
+		// indexes
+		Annotation removed = _annotsById.remove(new Integer(a.getId()));
+		if (removed == null)
 			return false;
 
+		markStale(removed);
+		modified();
+
 		return true;
 	}
 
+	/**
+	 * Remove all the given annotations from this set. The offset and type
+	 * buckets touched by the removals are each compacted once, when next
+	 * used.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean removeAll(Collection<?> c) {
+		ArrayList<Annotation> removed = new ArrayList<Annotation>();
+		for (Iterator<?> it = c.iterator(); it.hasNext();) {
+			Object o = it.next();
+			if (!(o instanceof Annotation))
+				continue;
+
+			Annotation a = _annotsById.remove(new Integer(((Annotation) o)
+					.getId()));
+			if (a != null) {
+				removed.add(a);
+			}
+		}
+		return removeFromIndexes(removed);
+	}
+
+	/**
+	 * Remove every annotation that satisfies the given predicate in a single
+	 * pass over this set.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean removeMatching(AnnotationPredicate filter) {
+		ArrayList<Annotation> removed = new ArrayList<Annotation>();
+		for (Iterator<Annotation> it = _annotsById.values().iterator(); it
+				.hasNext();) {
+			Annotation a = it.next();
+			if (filter.test(a)) {
+				it.remove();
+				removed.add(a);
+			}
+		}
+		return removeFromIndexes(removed);
+	}
+
+	/**
+	 * Retain only the annotations in the given collection.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean retainAll(final Collection<?> c) {
+		return removeMatching(new AnnotationPredicate() {
+			public boolean test(Annotation a) {
+				return !c.contains(a);
+			}
+		});
+	}
+
+	/**
+	 * Remove all annotations from this set.
+	 */
+	public void clear() {
+		_annotsById.clear();
+		_annotsByStartOffset.clear();
+		_annotsByType.clear();
+		_staleStarts = null;
+		_staleTypes = null;
+		_intervalIndex = null;
+		modified();
+	}
+
+	/**
+	 * Returns true if the given annotation is the one held under its ID.
+	 */
+	public boolean contains(Object o) {
+		if (!(o instanceof Annotation))
+			return false;
+
+		Annotation a = _annotsById.get(new Integer(((Annotation) o).getId()));
+		return (a != null) && a.equals(o);
+	}
+
 	/**
 	 * Get an annotation by ID.
 	 */
@@ -266,118 +385,60 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 	}
 
 	/**
-	 * Return all annotations with this given type.
+	 * Return all annotations with this given type. The result is a read-only
+	 * view over this set's type index; nothing is copied.
 	 */
 	public AnnotationSet get(String type) {
 		// i don't have anything, return null
 		if (size() == 0)
 			return null;
 
-		if (_annotsByType.containsKey(type)) {
-
-			ArrayList<Annotation> list = _annotsByType.get(type);
-
-			if (list.size() > 0) {
-
-				AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
-
-				for (int i = 0; i < list.size(); i++) {
-					aset.add(list.get(i));
-				}
-
-				return aset;
-			}
-		}
-
-		/*
-		 * check all my annotations, and add the ones with the right // type
-		 */
+		ArrayList<Annotation> list = getTypeBucket(type);
+		if ((list == null) || list.isEmpty())
+			return null;
 
-		return null;
+		return new AnnotationSetView.TypeView(this, null, type, null);
 	}
 
 	/**
-	 * Return all annotations with all types in this given set.
+	 * Return all annotations with all types in this given set. The result is
+	 * a read-only view that walks only the type buckets asked for.
 	 */
 	public AnnotationSet get(Set<String> types) {
 		// i don't have anything, return null
 		if (size() == 0)
 			return null;
 
-		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
-
-		Iterator<Annotation> myIter = _annotsById.values().iterator();
-
-		// check all my annotations, and add the ones with the right
-		// type to the new set
-		while (myIter.hasNext()) {
-			Annotation a = myIter.next();
-
-			if (types.contains(a.getType()))
-				aset.add(a);
-		}
-
-		if (aset.size() > 0)
-			return aset;
-
-		return null;
+		return AnnotationSetView.nullIfEmpty(new AnnotationSetView.TypeView(
+				this, null, null, types));
 	}
 
 	/**
-	 * Return all annotations with a given type and features.
+	 * Return all annotations with a given type and features. The result is a
+	 * read-only view over the type bucket, filtered as it is iterated.
 	 */
 	public AnnotationSet get(String type, FeatureMap features) {
 		// i don't have anything, return null
 		if (size() == 0)
 			return null;
 
-		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
-
-		Iterator<Annotation> myIter = _annotsById.values().iterator();
-
-		// check all my annotations, and add the ones with the right
-		// type and the given features to the new set
-		while (myIter.hasNext()) {
-			Annotation a = myIter.next();
-
-			if (a.getType().equals(type)
-					&& a.getFeatures().entrySet().containsAll(
-							features.entrySet()))
-				aset.add(a);
-		}
-
-		if (aset.size() > 0)
-			return aset;
-
-		return null;
+		return AnnotationSetView
+				.nullIfEmpty(new AnnotationSetView.FeatureView(this, null,
+						type, features, null));
 	}
 
 	/**
-	 * Return all annotations with a given type and set of features.
+	 * Return all annotations with a given type and set of features. The
+	 * result is a read-only view over the type bucket, filtered as it is
+	 * iterated.
 	 */
 	public AnnotationSet get(String type, Set<String> featureNames) {
 		// i don't have anything, return null
 		if (size() == 0)
 			return null;
 
-		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
-
-		Iterator<Annotation> myIter = _annotsById.values().iterator();
-
-		// check all my annotations, and add the ones with the right
-		// type and the given feature names to the new set
-		while (myIter.hasNext()) {
-			Annotation a = (Annotation) myIter.next();
-
-			if (a.getType().equals(type)
-					&& a.getFeatures().keySet().containsAll(featureNames))
-				aset.add(a);
-		}
-
-		if (aset.size() > 0)
-			return aset;
-
-		return null;
+		return AnnotationSetView.nullIfEmpty(new AnnotationSetView.FeatureView(
+				this, null, type, null, featureNames));
 	}
 
 	/**
@@ -389,24 +450,19 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 	{
 		// first, filter all the annotations in this set by offset.
 		// this is probably more selective.
-		AnnotationSetImpl midset = (AnnotationSetImpl) get(offset);
+		AnnotationSet midset = get(offset);
 
 		if (midset == null)
 			return null;
 
 		// second, filter all the annotations by type and features
-		AnnotationSetImpl finalset = (AnnotationSetImpl) midset.get(type,
-				features);
-
-		if (finalset.size() > 0)
-			return finalset;
-
-		return null;
+		return midset.get(type, features);
 	}
 
 	/**
 	 * Return all annotations with a starting offset that is greater than or
-	 * equal to the given offset.
+	 * equal to the given offset. The result is a read-only view over the tail
+	 * of the interval index.
 	 */
 	public AnnotationSet get(long offset)
 	// public AnnotationSet get(Long offset)
@@ -415,24 +471,11 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 		if (size() == 0)
 			return null;
 
-		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
-
-		Iterator<Annotation> myIter = _annotsById.values().iterator();
-
-		// check all my annotations
-		while (myIter.hasNext()) {
-			Annotation a = myIter.next();
-
-			// check if this annotation's starting offset is >= the
-			// given offset
-			if (a.getStartNodeOffset() >= offset)
-				aset.add(a);
-		}
-
-		if (aset.size() > 0)
-			return aset;
-
-		return null;
+		// all annotations from the first one starting at or after the
+		// given offset to the end of the index
+		return AnnotationSetView
+				.nullIfEmpty(new AnnotationSetView.StartingFromView(this,
+						null, offset));
 	}
 
 	/**
@@ -449,22 +492,10 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 
 		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
 
-		Iterator<Annotation> myIter = _annotsById.values().iterator();
-
-		// check all my annotations, ignore ones that are totally
-		// outside the given range. add the rest.
-		while (myIter.hasNext()) {
-			Annotation a = myIter.next();
-
-			// if the annotation starts after the argument end or ends
-			// before the argument start, ignore it.
-			if (a.getStartNodeOffset() > offsetEnd
-					|| a.getEndNodeOffset() < offsetStart)
-				continue;
-
-			// otherwise, add it
-			aset.add(a);
-		}
+		// only subtrees whose max end reaches the argument start are
+		// visited, and the walk stops at the first annotation starting
+		// after the argument end.
+		getIntervalIndex().getOverlapping(offsetStart, offsetEnd, aset);
 
 		if (aset.size() > 0)
 			return aset;
@@ -481,24 +512,8 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 		if (size() == 0)
 			return false;
 
-		Iterator<Annotation> myIter = _annotsById.values().iterator();
-
-		// check all my annotations, if just one annotation overlaps
-		// with the given range, return true
-		while (myIter.hasNext()) {
-			Annotation a = myIter.next();
-
-			// if the annotation starts after the argument end or ends
-			// before the argument start, ignore it.
-			if (a.getStartNodeOffset() > offsetEnd
-					|| a.getEndNodeOffset() < offsetStart)
-				continue;
-
-			// otherwise, found one and return true
-			return true;
-		}
-
-		return false;
+		// stops at the first overlapping annotation
+		return getIntervalIndex().coversPartialRange(offsetStart, offsetEnd);
 	}
 
 	/**
@@ -508,57 +523,31 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 	public AnnotationSet get(String type, long offsetStart, long offsetEnd) {
 		// first, filter all the annotations in this set by offset.
 		// this is probably more selective.
-		AnnotationSetImpl midset = (AnnotationSetImpl) get(offsetStart,
-				offsetEnd);
+		AnnotationSet midset = get(offsetStart, offsetEnd);
 
 		if (midset == null)
 			return null;
 
 		// second, filter all the annotations by type
-		AnnotationSetImpl finalset = (AnnotationSetImpl) midset.get(type);
-
-		if (finalset.size() > 0)
-			return finalset;
-
-		return null;
+		return midset.get(type);
 	}
 
 	/**
 	 * Return all annotations that are exclusively inside the given offsets. In
 	 * other words, they have to start and end within the given offsets. This is
-	 * more restrictive than get(Long offsetStart, Long offsetEnd).
+	 * more restrictive than get(Long offsetStart, Long offsetEnd). The result
+	 * is a read-only view over a slice of the interval index.
 	 */
 	public AnnotationSet getContained(long offsetStart, long offsetEnd) {
 		// i don't have anything, return null
 		if (size() == 0)
 			return null;
 
-		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
-
-		// for all annotations that start within the given range
-		for (long i = offsetStart; i <= offsetEnd; i++) {
-
-			if (_annotsByStartOffset.containsKey(i)) {
-
-				ArrayList<Annotation> candidate_set = _annotsByStartOffset
-						.get(i);
-
-				// for all annotations that start at this particular
-				// offset, check that it ends before the given offsetEnd
-				for (int j = 0; j < candidate_set.size(); j++) {
-					Annotation a = (Annotation) candidate_set.get(j);
-
-					if (a.getEndNodeOffset() <= offsetEnd) {
-						aset.add(a);
-					}
-				}
-			}
-		}
-
-		if (aset.size() > 0)
-			return aset;
-
-		return null;
+		// for all annotations that start within the given range, check
+		// that they end before the given offsetEnd
+		return AnnotationSetView
+				.nullIfEmpty(new AnnotationSetView.ContainedView(this, null,
+						offsetStart, offsetEnd));
 	}
 
 	/**
@@ -569,10 +558,8 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 		if (size() == 0)
 			return null;
 
-		if (_annotsByStartOffset.containsKey(offsetStart)) {
-
-			ArrayList<Annotation> candidate_set = _annotsByStartOffset
-					.get(offsetStart);
+		ArrayList<Annotation> candidate_set = getStartBucket(offsetStart);
+		if (candidate_set != null) {
 
 			AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
 
@@ -601,10 +588,8 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 		if (size() == 0)
 			return null;
 
-		if (_annotsByStartOffset.containsKey(offsetStart)) {
-
-			ArrayList<Annotation> candidate_set = _annotsByStartOffset
-					.get(offsetStart);
+		ArrayList<Annotation> candidate_set = getStartBucket(offsetStart);
+		if (candidate_set != null) {
 
 			AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
 
@@ -623,35 +608,47 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 	/**
 	 * Return all annotations in this set in an ArrayList as sorted by their
 	 * starting node's offset in ascending order. If two annotations have the
-	 * same starting node, the order is arbitrary.
+	 * same starting node, the longer one comes first.
 	 */
 	public ArrayList<Annotation> getAllSortedAsArrayList() {
 		// i don't have anything, return null
 		if (size() == 0)
 			return null;
 
-		ArrayList<Annotation> list = new ArrayList<Annotation>();
-		Iterator<Annotation> myIter = _annotsById.values().iterator();
+		// copied out of the cached document order, nothing is sorted
+		return getIntervalIndex().toList();
+	}
 
-		while (myIter.hasNext()) {
-			list.add(myIter.next());
-		}
+	/**
+	 * Get an iterator over this set in document order. The order is cached
+	 * with the interval index and only recomputed after the set changes.
+	 */
+	public Iterator<Annotation> sortedIterator() {
+		return getIntervalIndex().iterator(this);
+	}
 
-		Comparator<Annotation> comp = new Comparator<Annotation>() {
-			public int compare(Annotation a, Annotation b) {
+	/**
+	 * Return the annotation at the given position in document order, or null
+	 * if the position is out of range.
+	 */
+	public Annotation getAnnotationAtPos(int pos) {
+		IntervalIndex index = getIntervalIndex();
+		if ((pos < 0) || (pos >= index.size()))
+			return null;
 
-				if (a.getStartNodeOffset() < b.getStartNodeOffset()) {
-					return -1;
-				}
-				if (a.getStartNodeOffset() == b.getStartNodeOffset())
-					return 0;
-				return 1;
-			}
-		};
+		return index.annotAt(pos);
+	}
 
-		Collections.sort(list, comp);
+	/**
+	 * Return the position of the given annotation in document order, or -1 if
+	 * it is not in this set.
+	 */
+	public int getPosition(Annotation annot) {
+		Annotation a = get(annot.getId());
+		if ((a == null) || !a.equals(annot))
+			return -1;
 
-		return list;
+		return getIntervalIndex().indexOf(a);
 	}
 
 	/**
@@ -693,6 +690,169 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 		return _doc;
 	}
 
+	// ==================
+	// Package Methods
+	// ==================
+
+	/**
+	 * The live bucket of annotations of the given type, or null. The bucket
+	 * is compacted first if annotations were removed from it.
+	 */
+	ArrayList<Annotation> getTypeBucket(String type) {
+		ArrayList<Annotation> list = _annotsByType.get(type);
+		if ((list != null) && (_staleTypes != null)
+				&& _staleTypes.remove(type) && (retainIndexed(list) == 0)) {
+			_annotsByType.remove(type);
+			return null;
+		}
+		return list;
+	}
+
+	Iterator<Annotation> typeIterator(String type) {
+		ArrayList<Annotation> list = getTypeBucket(type);
+		return (list == null) ? null : list.iterator();
+	}
+
+	int getModCount() {
+		return _modCount;
+	}
+
+	/**
+	 * Return the interval index for this set, building it on first use and
+	 * merging in the changes made since it was last used.
+	 */
+	IntervalIndex getIntervalIndex() {
+		if (_intervalIndex == null) {
+			_intervalIndex = new IntervalIndex(new IndexOwner(), true);
+			for (Iterator<Annotation> it = _annotsById.values().iterator(); it
+					.hasNext();) {
+				_intervalIndex.add(it.next());
+			}
+		}
+		_intervalIndex.update();
+		return _intervalIndex;
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Record a structural modification: views see a new modification count.
+	 */
+	private void modified() {
+		_modCount++;
+	}
+
+	/**
+	 * The bucket of annotations starting at the given offset, or null,
+	 * compacted first if annotations were removed from it.
+	 */
+	private ArrayList<Annotation> getStartBucket(long start) {
+		Long key = new Long(start);
+		ArrayList<Annotation> list = _annotsByStartOffset.get(key);
+		if ((list != null) && (_staleStarts != null)
+				&& _staleStarts.remove(key) && (retainIndexed(list) == 0)) {
+			_annotsByStartOffset.remove(key);
+			return null;
+		}
+		return list;
+	}
+
+	/**
+	 * Note that an annotation, already removed from the id map, is still in
+	 * its start offset and type buckets.
+	 */
+	private void markStale(Annotation a) {
+		if (_staleStarts == null) {
+			_staleStarts = new HashSet<Long>();
+			_staleTypes = new HashSet<String>();
+		}
+		_staleStarts.add(new Long(a.getStartNodeOffset()));
+		_staleTypes.add(a.getType());
+		if (_intervalIndex != null) {
+			_intervalIndex.removed();
+		}
+	}
+
+	/**
+	 * Note that a batch of annotations, already removed from the id map, is
+	 * still in the start offset and type buckets.
+	 * 
+	 * @return true if the batch was not empty.
+	 */
+	private boolean removeFromIndexes(ArrayList<Annotation> removed) {
+		if (removed.isEmpty())
+			return false;
+
+		modified();
+		for (int i = 0, n = removed.size(); i < n; i++) {
+			markStale(removed.get(i));
+		}
+		return true;
+	}
+
+	/**
+	 * Compact every stale bucket.
+	 */
+	private void compactStale() {
+		if (_staleStarts == null)
+			return;
+
+		Long[] starts = _staleStarts.toArray(new Long[_staleStarts.size()]);
+		for (int i = 0; i < starts.length; i++) {
+			getStartBucket(starts[i].longValue());
+		}
+		String[] types = _staleTypes.toArray(new String[_staleTypes.size()]);
+		for (int i = 0; i < types.length; i++) {
+			getTypeBucket(types[i]);
+		}
+	}
+
+	/**
+	 * Stale buckets are compacted before the set is written, so the
+	 * serialized form only holds the annotations in the set.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		compactStale();
+		out.defaultWriteObject();
+	}
+
+	/**
+	 * Compact a bucket in place, keeping only the annotations that are still
+	 * the instance held in the id map.
+	 * 
+	 * @return the new size of the bucket.
+	 */
+	private int retainIndexed(ArrayList<Annotation> list) {
+		int w = 0;
+		for (int r = 0, n = list.size(); r < n; r++) {
+			Annotation a = list.get(r);
+			if (_annotsById.get(new Integer(a.getId())) == a) {
+				list.set(w++, a);
+			}
+		}
+		for (int i = list.size() - 1; i >= w; i--) {
+			list.remove(i);
+		}
+		return w;
+	}
+
+	/**
+	 * Tells the interval index which of its annotations are still in this
+	 * set.
+	 */
+	private class IndexOwner implements IntervalIndex.Owner {
+
+		public boolean holds(int id, long start, long end, Annotation annot) {
+			return _annotsById.get(new Integer(id)) == annot;
+		}
+
+		public Annotation annotOf(int id) {
+			return _annotsById.get(new Integer(id));
+		}
+	}
+
 	/**
 	 * Inner class that is the iterator of this set.
 	 */
@@ -715,6 +875,8 @@ public class AnnotationSetImpl extends AbstractSet<Annotation> implements
 
 		public void remove() {
 			iter.remove();
+			markStale(lastNext);
+			modified();
 		}
 	}
 }
@@ -0,0 +1,661 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationPredicate;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+
+/**
+ * Read-only, lazily evaluated subset of an <code>AnnotationSetImpl</code> or
+ * a <code>ColumnarAnnotationSet</code>. A view holds only its query
+ * arguments; membership is decided as it is iterated, against the parent's
+ * own type storage or interval index, so answering a query costs nothing
+ * until the result is used and iterating it creates only the annotations it
+ * returns. The size is counted on first use and
+ * cached until the parent changes, as is the document order used by the
+ * ordinal accessors.
+ * <p>
+ * Views see later changes to the parent. An iterator over a view fails
+ * fast: if the parent is changed structurally while it is in use, its next
+ * call throws <code>ConcurrentModificationException</code>. Every mutator
+ * throws <code>UnsupportedOperationException</code>; copy a view into a new
+ * set with <code>get()</code> to get a modifiable one, or to change the
+ * parent while walking the result.
+ * <p>
+ * Queries on a view return views that refine it, so chained lookups such as
+ * <code>get(type).getContained(s, e)</code> stay lazy as well.
+ */
+abstract class AnnotationSetView extends AbstractSet<Annotation> implements
+		AnnotationSet {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static final long serialVersionUID = 1L;
+
+	/**
+	 * The set this is a view of.
+	 */
+	protected final AbstractAnnotationSet _parent;
+
+	/**
+	 * The view this one refines, null if it refines the whole parent.
+	 */
+	protected final AnnotationSetView _within;
+
+	private transient boolean _sizeValid;
+
+	private transient int _sizeModCount;
+
+	private transient int _size;
+
+	/**
+	 * Members of this view in document order, and the parent modification
+	 * count it was built at.
+	 */
+	private transient IntervalIndex _order;
+
+	private transient int _orderModCount;
+
+	// ==============
+	// Constructors
+	// ==============
+
+	AnnotationSetView(AbstractAnnotationSet parent, AnnotationSetView within) {
+		_parent = parent;
+		_within = within;
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * Return the view, or null if it has no annotations, matching the
+	 * convention of the AnnotationSet query methods.
+	 */
+	static AnnotationSet nullIfEmpty(AnnotationSetView view) {
+		return view.isEmpty() ? null : view;
+	}
+
+	// ==================
+	// Abstract Methods
+	// ==================
+
+	/**
+	 * The condition this view adds to the one it refines.
+	 */
+	abstract boolean test(Annotation a);
+
+	// ================
+	// Public Methods
+	// ================
+
+	/**
+	 * Return the size of this view, counting it if the parent has changed
+	 * since it was last counted.
+	 */
+	public int size() {
+		int modCount = _parent.getModCount();
+		if (!_sizeValid || (_sizeModCount != modCount)) {
+			int n = 0;
+			for (Iterator<Annotation> it = iterator(); it.hasNext(); it.next()) {
+				n++;
+			}
+			_size = n;
+			_sizeModCount = modCount;
+			_sizeValid = true;
+		}
+		return _size;
+	}
+
+	public boolean isEmpty() {
+		return !iterator().hasNext();
+	}
+
+	public boolean contains(Object o) {
+		if (!_parent.contains(o))
+			return false;
+
+		Annotation a = _parent.get(((Annotation) o).getId());
+		return (a != null) && accepts(a);
+	}
+
+	public Annotation get(int id) {
+		Annotation a = _parent.get(id);
+		return ((a != null) && accepts(a)) ? a : null;
+	}
+
+	/**
+	 * Return a modifiable copy of this view.
+	 */
+	public AnnotationSet get() {
+		AnnotationSetImpl aset = new AnnotationSetImpl(_parent.getDocument());
+		for (Iterator<Annotation> it = iterator(); it.hasNext();) {
+			aset.add(it.next());
+		}
+		return (aset.size() > 0) ? aset : null;
+	}
+
+	public AnnotationSet get(String type) {
+		return nullIfEmpty(new TypeView(_parent, this, type, null));
+	}
+
+	public AnnotationSet get(Set<String> types) {
+		return nullIfEmpty(new TypeView(_parent, this, null, types));
+	}
+
+	public AnnotationSet get(String type, FeatureMap features) {
+		return nullIfEmpty(new FeatureView(_parent, this, type, features, null));
+	}
+
+	public AnnotationSet get(String type, Set<String> featureNames) {
+		return nullIfEmpty(new FeatureView(_parent, this, type, null,
+				featureNames));
+	}
+
+	public AnnotationSet get(String type, FeatureMap features, long offset) {
+		AnnotationSet midset = get(offset);
+		if (midset == null)
+			return null;
+
+		return midset.get(type, features);
+	}
+
+	public AnnotationSet get(long offset) {
+		return nullIfEmpty(new StartingFromView(_parent, this, offset));
+	}
+
+	/**
+	 * Return a modifiable set of the annotations in this view that overlap
+	 * the given offsets.
+	 */
+	public AnnotationSet get(long offsetStart, long offsetEnd) {
+		ArrayList<Annotation> list = new ArrayList<Annotation>();
+		_parent.getIntervalIndex().getOverlapping(offsetStart, offsetEnd, list);
+		return copyAccepted(list);
+	}
+
+	public boolean coversPartialRange(long offsetStart, long offsetEnd) {
+		ArrayList<Annotation> list = new ArrayList<Annotation>();
+		_parent.getIntervalIndex().getOverlapping(offsetStart, offsetEnd, list);
+		for (int i = 0, n = list.size(); i < n; i++) {
+			if (accepts(list.get(i)))
+				return true;
+		}
+		return false;
+	}
+
+	public AnnotationSet get(String type, long offsetStart, long offsetEnd) {
+		AnnotationSet midset = get(offsetStart, offsetEnd);
+		if (midset == null)
+			return null;
+
+		return midset.get(type);
+	}
+
+	public AnnotationSet getContained(long offsetStart, long offsetEnd) {
+		return nullIfEmpty(new ContainedView(_parent, this, offsetStart,
+				offsetEnd));
+	}
+
+	public AnnotationSet getExact(long offsetStart, long offsetEnd) {
+		ArrayList<Annotation> list = new ArrayList<Annotation>();
+		_parent.getIntervalIndex().getExact(offsetStart, offsetEnd, list);
+		return copyAccepted(list);
+	}
+
+	public AnnotationSet getExactStart(long offsetStart) {
+		ArrayList<Annotation> list = new ArrayList<Annotation>();
+		_parent.getIntervalIndex().getExactStart(offsetStart, list);
+		return copyAccepted(list);
+	}
+
+	public ArrayList<Annotation> getAllSortedAsArrayList() {
+		IntervalIndex order = getOrder();
+		return (order.size() > 0) ? order.toList() : null;
+	}
+
+	public Iterator<Annotation> sortedIterator() {
+		return getOrder().iterator(null);
+	}
+
+	public Annotation getAnnotationAtPos(int pos) {
+		IntervalIndex order = getOrder();
+		if ((pos < 0) || (pos >= order.size()))
+			return null;
+
+		return order.annotAt(pos);
+	}
+
+	public int getPosition(Annotation annot) {
+		if (!contains(annot))
+			return -1;
+
+		return getOrder().indexOf(annot);
+	}
+
+	/**
+	 * Views are unnamed.
+	 */
+	public String getName() {
+		return null;
+	}
+
+	public Set<String> getAllTypes() {
+		Set<String> allTypes = new HashSet<String>();
+		for (Iterator<Annotation> it = iterator(); it.hasNext();) {
+			allTypes.add(it.next().getType());
+		}
+		return allTypes.isEmpty() ? null : allTypes;
+	}
+
+	public Document getDocument() {
+		return _parent.getDocument();
+	}
+
+	// =====================
+	// Read-only Mutators
+	// =====================
+
+	public int add(long start, long end, String type, FeatureMap features)
+			throws Exception {
+		throw readOnly();
+	}
+
+	public void add(int ID, long start, long end, String type,
+			FeatureMap features) throws Exception {
+		throw readOnly();
+	}
+
+	public boolean add(Annotation a) {
+		throw readOnly();
+	}
+
+	public boolean remove(Object o) {
+		throw readOnly();
+	}
+
+	public boolean removeAll(Collection<?> c) {
+		throw readOnly();
+	}
+
+	public boolean removeMatching(AnnotationPredicate filter) {
+		throw readOnly();
+	}
+
+	public boolean retainAll(Collection<?> c) {
+		throw readOnly();
+	}
+
+	public void clear() {
+		throw readOnly();
+	}
+
+	// ==================
+	// Package Methods
+	// ==================
+
+	/**
+	 * Returns true if the given annotation of the parent belongs to this view.
+	 */
+	final boolean accepts(Annotation a) {
+		return test(a) && ((_within == null) || _within.accepts(a));
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Return the members of this view in document order, collecting them if
+	 * the parent has changed since they were last collected.
+	 */
+	private IntervalIndex getOrder() {
+		int modCount = _parent.getModCount();
+		if ((_order == null) || (_orderModCount != modCount)) {
+			ArrayList<Annotation> list = new ArrayList<Annotation>();
+			for (Iterator<Annotation> it = iterator(); it.hasNext();) {
+				list.add(it.next());
+			}
+			_order = new IntervalIndex(list);
+			_orderModCount = modCount;
+		}
+		return _order;
+	}
+
+	private AnnotationSet copyAccepted(ArrayList<Annotation> list) {
+		AnnotationSetImpl aset = new AnnotationSetImpl(_parent.getDocument());
+		for (int i = 0, n = list.size(); i < n; i++) {
+			Annotation a = list.get(i);
+			if (accepts(a)) {
+				aset.add(a);
+			}
+		}
+		return (aset.size() > 0) ? aset : null;
+	}
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException(
+				"Annotation set view is read-only.");
+	}
+
+	// =================
+	// Inner Class(es)
+	// =================
+
+	/**
+	 * Iterator that looks ahead for the next candidate this view keeps.
+	 */
+	abstract class FilterIterator implements Iterator<Annotation> {
+		private Annotation _next;
+
+		/**
+		 * The parent modification count this iterator was created at.
+		 */
+		private final int _modCount = _parent.getModCount();
+
+		/**
+		 * The next candidate, or null when there are no more.
+		 */
+		abstract Annotation candidate();
+
+		abstract boolean keep(Annotation a);
+
+		public boolean hasNext() {
+			if (_parent.getModCount() != _modCount)
+				throw new ConcurrentModificationException();
+			while (_next == null) {
+				Annotation a = candidate();
+				if (a == null)
+					return false;
+				if (keep(a)) {
+					_next = a;
+				}
+			}
+			return true;
+		}
+
+		public Annotation next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Annotation a = _next;
+			_next = null;
+			return a;
+		}
+
+		public void remove() {
+			throw readOnly();
+		}
+	}
+
+	/**
+	 * Iterates the view this one refines, keeping the annotations that pass
+	 * this view's test.
+	 */
+	class RefineIterator extends FilterIterator {
+		private final Iterator<Annotation> _source = _within.iterator();
+
+		Annotation candidate() {
+			return _source.hasNext() ? _source.next() : null;
+		}
+
+		boolean keep(Annotation a) {
+			return test(a);
+		}
+	}
+
+	/**
+	 * Iterates the parent's annotations of the given types, with the given
+	 * features, as the parent's own storage hands them out. The parent does
+	 * all the filtering.
+	 */
+	class TypeIterator extends FilterIterator {
+		private final Iterator<String> _types;
+
+		private final FeatureMap _features;
+
+		private final Set<String> _featureNames;
+
+		private Iterator<Annotation> _source;
+
+		TypeIterator(String type, Set<String> types, FeatureMap features,
+				Set<String> featureNames) {
+			_types = (types == null) ? null : types.iterator();
+			_features = features;
+			_featureNames = featureNames;
+			_source = (type == null) ? null : _parent.featureIterator(type,
+					features, featureNames);
+		}
+
+		Annotation candidate() {
+			while ((_source == null) || !_source.hasNext()) {
+				if ((_types == null) || !_types.hasNext())
+					return null;
+				_source = _parent.featureIterator(_types.next(), _features,
+						_featureNames);
+			}
+			return _source.next();
+		}
+
+		boolean keep(Annotation a) {
+			return true;
+		}
+	}
+
+	/**
+	 * Iterates the parent's interval index in start order from the first
+	 * annotation starting at or after the given offset, up to the last
+	 * starting at or before the given maximum. Entries ending after the given
+	 * maximum end are skipped on the index alone, before an annotation is
+	 * fetched for them.
+	 */
+	class IndexIterator extends FilterIterator {
+		private final IntervalIndex _index = _parent.getIntervalIndex();
+
+		private final long _maxStart;
+
+		private final long _maxEnd;
+
+		private int _pos;
+
+		IndexIterator(long minStart, long maxStart, long maxEnd) {
+			_pos = _index.firstStartAtLeast(minStart);
+			_maxStart = maxStart;
+			_maxEnd = maxEnd;
+		}
+
+		Annotation candidate() {
+			for (; (_pos < _index.size())
+					&& (_index.startAt(_pos) <= _maxStart); _pos++) {
+				if (_index.endAt(_pos) <= _maxEnd)
+					return _index.annotAt(_pos++);
+			}
+			return null;
+		}
+
+		boolean keep(Annotation a) {
+			// the offsets this view tests were checked on the index
+			return (_within == null) || _within.accepts(a);
+		}
+	}
+
+	/**
+	 * Annotations of one type, or of any type in a set.
+	 */
+	static class TypeView extends AnnotationSetView {
+
+		static final long serialVersionUID = 1L;
+
+		private final String _type;
+
+		private final Set<String> _types;
+
+		TypeView(AbstractAnnotationSet parent, AnnotationSetView within,
+				String type, Set<String> types) {
+			super(parent, within);
+			_type = type;
+			_types = types;
+		}
+
+		boolean test(Annotation a) {
+			return (_type != null) ? _type.equals(a.getType()) : _types
+					.contains(a.getType());
+		}
+
+		public Iterator<Annotation> iterator() {
+			if (_within != null)
+				return new RefineIterator();
+			return new TypeIterator(_type, _types, null, null);
+		}
+	}
+
+	/**
+	 * Annotations of one type that carry the given features, or the given
+	 * feature names.
+	 */
+	static class FeatureView extends AnnotationSetView {
+
+		static final long serialVersionUID = 1L;
+
+		private final String _type;
+
+		private final FeatureMap _features;
+
+		private final Set<String> _featureNames;
+
+		FeatureView(AbstractAnnotationSet parent, AnnotationSetView within,
+				String type, FeatureMap features, Set<String> featureNames) {
+			super(parent, within);
+			_type = type;
+			_features = features;
+			_featureNames = featureNames;
+		}
+
+		boolean test(Annotation a) {
+			return a.getType().equals(_type)
+					&& AbstractAnnotationSet.hasFeatures(a, _features,
+							_featureNames);
+		}
+
+		public Iterator<Annotation> iterator() {
+			if (_within != null)
+				return new RefineIterator();
+			return new TypeIterator(_type, null, _features, _featureNames);
+		}
+	}
+
+	/**
+	 * Annotations that start and end within the given offsets.
+	 */
+	static class ContainedView extends AnnotationSetView {
+
+		static final long serialVersionUID = 1L;
+
+		private final long _offsetStart;
+
+		private final long _offsetEnd;
+
+		ContainedView(AbstractAnnotationSet parent, AnnotationSetView within,
+				long offsetStart, long offsetEnd) {
+			super(parent, within);
+			_offsetStart = offsetStart;
+			_offsetEnd = offsetEnd;
+		}
+
+		boolean test(Annotation a) {
+			long start = a.getStartNodeOffset();
+			return (start >= _offsetStart) && (start <= _offsetEnd)
+					&& (a.getEndNodeOffset() <= _offsetEnd);
+		}
+
+		public Iterator<Annotation> iterator() {
+			return new IndexIterator(_offsetStart, _offsetEnd, _offsetEnd);
+		}
+	}
+
+	/**
+	 * Annotations starting at or after the given offset.
+	 */
+	static class StartingFromView extends AnnotationSetView {
+
+		static final long serialVersionUID = 1L;
+
+		private final long _offset;
+
+		StartingFromView(AbstractAnnotationSet parent, AnnotationSetView within,
+				long offset) {
+			super(parent, within);
+			_offset = offset;
+		}
+
+		boolean test(Annotation a) {
+			return a.getStartNodeOffset() >= _offset;
+		}
+
+		public Iterator<Annotation> iterator() {
+			return new IndexIterator(_offset, Long.MAX_VALUE, Long.MAX_VALUE);
+		}
+	}
+}
@@ -0,0 +1,1945 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationConstants;
+import org.seasr.components.text.datatype.corpora.AnnotationPredicate;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.corpora.SymbolTable;
+import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoder;
+import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoderException;
+
+/**
+ * A compact, column oriented annotation set. Ids, offsets and interned type
+ * ids are held in parallel primitive arrays (one row per annotation) and each
+ * feature gets its own column of values, indexed by its SymbolTable id, so a
+ * token costs a few array slots instead of an <code>AnnotationImpl</code>, a
+ * <code>HashMap</code> of features and three index entries. Columns keep
+ * values as <code>FeatureMapImpl</code> does: booleans and numbers unboxed,
+ * annotation references and id lists as objects.
+ * <p>
+ * <code>Annotation</code> and <code>FeatureMap</code> objects handed out by
+ * this set are lightweight views created on demand; reads and writes through
+ * them go straight to the columns. Two views of the same annotation are
+ * equal. A view must not be used once its annotation has been removed from
+ * the set.
+ * <p>
+ * Unlike <code>AnnotationSetImpl</code>, annotations and feature maps passed
+ * to the <code>add</code> methods are copied into the columns rather than
+ * retained, typed values keeping their kind; the row of an annotation of
+ * another columnar set is copied cell by cell. The type and feature queries and the contained and starting
+ * offset queries return the same read-only views as
+ * <code>AnnotationSetImpl</code>, evaluated against the columns as they are
+ * iterated: only the annotations returned are ever created. The interval
+ * index is built from the offset columns and keeps ids only.
+ */
+public class ColumnarAnnotationSet extends AbstractAnnotationSet implements
+		AnnotationSet {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static final long serialVersionUID = 4L;
+
+	static private final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Kind written for an empty cell when a column is serialized.
+	 */
+	static private final byte NO_VALUE = -1;
+
+	/**
+	 * The name of this annotation set.
+	 */
+	private String _name;
+
+	/**
+	 * The document this annotation set belongs to.
+	 */
+	private DocumentImpl _doc;
+
+	/**
+	 * Number of rows in use.
+	 */
+	private int _size = 0;
+
+	private int[] _ids;
+
+	private long[] _starts;
+
+	private long[] _ends;
+
+	private int[] _types;
+
+	/**
+	 * Rows by annotation id: row + 1 in an open addressing table (linear
+	 * probing) keyed by the id held in that row, 0 for an empty slot. Kept at
+	 * most half full, so its size follows the rows of this set rather than
+	 * the ids handed out by the document.
+	 */
+	private transient int[] _idSlots;
+
+	/**
+	 * Interned annotation types, indexed by type id.
+	 */
+	private ArrayList<String> _typeNames;
+
+	private HashMap<String, Integer> _typeIds;
+
+	/**
+	 * SymbolTable id of each local type id, filled in on demand.
+	 */
+	private transient int[] _typeSymbols;
+
+	/**
+	 * SymbolTable ids of the features set on any annotation of this set, in
+	 * order of first use.
+	 */
+	private transient int[] _featureSyms;
+
+	private transient int _numFeatures;
+
+	/**
+	 * Feature columns indexed by SymbolTable id. A column is allocated the
+	 * first time its feature is set; empty cells are absent features.
+	 */
+	private transient Column[] _featureCols;
+
+	/**
+	 * Interval index over the annotations in this set. Built lazily on the
+	 * first range query, then told of every change and brought up to date
+	 * by the next query.
+	 */
+	private transient IntervalIndex _intervalIndex;
+
+	/**
+	 * Count of structural modifications, used by views of this set.
+	 */
+	private transient int _modCount;
+
+	// ==============
+	// Constructors
+	// ==============
+
+	/**
+	 * Construction given a document.
+	 */
+	public ColumnarAnnotationSet(Document doc) {
+		_doc = (DocumentImpl) doc;
+		_ids = new int[INITIAL_CAPACITY];
+		_starts = new long[INITIAL_CAPACITY];
+		_ends = new long[INITIAL_CAPACITY];
+		_types = new int[INITIAL_CAPACITY];
+		_idSlots = new int[INITIAL_CAPACITY * 2];
+		_typeNames = new ArrayList<String>();
+		_typeIds = new HashMap<String, Integer>();
+		_featureSyms = new int[8];
+		_featureCols = new Column[16];
+	}
+
+	/**
+	 * Construction given a document and a name.
+	 */
+	public ColumnarAnnotationSet(Document doc, String name) {
+		this(doc);
+		_name = name;
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	/**
+	 * Add a new annotation with existing nodes to this set. Return its ID.
+	 */
+	public int add(long start, long end, String type, FeatureMap features)
+			throws Exception {
+		// check the offsets are valid
+		if (!_doc.isValidOffsets(start, end)) {
+			System.err.println("ERROR: ColumnarAnnotationSet.add(" + start
+					+ ", " + end + ")");
+			return -1;
+		}
+
+		// the document remembers all annotations associated with it and
+		// it will return the next Id in line.
+		int id = _doc.getNextAnnotationId();
+
+		addRow(id, start, end, type, features);
+
+		return id;
+	}
+
+	/**
+	 * Add a new annotation with an existing ID.
+	 */
+	public void add(int ID, long start, long end, String type,
+			FeatureMap features) throws Exception {
+		if (!_doc.isValidOffsets(start, end))
+			throw new Exception();
+
+		addRow(ID, start, end, type, features);
+	}
+
+	/**
+	 * Add an existing annotation. Its state is copied into this set, the row
+	 * of an annotation of another columnar set cell by cell; an annotation
+	 * already in this set with the same ID is replaced.
+	 * 
+	 * @return true if insertion is successful.
+	 */
+	public boolean add(Annotation a) {
+		if (a instanceof ColumnarAnnotation) {
+			ColumnarAnnotationSet src = ((ColumnarAnnotation) a).getOwner();
+
+			// a view of one of my own rows is already here
+			if (src == this)
+				return true;
+
+			int srow = src.rowOf(a.getId());
+			if (srow >= 0) {
+				boolean replaced = (rowOf(a.getId()) >= 0);
+				int row = storeRow(a.getId(), src._starts[srow],
+						src._ends[srow], src._typeNames.get(src._types[srow]));
+				copyRow(src, srow, row);
+				modified(replaced, row);
+				return true;
+			}
+		}
+		addRow(a.getId(), a.getStartNodeOffset(), a.getEndNodeOffset(), a
+				.getType(), a.getFeatures());
+		return true;
+	}
+
+	/**
+	 * Get an iterator for this set.
+	 */
+	public Iterator<Annotation> iterator() {
+		return new RowIterator();
+	}
+
+	/**
+	 * Return the size of this set.
+	 */
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * Remove an element from this set.
+	 * 
+	 * @return true if removal is successful.
+	 */
+	public boolean remove(Object o) {
+		if (!(o instanceof Annotation))
+			return false;
+
+		int row = rowOf(((Annotation) o).getId());
+		if (row < 0)
+			return false;
+
+		removeRow(row);
+		return true;
+	}
+
+	/**
+	 * Remove all the given annotations from this set, compacting the columns
+	 * in one pass.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean removeAll(Collection<?> c) {
+		boolean[] drop = new boolean[_size];
+		boolean any = false;
+		for (Iterator<?> it = c.iterator(); it.hasNext();) {
+			Object o = it.next();
+			if (!(o instanceof Annotation))
+				continue;
+
+			int row = rowOf(((Annotation) o).getId());
+			if (row >= 0) {
+				drop[row] = true;
+				any = true;
+			}
+		}
+		if (any) {
+			compact(drop);
+		}
+		return any;
+	}
+
+	/**
+	 * Remove every annotation that satisfies the given predicate, compacting
+	 * the columns in one pass.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean removeMatching(AnnotationPredicate filter) {
+		boolean[] drop = new boolean[_size];
+		boolean any = false;
+		for (int row = 0; row < _size; row++) {
+			if (filter.test(new ColumnarAnnotation(_ids[row]))) {
+				drop[row] = true;
+				any = true;
+			}
+		}
+		if (any) {
+			compact(drop);
+		}
+		return any;
+	}
+
+	/**
+	 * Retain only the annotations in the given collection.
+	 * 
+	 * @return true if this set changed.
+	 */
+	public boolean retainAll(final Collection<?> c) {
+		return removeMatching(new AnnotationPredicate() {
+			public boolean test(Annotation a) {
+				return !c.contains(a);
+			}
+		});
+	}
+
+	/**
+	 * Remove all annotations from this set.
+	 */
+	public void clear() {
+		for (int f = 0; f < _numFeatures; f++) {
+			_featureCols[_featureSyms[f]].clear(0, _size);
+		}
+		Arrays.fill(_idSlots, 0);
+		_size = 0;
+		_intervalIndex = null;
+		_modCount++;
+	}
+
+	/**
+	 * Returns true if this set holds the given annotation. Ids are unique
+	 * within a document, so a view handed out by any columnar set of this
+	 * set's document matches by id. Any other annotation, e.g. one copied in
+	 * with <code>add(Annotation)</code>, matches the row with its id if the
+	 * offsets and type agree.
+	 */
+	public boolean contains(Object o) {
+		if (!(o instanceof Annotation))
+			return false;
+
+		if (o instanceof ColumnarAnnotation) {
+			ColumnarAnnotation a = (ColumnarAnnotation) o;
+			return (a.getOwner().getDocument() == _doc) && (rowOf(a._id) >= 0);
+		}
+
+		Annotation a = (Annotation) o;
+		int row = rowOf(a.getId());
+		return (row >= 0) && (_starts[row] == a.getStartNodeOffset())
+				&& (_ends[row] == a.getEndNodeOffset())
+				&& _typeNames.get(_types[row]).equals(a.getType());
+	}
+
+	/**
+	 * Get an annotation by ID.
+	 */
+	public Annotation get(int id) {
+		if (rowOf(id) < 0)
+			return null;
+
+		return new ColumnarAnnotation(id);
+	}
+
+	/**
+	 * Return all annotations in this set.
+	 */
+	public AnnotationSet get() {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
+		for (int row = 0; row < _size; row++) {
+			aset.add(new ColumnarAnnotation(_ids[row]));
+		}
+		return aset;
+	}
+
+	/**
+	 * Return all annotations with this given type. The result is a read-only
+	 * view that scans the type column as it is iterated.
+	 */
+	public AnnotationSet get(String type) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		if (!_typeIds.containsKey(type))
+			return null;
+
+		return AnnotationSetView.nullIfEmpty(new AnnotationSetView.TypeView(
+				this, null, type, null));
+	}
+
+	/**
+	 * Return all annotations with all types in this given set, as a read-only
+	 * view.
+	 */
+	public AnnotationSet get(Set<String> types) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		return AnnotationSetView.nullIfEmpty(new AnnotationSetView.TypeView(
+				this, null, null, types));
+	}
+
+	/**
+	 * Return all annotations with a given type and features. The result is a
+	 * read-only view that tests the type and feature columns as it is
+	 * iterated.
+	 */
+	public AnnotationSet get(String type, FeatureMap features) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		return AnnotationSetView.nullIfEmpty(new AnnotationSetView.FeatureView(
+				this, null, type, features, null));
+	}
+
+	/**
+	 * Return all annotations with a given type and set of features, as a
+	 * read-only view over the columns.
+	 */
+	public AnnotationSet get(String type, Set<String> featureNames) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		return AnnotationSetView.nullIfEmpty(new AnnotationSetView.FeatureView(
+				this, null, type, null, featureNames));
+	}
+
+	/**
+	 * Return all annotations by type, features, and offset.
+	 */
+	public AnnotationSet get(String type, FeatureMap features, long offset) {
+		// first, filter all the annotations in this set by offset.
+		AnnotationSet midset = get(offset);
+
+		if (midset == null)
+			return null;
+
+		// second, filter all the annotations by type and features
+		return midset.get(type, features);
+	}
+
+	/**
+	 * Return all annotations with a starting offset that is greater than or
+	 * equal to the given offset. The result is a read-only view over the tail
+	 * of the interval index.
+	 */
+	public AnnotationSet get(long offset) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		return AnnotationSetView
+				.nullIfEmpty(new AnnotationSetView.StartingFromView(this,
+						null, offset));
+	}
+
+	/**
+	 * Return all annotations that overlap with the given offsets.
+	 */
+	public AnnotationSet get(long offsetStart, long offsetEnd) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
+		getIntervalIndex().getOverlapping(offsetStart, offsetEnd, aset);
+		return nullIfEmpty(aset);
+	}
+
+	/**
+	 * Returns true if at least one annotation in this set covers a range that
+	 * overlaps with the given range.
+	 */
+	public boolean coversPartialRange(long offsetStart, long offsetEnd) {
+		if (size() == 0)
+			return false;
+
+		return getIntervalIndex().coversPartialRange(offsetStart, offsetEnd);
+	}
+
+	/**
+	 * Return all annotations with the given type and that overlap with the
+	 * given offsets.
+	 */
+	public AnnotationSet get(String type, long offsetStart, long offsetEnd) {
+		AnnotationSet midset = get(offsetStart, offsetEnd);
+
+		if (midset == null)
+			return null;
+
+		return midset.get(type);
+	}
+
+	/**
+	 * Return all annotations that are exclusively inside the given offsets.
+	 * The result is a read-only view over a slice of the interval index.
+	 */
+	public AnnotationSet getContained(long offsetStart, long offsetEnd) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		return AnnotationSetView
+				.nullIfEmpty(new AnnotationSetView.ContainedView(this, null,
+						offsetStart, offsetEnd));
+	}
+
+	/**
+	 * Return all annotations that have exact offsets as the given offsets.
+	 */
+	public AnnotationSet getExact(long offsetStart, long offsetEnd) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
+		getIntervalIndex().getExact(offsetStart, offsetEnd, aset);
+		return nullIfEmpty(aset);
+	}
+
+	/**
+	 * Return all annotations that have exact starting offsets as the given
+	 * offset.
+	 */
+	public AnnotationSet getExactStart(long offsetStart) {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		AnnotationSetImpl aset = new AnnotationSetImpl(_doc);
+		getIntervalIndex().getExactStart(offsetStart, aset);
+		return nullIfEmpty(aset);
+	}
+
+	/**
+	 * Return all annotations in this set in an ArrayList as sorted by their
+	 * starting node's offset in ascending order, the longer one first when two
+	 * start together.
+	 */
+	public ArrayList<Annotation> getAllSortedAsArrayList() {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		return getIntervalIndex().toList();
+	}
+
+	/**
+	 * Get an iterator over this set in document order, cached with the
+	 * interval index.
+	 */
+	public Iterator<Annotation> sortedIterator() {
+		return getIntervalIndex().iterator(this);
+	}
+
+	/**
+	 * Return the annotation at the given position in document order, or null
+	 * if the position is out of range.
+	 */
+	public Annotation getAnnotationAtPos(int pos) {
+		if ((pos < 0) || (pos >= _size))
+			return null;
+
+		return getIntervalIndex().annotAt(pos);
+	}
+
+	/**
+	 * Return the position of the given annotation in document order, or -1 if
+	 * it is not in this set.
+	 */
+	public int getPosition(Annotation annot) {
+		if (!contains(annot))
+			return -1;
+
+		return getIntervalIndex().indexOf(annot);
+	}
+
+	/**
+	 * Get the name of this set.
+	 */
+	public String getName() {
+		return _name;
+	}
+
+	/**
+	 * Get a set of String objects that list all the annotation types in this
+	 * set.
+	 */
+	public Set<String> getAllTypes() {
+		// i don't have anything, return null
+		if (size() == 0)
+			return null;
+
+		boolean[] seen = new boolean[_typeNames.size()];
+		Set<String> allTypes = new HashSet<String>();
+		for (int row = 0; row < _size; row++) {
+			int t = _types[row];
+			if (!seen[t]) {
+				seen[t] = true;
+				allTypes.add(_typeNames.get(t));
+			}
+		}
+		return allTypes;
+	}
+
+	/**
+	 * Get the document this set is attached to.
+	 */
+	public Document getDocument() {
+		return _doc;
+	}
+
+	// ==================
+	// Package Methods
+	// ==================
+
+	int getModCount() {
+		return _modCount;
+	}
+
+	/**
+	 * Return the interval index for this set, building it from the offset
+	 * columns on first use and merging in the changes made since it was last
+	 * used.
+	 */
+	IntervalIndex getIntervalIndex() {
+		if (_intervalIndex == null) {
+			_intervalIndex = new IntervalIndex(new IndexOwner(), false);
+			for (int row = 0; row < _size; row++) {
+				_intervalIndex.add(_ids[row], _starts[row], _ends[row]);
+			}
+		}
+		_intervalIndex.update();
+		return _intervalIndex;
+	}
+
+	Iterator<Annotation> typeIterator(String type) {
+		return featureIterator(type, null, null);
+	}
+
+	/**
+	 * Iterate over the rows of the given type with the given feature values
+	 * and names, testing the columns before a view is created for a row.
+	 */
+	Iterator<Annotation> featureIterator(String type, FeatureMap features,
+			Set<String> featureNames) {
+		Integer tid = _typeIds.get(type);
+		if (tid == null)
+			return null;
+
+		// resolve the wanted features to columns once, a null value
+		// matches any value
+		int nfeats = ((features == null) ? 0 : features.size())
+				+ ((featureNames == null) ? 0 : featureNames.size());
+		Column[] cols = new Column[nfeats];
+		String[] vals = new String[nfeats];
+		int i = 0;
+		if (features != null) {
+			for (Map.Entry<String, String> e : features.entrySet()) {
+				Column col = featureColumn(e.getKey());
+				if ((col == null) || (e.getValue() == null)) {
+					// nobody has this feature
+					return null;
+				}
+				cols[i] = col;
+				vals[i] = e.getValue();
+				i++;
+			}
+		}
+		if (featureNames != null) {
+			for (String name : featureNames) {
+				Column col = featureColumn(name);
+				if (col == null)
+					return null;
+				cols[i++] = col;
+			}
+		}
+		return new RowIterator(tid.intValue(), cols, vals);
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	private static AnnotationSet nullIfEmpty(AnnotationSetImpl aset) {
+		return (aset.size() > 0) ? aset : null;
+	}
+
+	/**
+	 * Note a structural change for the views, and for the interval index the
+	 * entry that left it (<b>removed</b>) and the one added, if any.
+	 */
+	private void modified(boolean removed, int addedRow) {
+		_modCount++;
+		if (_intervalIndex != null) {
+			if (removed) {
+				_intervalIndex.removed();
+			}
+			if (addedRow >= 0) {
+				_intervalIndex.add(_ids[addedRow], _starts[addedRow],
+						_ends[addedRow]);
+			}
+		}
+	}
+
+	/**
+	 * The value column of the named feature, null if no annotation has had
+	 * it.
+	 */
+	private Column featureColumn(String name) {
+		return featureColumn(SymbolTable.lookup(name));
+	}
+
+	/**
+	 * The value column of a feature by SymbolTable id, null if no annotation
+	 * has had it.
+	 */
+	private Column featureColumn(int sym) {
+		if ((sym < 0) || (sym >= _featureCols.length))
+			return null;
+
+		return _featureCols[sym];
+	}
+
+	/**
+	 * Return the value column for a feature, allocating it if needed.
+	 */
+	private Column column(int sym) {
+		if (sym < 0)
+			throw new NullPointerException("Feature name is null.");
+
+		if (sym >= _featureCols.length) {
+			Column[] cols = new Column[Math.max(sym + 1,
+					_featureCols.length * 2)];
+			System.arraycopy(_featureCols, 0, cols, 0, _featureCols.length);
+			_featureCols = cols;
+		}
+		Column col = _featureCols[sym];
+		if (col == null) {
+			col = new Column(_ids.length);
+			_featureCols[sym] = col;
+			if (_numFeatures == _featureSyms.length) {
+				_featureSyms = grow(_featureSyms, _numFeatures * 2);
+			}
+			_featureSyms[_numFeatures++] = sym;
+		}
+		return col;
+	}
+
+	/**
+	 * Row holding the given annotation id, -1 if it is not in this set.
+	 */
+	private int rowOf(int id) {
+		int mask = _idSlots.length - 1;
+		for (int h = FeatureMapImpl.hash(id) & mask; _idSlots[h] != 0; h = (h + 1)
+				& mask) {
+			int row = _idSlots[h] - 1;
+			if (_ids[row] == id)
+				return row;
+		}
+		return -1;
+	}
+
+	/**
+	 * Enter the id of a new row in the id table.
+	 */
+	private void insertId(int row) {
+		int mask = _idSlots.length - 1;
+		int h = FeatureMapImpl.hash(_ids[row]) & mask;
+		while (_idSlots[h] != 0) {
+			h = (h + 1) & mask;
+		}
+		_idSlots[h] = row + 1;
+	}
+
+	/**
+	 * Take an id out of the id table, moving the later entries of its probe
+	 * run back so that no run is broken.
+	 */
+	private void removeId(int id) {
+		int mask = _idSlots.length - 1;
+		int h = FeatureMapImpl.hash(id) & mask;
+		while ((_idSlots[h] != 0) && (_ids[_idSlots[h] - 1] != id)) {
+			h = (h + 1) & mask;
+		}
+		if (_idSlots[h] == 0)
+			return;
+
+		_idSlots[h] = 0;
+		for (int j = (h + 1) & mask; _idSlots[j] != 0; j = (j + 1) & mask) {
+			// an entry may fill the hole if its home slot is not between
+			// the hole and itself
+			int home = FeatureMapImpl.hash(_ids[_idSlots[j] - 1]) & mask;
+			if (((j - home) & mask) >= ((j - h) & mask)) {
+				_idSlots[h] = _idSlots[j];
+				_idSlots[j] = 0;
+				h = j;
+			}
+		}
+	}
+
+	/**
+	 * Point the id table entry of the id held in row <b>from</b> at row
+	 * <b>to</b>.
+	 */
+	private void moveId(int from, int to) {
+		int mask = _idSlots.length - 1;
+		int h = FeatureMapImpl.hash(_ids[from]) & mask;
+		while (_idSlots[h] != from + 1) {
+			h = (h + 1) & mask;
+		}
+		_idSlots[h] = to + 1;
+	}
+
+	/**
+	 * Rebuild the id table for the current rows.
+	 */
+	private void rehashIds() {
+		int cap = 16;
+		while (cap < _size * 4) {
+			cap <<= 1;
+		}
+		_idSlots = new int[cap];
+		for (int row = 0; row < _size; row++) {
+			insertId(row);
+		}
+	}
+
+	/**
+	 * Store an annotation, overwriting the row of an existing annotation with
+	 * the same id.
+	 */
+	private void addRow(int id, long start, long end, String type,
+			FeatureMap features) {
+		boolean replaced = (rowOf(id) >= 0);
+		int row = storeRow(id, start, end, type);
+		copyFeatures(row, features);
+		modified(replaced, row);
+	}
+
+	/**
+	 * Store the offsets and type of an annotation in a new row, or in the row
+	 * of an existing annotation with the same id after clearing its features.
+	 * 
+	 * @return the row.
+	 */
+	private int storeRow(int id, long start, long end, String type) {
+		if (id < 0) {
+			throw new IllegalArgumentException(
+					"Annotation ids must be non-negative: " + id);
+		}
+
+		int row = rowOf(id);
+		if (row < 0) {
+			ensureCapacity(_size + 1);
+			row = _size++;
+			_ids[row] = id;
+			// keep the table at most half full
+			if (_size * 2 > _idSlots.length) {
+				rehashIds();
+			} else {
+				insertId(row);
+			}
+		} else {
+			clearFeatures(row);
+		}
+
+		_starts[row] = start;
+		_ends[row] = end;
+		_types[row] = typeId(type);
+		return row;
+	}
+
+	/**
+	 * Store the given features in a row with no features, keeping the kinds
+	 * of the values of a <code>FeatureMapImpl</code> and of the cells of
+	 * another row.
+	 */
+	private void copyFeatures(int row, FeatureMap features) {
+		if (features == null)
+			return;
+
+		if (features instanceof FeatureMapImpl) {
+			FeatureMapImpl fm = (FeatureMapImpl) features;
+			for (int i = 0, n = fm.size(); i < n; i++) {
+				byte kind = fm.kindAt(i);
+				Object value = fm.valueAt(i);
+				if ((kind != FeatureMapImpl.KIND_STRING) || (value != null)) {
+					column(fm.keyAt(i)).set(row, kind, value, fm.primAt(i));
+				}
+			}
+		} else if (features instanceof RowFeatureMap) {
+			RowFeatureMap rfm = (RowFeatureMap) features;
+			copyRow(rfm.getOwner(), rfm.row(), row);
+		} else {
+			for (Map.Entry<String, String> e : features.entrySet()) {
+				if (e.getValue() != null) {
+					column(SymbolTable.intern(e.getKey())).set(row,
+							FeatureMapImpl.KIND_STRING, e.getValue(), 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy the feature cells of row <b>srow</b> of <b>src</b> into a row of
+	 * this set with no features.
+	 */
+	private void copyRow(ColumnarAnnotationSet src, int srow, int row) {
+		for (int f = 0; f < src._numFeatures; f++) {
+			int sym = src._featureSyms[f];
+			Column scol = src._featureCols[sym];
+			if (scol.has(srow)) {
+				column(sym).copy(scol, srow, row);
+			}
+		}
+	}
+
+	/**
+	 * Remove a row by moving the last row into its place.
+	 */
+	private void removeRow(int row) {
+		int last = _size - 1;
+		removeId(_ids[row]);
+
+		if (row != last) {
+			moveId(last, row);
+			_ids[row] = _ids[last];
+			_starts[row] = _starts[last];
+			_ends[row] = _ends[last];
+			_types[row] = _types[last];
+		}
+		for (int f = 0; f < _numFeatures; f++) {
+			Column col = _featureCols[_featureSyms[f]];
+			if (row != last) {
+				col.copy(col, last, row);
+			}
+			col.clear(last);
+		}
+
+		_size--;
+		modified(true, -1);
+	}
+
+	/**
+	 * Remove the flagged rows, sliding the remaining rows down so that their
+	 * relative order is kept.
+	 */
+	private void compact(boolean[] drop) {
+		int w = 0;
+		for (int r = 0; r < _size; r++) {
+			if (drop[r])
+				continue;
+
+			if (w != r) {
+				_ids[w] = _ids[r];
+				_starts[w] = _starts[r];
+				_ends[w] = _ends[r];
+				_types[w] = _types[r];
+				for (int f = 0; f < _numFeatures; f++) {
+					Column col = _featureCols[_featureSyms[f]];
+					col.copy(col, r, w);
+				}
+			}
+			w++;
+		}
+		for (int f = 0; f < _numFeatures; f++) {
+			_featureCols[_featureSyms[f]].clear(w, _size);
+		}
+		_size = w;
+		rehashIds();
+		modified(true, -1);
+	}
+
+	private void clearFeatures(int row) {
+		for (int f = 0; f < _numFeatures; f++) {
+			_featureCols[_featureSyms[f]].clear(row);
+		}
+	}
+
+	private void ensureCapacity(int rows) {
+		if (rows <= _ids.length)
+			return;
+
+		int cap = Math.max(rows, _ids.length * 2);
+		_ids = grow(_ids, cap);
+		_starts = grow(_starts, cap);
+		_ends = grow(_ends, cap);
+		_types = grow(_types, cap);
+		for (int f = 0; f < _numFeatures; f++) {
+			_featureCols[_featureSyms[f]].grow(cap, _size);
+		}
+	}
+
+	private static int[] grow(int[] src, int cap) {
+		int[] arr = new int[cap];
+		System.arraycopy(src, 0, arr, 0, src.length);
+		return arr;
+	}
+
+	private static long[] grow(long[] src, int cap) {
+		long[] arr = new long[cap];
+		System.arraycopy(src, 0, arr, 0, src.length);
+		return arr;
+	}
+
+	private int typeId(String type) {
+		Integer tid = _typeIds.get(type);
+		if (tid == null) {
+			tid = new Integer(_typeNames.size());
+			_typeNames.add(type);
+			_typeIds.put(type, tid);
+		}
+		return tid.intValue();
+	}
+
+	/**
+	 * Return the SymbolTable id of a local type id.
+	 */
+	private int typeSymbol(int tid) {
+		if ((_typeSymbols == null) || (_typeSymbols.length <= tid)) {
+			int[] syms = new int[_typeNames.size()];
+			for (int t = 0; t < syms.length; t++) {
+				syms[t] = SymbolTable.intern(_typeNames.get(t));
+			}
+			_typeSymbols = syms;
+		}
+		return _typeSymbols[tid];
+	}
+
+	/**
+	 * Symbol ids are only valid in this VM, so each feature column is written
+	 * by name, followed by the kind and value of each cell.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(_numFeatures);
+		for (int f = 0; f < _numFeatures; f++) {
+			int sym = _featureSyms[f];
+			Column col = _featureCols[sym];
+			out.writeObject(SymbolTable.nameOf(sym));
+			for (int row = 0; row < _size; row++) {
+				if (!col.has(row)) {
+					out.writeByte(NO_VALUE);
+					continue;
+				}
+				byte kind = col.kind(row);
+				out.writeByte(kind);
+				switch (kind) {
+				case FeatureMapImpl.KIND_STRING:
+				case FeatureMapImpl.KIND_ANNOTATION:
+				case FeatureMapImpl.KIND_INT_ARRAY:
+					out.writeObject(col.values[row]);
+					break;
+				default:
+					out.writeLong(col.prims[row]);
+				}
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		_featureSyms = new int[8];
+		_numFeatures = 0;
+		_featureCols = new Column[16];
+		int nfeats = in.readInt();
+		for (int f = 0; f < nfeats; f++) {
+			Column col = column(SymbolTable.intern((String) in.readObject()));
+			for (int row = 0; row < _size; row++) {
+				byte kind = in.readByte();
+				switch (kind) {
+				case NO_VALUE:
+					break;
+				case FeatureMapImpl.KIND_STRING:
+				case FeatureMapImpl.KIND_ANNOTATION:
+				case FeatureMapImpl.KIND_INT_ARRAY:
+					col.set(row, kind, in.readObject(), 0);
+					break;
+				default:
+					col.set(row, kind, null, in.readLong());
+				}
+			}
+		}
+		rehashIds();
+	}
+
+	// =================
+	// Inner Class(es)
+	// =================
+
+	/**
+	 * Iterates over the rows in storage order, optionally only those of one
+	 * type whose feature columns hold the given values.
+	 */
+	private class RowIterator implements Iterator<Annotation> {
+
+		/**
+		 * Type id of the rows wanted, -1 for all rows.
+		 */
+		private final int _type;
+
+		private final Column[] _cols;
+
+		/**
+		 * String view wanted in each column, null for any value.
+		 */
+		private final String[] _vals;
+
+		private int _next = -1;
+
+		private int _last = -1;
+
+		RowIterator() {
+			this(-1, null, null);
+		}
+
+		RowIterator(int type, Column[] cols, String[] vals) {
+			_type = type;
+			_cols = cols;
+			_vals = vals;
+			advance();
+		}
+
+		private void advance() {
+			for (_next++; _next < _size; _next++) {
+				if (matches(_next))
+					return;
+			}
+		}
+
+		private boolean matches(int row) {
+			if (_type < 0)
+				return true;
+			if (_types[row] != _type)
+				return false;
+			for (int f = 0; f < _cols.length; f++) {
+				if (!_cols[f].has(row))
+					return false;
+				if ((_vals[f] != null)
+						&& !_vals[f].equals(_cols[f].getString(row)))
+					return false;
+			}
+			return true;
+		}
+
+		public boolean hasNext() {
+			return _next < _size;
+		}
+
+		public Annotation next() {
+			if (_next >= _size)
+				throw new NoSuchElementException();
+
+			_last = _next;
+			advance();
+			return new ColumnarAnnotation(_ids[_last]);
+		}
+
+		public void remove() {
+			if (_last < 0)
+				throw new IllegalStateException();
+
+			// the last row is moved into the removed one, visit it next
+			removeRow(_last);
+			_next = _last - 1;
+			_last = -1;
+			advance();
+		}
+	}
+
+	/**
+	 * Tells the interval index which of its entries are still rows of this
+	 * set, and creates the views it hands out.
+	 */
+	private class IndexOwner implements IntervalIndex.Owner {
+
+		public boolean holds(int id, long start, long end, Annotation annot) {
+			int row = rowOf(id);
+			return (row >= 0) && (_starts[row] == start)
+					&& (_ends[row] == end);
+		}
+
+		public Annotation annotOf(int id) {
+			return new ColumnarAnnotation(id);
+		}
+	}
+
+	/**
+	 * Flyweight view of one row of this set.
+	 */
+	private class ColumnarAnnotation implements Annotation {
+
+		static final long serialVersionUID = 3L;
+
+		private int _id;
+
+		private transient RowFeatureMap _features = null;
+
+		ColumnarAnnotation(int id) {
+			_id = id;
+		}
+
+		ColumnarAnnotationSet getOwner() {
+			return ColumnarAnnotationSet.this;
+		}
+
+		private int row() {
+			int row = rowOf(_id);
+			if (row < 0) {
+				throw new IllegalStateException("Annotation " + _id
+						+ " is no longer in annotation set " + _name);
+			}
+			return row;
+		}
+
+		public String getContent(Document sofa) {
+			int row = row();
+			if (getFeatures().get(
+					AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL) != null) {
+				return sofa.getTitle().substring((int) _starts[row],
+						(int) _ends[row]);
+			} else {
+				return sofa.getContent().substring((int) _starts[row],
+						(int) _ends[row]);
+			}
+		}
+
+		public int getId() {
+			return _id;
+		}
+
+		public String getType() {
+			return _typeNames.get(_types[row()]);
+		}
+
+		public int getTypeId() {
+			return typeSymbol(_types[row()]);
+		}
+
+		public long getStartNodeOffset() {
+			return _starts[row()];
+		}
+
+		public long getEndNodeOffset() {
+			return _ends[row()];
+		}
+
+		public FeatureMap getFeatures() {
+			if (_features == null) {
+				_features = new RowFeatureMap(_id);
+			}
+			return _features;
+		}
+
+		public void setFeatures(FeatureMap features) {
+			int row = row();
+			if ((features instanceof RowFeatureMap)
+					&& (((RowFeatureMap) features).getOwner() == getOwner())
+					&& (((RowFeatureMap) features).row() == row)) {
+				// these are already my features
+				return;
+			}
+			clearFeatures(row);
+			copyFeatures(row, features);
+		}
+
+		public boolean isCompatible(Annotation annot) {
+			if (annot == null)
+				return false;
+
+			return coextensive(annot)
+					&& annot.getFeatures().subsumes(getFeatures());
+		}
+
+		public boolean isCompatible(Annotation annot, Set<String> featureNamesSet) {
+			if (featureNamesSet == null)
+				return isCompatible(annot);
+
+			if (annot == null)
+				return false;
+
+			return coextensive(annot)
+					&& annot.getFeatures().subsumes(getFeatures(),
+							featureNamesSet);
+		}
+
+		public boolean isPartiallyCompatible(Annotation annot) {
+			if (annot == null)
+				return false;
+
+			return overlaps(annot)
+					&& annot.getFeatures().subsumes(getFeatures());
+		}
+
+		public boolean isPartiallyCompatible(Annotation annot,
+				Set<String> featureNamesSet) {
+			if (featureNamesSet == null)
+				return isPartiallyCompatible(annot);
+
+			if (annot == null)
+				return false;
+
+			return overlaps(annot)
+					&& annot.getFeatures().subsumes(getFeatures(),
+							featureNamesSet);
+		}
+
+		public boolean coextensive(Annotation annot) {
+			if (annot == null)
+				return false;
+
+			int row = row();
+			return (_starts[row] == annot.getStartNodeOffset())
+					&& (_ends[row] == annot.getEndNodeOffset());
+		}
+
+		public boolean overlaps(Annotation annot) {
+			if (annot == null)
+				return false;
+
+			int row = row();
+			if ((_starts[row] == -1) || (_ends[row] == -1)
+					|| (annot.getStartNodeOffset() == -1)
+					|| (annot.getEndNodeOffset() == -1))
+				return false;
+
+			return (annot.getEndNodeOffset() >= _starts[row])
+					&& (annot.getStartNodeOffset() <= _ends[row]);
+		}
+
+		/**
+		 * Decodes a SEASR encoded Annotation into this row.
+		 */
+		public Annotation decode(String val)
+				throws FeatureValueEncoderDecoderException {
+			Annotation a = new AnnotationImpl().decode(val);
+			int row = row();
+			if (a.getId() != _id) {
+				if (rowOf(a.getId()) >= 0) {
+					throw new FeatureValueEncoderDecoderException(
+							"Decoded annotation id " + a.getId()
+									+ " is already in use in this set.");
+				}
+				removeId(_id);
+				_ids[row] = a.getId();
+				insertId(row);
+				_id = a.getId();
+				_features = null;
+			}
+			_starts[row] = a.getStartNodeOffset();
+			_ends[row] = a.getEndNodeOffset();
+			_types[row] = typeId(a.getType());
+			setFeatures(a.getFeatures());
+			modified(true, row);
+			return this;
+		}
+
+		/**
+		 * Endodes this objects state to a SEASR string encoding.
+		 */
+		public String encode() throws FeatureValueEncoderDecoderException {
+			int row = row();
+			StringBuffer sb = new StringBuffer();
+
+			sb.append("^annot{");
+			sb.append(_id);
+			sb.append(",");
+			sb.append(_typeNames.get(_types[row]));
+			sb.append(",");
+			sb.append(_starts[row]);
+			sb.append(",");
+			sb.append(_ends[row]);
+			sb.append(",");
+			sb.append(FeatureValueEncoderDecoder.encodeMap(getFeatures()));
+			sb.append("}");
+
+			return sb.toString();
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof ColumnarAnnotation))
+				return false;
+
+			ColumnarAnnotation other = (ColumnarAnnotation) o;
+			return (other.getOwner() == getOwner()) && (other._id == _id);
+		}
+
+		public int hashCode() {
+			return _id;
+		}
+	}
+
+	/**
+	 * Feature map view of one row of this set.
+	 */
+	private class RowFeatureMap extends AbstractMap<String, String> implements
+			FeatureMap, Serializable {
+
+		static final long serialVersionUID = 3L;
+
+		private final int _id;
+
+		RowFeatureMap(int id) {
+			_id = id;
+		}
+
+		ColumnarAnnotationSet getOwner() {
+			return ColumnarAnnotationSet.this;
+		}
+
+		int row() {
+			int row = rowOf(_id);
+			if (row < 0) {
+				throw new IllegalStateException("Annotation " + _id
+						+ " is no longer in annotation set " + _name);
+			}
+			return row;
+		}
+
+		public String get(Object key) {
+			if (!(key instanceof String))
+				return null;
+
+			return get(SymbolTable.lookup((String) key));
+		}
+
+		public boolean containsKey(Object key) {
+			if (!(key instanceof String))
+				return false;
+
+			return containsKey(SymbolTable.lookup((String) key));
+		}
+
+		/*
+		 * Columns are indexed by symbol id, so the int keyed accessors go
+		 * straight to the column.
+		 */
+
+		public String get(int key) {
+			Column col = featureColumn(key);
+			if (col == null)
+				return null;
+
+			int row = row();
+			return col.has(row) ? col.getString(row) : null;
+		}
+
+		public boolean containsKey(int key) {
+			Column col = featureColumn(key);
+			return (col != null) && col.has(row());
+		}
+
+		/**
+		 * Set a feature. A null value removes the feature.
+		 */
+		public String put(int key, String value) {
+			if (value == null)
+				return remove(key);
+
+			Column col = column(key);
+			int row = row();
+			String old = col.has(row) ? col.getString(row) : null;
+			col.set(row, FeatureMapImpl.KIND_STRING, value, 0);
+			return old;
+		}
+
+		public String remove(int key) {
+			Column col = featureColumn(key);
+			if (col == null)
+				return null;
+
+			int row = row();
+			if (!col.has(row))
+				return null;
+
+			String old = col.getString(row);
+			col.clear(row);
+			return old;
+		}
+
+		/*
+		 * Typed values are kept in the column with their kind, and read as
+		 * FeatureMapImpl reads them.
+		 */
+
+		public boolean getBoolean(int key) {
+			Column col = featureColumn(key);
+			int row = row();
+			if ((col == null) || !col.has(row))
+				return false;
+			if (col.kind(row) == FeatureMapImpl.KIND_BOOLEAN)
+				return col.prims[row] != 0;
+			return FeatureMapImpl.parseBoolean(col.getString(row));
+		}
+
+		public void setBoolean(int key, boolean value) {
+			column(key).set(row(), FeatureMapImpl.KIND_BOOLEAN, null,
+					value ? 1 : 0);
+		}
+
+		public int getInt(int key, int defaultValue) {
+			Column col = featureColumn(key);
+			int row = row();
+			if ((col == null) || !col.has(row))
+				return defaultValue;
+			switch (col.kind(row)) {
+			case FeatureMapImpl.KIND_INT:
+			case FeatureMapImpl.KIND_LONG:
+				return (int) col.prims[row];
+			case FeatureMapImpl.KIND_DOUBLE:
+				return (int) Double.longBitsToDouble(col.prims[row]);
+			default:
+				return (int) FeatureMapImpl.parseLong(col.getString(row),
+						defaultValue);
+			}
+		}
+
+		public void setInt(int key, int value) {
+			column(key).set(row(), FeatureMapImpl.KIND_INT, null, value);
+		}
+
+		public long getLong(int key, long defaultValue) {
+			Column col = featureColumn(key);
+			int row = row();
+			if ((col == null) || !col.has(row))
+				return defaultValue;
+			switch (col.kind(row)) {
+			case FeatureMapImpl.KIND_INT:
+			case FeatureMapImpl.KIND_LONG:
+				return col.prims[row];
+			case FeatureMapImpl.KIND_DOUBLE:
+				return (long) Double.longBitsToDouble(col.prims[row]);
+			default:
+				return FeatureMapImpl.parseLong(col.getString(row),
+						defaultValue);
+			}
+		}
+
+		public void setLong(int key, long value) {
+			column(key).set(row(), FeatureMapImpl.KIND_LONG, null, value);
+		}
+
+		public double getDouble(int key, double defaultValue) {
+			Column col = featureColumn(key);
+			int row = row();
+			if ((col == null) || !col.has(row))
+				return defaultValue;
+			switch (col.kind(row)) {
+			case FeatureMapImpl.KIND_INT:
+			case FeatureMapImpl.KIND_LONG:
+				return col.prims[row];
+			case FeatureMapImpl.KIND_DOUBLE:
+				return Double.longBitsToDouble(col.prims[row]);
+			default:
+				return FeatureMapImpl.parseDouble(col.getString(row),
+						defaultValue);
+			}
+		}
+
+		public void setDouble(int key, double value) {
+			column(key).set(row(), FeatureMapImpl.KIND_DOUBLE, null,
+					Double.doubleToRawLongBits(value));
+		}
+
+		public Annotation getAnnotation(int key) {
+			Column col = featureColumn(key);
+			int row = row();
+			if ((col == null) || !col.has(row))
+				return null;
+			if (col.kind(row) == FeatureMapImpl.KIND_ANNOTATION)
+				return (Annotation) col.values[row];
+			return FeatureMapImpl.parseAnnotation(col.getString(row));
+		}
+
+		public void setAnnotation(int key, Annotation value) {
+			if (value == null) {
+				remove(key);
+				return;
+			}
+			column(key).set(row(), FeatureMapImpl.KIND_ANNOTATION, value, 0);
+		}
+
+		public int[] getIntArray(int key) {
+			Column col = featureColumn(key);
+			int row = row();
+			if ((col == null) || !col.has(row))
+				return null;
+			if (col.kind(row) == FeatureMapImpl.KIND_INT_ARRAY)
+				return (int[]) col.values[row];
+			return FeatureMapImpl.parseIntArray(col.getString(row));
+		}
+
+		public void setIntArray(int key, int[] value) {
+			if (value == null) {
+				remove(key);
+				return;
+			}
+			column(key).set(row(), FeatureMapImpl.KIND_INT_ARRAY, value, 0);
+		}
+
+		/**
+		 * Set a feature. A null value removes the feature.
+		 */
+		public String put(String key, String value) {
+			if (key == null)
+				throw new NullPointerException("Feature name is null.");
+
+			return put(SymbolTable.intern(key), value);
+		}
+
+		public String remove(Object key) {
+			if (!(key instanceof String))
+				return null;
+
+			return remove(SymbolTable.lookup((String) key));
+		}
+
+		public int size() {
+			int row = row();
+			int cnt = 0;
+			for (int f = 0; f < _numFeatures; f++) {
+				if (_featureCols[_featureSyms[f]].has(row)) {
+					cnt++;
+				}
+			}
+			return cnt;
+		}
+
+		public void clear() {
+			clearFeatures(row());
+		}
+
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new RowEntryIterator(row());
+				}
+
+				public int size() {
+					return RowFeatureMap.this.size();
+				}
+			};
+		}
+
+		/**
+		 * Check if <b>this</b> FeatureMap subsumes fmap, i.e., fmap's keys
+		 * are a subset of this FeatureMap's keys.
+		 */
+		public boolean subsumes(FeatureMap fmap) {
+			if (fmap == null)
+				return true;
+
+			if (this.size() < fmap.size())
+				return false;
+
+			for (String key : fmap.keySet()) {
+				if (!this.containsKey(key))
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Check if <b>this</b> FeatureMap subsumes fmap on the given set of
+		 * names.
+		 */
+		public boolean subsumes(FeatureMap fmap, Set<String> nameset) {
+			if (fmap == null)
+				return true;
+
+			if (nameset == null)
+				return this.subsumes(fmap);
+
+			if (this.size() < nameset.size())
+				return false;
+
+			for (String key : nameset) {
+				if (!fmap.containsKey(key))
+					continue;
+
+				if (!this.containsKey(key))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Iterates over the features present in a row.
+	 */
+	private class RowEntryIterator implements Iterator<Map.Entry<String, String>> {
+
+		private final int _row;
+
+		private int _next = -1;
+
+		private int _last = -1;
+
+		RowEntryIterator(int row) {
+			_row = row;
+			advance();
+		}
+
+		private void advance() {
+			for (_next++; _next < _numFeatures; _next++) {
+				if (_featureCols[_featureSyms[_next]].has(_row))
+					return;
+			}
+		}
+
+		public boolean hasNext() {
+			return _next < _numFeatures;
+		}
+
+		public Map.Entry<String, String> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			_last = _next;
+			advance();
+			return new RowEntry(_row, _featureSyms[_last]);
+		}
+
+		public void remove() {
+			if (_last < 0)
+				throw new IllegalStateException();
+
+			_featureCols[_featureSyms[_last]].clear(_row);
+			_last = -1;
+		}
+	}
+
+	/**
+	 * A single feature of a row.
+	 */
+	private class RowEntry implements Map.Entry<String, String> {
+
+		private final int _row;
+
+		private final int _sym;
+
+		RowEntry(int row, int sym) {
+			_row = row;
+			_sym = sym;
+		}
+
+		public String getKey() {
+			return SymbolTable.nameOf(_sym);
+		}
+
+		public String getValue() {
+			Column col = _featureCols[_sym];
+			return col.has(_row) ? col.getString(_row) : null;
+		}
+
+		public String setValue(String value) {
+			if (value == null)
+				throw new NullPointerException();
+
+			String old = getValue();
+			_featureCols[_sym].set(_row, FeatureMapImpl.KIND_STRING, value, 0);
+			return old;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			String k = getKey();
+			String v = getValue();
+			return ((k == null) ? (e.getKey() == null) : k.equals(e.getKey()))
+					&& ((v == null) ? (e.getValue() == null) : v.equals(e
+							.getValue()));
+		}
+
+		public int hashCode() {
+			String k = getKey();
+			String v = getValue();
+			return ((k == null) ? 0 : k.hashCode())
+					^ ((v == null) ? 0 : v.hashCode());
+		}
+	}
+
+	/**
+	 * The values of one feature, a cell per row, kept as
+	 * <code>FeatureMapImpl</code> keeps its entries.
+	 */
+	static private final class Column {
+
+		/**
+		 * The String for string cells, the annotation for references, the int
+		 * array for id lists, and the cached String view (or null) for
+		 * primitives. Null in an empty cell.
+		 */
+		Object[] values;
+
+		/**
+		 * Primitive values, doubles as their raw long bits. Null, like
+		 * <code>kinds</code>, while every cell is a string.
+		 */
+		long[] prims;
+
+		byte[] kinds;
+
+		Column(int cap) {
+			values = new Object[cap];
+		}
+
+		byte kind(int row) {
+			return (kinds == null) ? FeatureMapImpl.KIND_STRING : kinds[row];
+		}
+
+		boolean has(int row) {
+			return (values[row] != null)
+					|| (kind(row) != FeatureMapImpl.KIND_STRING);
+		}
+
+		/**
+		 * The String view of a cell that has a value.
+		 */
+		String getString(int row) {
+			Object v = values[row];
+			switch (kind(row)) {
+			case FeatureMapImpl.KIND_STRING:
+				return (String) v;
+			case FeatureMapImpl.KIND_ANNOTATION:
+				// the referenced annotation may change, so this is not cached
+				return FeatureMapImpl.encodeAnnotation((Annotation) v);
+			case FeatureMapImpl.KIND_INT_ARRAY:
+				return FeatureValueEncoderDecoder.encodeIds((int[]) v);
+			default:
+				if (v == null) {
+					v = FeatureMapImpl.primToString(kinds[row], prims[row]);
+					values[row] = v;
+				}
+				return (String) v;
+			}
+		}
+
+		void set(int row, byte kind, Object value, long prim) {
+			if ((kind != FeatureMapImpl.KIND_STRING) && (kinds == null)) {
+				kinds = new byte[values.length];
+				prims = new long[values.length];
+			}
+			values[row] = value;
+			if (kinds != null) {
+				kinds[row] = kind;
+				prims[row] = prim;
+			}
+		}
+
+		void copy(Column src, int srow, int row) {
+			set(row, src.kind(srow), src.values[srow],
+					(src.prims == null) ? 0 : src.prims[srow]);
+		}
+
+		void clear(int row) {
+			set(row, FeatureMapImpl.KIND_STRING, null, 0);
+		}
+
+		void clear(int from, int to) {
+			Arrays.fill(values, from, to, null);
+			if (kinds != null) {
+				Arrays.fill(kinds, from, to, FeatureMapImpl.KIND_STRING);
+			}
+		}
+
+		void grow(int cap, int size) {
+			Object[] vals = new Object[cap];
+			System.arraycopy(values, 0, vals, 0, size);
+			values = vals;
+			if (kinds != null) {
+				byte[] ks = new byte[cap];
+				System.arraycopy(kinds, 0, ks, 0, size);
+				kinds = ks;
+				prims = ColumnarAnnotationSet.grow(prims, cap);
+			}
+		}
+	}
+}
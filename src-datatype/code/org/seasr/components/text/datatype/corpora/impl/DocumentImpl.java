@@ -89,7 +89,7 @@ public class DocumentImpl extends AbstractFeatureBearer implements Document,
 	/**
 	 * The default annotation set for this document.
 	 */
-	private AnnotationSetImpl defaultAnnots;
+	private AnnotationSet defaultAnnots;
 
 	/**
 	 * Named annotation sets for this document.
@@ -103,6 +103,12 @@ public class DocumentImpl extends AbstractFeatureBearer implements Document,
 	 */
 	private Map<String, Object> _auxillaryMap = null;
 
+	/**
+	 * If true, annotation sets for this document are created as
+	 * ColumnarAnnotationSet instances instead of AnnotationSetImpl.
+	 */
+	private boolean _columnar = false;
+
 	// ==============
 	// Constructors
 	// ==============
@@ -118,6 +124,18 @@ public class DocumentImpl extends AbstractFeatureBearer implements Document,
 		this.setFeatures(new FeatureMapImpl());
 	}
 
+	/**
+	 * Construction choosing the annotation store.
+	 * 
+	 * @param columnar
+	 *            If true, store annotations in compact ColumnarAnnotationSet
+	 *            instances.
+	 */
+	public DocumentImpl(boolean columnar) {
+		this();
+		_columnar = columnar;
+	}
+
 	public void free() {
 		if (namedAnnots != null) {
 			namedAnnots.clear();
@@ -238,7 +256,7 @@ public class DocumentImpl extends AbstractFeatureBearer implements Document,
 	 */
 	public AnnotationSet getAnnotations() {
 		if (defaultAnnots == null)
-			defaultAnnots = new AnnotationSetImpl(this);
+			defaultAnnots = newAnnotationSet(null);
 
 		return defaultAnnots;
 	}
@@ -263,7 +281,7 @@ public class DocumentImpl extends AbstractFeatureBearer implements Document,
 
 		// no such annotation set by its name, create one
 		if (aset == null) {
-			aset = new AnnotationSetImpl(this, name);
+			aset = newAnnotationSet(name);
 			namedAnnots.put(name, aset);
 		}
 
@@ -295,4 +313,23 @@ public class DocumentImpl extends AbstractFeatureBearer implements Document,
 		// remove the annotation set
 		namedAnnots.remove(name);
 	}
+
+	/**
+	 * Returns true if this document stores its annotations in
+	 * ColumnarAnnotationSet instances.
+	 */
+	public boolean isColumnar() {
+		return _columnar;
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	private AnnotationSet newAnnotationSet(String name) {
+		if (_columnar) {
+			return new ColumnarAnnotationSet(this, name);
+		}
+		return new AnnotationSetImpl(this, name);
+	}
 }
@@ -46,32 +46,316 @@ package org.seasr.components.text.datatype.corpora.impl;
 // Java Imports
 //==============
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.*;
 
 //===============
 // Other Imports
 //===============
 
+import org.seasr.components.text.datatype.corpora.Annotation;
 import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.corpora.SymbolTable;
+import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoder;
+import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoderException;
 
 /**
  * An attribute-value mapping. Represents the content of an annotation.
+ * <p>
+ * Feature names are stored as their SymbolTable ids in a flat int array,
+ * with the values in a parallel array. Annotations carry only a handful of
+ * features, so a lookup is a short scan of ints (or of interned names,
+ * compared by identity first, for the String API) with no hashing and no
+ * entry objects. An empty map allocates no arrays at all. Past
+ * <code>LINEAR_MAX</code> entries the map promotes itself: an open
+ * addressing table (linear probing) from key id to array position is built
+ * over the same arrays, so large maps keep constant time lookups and their
+ * insertion order.
+ * <p>
+ * Every entry carries a kind. Booleans and numbers are kept unboxed in a
+ * parallel long array (doubles as their raw bits), annotation references
+ * as the annotation itself and annotation id lists as an int array; their
+ * String view is built, and for primitives remembered, the first time it is
+ * read through the Map methods.
  * 
  * @author Xiaolei Li
  * @author D. Searsmith
  */
-public class FeatureMapImpl extends HashMap<String, String> implements FeatureMap {
+public class FeatureMapImpl extends AbstractMap<String, String> implements
+		FeatureMap, Serializable {
 
 	//==============
 	// Data Members
 	//==============
-	
-	static final long serialVersionUID = 3L;
+
+	static final long serialVersionUID = 5L;
+
+	static private final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * Largest map that is searched by a linear scan.
+	 */
+	static private final int LINEAR_MAX = 8;
+
+	static private final int[] EMPTY_KEYS = new int[0];
+
+	static private final Object[] EMPTY_VALUES = new Object[0];
+
+	static private final long[] EMPTY_PRIMS = new long[0];
+
+	static private final byte[] EMPTY_KINDS = new byte[0];
+
+	/*
+	 * Value kinds, shared with the typed columns of ColumnarAnnotationSet.
+	 */
+
+	static final byte KIND_STRING = 0;
+
+	static final byte KIND_BOOLEAN = 1;
+
+	static final byte KIND_INT = 2;
+
+	static final byte KIND_LONG = 3;
+
+	static final byte KIND_DOUBLE = 4;
+
+	static final byte KIND_ANNOTATION = 5;
+
+	static final byte KIND_INT_ARRAY = 6;
+
+	/**
+	 * SymbolTable ids of the feature names.
+	 */
+	private transient int[] _keys;
+
+	/**
+	 * The String for string entries, the annotation for annotation
+	 * references, the int array for id lists, and the cached String view (or
+	 * null) for primitives.
+	 */
+	private transient Object[] _values;
+
+	/**
+	 * Primitive values, doubles as their raw long bits.
+	 */
+	private transient long[] _prims;
+
+	private transient byte[] _kinds;
+
+	private transient int _size;
+
+	/**
+	 * Hash index for promoted maps: array position + 1 by key id, 0 for an
+	 * empty slot. Null while the map is small.
+	 */
+	private transient int[] _slots;
+
+	//================
+	// Constructor(s)
+	//================
+
+	public FeatureMapImpl() {
+		_keys = EMPTY_KEYS;
+		_values = EMPTY_VALUES;
+		_prims = EMPTY_PRIMS;
+		_kinds = EMPTY_KINDS;
+	}
 
 	//================
 	// Public Methods
 	//================
-	
+
+	public int size() {
+		return _size;
+	}
+
+	public String get(Object key) {
+		int i = indexOf(key);
+		return (i < 0) ? null : stringAt(i);
+	}
+
+	public String get(int key) {
+		int i = indexOf(key);
+		return (i < 0) ? null : stringAt(i);
+	}
+
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	public boolean containsKey(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	public String put(String key, String value) {
+		if (key == null)
+			throw new NullPointerException("Feature name is null.");
+
+		return put(SymbolTable.intern(key), value);
+	}
+
+	public String put(int key, String value) {
+		int i = indexOf(key);
+		if (i >= 0) {
+			String old = stringAt(i);
+			_values[i] = value;
+			_kinds[i] = KIND_STRING;
+			return old;
+		}
+		i = append(key);
+		_values[i] = value;
+		return null;
+	}
+
+	public String remove(Object key) {
+		int i = indexOf(key);
+		return (i < 0) ? null : removeAt(i);
+	}
+
+	public String remove(int key) {
+		int i = indexOf(key);
+		return (i < 0) ? null : removeAt(i);
+	}
+
+	public void clear() {
+		for (int i = 0; i < _size; i++) {
+			_values[i] = null;
+		}
+		_size = 0;
+		_slots = null;
+	}
+
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new EntryIterator();
+			}
+
+			public int size() {
+				return _size;
+			}
+		};
+	}
+
+	//
+	// Typed values
+	//
+
+	public boolean getBoolean(int key) {
+		int i = indexOf(key);
+		if (i < 0)
+			return false;
+		if (_kinds[i] == KIND_BOOLEAN)
+			return _prims[i] != 0;
+		return parseBoolean(stringAt(i));
+	}
+
+	public void setBoolean(int key, boolean value) {
+		setPrim(key, KIND_BOOLEAN, value ? 1 : 0);
+	}
+
+	public int getInt(int key, int defaultValue) {
+		int i = indexOf(key);
+		if (i < 0)
+			return defaultValue;
+		switch (_kinds[i]) {
+		case KIND_INT:
+		case KIND_LONG:
+			return (int) _prims[i];
+		case KIND_DOUBLE:
+			return (int) Double.longBitsToDouble(_prims[i]);
+		default:
+			return (int) parseLong(stringAt(i), defaultValue);
+		}
+	}
+
+	public void setInt(int key, int value) {
+		setPrim(key, KIND_INT, value);
+	}
+
+	public long getLong(int key, long defaultValue) {
+		int i = indexOf(key);
+		if (i < 0)
+			return defaultValue;
+		switch (_kinds[i]) {
+		case KIND_INT:
+		case KIND_LONG:
+			return _prims[i];
+		case KIND_DOUBLE:
+			return (long) Double.longBitsToDouble(_prims[i]);
+		default:
+			return parseLong(stringAt(i), defaultValue);
+		}
+	}
+
+	public void setLong(int key, long value) {
+		setPrim(key, KIND_LONG, value);
+	}
+
+	public double getDouble(int key, double defaultValue) {
+		int i = indexOf(key);
+		if (i < 0)
+			return defaultValue;
+		switch (_kinds[i]) {
+		case KIND_INT:
+		case KIND_LONG:
+			return _prims[i];
+		case KIND_DOUBLE:
+			return Double.longBitsToDouble(_prims[i]);
+		default:
+			return parseDouble(stringAt(i), defaultValue);
+		}
+	}
+
+	public void setDouble(int key, double value) {
+		setPrim(key, KIND_DOUBLE, Double.doubleToRawLongBits(value));
+	}
+
+	public Annotation getAnnotation(int key) {
+		int i = indexOf(key);
+		if (i < 0)
+			return null;
+		if (_kinds[i] == KIND_ANNOTATION)
+			return (Annotation) _values[i];
+		return parseAnnotation(stringAt(i));
+	}
+
+	public void setAnnotation(int key, Annotation value) {
+		if (value == null) {
+			remove(key);
+			return;
+		}
+		int i = indexOf(key);
+		if (i < 0)
+			i = append(key);
+		_values[i] = value;
+		_kinds[i] = KIND_ANNOTATION;
+	}
+
+	public int[] getIntArray(int key) {
+		int i = indexOf(key);
+		if (i < 0)
+			return null;
+		if (_kinds[i] == KIND_INT_ARRAY)
+			return (int[]) _values[i];
+		return parseIntArray(stringAt(i));
+	}
+
+	public void setIntArray(int key, int[] value) {
+		if (value == null) {
+			remove(key);
+			return;
+		}
+		int i = indexOf(key);
+		if (i < 0)
+			i = append(key);
+		_values[i] = value;
+		_kinds[i] = KIND_INT_ARRAY;
+	}
+
 	/**
 	 * Check if <b>this</b> FeatureMap subsumes fmap, i.e., fmap's keys are a
 	 * subset of this FeatureMap's keys.
@@ -134,4 +418,398 @@ public class FeatureMapImpl extends HashMap<String, String> implements FeatureMa
 
 		return true;
 	}
+
+	//=========================
+	// Package Static Methods
+	//=========================
+
+	/*
+	 * Conversions between the String view and the typed values, shared with
+	 * the columnar feature maps.
+	 */
+
+	static boolean parseBoolean(String s) {
+		return (s != null) && s.equalsIgnoreCase("true");
+	}
+
+	static long parseLong(String s, long defaultValue) {
+		if (s == null)
+			return defaultValue;
+		try {
+			return Long.parseLong(s.trim());
+		} catch (NumberFormatException e) {
+			return (long) parseDouble(s, defaultValue);
+		}
+	}
+
+	static double parseDouble(String s, double defaultValue) {
+		if (s == null)
+			return defaultValue;
+		try {
+			return Double.parseDouble(s.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	static Annotation parseAnnotation(String s) {
+		if ((s == null) || !s.startsWith("^annot{"))
+			return null;
+		try {
+			return new AnnotationImpl().decode(s);
+		} catch (FeatureValueEncoderDecoderException e) {
+			return null;
+		}
+	}
+
+	static int[] parseIntArray(String s) {
+		if (s == null)
+			return null;
+		try {
+			return FeatureValueEncoderDecoder.decodeToIds(s);
+		} catch (FeatureValueEncoderDecoderException e) {
+			return null;
+		}
+	}
+
+	static String primToString(byte kind, long prim) {
+		switch (kind) {
+		case KIND_BOOLEAN:
+			return (prim != 0) ? "true" : "false";
+		case KIND_DOUBLE:
+			return Double.toString(Double.longBitsToDouble(prim));
+		default:
+			return Long.toString(prim);
+		}
+	}
+
+	static String encodeAnnotation(Annotation a) {
+		try {
+			return a.encode();
+		} catch (FeatureValueEncoderDecoderException e) {
+			throw new IllegalStateException("Unable to encode annotation "
+					+ a.getId() + ": " + e.getMessage());
+		}
+	}
+
+	//=================
+	// Package Methods
+	//=================
+
+	/*
+	 * Entries by position, for copying them with their kinds.
+	 */
+
+	int keyAt(int i) {
+		return _keys[i];
+	}
+
+	byte kindAt(int i) {
+		return _kinds[i];
+	}
+
+	/**
+	 * The stored object of entry i: the String, annotation or int array, or
+	 * the cached String view (possibly null) of a primitive.
+	 */
+	Object valueAt(int i) {
+		return _values[i];
+	}
+
+	long primAt(int i) {
+		return _prims[i];
+	}
+
+	//=================
+	// Private Methods
+	//=================
+
+	/**
+	 * The String view of entry i.
+	 */
+	private String stringAt(int i) {
+		Object v = _values[i];
+		switch (_kinds[i]) {
+		case KIND_STRING:
+			return (String) v;
+		case KIND_ANNOTATION:
+			// the referenced annotation may change, so this is not cached
+			return encodeAnnotation((Annotation) v);
+		case KIND_INT_ARRAY:
+			return FeatureValueEncoderDecoder.encodeIds((int[]) v);
+		default:
+			if (v == null) {
+				v = primToString(_kinds[i], _prims[i]);
+				_values[i] = v;
+			}
+			return (String) v;
+		}
+	}
+
+	private void setPrim(int key, byte kind, long prim) {
+		int i = indexOf(key);
+		if (i < 0)
+			i = append(key);
+		_values[i] = null;
+		_prims[i] = prim;
+		_kinds[i] = kind;
+	}
+
+	/**
+	 * Add a string entry with a null value for a key that is not in the map.
+	 * 
+	 * @return its position.
+	 */
+	private int append(int key) {
+		if (_size == _keys.length) {
+			int cap = Math.max(INITIAL_CAPACITY, _size * 2);
+			int[] keys = new int[cap];
+			Object[] values = new Object[cap];
+			long[] prims = new long[cap];
+			byte[] kinds = new byte[cap];
+			System.arraycopy(_keys, 0, keys, 0, _size);
+			System.arraycopy(_values, 0, values, 0, _size);
+			System.arraycopy(_prims, 0, prims, 0, _size);
+			System.arraycopy(_kinds, 0, kinds, 0, _size);
+			_keys = keys;
+			_values = values;
+			_prims = prims;
+			_kinds = kinds;
+		}
+		int i = _size++;
+		_keys[i] = key;
+		_values[i] = null;
+		_prims[i] = 0;
+		_kinds[i] = KIND_STRING;
+
+		if (_size > LINEAR_MAX) {
+			// keep the table at most half full
+			if ((_slots == null) || (_size * 2 > _slots.length)) {
+				rehash();
+			} else {
+				insertSlot(i);
+			}
+		}
+		return i;
+	}
+
+	private int indexOf(int key) {
+		if (_slots != null) {
+			int mask = _slots.length - 1;
+			for (int h = hash(key) & mask; _slots[h] != 0; h = (h + 1) & mask) {
+				int i = _slots[h] - 1;
+				if (_keys[i] == key)
+					return i;
+			}
+			return -1;
+		}
+		for (int i = 0; i < _size; i++) {
+			if (_keys[i] == key)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Find a feature by name. The stored names are interned, so constants
+	 * match on the identity check and only other strings fall back to
+	 * equals().
+	 */
+	private int indexOf(Object key) {
+		if (!(key instanceof String))
+			return -1;
+
+		if (_slots != null) {
+			int sym = SymbolTable.lookup((String) key);
+			return (sym == SymbolTable.NO_SYMBOL) ? -1 : indexOf(sym);
+		}
+		for (int i = 0; i < _size; i++) {
+			if (SymbolTable.nameOf(_keys[i]) == key)
+				return i;
+		}
+		for (int i = 0; i < _size; i++) {
+			if (key.equals(SymbolTable.nameOf(_keys[i])))
+				return i;
+		}
+		return -1;
+	}
+
+	private String removeAt(int i) {
+		String old = stringAt(i);
+		int tail = _size - i - 1;
+		if (tail > 0) {
+			System.arraycopy(_keys, i + 1, _keys, i, tail);
+			System.arraycopy(_values, i + 1, _values, i, tail);
+			System.arraycopy(_prims, i + 1, _prims, i, tail);
+			System.arraycopy(_kinds, i + 1, _kinds, i, tail);
+		}
+		_size--;
+		_values[_size] = null;
+
+		// positions after i have moved down
+		if (_slots != null) {
+			if (_size > LINEAR_MAX) {
+				rehash();
+			} else {
+				_slots = null;
+			}
+		}
+		return old;
+	}
+
+	/**
+	 * Rebuild the hash index for the current entries.
+	 */
+	private void rehash() {
+		int cap = 16;
+		while (cap < _size * 4) {
+			cap <<= 1;
+		}
+		_slots = new int[cap];
+		for (int i = 0; i < _size; i++) {
+			insertSlot(i);
+		}
+	}
+
+	private void insertSlot(int i) {
+		int mask = _slots.length - 1;
+		int h = hash(_keys[i]) & mask;
+		while (_slots[h] != 0) {
+			h = (h + 1) & mask;
+		}
+		_slots[h] = i + 1;
+	}
+
+	/**
+	 * Symbol ids are small and dense; multiplying by an odd constant and
+	 * folding the high bits down spreads them over the table. Also used for
+	 * the annotation ids of ColumnarAnnotationSet.
+	 */
+	static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Symbol ids are only valid in this VM, so the features are written by
+	 * name, each followed by its kind and value.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(_size);
+		for (int i = 0; i < _size; i++) {
+			out.writeObject(SymbolTable.nameOf(_keys[i]));
+			out.writeByte(_kinds[i]);
+			switch (_kinds[i]) {
+			case KIND_STRING:
+			case KIND_ANNOTATION:
+			case KIND_INT_ARRAY:
+				out.writeObject(_values[i]);
+				break;
+			default:
+				out.writeLong(_prims[i]);
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		int size = in.readInt();
+		int cap = Math.max(size, INITIAL_CAPACITY);
+		_keys = new int[cap];
+		_values = new Object[cap];
+		_prims = new long[cap];
+		_kinds = new byte[cap];
+		_size = 0;
+		_slots = null;
+		for (int i = 0; i < size; i++) {
+			int key = SymbolTable.intern((String) in.readObject());
+			byte kind = in.readByte();
+			int pos = append(key);
+			_kinds[pos] = kind;
+			switch (kind) {
+			case KIND_STRING:
+			case KIND_ANNOTATION:
+			case KIND_INT_ARRAY:
+				_values[pos] = in.readObject();
+				break;
+			default:
+				_prims[pos] = in.readLong();
+			}
+		}
+	}
+
+	//=================
+	// Inner Class(es)
+	//=================
+
+	private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+		private int _next = 0;
+
+		private int _last = -1;
+
+		public boolean hasNext() {
+			return _next < _size;
+		}
+
+		public Map.Entry<String, String> next() {
+			if (_next >= _size)
+				throw new NoSuchElementException();
+			_last = _next++;
+			return new Entry(_keys[_last]);
+		}
+
+		public void remove() {
+			if (_last < 0)
+				throw new IllegalStateException();
+			removeAt(_last);
+			_next = _last;
+			_last = -1;
+		}
+	}
+
+	/**
+	 * Write-through entry, located by key so it stays valid when other
+	 * entries are removed.
+	 */
+	private class Entry implements Map.Entry<String, String> {
+		private final int _key;
+
+		Entry(int key) {
+			_key = key;
+		}
+
+		public String getKey() {
+			return SymbolTable.nameOf(_key);
+		}
+
+		public String getValue() {
+			return FeatureMapImpl.this.get(_key);
+		}
+
+		public String setValue(String value) {
+			return FeatureMapImpl.this.put(_key, value);
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return eq(getKey(), e.getKey()) && eq(getValue(), e.getValue());
+		}
+
+		public int hashCode() {
+			String v = getValue();
+			return getKey().hashCode() ^ ((v == null) ? 0 : v.hashCode());
+		}
+
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+
+		private boolean eq(Object a, Object b) {
+			return (a == null) ? (b == null) : a.equals(b);
+		}
+	}
 }
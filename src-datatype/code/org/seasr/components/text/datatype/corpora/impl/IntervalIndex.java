@@ -0,0 +1,690 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+
+/**
+ * Offset index over a collection of annotations. The annotations are held
+ * in arrays sorted in document order (see <code>DOCUMENT_ORDER</code>) and
+ * the sorted array is treated as an implicit, balanced binary tree augmented
+ * with the maximum end offset of every subtree (an "implicit interval
+ * tree"). Contained and overlapping range queries cost O(log n + k) instead
+ * of a scan of the whole set.
+ * <p>
+ * All ranges are closed, i.e. an annotation [s, e] overlaps [qs, qe] when
+ * s &lt;= qe and e &gt;= qs, matching the semantics of
+ * <code>AnnotationSet.get(long, long)</code>.
+ * <p>
+ * An index kept for an annotation set is told about its changes instead of
+ * being rebuilt: added annotations are appended to an unsorted tail and
+ * removals only mark the index stale. <code>update()</code> sorts the tail
+ * and merges it into the sorted arrays in one pass, dropping the entries its
+ * <code>Owner</code> no longer holds, so a query after a change costs
+ * O(n + k log k) for k changes rather than a full sort. The arrays are
+ * replaced, not changed in place, by a merge.
+ */
+class IntervalIndex {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	/**
+	 * Subtrees at or below this level are scanned linearly.
+	 */
+	static private final int LINEAR_SCAN_LEVEL = 3;
+
+	static private final int INITIAL_TAIL_CAPACITY = 16;
+
+	/**
+	 * The set this index is kept for, null for a fixed snapshot.
+	 */
+	private final Owner _owner;
+
+	/**
+	 * Annotations in document order, null if entries are resolved through
+	 * the owner by id.
+	 */
+	private Annotation[] _annots;
+
+	private int[] _ids;
+
+	private long[] _starts;
+
+	private long[] _ends;
+
+	/**
+	 * Maximum end offset of the implicit subtree rooted at each position.
+	 */
+	private long[] _maxEnds;
+
+	/**
+	 * Level of the root of the implicit tree, -1 if empty.
+	 */
+	private int _maxLevel;
+
+	private int _size;
+
+	/**
+	 * Entries added since the last merge, in no particular order.
+	 */
+	private Annotation[] _tailAnnots;
+
+	private int[] _tailIds;
+
+	private long[] _tailStarts;
+
+	private long[] _tailEnds;
+
+	private int _tailSize;
+
+	/**
+	 * True if entries may have left the owner since the last merge.
+	 */
+	private boolean _stale;
+
+	// ==============
+	// Constructors
+	// ==============
+
+	/**
+	 * Build a fixed index over the given annotations.
+	 */
+	IntervalIndex(Collection<Annotation> annots) {
+		this(null, true);
+		for (Iterator<Annotation> it = annots.iterator(); it.hasNext();) {
+			add(it.next());
+		}
+		update();
+	}
+
+	/**
+	 * Create an empty index kept for <b>owner</b>. If <b>holdsAnnots</b> is
+	 * false only ids are kept and annotations are resolved through the owner
+	 * when they are handed out.
+	 */
+	IntervalIndex(Owner owner, boolean holdsAnnots) {
+		_owner = owner;
+		_annots = holdsAnnots ? new Annotation[0] : null;
+		_ids = new int[0];
+		_starts = new long[0];
+		_ends = new long[0];
+		_maxEnds = new long[0];
+		_maxLevel = -1;
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	/**
+	 * Add an annotation, merged in by the next <code>update()</code>.
+	 */
+	void add(Annotation a) {
+		append(a, a.getId(), a.getStartNodeOffset(), a.getEndNodeOffset());
+	}
+
+	/**
+	 * Add an annotation by id and offsets, merged in by the next
+	 * <code>update()</code>.
+	 */
+	void add(int id, long start, long end) {
+		append(null, id, start, end);
+	}
+
+	/**
+	 * Note that entries have left the owner or changed there; they are
+	 * dropped by the next <code>update()</code>.
+	 */
+	void removed() {
+		_stale = true;
+	}
+
+	/**
+	 * Merge the entries added since the last update into the sorted arrays,
+	 * dropping those the owner no longer holds, and rebuild the max end
+	 * offsets. Does nothing if the index has not changed.
+	 */
+	void update() {
+		if ((_tailSize == 0) && !_stale) {
+			return;
+		}
+		int[] order = sortTail();
+		int n = _size + _tailSize;
+		Annotation[] annots = (_annots == null) ? null : new Annotation[n];
+		int[] ids = new int[n];
+		long[] starts = new long[n];
+		long[] ends = new long[n];
+		int w = 0;
+		for (int i = 0, j = 0; (i < _size) || (j < _tailSize);) {
+			Annotation a;
+			int id;
+			long start;
+			long end;
+			if ((j >= _tailSize)
+					|| ((i < _size) && (compare(_starts[i], _ends[i], _ids[i],
+							_tailStarts[order[j]], _tailEnds[order[j]],
+							_tailIds[order[j]]) <= 0))) {
+				a = (_annots == null) ? null : _annots[i];
+				id = _ids[i];
+				start = _starts[i];
+				end = _ends[i];
+				i++;
+			} else {
+				int t = order[j++];
+				a = (_annots == null) ? null : _tailAnnots[t];
+				id = _tailIds[t];
+				start = _tailStarts[t];
+				end = _tailEnds[t];
+			}
+			if (_stale && !_owner.holds(id, start, end, a)) {
+				continue;
+			}
+			// an entry removed and added again before this update sorts
+			// next to its old copy
+			if ((w > 0) && (ids[w - 1] == id) && (starts[w - 1] == start)
+					&& (ends[w - 1] == end)
+					&& ((annots == null) || (annots[w - 1] == a))) {
+				continue;
+			}
+			if (annots != null) {
+				annots[w] = a;
+			}
+			ids[w] = id;
+			starts[w] = start;
+			ends[w] = end;
+			w++;
+		}
+
+		_annots = annots;
+		_ids = ids;
+		_starts = starts;
+		_ends = ends;
+		_size = w;
+		_maxEnds = new long[w];
+		_maxLevel = buildMaxEnds();
+
+		if (_tailAnnots != null) {
+			Arrays.fill(_tailAnnots, 0, _tailSize, null);
+		}
+		_tailSize = 0;
+		_stale = false;
+	}
+
+	int size() {
+		return _size;
+	}
+
+	/**
+	 * The annotation at the given position in document order.
+	 */
+	Annotation annotAt(int i) {
+		return (_annots != null) ? _annots[i] : _owner.annotOf(_ids[i]);
+	}
+
+	int idAt(int i) {
+		return _ids[i];
+	}
+
+	long startAt(int i) {
+		return _starts[i];
+	}
+
+	long endAt(int i) {
+		return _ends[i];
+	}
+	/**
+	 * Add to <b>out</b> every annotation that starts and ends within the given
+	 * offsets.
+	 */
+	void getContained(long offsetStart, long offsetEnd,
+			Collection<? super Annotation> out) {
+		for (int i = firstStartAtLeast(offsetStart); i < _size
+				&& _starts[i] <= offsetEnd; i++) {
+			if (_ends[i] <= offsetEnd) {
+				out.add(annotAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Add to <b>out</b> every annotation whose span overlaps the given
+	 * offsets.
+	 */
+	void getOverlapping(long offsetStart, long offsetEnd,
+			Collection<? super Annotation> out) {
+		overlapping(offsetStart, offsetEnd, out);
+	}
+
+	/**
+	 * Returns true if at least one annotation overlaps the given offsets.
+	 */
+	boolean coversPartialRange(long offsetStart, long offsetEnd) {
+		return overlapping(offsetStart, offsetEnd, null);
+	}
+
+	/**
+	 * Add to <b>out</b> every annotation that has exactly the given offsets.
+	 */
+	void getExact(long offsetStart, long offsetEnd,
+			Collection<? super Annotation> out) {
+		for (int i = firstStartAtLeast(offsetStart); i < _size
+				&& _starts[i] == offsetStart; i++) {
+			if (_ends[i] == offsetEnd) {
+				out.add(annotAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Add to <b>out</b> every annotation that starts exactly at the given
+	 * offset.
+	 */
+	void getExactStart(long offsetStart, Collection<? super Annotation> out) {
+		for (int i = firstStartAtLeast(offsetStart); i < _size
+				&& _starts[i] == offsetStart; i++) {
+			out.add(annotAt(i));
+		}
+	}
+
+	/**
+	 * Add to <b>out</b> every annotation with a starting offset greater than
+	 * or equal to the given offset.
+	 */
+	void getStartingFrom(long offset, Collection<? super Annotation> out) {
+		for (int i = firstStartAtLeast(offset); i < _size; i++) {
+			out.add(annotAt(i));
+		}
+	}
+
+	/**
+	 * Binary search for the first position whose start offset is greater than
+	 * or equal to <b>offset</b>.
+	 */
+	int firstStartAtLeast(long offset) {
+		int lo = 0;
+		int hi = _size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (_starts[mid] < offset) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Binary search for the position of the given annotation in document
+	 * order.
+	 * 
+	 * @return the position, or -1 if no indexed annotation has the same
+	 *         offsets and ID.
+	 */
+	int indexOf(Annotation annot) {
+		long start = annot.getStartNodeOffset();
+		long end = annot.getEndNodeOffset();
+		int id = annot.getId();
+		int lo = 0;
+		int hi = _size - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = compare(_starts[mid], _ends[mid], _ids[mid], start, end,
+					id);
+			if (c < 0) {
+				lo = mid + 1;
+			} else if (c > 0) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return an iterator over the indexed annotations in document order, as
+	 * of the last update. Its remove() removes the last annotation returned
+	 * from <b>set</b>, which does not affect the iteration.
+	 */
+	Iterator<Annotation> iterator(final Set<Annotation> set) {
+		final Annotation[] annots = _annots;
+		final int[] ids = _ids;
+		final int size = _size;
+		return new Iterator<Annotation>() {
+			private int _pos = 0;
+
+			private Annotation _last = null;
+
+			public boolean hasNext() {
+				return _pos < size;
+			}
+
+			public Annotation next() {
+				if (_pos >= size)
+					throw new NoSuchElementException();
+				_last = (annots != null) ? annots[_pos] : _owner
+						.annotOf(ids[_pos]);
+				_pos++;
+				return _last;
+			}
+
+			public void remove() {
+				if ((_last == null) || (set == null))
+					throw new IllegalStateException();
+				set.remove(_last);
+				_last = null;
+			}
+		};
+	}
+
+	/**
+	 * Return the indexed annotations in document order.
+	 */
+	ArrayList<Annotation> toList() {
+		ArrayList<Annotation> list = new ArrayList<Annotation>(_size);
+		for (int i = 0; i < _size; i++) {
+			list.add(annotAt(i));
+		}
+		return list;
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	private void append(Annotation a, int id, long start, long end) {
+		if (_tailIds == null) {
+			_tailAnnots = (_annots == null) ? null
+					: new Annotation[INITIAL_TAIL_CAPACITY];
+			_tailIds = new int[INITIAL_TAIL_CAPACITY];
+			_tailStarts = new long[INITIAL_TAIL_CAPACITY];
+			_tailEnds = new long[INITIAL_TAIL_CAPACITY];
+		} else if (_tailSize == _tailIds.length) {
+			int cap = _tailSize * 2;
+			if (_tailAnnots != null) {
+				Annotation[] annots = new Annotation[cap];
+				System.arraycopy(_tailAnnots, 0, annots, 0, _tailSize);
+				_tailAnnots = annots;
+			}
+			int[] ids = new int[cap];
+			System.arraycopy(_tailIds, 0, ids, 0, _tailSize);
+			_tailIds = ids;
+			long[] starts = new long[cap];
+			System.arraycopy(_tailStarts, 0, starts, 0, _tailSize);
+			_tailStarts = starts;
+			long[] ends = new long[cap];
+			System.arraycopy(_tailEnds, 0, ends, 0, _tailSize);
+			_tailEnds = ends;
+		}
+		if (_tailAnnots != null) {
+			_tailAnnots[_tailSize] = a;
+		}
+		_tailIds[_tailSize] = id;
+		_tailStarts[_tailSize] = start;
+		_tailEnds[_tailSize] = end;
+		_tailSize++;
+	}
+
+	/**
+	 * Return the positions of the tail entries in document order.
+	 */
+	private int[] sortTail() {
+		int[] order = new int[_tailSize];
+		for (int i = 0; i < _tailSize; i++) {
+			order[i] = i;
+		}
+		if (_tailSize > 1) {
+			sortTail(order, new int[_tailSize], 0, _tailSize);
+		}
+		return order;
+	}
+
+	/**
+	 * Merge sort of tail positions over [lo, hi), comparing the primitive
+	 * keys so nothing is allocated per entry.
+	 */
+	private void sortTail(int[] order, int[] tmp, int lo, int hi) {
+		if (hi - lo < 2) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		sortTail(order, tmp, lo, mid);
+		sortTail(order, tmp, mid, hi);
+		if (compareTail(order[mid - 1], order[mid]) <= 0) {
+			return;
+		}
+		System.arraycopy(order, lo, tmp, lo, hi - lo);
+		for (int i = lo, j = mid, k = lo; k < hi; k++) {
+			if ((j >= hi) || ((i < mid) && (compareTail(tmp[i], tmp[j]) <= 0))) {
+				order[k] = tmp[i++];
+			} else {
+				order[k] = tmp[j++];
+			}
+		}
+	}
+
+	private int compareTail(int a, int b) {
+		return compare(_tailStarts[a], _tailEnds[a], _tailIds[a],
+				_tailStarts[b], _tailEnds[b], _tailIds[b]);
+	}
+
+	/**
+	 * Document order on primitive keys, see <code>DOCUMENT_ORDER</code>.
+	 */
+	static private int compare(long s1, long e1, int i1, long s2, long e2,
+			int i2) {
+		if (s1 != s2) {
+			return (s1 < s2) ? -1 : 1;
+		}
+		if (e1 != e2) {
+			return (e1 > e2) ? -1 : 1;
+		}
+		return (i1 < i2) ? -1 : ((i1 == i2) ? 0 : 1);
+	}
+
+	/**
+	 * Fill in the augmented max end offsets bottom up. A node at position i
+	 * has level k when the k lowest bits of i are set and bit k is clear; its
+	 * children are at i - 2^(k-1) and i + 2^(k-1). Positions past the end of
+	 * the array are treated as virtual nodes carrying the max end of the last
+	 * real subtree on that side.
+	 * 
+	 * @return the level of the root, -1 for an empty index.
+	 */
+	private int buildMaxEnds() {
+		if (_size == 0) {
+			return -1;
+		}
+		int lastI = 0;
+		long last = 0;
+		for (int i = 0; i < _size; i += 2) {
+			lastI = i;
+			_maxEnds[i] = _ends[i];
+			last = _ends[i];
+		}
+		int k = 1;
+		for (; (1L << k) <= _size; k++) {
+			int x = 1 << (k - 1);
+			int i0 = (x << 1) - 1;
+			int step = x << 2;
+			for (int i = i0; i < _size; i += step) {
+				long el = _maxEnds[i - x];
+				long er = (i + x < _size) ? _maxEnds[i + x] : last;
+				long e = _ends[i];
+				if (el > e) {
+					e = el;
+				}
+				if (er > e) {
+					e = er;
+				}
+				_maxEnds[i] = e;
+			}
+			lastI = (((lastI >> k) & 1) != 0) ? lastI - x : lastI + x;
+			if ((lastI < _size) && (_maxEnds[lastI] > last)) {
+				last = _maxEnds[lastI];
+			}
+		}
+		return k - 1;
+	}
+
+	/**
+	 * Walk the implicit tree collecting overlapping annotations in start
+	 * order. When <b>out</b> is null the walk stops at the first hit.
+	 * 
+	 * @return true if at least one annotation overlaps.
+	 */
+	private boolean overlapping(long offsetStart, long offsetEnd,
+			Collection<? super Annotation> out) {
+		if (_size == 0) {
+			return false;
+		}
+		boolean found = false;
+
+		// explicit stack of (node, level, left-visited) triples
+		int[] stack = new int[3 * (_maxLevel + 2) * 2];
+		int sp = 0;
+		stack[sp++] = (1 << _maxLevel) - 1;
+		stack[sp++] = _maxLevel;
+		stack[sp++] = 0;
+
+		while (sp > 0) {
+			int w = stack[--sp];
+			int k = stack[--sp];
+			int x = stack[--sp];
+
+			if (k <= LINEAR_SCAN_LEVEL) {
+				int i0 = (x >> k) << k;
+				int i1 = i0 + (1 << (k + 1)) - 1;
+				if (i1 > _size) {
+					i1 = _size;
+				}
+				for (int i = i0; i < i1 && _starts[i] <= offsetEnd; i++) {
+					if (_ends[i] >= offsetStart) {
+						if (out == null) {
+							return true;
+						}
+						out.add(annotAt(i));
+						found = true;
+					}
+				}
+			} else if (w == 0) {
+				// revisit this node once its left subtree is done
+				int y = x - (1 << (k - 1));
+				stack[sp++] = x;
+				stack[sp++] = k;
+				stack[sp++] = 1;
+				if ((y >= _size) || (_maxEnds[y] >= offsetStart)) {
+					stack[sp++] = y;
+					stack[sp++] = k - 1;
+					stack[sp++] = 0;
+				}
+			} else if ((x < _size) && (_starts[x] <= offsetEnd)) {
+				if (_ends[x] >= offsetStart) {
+					if (out == null) {
+						return true;
+					}
+					out.add(annotAt(x));
+					found = true;
+				}
+				stack[sp++] = x + (1 << (k - 1));
+				stack[sp++] = k - 1;
+				stack[sp++] = 0;
+			}
+		}
+		return found;
+	}
+
+	// =================
+	// Inner Class(es)
+	// =================
+
+	/**
+	 * The set an index is kept for.
+	 */
+	interface Owner {
+
+		/**
+		 * Returns true if the set still holds the annotation with the given
+		 * id at the given offsets; <b>annot</b> is the instance indexed, or
+		 * null for an index that only keeps ids.
+		 */
+		boolean holds(int id, long start, long end, Annotation annot);
+
+		/**
+		 * Return the annotation with the given id, for an index that only
+		 * keeps ids.
+		 */
+		Annotation annotOf(int id);
+	}
+
+	/**
+	 * Document order: by start offset, then the longer annotation first so
+	 * that an annotation precedes the ones it contains, then by id.
+	 */
+	static final Comparator<Annotation> DOCUMENT_ORDER = new Comparator<Annotation>() {
+		public int compare(Annotation a, Annotation b) {
+			return IntervalIndex.compare(a.getStartNodeOffset(), a
+					.getEndNodeOffset(), a.getId(), b.getStartNodeOffset(), b
+					.getEndNodeOffset(), b.getId());
+		}
+	};
+}
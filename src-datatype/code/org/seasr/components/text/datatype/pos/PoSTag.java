@@ -288,6 +288,22 @@ public class PoSTag implements Comparable<PoSTag>, Serializable {
 		return (PoSTag) s_ht.get(img);
 	}
 
+	/**
+	 * Returns the tag whose ordinal is <b>ord</b>.
+	 * 
+	 * @see #getOrdinal()
+	 */
+	static public PoSTag getPoSTag(int ord) {
+		return VALS[ord];
+	}
+
+	/**
+	 * Returns the number of tags; ordinals run from 0 to one less than this.
+	 */
+	static public int getNumTags() {
+		return VALS.length;
+	}
+
 	// ================
 	// Public Methods
 	// ================
@@ -299,6 +315,14 @@ public class PoSTag implements Comparable<PoSTag>, Serializable {
 		return _desc;
 	}
 
+	/**
+	 * Returns the position of this tag in the order the tags are declared,
+	 * which is fixed and so can stand for the tag in arrays.
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
 	/**
 	 * put your documentation comment here
 	 * 
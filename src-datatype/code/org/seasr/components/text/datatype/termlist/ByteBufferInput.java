@@ -0,0 +1,193 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * DataInput over a ByteBuffer, so the readers of the binary term formats can
+ * run over memory-mapped files.
+ */
+final class ByteBufferInput implements DataInput {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	private final ByteBuffer _buf;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	ByteBufferInput(ByteBuffer buf) {
+		_buf = buf;
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	public boolean hasRemaining() {
+		return _buf.hasRemaining();
+	}
+
+	// ===========================
+	// Interface Impl: DataInput
+	// ===========================
+
+	public void readFully(byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	public void readFully(byte[] b, int off, int len) throws IOException {
+		if (_buf.remaining() < len) {
+			throw new EOFException();
+		}
+		_buf.get(b, off, len);
+	}
+
+	public int skipBytes(int n) {
+		int skip = Math.min(n, _buf.remaining());
+		_buf.position(_buf.position() + skip);
+		return skip;
+	}
+
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	public byte readByte() throws IOException {
+		try {
+			return _buf.get();
+		} catch (BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xff;
+	}
+
+	public short readShort() throws IOException {
+		try {
+			return _buf.getShort();
+		} catch (BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xffff;
+	}
+
+	public char readChar() throws IOException {
+		return (char) readShort();
+	}
+
+	public int readInt() throws IOException {
+		try {
+			return _buf.getInt();
+		} catch (BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	public long readLong() throws IOException {
+		try {
+			return _buf.getLong();
+		} catch (BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	public float readFloat() throws IOException {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	public double readDouble() throws IOException {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	/**
+	 * Read a line as the DataInput contract defines it: each byte is taken as
+	 * a char, and the line ends at "\n", "\r" or "\r\n", which is not
+	 * returned.
+	 * 
+	 * @return the line, or null at the end of the buffer.
+	 */
+	public String readLine() throws IOException {
+		if (!_buf.hasRemaining()) {
+			return null;
+		}
+		StringBuffer sb = new StringBuffer();
+		while (_buf.hasRemaining()) {
+			int c = _buf.get() & 0xff;
+			if (c == '\n') {
+				break;
+			}
+			if (c == '\r') {
+				if (_buf.hasRemaining()
+						&& (_buf.get(_buf.position()) == '\n')) {
+					_buf.get();
+				}
+				break;
+			}
+			sb.append((char) c);
+		}
+		return sb.toString();
+	}
+
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide pool of original form lists. A normalized term usually comes
+ * from the same few surface forms in every document, so term lists keep an
+ * int id into this pool instead of their own list of strings; each distinct
+ * list (compared in order) is stored once.
+ */
+public final class OriginalFormsPool {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	/**
+	 * Id standing for a null list of forms.
+	 */
+	public static final int NO_FORMS = -1;
+
+	/**
+	 * Ids keyed by a list view of the pooled array.
+	 */
+	static private final ConcurrentHashMap<List<String>, Integer> _ids = new ConcurrentHashMap<List<String>, Integer>();
+
+	/**
+	 * Form lists by id. Replaced, never resized in place, when it fills up.
+	 */
+	static private volatile String[][] _forms = new String[1024][];
+
+	static private int _count = 0;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	private OriginalFormsPool() {
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * Return the id of the given list of forms, adding it to the pool if an
+	 * equal list is not there yet.
+	 * 
+	 * @return the id, or NO_FORMS for a null list.
+	 */
+	static public int intern(Collection<String> forms) {
+		if (forms == null)
+			return NO_FORMS;
+
+		// an ArrayList and the pooled Arrays.asList() view are equal when
+		// they hold the same strings in the same order
+		List<String> key = (forms instanceof List) ? (List<String>) forms
+				: Arrays.asList(forms.toArray(new String[forms.size()]));
+		Integer id = _ids.get(key);
+		if (id != null)
+			return id.intValue();
+
+		synchronized (OriginalFormsPool.class) {
+			id = _ids.get(key);
+			if (id != null)
+				return id.intValue();
+
+			String[][] all = _forms;
+			if (_count == all.length) {
+				String[][] grown = new String[all.length * 2][];
+				System.arraycopy(all, 0, grown, 0, all.length);
+				all = grown;
+			}
+			int fid = _count++;
+			all[fid] = forms.toArray(new String[forms.size()]);
+			_forms = all;
+			_ids.put(Arrays.asList(all[fid]), new Integer(fid));
+			return fid;
+		}
+	}
+
+	/**
+	 * Return the forms for the given id, or null. The array is shared and
+	 * must not be modified.
+	 */
+	static public String[] formsOf(int id) {
+		String[][] all = _forms;
+		if ((id < 0) || (id >= all.length))
+			return null;
+
+		return all[id];
+	}
+
+	/**
+	 * Empty the pool; called by TermDictionary when it is cleared.
+	 */
+	static synchronized void clear() {
+		_ids.clear();
+		_forms = new String[1024][];
+		_count = 0;
+	}
+}
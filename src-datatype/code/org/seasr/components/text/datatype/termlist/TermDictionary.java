@@ -0,0 +1,346 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Dictionary of term images shared by the components of a flow, each term
+ * given a dense integer id in order of first use. Term lists, term maps and
+ * term tables key on these ids instead of the strings, so a term shared by
+ * many documents is hashed and held once and column assignment is array
+ * indexing.
+ * <p>
+ * The dictionary is append-only. Lookups by term or by id take no lock.
+ * Insertion locks one of a fixed set of stripes chosen by the term's hash,
+ * so two threads only wait on each other when adding terms of the same
+ * stripe; ids come from an atomic counter and the id to term table grows in
+ * chunks installed by compare-and-set.
+ * <p>
+ * Components using the dictionary call <code>acquire()</code> when they are
+ * initialized and <code>release()</code> when they are disposed; when the
+ * last user releases it, at the end of the flow, the dictionary and the
+ * OriginalFormsPool are cleared. Ids are only meaningful while it lives, so
+ * objects that outlive a flow (serialized term lists, term maps and
+ * matrices) carry the images. <code>save()</code> and <code>load()</code>
+ * keep a dictionary on disk between runs.
+ */
+public final class TermDictionary {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	/**
+	 * Id returned for terms that are not in the dictionary.
+	 */
+	public static final int NO_TERM = -1;
+
+	static private final int FILE_VERSION = 1;
+
+	static private final int CHUNK_BITS = 12;
+
+	static private final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	static private final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	static private final int STRIPES = 64;
+
+	static private final Object[] _stripes = new Object[STRIPES];
+
+	static {
+		for (int i = 0; i < STRIPES; i++) {
+			_stripes[i] = new Object();
+		}
+	}
+
+	static private final ConcurrentHashMap<String, Integer> _ids = new ConcurrentHashMap<String, Integer>(
+			1024, 0.75f, STRIPES);
+
+	/**
+	 * Terms by id, in chunks of CHUNK_SIZE. Chunks are never moved; the
+	 * directory is replaced by a copy when a chunk is added.
+	 */
+	static private final AtomicReference<String[][]> _chunks = new AtomicReference<String[][]>(
+			new String[0][]);
+
+	static private final AtomicInteger _next = new AtomicInteger();
+
+	static private int _users = 0;
+
+	static private volatile int _generation = 0;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	private TermDictionary() {
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * Return the id of the given term, assigning the next free id if the term
+	 * has not been seen before.
+	 * 
+	 * @return the id, or NO_TERM for a null term.
+	 */
+	static public int intern(String term) {
+		if (term == null)
+			return NO_TERM;
+
+		Integer id = _ids.get(term);
+		if (id != null)
+			return id.intValue();
+
+		synchronized (_stripes[(term.hashCode() & 0x7fffffff) % STRIPES]) {
+			id = _ids.get(term);
+			if (id != null)
+				return id.intValue();
+
+			int tid = _next.getAndIncrement();
+			chunkOf(tid)[tid & CHUNK_MASK] = term;
+			// publishes the stored term to threads that find the id
+			_ids.put(term, new Integer(tid));
+			return tid;
+		}
+	}
+
+	/**
+	 * Return the id of the given term without adding it.
+	 * 
+	 * @return the id, or NO_TERM if the term is not in the dictionary.
+	 */
+	static public int lookup(String term) {
+		if (term == null)
+			return NO_TERM;
+
+		Integer id = _ids.get(term);
+		return (id == null) ? NO_TERM : id.intValue();
+	}
+
+	/**
+	 * Return the term for the given id, or null if no such id has been
+	 * assigned.
+	 */
+	static public String termOf(int id) {
+		if (id < 0)
+			return null;
+
+		String[][] chunks = _chunks.get();
+		int c = id >>> CHUNK_BITS;
+		if ((c >= chunks.length) || (chunks[c] == null))
+			return null;
+
+		return chunks[c][id & CHUNK_MASK];
+	}
+
+	/**
+	 * Return the number of terms in the dictionary; ids run from 0 to one
+	 * less than this.
+	 */
+	static public int size() {
+		return _next.get();
+	}
+
+	/**
+	 * Return a number that changes each time the dictionary is cleared.
+	 * Objects that cache ids compare it to know when to drop them.
+	 */
+	static public int generation() {
+		return _generation;
+	}
+
+	/**
+	 * Register a user of the dictionary.
+	 */
+	static public synchronized void acquire() {
+		_users++;
+	}
+
+	/**
+	 * Unregister a user of the dictionary, clearing it and the
+	 * OriginalFormsPool when no users are left.
+	 */
+	static public synchronized void release() {
+		if (_users == 0)
+			return;
+
+		if (--_users == 0) {
+			clear();
+			OriginalFormsPool.clear();
+		}
+	}
+
+	/**
+	 * Write the terms to <b>out</b> in id order.
+	 */
+	static public void writeTo(DataOutput out) throws IOException {
+		int n = size();
+		out.writeInt(FILE_VERSION);
+		out.writeInt(n);
+		for (int id = 0; id < n; id++) {
+			out.writeUTF(awaitTerm(id));
+		}
+	}
+
+	/**
+	 * Read terms written by <code>writeTo()</code> and add them to the
+	 * dictionary. Read into an empty dictionary the terms keep their ids.
+	 * 
+	 * @return the new id of each term, indexed by its id when it was
+	 *         written.
+	 */
+	static public int[] readFrom(DataInput in) throws IOException {
+		int version = in.readInt();
+		if (version != FILE_VERSION)
+			throw new IOException("Unsupported term dictionary version: "
+					+ version);
+
+		int[] ids = new int[in.readInt()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = intern(in.readUTF());
+		}
+		return ids;
+	}
+
+	/**
+	 * Write the dictionary to <b>file</b>.
+	 */
+	static public void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Add the terms saved in <b>file</b> to the dictionary.
+	 * 
+	 * @return the new id of each term, indexed by its saved id.
+	 */
+	static public int[] load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			return readFrom(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Return the chunk holding <b>id</b>, adding it if needed.
+	 */
+	static private String[] chunkOf(int id) {
+		int c = id >>> CHUNK_BITS;
+		while (true) {
+			String[][] chunks = _chunks.get();
+			if ((c < chunks.length) && (chunks[c] != null))
+				return chunks[c];
+
+			String[][] grown = new String[Math.max(chunks.length * 2, c + 1)][];
+			System.arraycopy(chunks, 0, grown, 0, chunks.length);
+			grown[c] = new String[CHUNK_SIZE];
+			if (_chunks.compareAndSet(chunks, grown))
+				return grown[c];
+		}
+	}
+
+	/**
+	 * Return the term for an id that has been handed out, waiting for the
+	 * thread adding it to store it.
+	 */
+	static private String awaitTerm(int id) {
+		String term;
+		while ((term = termOf(id)) == null) {
+			Thread.yield();
+		}
+		return term;
+	}
+
+	/**
+	 * Empty the dictionary, holding every stripe so no term is being added.
+	 */
+	static private void clear() {
+		clear(0);
+	}
+
+	static private void clear(int stripe) {
+		if (stripe < STRIPES) {
+			synchronized (_stripes[stripe]) {
+				clear(stripe + 1);
+			}
+			return;
+		}
+		_ids.clear();
+		_chunks.set(new String[0][]);
+		_next.set(0);
+		_generation++;
+	}
+}
@@ -0,0 +1,405 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+// ==============
+// Java Imports
+// ==============
+
+import java.util.ArrayList;
+
+/**
+ * A term by document frequency matrix in compressed sparse row form. Each
+ * row is a document and each column a term; only the non-zero entries are
+ * stored, row after row, as a column index array and a parallel float value
+ * array, with a row pointer array marking where each row starts.
+ * <p>
+ * Rows are built one at a time: <code>startRow()</code>, then
+ * <code>add()</code> for each term of the document, then
+ * <code>endRow()</code>. Column ids are assigned to terms in the order they
+ * are first seen, by <code>getColumn()</code>, which is indexed by
+ * TermDictionary id.
+ */
+public class TermDocumentMatrix implements java.io.Serializable {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	private static final long serialVersionUID = 2L;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Row i occupies positions _rowPtr[i] to _rowPtr[i + 1] of _cols and
+	 * _vals.
+	 */
+	private int[] _rowPtr = new int[INITIAL_CAPACITY + 1];
+
+	private int[] _cols = new int[INITIAL_CAPACITY];
+
+	private float[] _vals = new float[INITIAL_CAPACITY];
+
+	private int _numRows = 0;
+
+	private int _nnz = 0;
+
+	private boolean _inRow = false;
+
+	private ArrayList<String> _terms = new ArrayList<String>();
+
+	/**
+	 * Column + 1 of each TermDictionary id, 0 for terms with no column.
+	 * Rebuilt from _terms when the dictionary has been cleared.
+	 */
+	private transient int[] _colByTerm = null;
+
+	private transient int _generation = -1;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	public TermDocumentMatrix() {
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	/**
+	 * Returns the column of the term with TermDictionary id <b>termId</b>,
+	 * giving it the next column if it has not been seen.
+	 */
+	public int getColumn(int termId) {
+		int[] cols = columnIndex();
+		if (termId >= cols.length) {
+			_colByTerm = cols = grow(cols, termId + 1);
+		}
+		if (cols[termId] == 0) {
+			_terms.add(TermDictionary.termOf(termId));
+			cols[termId] = _terms.size();
+		}
+		return cols[termId] - 1;
+	}
+
+	/**
+	 * Returns the column of the term with TermDictionary id <b>termId</b>,
+	 * or -1 if it has not been seen.
+	 */
+	public int findColumn(int termId) {
+		int[] cols = columnIndex();
+		if ((termId < 0) || (termId >= cols.length)) {
+			return -1;
+		}
+		return cols[termId] - 1;
+	}
+
+	/**
+	 * Returns the column id of <b>term</b>, giving it the next id if it has
+	 * not been seen.
+	 */
+	public int getTermId(String term) {
+		return getColumn(TermDictionary.intern(term));
+	}
+
+	/**
+	 * Returns the column id of <b>term</b>, or -1 if it has not been seen.
+	 */
+	public int findTermId(String term) {
+		// the index re-interns the column terms if it is rebuilt
+		columnIndex();
+		return findColumn(TermDictionary.lookup(term));
+	}
+
+	public String getTerm(int col) {
+		return _terms.get(col);
+	}
+
+	/**
+	 * Begin a new row.
+	 */
+	public void startRow() {
+		if (_inRow) {
+			throw new IllegalStateException("Row " + _numRows
+					+ " has not been ended.");
+		}
+		_inRow = true;
+	}
+
+	/**
+	 * Add an entry to the current row. Zero values are not stored.
+	 */
+	public void add(int col, float value) {
+		if (!_inRow) {
+			throw new IllegalStateException("No row has been started.");
+		}
+		if (value == 0) {
+			return;
+		}
+		ensureEntries(_nnz + 1);
+		_cols[_nnz] = col;
+		_vals[_nnz] = value;
+		_nnz++;
+	}
+
+	/**
+	 * End the current row.
+	 * 
+	 * @return the index of the row.
+	 */
+	public int endRow() {
+		if (!_inRow) {
+			throw new IllegalStateException("No row has been started.");
+		}
+		_inRow = false;
+		ensureRows(_numRows + 1);
+		_numRows++;
+		_rowPtr[_numRows] = _nnz;
+		return _numRows - 1;
+	}
+
+	/**
+	 * Append the rows of <b>part</b>, moving the entries of its column c to
+	 * column <b>colMap</b>[c]. The values and row pointers are copied in
+	 * bulk; only the column ids are rewritten.
+	 */
+	public void appendRows(TermDocumentMatrix part, int[] colMap) {
+		if (_inRow) {
+			throw new IllegalStateException("Row " + _numRows
+					+ " has not been ended.");
+		}
+		int rows = part._numRows;
+		int nnz = part._nnz;
+		ensureEntries(_nnz + nnz);
+		ensureRows(_numRows + rows);
+
+		System.arraycopy(part._vals, 0, _vals, _nnz, nnz);
+		int[] pcols = part._cols;
+		for (int k = 0; k < nnz; k++) {
+			_cols[_nnz + k] = colMap[pcols[k]];
+		}
+
+		// the part's rows start at its entry 0, which is my entry _nnz
+		System.arraycopy(part._rowPtr, 1, _rowPtr, _numRows + 1, rows);
+		if (_nnz > 0) {
+			for (int r = _numRows + 1, end = _numRows + rows; r <= end; r++) {
+				_rowPtr[r] += _nnz;
+			}
+		}
+		_numRows += rows;
+		_nnz += nnz;
+	}
+
+	public int getNumRows() {
+		return _numRows;
+	}
+
+	public int getNumColumns() {
+		return _terms.size();
+	}
+
+	/**
+	 * Returns the number of stored (non-zero) entries.
+	 */
+	public int getNumNonZero() {
+		return _nnz;
+	}
+
+	/**
+	 * Returns the position of the first entry of <b>row</b>.
+	 */
+	public int getRowStart(int row) {
+		return _rowPtr[row];
+	}
+
+	/**
+	 * Returns the position after the last entry of <b>row</b>.
+	 */
+	public int getRowEnd(int row) {
+		return _rowPtr[row + 1];
+	}
+
+	/**
+	 * Returns the number of terms with a non-zero value in <b>row</b>.
+	 */
+	public int getRowNonZero(int row) {
+		return _rowPtr[row + 1] - _rowPtr[row];
+	}
+
+	/**
+	 * Returns the column of the entry at position <b>pos</b>.
+	 */
+	public int getColumnAt(int pos) {
+		return _cols[pos];
+	}
+
+	/**
+	 * Returns the value of the entry at position <b>pos</b>.
+	 */
+	public float getValueAt(int pos) {
+		return _vals[pos];
+	}
+
+	/**
+	 * Replace the value of the entry at position <b>pos</b>.
+	 */
+	public void setValueAt(float value, int pos) {
+		_vals[pos] = value;
+	}
+
+	/**
+	 * Returns the value at <b>row</b>, <b>col</b>; a scan of the row.
+	 */
+	public float getValue(int row, int col) {
+		for (int k = _rowPtr[row], end = _rowPtr[row + 1]; k < end; k++) {
+			if (_cols[k] == col) {
+				return _vals[k];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns, for each column, the number of rows it has a value in.
+	 */
+	public int[] getColumnCounts() {
+		int[] counts = new int[_terms.size()];
+		for (int k = 0; k < _nnz; k++) {
+			counts[_cols[k]]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Drop all rows, keeping the columns and the allocated arrays.
+	 */
+	public void clearRows() {
+		if (_inRow) {
+			throw new IllegalStateException("Row " + _numRows
+					+ " has not been ended.");
+		}
+		_numRows = 0;
+		_nnz = 0;
+		_rowPtr[0] = 0;
+	}
+
+	/**
+	 * Shrink the arrays to the number of rows and entries stored.
+	 */
+	public void trim() {
+		if (_cols.length > _nnz) {
+			int[] cols = new int[_nnz];
+			float[] vals = new float[_nnz];
+			System.arraycopy(_cols, 0, cols, 0, _nnz);
+			System.arraycopy(_vals, 0, vals, 0, _nnz);
+			_cols = cols;
+			_vals = vals;
+		}
+		if (_rowPtr.length > _numRows + 1) {
+			int[] ptr = new int[_numRows + 1];
+			System.arraycopy(_rowPtr, 0, ptr, 0, _numRows + 1);
+			_rowPtr = ptr;
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Make room for <b>nnz</b> entries.
+	 */
+	private void ensureEntries(int nnz) {
+		if (nnz > _cols.length) {
+			int cap = Math.max(Math.max(INITIAL_CAPACITY, nnz),
+					_cols.length * 2);
+			int[] cols = new int[cap];
+			float[] vals = new float[cap];
+			System.arraycopy(_cols, 0, cols, 0, _nnz);
+			System.arraycopy(_vals, 0, vals, 0, _nnz);
+			_cols = cols;
+			_vals = vals;
+		}
+	}
+
+	/**
+	 * Make room for the pointers of <b>rows</b> rows.
+	 */
+	private void ensureRows(int rows) {
+		if (rows + 1 > _rowPtr.length) {
+			int[] ptr = new int[Math.max(Math.max(INITIAL_CAPACITY, rows + 1),
+					_rowPtr.length * 2)];
+			System.arraycopy(_rowPtr, 0, ptr, 0, _numRows + 1);
+			_rowPtr = ptr;
+		}
+	}
+
+	/**
+	 * Returns the column index by term id, building it from the column
+	 * labels if it is missing or the dictionary has been cleared since.
+	 */
+	private int[] columnIndex() {
+		int gen = TermDictionary.generation();
+		if ((_colByTerm == null) || (_generation != gen)) {
+			int[] cols = new int[Math.max(INITIAL_CAPACITY, TermDictionary
+					.size())];
+			for (int c = 0, n = _terms.size(); c < n; c++) {
+				int termId = TermDictionary.intern(_terms.get(c));
+				if (termId >= cols.length) {
+					cols = grow(cols, termId + 1);
+				}
+				cols[termId] = c + 1;
+			}
+			_colByTerm = cols;
+			_generation = gen;
+		}
+		return _colByTerm;
+	}
+
+	static private int[] grow(int[] a, int min) {
+		int[] ret = new int[Math.max(min, a.length * 2)];
+		System.arraycopy(a, 0, ret, 0, a.length);
+		return ret;
+	}
+}
@@ -0,0 +1,435 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import gnu.trove.TIntIntHashMap;
+
+/**
+ * Compact, versioned binary format for streams of TermListLite objects, read
+ * and written over DataInput and DataOutput.
+ * <p>
+ * A stream starts with a magic number and a format version and holds one
+ * record per term list, each led by a marker byte, then an end marker.
+ * Terms and original form lists are given local ids in the order the stream
+ * first meets them; a record begins with a dictionary section holding the
+ * terms and form lists that are new to the stream, and its entries refer to
+ * them by local id, so each term is written once per stream. Frequencies
+ * are written as the difference from the previous frequency, which is small
+ * for lists in frequency order. All counts, ids and lengths are varints and
+ * strings are UTF-8, with characters outside the Basic Multilingual Plane
+ * written as their two surrogates.
+ */
+public final class TermListCodec {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static public final int MAGIC = 0x544C5354;
+
+	static public final int VERSION = 1;
+
+	static private final int RECORD = 1;
+
+	static private final int END = 0;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	private TermListCodec() {
+	}
+
+	// =================
+	// Inner Class(es)
+	// =================
+
+	/**
+	 * Writes term lists to a DataOutput. <code>finish()</code> must be
+	 * called after the last term list.
+	 */
+	static public final class Writer {
+
+		private final DataOutput _out;
+
+		/**
+		 * Local id + 1 of each TermDictionary id written.
+		 */
+		private final TIntIntHashMap _terms = new TIntIntHashMap();
+
+		/**
+		 * Local id + 1 of each OriginalFormsPool id written.
+		 */
+		private final TIntIntHashMap _forms = new TIntIntHashMap();
+
+		private int[] _newTerms = new int[64];
+
+		private int[] _newForms = new int[64];
+
+		private byte[] _buf = new byte[64];
+
+		public Writer(DataOutput out) throws IOException {
+			_out = out;
+			out.writeInt(MAGIC);
+			writeVarInt(out, VERSION);
+		}
+
+		public void write(TermListLite tl) throws IOException {
+			int size = tl.getSize();
+
+			// dictionary section
+			int numTerms = 0;
+			int numForms = 0;
+			for (int i = 0; i < size; i++) {
+				int termId = tl.getTermIdByIndex(i);
+				if (!_terms.containsKey(termId)) {
+					_terms.put(termId, _terms.size() + 1);
+					_newTerms = ensure(_newTerms, numTerms);
+					_newTerms[numTerms++] = termId;
+				}
+				int formsId = tl.getTermFormsIdByIndex(i);
+				if ((formsId != OriginalFormsPool.NO_FORMS)
+						&& !_forms.containsKey(formsId)) {
+					_forms.put(formsId, _forms.size() + 1);
+					_newForms = ensure(_newForms, numForms);
+					_newForms[numForms++] = formsId;
+				}
+			}
+			_out.writeByte(RECORD);
+			writeVarInt(_out, numTerms);
+			for (int i = 0; i < numTerms; i++) {
+				writeString(TermDictionary.termOf(_newTerms[i]));
+			}
+			writeVarInt(_out, numForms);
+			for (int i = 0; i < numForms; i++) {
+				String[] forms = OriginalFormsPool.formsOf(_newForms[i]);
+				writeVarInt(_out, forms.length);
+				for (int j = 0; j < forms.length; j++) {
+					writeString(forms[j]);
+				}
+			}
+
+			// document
+			writeString(tl.getDocID());
+			writeString(tl.getTitle());
+			writeString(tl.getSource());
+			writeVarLong(_out, zigZag(tl.getDate()));
+			Map<String, String> props = tl.getProperties();
+			writeVarInt(_out, props.size());
+			for (Map.Entry<String, String> ent : props.entrySet()) {
+				writeString(ent.getKey());
+				writeString(ent.getValue());
+			}
+
+			// terms
+			writeVarInt(_out, size);
+			int prev = 0;
+			for (int i = 0; i < size; i++) {
+				int freq = tl.getTermFreqByIndex(i);
+				writeVarInt(_out, _terms.get(tl.getTermIdByIndex(i)) - 1);
+				writeVarLong(_out, zigZag((long) prev - freq));
+				int formsId = tl.getTermFormsIdByIndex(i);
+				writeVarInt(_out, (formsId == OriginalFormsPool.NO_FORMS) ? 0
+						: _forms.get(formsId));
+				prev = freq;
+			}
+		}
+
+		/**
+		 * Write the end marker.
+		 */
+		public void finish() throws IOException {
+			_out.writeByte(END);
+		}
+
+		/**
+		 * Write a string as its UTF-8 byte length + 1 and bytes, 0 for null.
+		 */
+		private void writeString(String s) throws IOException {
+			if (s == null) {
+				writeVarInt(_out, 0);
+				return;
+			}
+			int n = 0;
+			for (int i = 0, len = s.length(); i < len; i++) {
+				if (_buf.length - n < 3) {
+					byte[] buf = new byte[_buf.length * 2];
+					System.arraycopy(_buf, 0, buf, 0, n);
+					_buf = buf;
+				}
+				char c = s.charAt(i);
+				if (c < 0x80) {
+					_buf[n++] = (byte) c;
+				} else if (c < 0x800) {
+					_buf[n++] = (byte) (0xc0 | (c >> 6));
+					_buf[n++] = (byte) (0x80 | (c & 0x3f));
+				} else {
+					_buf[n++] = (byte) (0xe0 | (c >> 12));
+					_buf[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+					_buf[n++] = (byte) (0x80 | (c & 0x3f));
+				}
+			}
+			writeVarInt(_out, n + 1);
+			_out.write(_buf, 0, n);
+		}
+	}
+
+	/**
+	 * Reads term lists from a DataInput, interning their terms and original
+	 * forms.
+	 */
+	static public final class Reader {
+
+		private final DataInput _in;
+
+		/**
+		 * TermDictionary id of each local term id.
+		 */
+		private int[] _terms = new int[64];
+
+		private int _numTerms = 0;
+
+		/**
+		 * OriginalFormsPool id of each local form list id.
+		 */
+		private int[] _forms = new int[64];
+
+		private int _numForms = 0;
+
+		private String[] _formBuf = new String[8];
+
+		private byte[] _bytes = new byte[64];
+
+		private char[] _chars = new char[64];
+
+		private boolean _done = false;
+
+		public Reader(DataInput in) throws IOException {
+			_in = in;
+			int magic = in.readInt();
+			if (magic != MAGIC) {
+				throw new IOException("Not a term list stream.");
+			}
+			int version = readVarInt(in);
+			if (version != VERSION) {
+				throw new IOException("Unsupported term list format version: "
+						+ version);
+			}
+		}
+
+		/**
+		 * Returns the next term list, or null at the end of the stream.
+		 */
+		public TermListLite read() throws IOException {
+			TermListLite tl = new TermListLite();
+			return (readInto(tl)) ? tl : null;
+		}
+
+		/**
+		 * Read the next term list into an empty <b>tl</b>.
+		 * 
+		 * @return false at the end of the stream.
+		 */
+		boolean readInto(TermListLite tl) throws IOException {
+			if (_done) {
+				return false;
+			}
+			int marker = _in.readByte();
+			if (marker == END) {
+				_done = true;
+				return false;
+			}
+			if (marker != RECORD) {
+				throw new IOException("Corrupt term list stream, marker "
+						+ marker);
+			}
+
+			// dictionary section
+			for (int n = readVarInt(_in); n > 0; n--) {
+				_terms = ensure(_terms, _numTerms);
+				_terms[_numTerms++] = TermDictionary.intern(readString());
+			}
+			for (int n = readVarInt(_in); n > 0; n--) {
+				int k = readVarInt(_in);
+				if (_formBuf.length < k) {
+					_formBuf = new String[k];
+				}
+				for (int j = 0; j < k; j++) {
+					_formBuf[j] = readString();
+				}
+				_forms = ensure(_forms, _numForms);
+				_forms[_numForms++] = OriginalFormsPool.intern(Arrays.asList(
+						_formBuf).subList(0, k));
+			}
+
+			// document
+			tl.setDocID(readString());
+			tl.setTitle(readString());
+			tl.setSource(readString());
+			tl.setDate(unZigZag(readVarLong(_in)));
+			int numProps = readVarInt(_in);
+			if (numProps > 0) {
+				Map<String, String> props = new HashMap<String, String>();
+				for (int i = 0; i < numProps; i++) {
+					String key = readString();
+					props.put(key, readString());
+				}
+				tl.setProperties(props);
+			}
+
+			// terms
+			int size = readVarInt(_in);
+			int prev = 0;
+			for (int i = 0; i < size; i++) {
+				int term = readVarInt(_in);
+				int freq = (int) (prev - unZigZag(readVarLong(_in)));
+				int forms = readVarInt(_in);
+				if ((term >= _numTerms) || (forms > _numForms)) {
+					throw new IOException("Corrupt term list stream, term "
+							+ term + " forms " + forms);
+				}
+				tl.addTerm(_terms[term], freq, (forms == 0) ? OriginalFormsPool.NO_FORMS
+						: _forms[forms - 1]);
+				prev = freq;
+			}
+			return true;
+		}
+
+		private String readString() throws IOException {
+			int n = readVarInt(_in) - 1;
+			if (n < 0) {
+				return null;
+			}
+			if (_bytes.length < n) {
+				_bytes = new byte[n];
+				_chars = new char[n];
+			}
+			_in.readFully(_bytes, 0, n);
+			int len = 0;
+			for (int i = 0; i < n;) {
+				int b = _bytes[i++] & 0xff;
+				if (b < 0x80) {
+					_chars[len++] = (char) b;
+				} else if (b < 0xe0) {
+					_chars[len++] = (char) (((b & 0x1f) << 6) | (_bytes[i++] & 0x3f));
+				} else {
+					_chars[len++] = (char) (((b & 0x0f) << 12)
+							| ((_bytes[i++] & 0x3f) << 6) | (_bytes[i++] & 0x3f));
+				}
+			}
+			return new String(_chars, 0, len);
+		}
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	static void writeVarInt(DataOutput out, int v) throws IOException {
+		while ((v & ~0x7f) != 0) {
+			out.writeByte((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readByte();
+			v |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return v;
+			}
+		}
+		throw new IOException("Malformed varint.");
+	}
+
+	static void writeVarLong(DataOutput out, long v) throws IOException {
+		while ((v & ~0x7fL) != 0) {
+			out.writeByte((int) ((v & 0x7f) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	static long readVarLong(DataInput in) throws IOException {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readByte();
+			v |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return v;
+			}
+		}
+		throw new IOException("Malformed varint.");
+	}
+
+	static private long zigZag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	static private long unZigZag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	static private int[] ensure(int[] a, int index) {
+		if (index < a.length) {
+			return a;
+		}
+		int[] ret = new int[a.length * 2];
+		System.arraycopy(a, 0, ret, 0, a.length);
+		return ret;
+	}
+}
@@ -45,13 +45,25 @@ package org.seasr.components.text.datatype.termlist;
 //==============
 // Java Imports
 //==============
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.*;
 import java.util.logging.*;
 
+import gnu.trove.TIntIntHashMap;
+
 import org.seasr.components.text.datatype.pos.PoSToken;
 
 
 /**
+ * Terms are held as TermDictionary ids in an int array, with parallel int
+ * arrays for the frequencies and for the OriginalFormsPool ids of their
+ * original forms. The term to position index is only built when a term is
+ * looked up.
+ * 
  * @author D. Searsmith
  */
 public class TermListLite implements TermList, java.io.Serializable {
@@ -60,25 +72,40 @@ public class TermListLite implements TermList, java.io.Serializable {
 	// Data Members
 	// ==============
 
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 3L;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * TermDictionary ids of the terms.
+	 */
+	private transient int[] m_terms = EMPTY;
 
-	private ArrayList<String> m_terms = new ArrayList<String>();
+	private transient int[] m_freqs = EMPTY;
 
-	private ArrayList<Integer> m_freqs = new ArrayList<Integer>();
+	/**
+	 * OriginalFormsPool ids of the original forms of each term.
+	 */
+	private transient int[] m_oforms = EMPTY;
 
-	private ArrayList<ArrayList<String>> m_oforms = new ArrayList<ArrayList<String>>();
+	private transient int m_size = 0;
 
-	private String m_docID = "";
+	private transient String m_docID = "";
 
-	private String m_docTitle = "";
+	private transient String m_docTitle = "";
 
-	private String m_source = "";
+	private transient String m_source = "";
 
-	private Hashtable<String, String> m_properties = null;
+	private transient Hashtable<String, String> m_properties = null;
 
-	private long m_date = -1;
+	private transient long m_date = -1;
 
-	private HashMap<String, Integer> _termPos = new HashMap<String, Integer>();
+	/**
+	 * Position + 1 of each term id, built on the first lookup.
+	 */
+	private transient TIntIntHashMap _termPos = null;
 
 	private static Logger _logger = Logger.getLogger("TermListLite");
 
@@ -109,7 +136,10 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * 
 	 * @param StringBuffer
 	 *            
+	 * @deprecated the XML form is kept for print(); use writeTo() and
+	 *             readFrom() to store term lists.
 	 */
+	@Deprecated
 	public TermListLite(StringBuffer xml) {
 		StringBuffer title = new StringBuffer();
 		StringBuffer docid = new StringBuffer();
@@ -130,6 +160,8 @@ public class TermListLite implements TermList, java.io.Serializable {
 		boolean appendToValue = false;
 		int i = 0;
 		ArrayList<String> oforms = null;
+		String pendingImage = null;
+		int pendingFreq = 0;
 		try {
 			while (true) {
 				cval = xml.charAt(i++);
@@ -147,7 +179,7 @@ public class TermListLite implements TermList, java.io.Serializable {
 								m_docTitle = title.toString();
 							} else if (cval == 'E') {
 								i += 3;
-								m_oforms.add(oforms);
+								addTerm(pendingImage, pendingFreq, oforms);
 							}
 						} else if (cval == 'S') {
 							i += 3;
@@ -174,14 +206,12 @@ public class TermListLite implements TermList, java.io.Serializable {
 						} else if (cval == 'I') {
 							i += 3;
 							appendToImage = false;
-							m_terms.add(image.toString());
-							_termPos.put(image.toString(), new Integer(m_terms
-									.size() - 1));
+							pendingImage = image.toString();
 							image = new StringBuffer();
 						} else if (cval == 'F') {
 							i += 4;
 							appendToFreq = false;
-							m_freqs.add(new Integer(freq.toString()));
+							pendingFreq = Integer.parseInt(freq.toString());
 							freq = new StringBuffer();
 						} else if (cval == 'O') {
 							i += 5;
@@ -287,7 +317,7 @@ public class TermListLite implements TermList, java.io.Serializable {
 	}
 
 	/**
-	 * put your documentation comment here
+	 * Returns a read-only view of the properties.
 	 * 
 	 * @return
 	 */
@@ -295,7 +325,7 @@ public class TermListLite implements TermList, java.io.Serializable {
 		if (m_properties == null) {
 			m_properties = new Hashtable<String, String>();
 		}
-		return new Hashtable<String, String>(m_properties);
+		return Collections.unmodifiableMap(m_properties);
 	}
 
 	/**
@@ -317,34 +347,23 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @param quant
 	 */
 	public void truncateTerms(int quant) {
-		ArrayList<String> terms = new ArrayList<String>();
-		ArrayList<Integer> freqs = new ArrayList<Integer>();
-		ArrayList<ArrayList<String>> oforms = new ArrayList<ArrayList<String>>();
-		_termPos.clear();
-		int i = 0;
-		int size = m_terms.size();
-		while ((i < size) && (i < quant)) {
-			terms.add(m_terms.get(i));
-			_termPos.put(m_terms.get(i), new Integer(terms.size() - 1));
-			freqs.add(m_freqs.get(i));
-			oforms.add(m_oforms.get(i));
-			i++;
+		if ((quant >= 0) && (quant < m_size)) {
+			m_size = quant;
+			_termPos = null;
 		}
-		m_terms = terms;
-		m_freqs = freqs;
-		m_oforms = oforms;
 	}
 
 	/**
 	 * put your documentation comment here
 	 */
 	public void free() {
-		m_terms.clear();
-		m_freqs.clear();
-		m_oforms.clear();
+		m_terms = EMPTY;
+		m_freqs = EMPTY;
+		m_oforms = EMPTY;
+		m_size = 0;
 		m_docID = "";
 		m_docTitle = "";
-		_termPos.clear();
+		_termPos = null;
 	}
 
 	/**
@@ -355,10 +374,8 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @param oforms
 	 */
 	public void addTerm(String image, int freq, ArrayList<String> oforms) {
-		m_terms.add(image);
-		_termPos.put(image, new Integer(m_terms.size() - 1));
-		m_freqs.add(new Integer(freq));
-		m_oforms.add(oforms);
+		addTerm(TermDictionary.intern(image), freq, OriginalFormsPool
+				.intern(oforms));
 	}
 
 	/**
@@ -367,10 +384,27 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @param pos
 	 */
 	public void addTerm(PoSToken pos) {
-		m_terms.add(pos.getImage());
-		_termPos.put(pos.getImage(), new Integer(m_terms.size() - 1));
-		m_freqs.add(new Integer(pos.getFrequency()));
-		m_oforms.add(pos.getOriginalForms());
+		addTerm(pos.getImage(), pos.getFrequency(), pos.getOriginalForms());
+	}
+
+	/**
+	 * Add a term by its TermDictionary id, with the OriginalFormsPool id of
+	 * its original forms.
+	 */
+	public void addTerm(int termId, int freq, int formsId) {
+		if (m_size == m_terms.length) {
+			int cap = Math.max(INITIAL_CAPACITY, m_size * 2);
+			m_terms = grow(m_terms, cap);
+			m_freqs = grow(m_freqs, cap);
+			m_oforms = grow(m_oforms, cap);
+		}
+		m_terms[m_size] = termId;
+		m_freqs[m_size] = freq;
+		m_oforms[m_size] = formsId;
+		if (_termPos != null) {
+			_termPos.put(termId, m_size + 1);
+		}
+		m_size++;
 	}
 
 	/**
@@ -379,7 +413,23 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @return
 	 */
 	public Iterator<String> getTerms() {
-		return m_terms.iterator();
+		return new Iterator<String>() {
+			private int _next = 0;
+
+			public boolean hasNext() {
+				return _next < m_size;
+			}
+
+			public String next() {
+				if (_next >= m_size)
+					throw new NoSuchElementException();
+				return TermDictionary.termOf(m_terms[_next++]);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	/**
@@ -388,7 +438,11 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @return
 	 */
 	public Object[] getTermsAsArray() {
-		return m_terms.toArray();
+		Object[] ret = new Object[m_size];
+		for (int i = 0; i < m_size; i++) {
+			ret[i] = TermDictionary.termOf(m_terms[i]);
+		}
+		return ret;
 	}
 
 	/**
@@ -397,7 +451,7 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @return
 	 */
 	public Iterator<Integer> getFrequencies() {
-		return m_freqs.iterator();
+		return Arrays.asList(boxFrequencies()).iterator();
 	}
 
 	/**
@@ -406,7 +460,7 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @return
 	 */
 	public Object[] getFrequenciesAsArray() {
-		return m_freqs.toArray();
+		return boxFrequencies();
 	}
 
 	/**
@@ -416,7 +470,7 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @return
 	 */
 	public boolean findTermByImage(String tstr) {
-		return _termPos.keySet().contains(tstr);
+		return positionOf(TermDictionary.lookup(tstr)) >= 0;
 	}
 
 	/**
@@ -426,12 +480,7 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @return
 	 */
 	public int getTermFreqByImage(String tstr) {
-		Integer iob = (Integer) _termPos.get(tstr);
-		if (iob == null) {
-			return -1;
-		} else {
-			return ((Integer) m_freqs.get(iob.intValue())).intValue();
-		}
+		return getTermFreqById(TermDictionary.lookup(tstr));
 	}
 
 	/**
@@ -441,47 +490,93 @@ public class TermListLite implements TermList, java.io.Serializable {
 	 * @return
 	 */
 	public int getTermFreqByIndex(int ind) {
-		if ((ind >= 0) && (ind < m_freqs.size())) {
-			return ((Integer) m_freqs.get(ind)).intValue();
+		if ((ind >= 0) && (ind < m_size)) {
+			return m_freqs[ind];
 		}
 		return -1;
 	}
 
 	/**
-	 * put your documentation comment here
+	 * Returns a new list of the original forms of the term, or null.
 	 * 
 	 * @param tstr
 	 * @return
 	 */
 	public ArrayList<String> getTermOrigFormsByImage(String tstr) {
-		Integer iob = (Integer) _termPos.get(tstr);
-		if (iob == null) {
+		int pos = positionOf(TermDictionary.lookup(tstr));
+		if (pos < 0) {
 			return null;
-		} else {
-			return m_oforms.get(iob.intValue());
 		}
+		return toList(OriginalFormsPool.formsOf(m_oforms[pos]));
 	}
 
 	/**
-	 * put your documentation comment here
+	 * Returns a new list of the original forms of the term, or null.
 	 * 
 	 * @param ind
 	 * @return
 	 */
 	public ArrayList<String> getTermOrigFormsByIndex(int ind) {
-		if ((ind >= 0) && (ind < m_oforms.size())) {
-			return m_oforms.get(ind);
+		if ((ind >= 0) && (ind < m_size)) {
+			return toList(OriginalFormsPool.formsOf(m_oforms[ind]));
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the TermDictionary id of the term at <b>ind</b>, or
+	 * TermDictionary.NO_TERM.
+	 */
+	public int getTermIdByIndex(int ind) {
+		if ((ind >= 0) && (ind < m_size)) {
+			return m_terms[ind];
+		}
+		return TermDictionary.NO_TERM;
+	}
+
+	/**
+	 * Returns the position of the term with the given TermDictionary id, or
+	 * -1.
+	 */
+	public int getTermIndexById(int termId) {
+		return positionOf(termId);
+	}
+
+	/**
+	 * Returns the frequency of the term with the given TermDictionary id, or
+	 * -1.
+	 */
+	public int getTermFreqById(int termId) {
+		int pos = positionOf(termId);
+		return (pos < 0) ? -1 : m_freqs[pos];
+	}
+
+	/**
+	 * Returns true if the term with the given TermDictionary id is in this
+	 * list.
+	 */
+	public boolean findTermById(int termId) {
+		return positionOf(termId) >= 0;
+	}
+
+	/**
+	 * Returns the OriginalFormsPool id of the original forms of the term at
+	 * <b>ind</b>, or OriginalFormsPool.NO_FORMS.
+	 */
+	public int getTermFormsIdByIndex(int ind) {
+		if ((ind >= 0) && (ind < m_size)) {
+			return m_oforms[ind];
+		}
+		return OriginalFormsPool.NO_FORMS;
+	}
+
 	/**
 	 * put your documentation comment here
 	 * 
 	 * @return
 	 */
 	public int getSize() {
-		return m_terms.size();
+		return m_size;
 	}
 
 	/**
@@ -581,27 +676,12 @@ public class TermListLite implements TermList, java.io.Serializable {
 				ret.append("</PROP>");
 			}
 		}
-		int sz = m_terms.size();
-		if (sz != m_freqs.size()) {
-			_logger.warning("DocID: " + this.getDocID() + " num terms: "
-					+ m_terms.size() + " num freqs: " + m_freqs.size());
-			if (sz > m_freqs.size()) {
-				sz = m_freqs.size();
-			}
-		}
-		if (sz != m_oforms.size()) {
-			_logger.warning("DocID: " + this.getDocID() + " num terms: "
-					+ m_terms.size() + " num oforms: " + m_oforms.size());
-			if (sz > m_oforms.size()) {
-				sz = m_oforms.size();
-			}
-		}
-		for (int x = 0, xn = sz; x < xn; x++) {
-			ret.append("<TERM><IMG>" + (String) m_terms.get(x) + "</IMG><FREQ>"
-					+ m_freqs.get(x) + "</FREQ>");
-			ArrayList<String> oform = m_oforms.get(x);
-			for (int y = 0, yn = oform.size(); y < yn; y++) {
-				ret.append("<OFORM>" + (String) oform.get(y) + "</OFORM>");
+		for (int x = 0, xn = m_size; x < xn; x++) {
+			ret.append("<TERM><IMG>" + TermDictionary.termOf(m_terms[x])
+					+ "</IMG><FREQ>" + m_freqs[x] + "</FREQ>");
+			String[] oform = OriginalFormsPool.formsOf(m_oforms[x]);
+			for (int y = 0, yn = (oform == null) ? 0 : oform.length; y < yn; y++) {
+				ret.append("<OFORM>" + oform[y] + "</OFORM>");
 			}
 			ret.append("</TERM>");
 		}
@@ -617,22 +697,99 @@ public class TermListLite implements TermList, java.io.Serializable {
 	}
 
 	/**
-	 * put your documentation comment here
+	 * The terms, frequencies and original forms are kept in parallel arrays
+	 * of one size, so the list is always consistent.
 	 * 
 	 * @return
 	 */
 	public boolean validate() {
-		int sz = m_terms.size();
-		if (sz != m_freqs.size()) {
-			_logger.warning("DocID: " + this.getDocID() + " num terms: "
-					+ m_terms.size() + " num freqs: " + m_freqs.size());
-			return false;
+		return true;
+	}
+
+	/**
+	 * Write this term list in the TermListCodec binary format. To write many
+	 * term lists to one stream use a TermListCodec.Writer, which writes each
+	 * term only once.
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		TermListCodec.Writer writer = new TermListCodec.Writer(out);
+		writer.write(this);
+		writer.finish();
+	}
+
+	/**
+	 * Read a term list written by <code>writeTo()</code>.
+	 */
+	static public TermListLite readFrom(DataInput in) throws IOException {
+		TermListLite tl = new TermListCodec.Reader(in).read();
+		if (tl == null) {
+			throw new IOException("No term list in stream.");
+		}
+		return tl;
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Position of the term with the given id, or -1.
+	 */
+	private int positionOf(int termId) {
+		if (termId == TermDictionary.NO_TERM) {
+			return -1;
 		}
-		if (sz != m_oforms.size()) {
-			_logger.warning("DocID: " + this.getDocID() + " num terms: "
-					+ m_terms.size() + " num oforms: " + m_oforms.size());
-			return false;
+		if (_termPos == null) {
+			_termPos = new TIntIntHashMap(Math.max(INITIAL_CAPACITY, m_size));
+			for (int i = 0; i < m_size; i++) {
+				_termPos.put(m_terms[i], i + 1);
+			}
+		}
+		return _termPos.get(termId) - 1;
+	}
+
+	private Integer[] boxFrequencies() {
+		Integer[] ret = new Integer[m_size];
+		for (int i = 0; i < m_size; i++) {
+			ret[i] = new Integer(m_freqs[i]);
+		}
+		return ret;
+	}
+
+	static private ArrayList<String> toList(String[] forms) {
+		if (forms == null) {
+			return null;
+		}
+		return new ArrayList<String>(Arrays.asList(forms));
+	}
+
+	static private int[] grow(int[] a, int cap) {
+		int[] ret = new int[cap];
+		System.arraycopy(a, 0, ret, 0, a.length);
+		return ret;
+	}
+
+	/**
+	 * Dictionary and pool ids are only valid in this VM, so the list is
+	 * written in the TermListCodec format, which carries the images.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		writeTo(out);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		m_terms = EMPTY;
+		m_freqs = EMPTY;
+		m_oforms = EMPTY;
+		m_docID = "";
+		m_docTitle = "";
+		m_source = "";
+		m_date = -1;
+		if (!new TermListCodec.Reader(in).readInto(this)) {
+			throw new IOException("No term list in stream.");
 		}
-		return true;
 	}
 }
@@ -0,0 +1,246 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of a TermDocumentMatrix, with the properties of their documents,
+ * spilled to run files on disk so the rows on the heap stay within a
+ * budget. The matrix keeps its columns, so column ids are the same in every
+ * run; rows are numbered across runs in the order they were spilled.
+ * <p>
+ * Runs are read back through memory-mapped buffers. A run must be smaller
+ * than 2GB, which a heap budget below that guarantees.
+ */
+public class TermMatrixSpill {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	private final File _dir;
+
+	private final ArrayList<File> _runs = new ArrayList<File>();
+
+	private int _numRows = 0;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	/**
+	 * @param dir
+	 *            directory for the run files, or null for the default
+	 *            temporary directory.
+	 */
+	public TermMatrixSpill(File dir) {
+		_dir = dir;
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	/**
+	 * Write the rows of <b>matrix</b> and the properties of their documents,
+	 * one map per row, to a new run, then clear the rows of the matrix and
+	 * the property list.
+	 */
+	public void spill(TermDocumentMatrix matrix,
+			List<Map<String, String>> props) throws IOException {
+		int rows = matrix.getNumRows();
+		if (props.size() != rows) {
+			throw new IllegalArgumentException(rows + " rows but "
+					+ props.size() + " property maps.");
+		}
+		File run = File.createTempFile("termrun", ".bin", _dir);
+		run.deleteOnExit();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(run), 1 << 16));
+		try {
+			TermListCodec.writeVarInt(out, rows);
+			for (int r = 0; r < rows; r++) {
+				int start = matrix.getRowStart(r);
+				int end = matrix.getRowEnd(r);
+				TermListCodec.writeVarInt(out, end - start);
+				for (int k = start; k < end; k++) {
+					TermListCodec.writeVarInt(out, matrix.getColumnAt(k));
+					out.writeFloat(matrix.getValueAt(k));
+				}
+				Map<String, String> p = props.get(r);
+				TermListCodec.writeVarInt(out, p.size());
+				for (Map.Entry<String, String> ent : p.entrySet()) {
+					out.writeUTF(ent.getKey());
+					out.writeUTF(ent.getValue());
+				}
+			}
+		} finally {
+			out.close();
+		}
+		_runs.add(run);
+		_numRows += rows;
+		matrix.clearRows();
+		props.clear();
+	}
+
+	/**
+	 * Returns the number of rows spilled.
+	 */
+	public int getNumRows() {
+		return _numRows;
+	}
+
+	public int getNumRuns() {
+		return _runs.size();
+	}
+
+	/**
+	 * Visit every spilled entry, row by row.
+	 */
+	public void forEachEntry(EntryVisitor v) throws IOException {
+		int row = 0;
+		for (int i = 0, n = _runs.size(); i < n; i++) {
+			ByteBufferInput in = map(_runs.get(i));
+			for (int r = TermListCodec.readVarInt(in); r > 0; r--, row++) {
+				for (int k = TermListCodec.readVarInt(in); k > 0; k--) {
+					int col = TermListCodec.readVarInt(in);
+					v.entry(row, col, in.readFloat());
+				}
+				skipProperties(in);
+			}
+		}
+	}
+
+	/**
+	 * Visit the property map of every spilled row, in row order. Only one
+	 * row's properties are held at a time: the map passed to the visitor is
+	 * reused for the next row.
+	 */
+	public void forEachProperties(PropertyVisitor v) throws IOException {
+		HashMap<String, String> p = new HashMap<String, String>();
+		int row = 0;
+		for (int i = 0, n = _runs.size(); i < n; i++) {
+			ByteBufferInput in = map(_runs.get(i));
+			for (int r = TermListCodec.readVarInt(in); r > 0; r--, row++) {
+				for (int k = TermListCodec.readVarInt(in); k > 0; k--) {
+					TermListCodec.readVarInt(in);
+					in.readFloat();
+				}
+				p.clear();
+				for (int np = TermListCodec.readVarInt(in); np > 0; np--) {
+					String key = in.readUTF();
+					p.put(key, in.readUTF());
+				}
+				v.properties(row, p);
+			}
+		}
+	}
+
+	/**
+	 * Delete the run files.
+	 */
+	public void delete() {
+		for (int i = 0, n = _runs.size(); i < n; i++) {
+			_runs.get(i).delete();
+		}
+		_runs.clear();
+		_numRows = 0;
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private ByteBufferInput map(File run) throws IOException {
+		FileInputStream fin = new FileInputStream(run);
+		try {
+			FileChannel ch = fin.getChannel();
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0,
+					ch.size());
+			return new ByteBufferInput(buf);
+		} finally {
+			// the mapping stays valid after the channel is closed
+			fin.close();
+		}
+	}
+
+	static private void skipProperties(ByteBufferInput in) throws IOException {
+		for (int np = TermListCodec.readVarInt(in) * 2; np > 0; np--) {
+			in.skipBytes(in.readUnsignedShort());
+		}
+	}
+
+	// =================
+	// Inner Class(es)
+	// =================
+
+	/**
+	 * Receives the entries of the spilled rows.
+	 */
+	public interface EntryVisitor {
+		public void entry(int row, int col, float value);
+	}
+
+	/**
+	 * Receives the property maps of the spilled rows.
+	 */
+	public interface PropertyVisitor {
+		public void properties(int row, Map<String, String> props);
+	}
+}
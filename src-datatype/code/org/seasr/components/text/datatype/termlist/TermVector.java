@@ -0,0 +1,148 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * The terms of a document with real valued weights, such as TF-IDF or BM25
+ * scores, as parallel arrays of TermDictionary ids and weights.
+ */
+public class TermVector implements java.io.Serializable {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	private static final long serialVersionUID = 1L;
+
+	private String _docID = "";
+
+	private String _title = "";
+
+	private transient int[] _termIds;
+
+	private transient float[] _weights;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	/**
+	 * The arrays are kept, not copied.
+	 */
+	public TermVector(String docID, String title, int[] termIds,
+			float[] weights) {
+		if (termIds.length != weights.length) {
+			throw new IllegalArgumentException(termIds.length + " terms but "
+					+ weights.length + " weights.");
+		}
+		_docID = docID;
+		_title = title;
+		_termIds = termIds;
+		_weights = weights;
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	public String getDocID() {
+		return _docID;
+	}
+
+	public String getTitle() {
+		return _title;
+	}
+
+	public int getSize() {
+		return _termIds.length;
+	}
+
+	public int getTermIdByIndex(int ind) {
+		return _termIds[ind];
+	}
+
+	public String getTermByIndex(int ind) {
+		return TermDictionary.termOf(_termIds[ind]);
+	}
+
+	public float getWeightByIndex(int ind) {
+		return _weights[ind];
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Dictionary ids are only valid in this VM, so the terms are written by
+	 * image.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(_termIds.length);
+		for (int i = 0; i < _termIds.length; i++) {
+			out.writeUTF(TermDictionary.termOf(_termIds[i]));
+			out.writeFloat(_weights[i]);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		int n = in.readInt();
+		_termIds = new int[n];
+		_weights = new float[n];
+		for (int i = 0; i < n; i++) {
+			_termIds[i] = TermDictionary.intern(in.readUTF());
+			_weights[i] = in.readFloat();
+		}
+	}
+}
@@ -48,7 +48,16 @@ package org.seasr.components.text.datatype.termmap;
 import java.util.*;
 import java.io.*;
 
+import gnu.trove.TIntObjectHashMap;
+
+import org.seasr.components.text.datatype.termlist.OriginalFormsPool;
+import org.seasr.components.text.datatype.termlist.TermDictionary;
+
 /**
+ * Term data by column label. Each term keeps its distinct original forms in
+ * a compact array, with a hash index once it has more than a few; forms
+ * added by OriginalFormsPool id share the pool's strings.
+ * 
  * @author D. Searsmith
  * @author Bei Yu
  */
@@ -58,10 +67,17 @@ public class TermMap extends HashMap<String, TermMap.TermData> {
 	// Data Members
 	// ==============
 	
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
 	public static String s_RES_KEY = "term_map_key";
 
+	/**
+	 * Term data by TermDictionary id, filled as terms are looked up.
+	 */
+	private transient TIntObjectHashMap<TermData> _byTerm = null;
+
+	private transient int _generation = -1;
+
 	/**
 	 * put your documentation comment here
 	 * 
@@ -78,6 +94,67 @@ public class TermMap extends HashMap<String, TermMap.TermData> {
 		}
 	}
 
+	/**
+	 * Add term data for the term with TermDictionary id <b>termId</b>, keyed
+	 * by its image.
+	 * 
+	 * @param termId
+	 * @param ofs
+	 */
+	public void addTermData(int termId, ArrayList<String> ofs) {
+		TermData td = getTermData(termId);
+		if (td == null) {
+			String image = TermDictionary.termOf(termId);
+			td = new TermData(image, image, ofs);
+			put(image, td);
+			_byTerm.put(termId, td);
+		} else {
+			td.addOrigForms(ofs);
+		}
+	}
+
+	/**
+	 * Add term data for the term with TermDictionary id <b>termId</b>, with
+	 * the original forms pooled under <b>formsId</b>.
+	 * 
+	 * @param termId
+	 * @param formsId
+	 */
+	public void addTermData(int termId, int formsId) {
+		TermData td = getTermData(termId);
+		if (td == null) {
+			String image = TermDictionary.termOf(termId);
+			td = new TermData(image, image, null);
+			put(image, td);
+			_byTerm.put(termId, td);
+		}
+		td.addOrigForms(formsId);
+	}
+
+	/**
+	 * Returns the term data for the term with TermDictionary id
+	 * <b>termId</b>, or null.
+	 * 
+	 * @param termId
+	 * @return
+	 */
+	public TermData getTermData(int termId) {
+		int gen = TermDictionary.generation();
+		if ((_byTerm == null) || (_generation != gen)) {
+			_byTerm = new TIntObjectHashMap<TermData>();
+			_generation = gen;
+		}
+		TermData td = _byTerm.get(termId);
+		if (td == null) {
+			String image = TermDictionary.termOf(termId);
+			td = (image == null) ? null : get(image);
+			if (td != null) {
+				_byTerm.put(termId, td);
+			}
+		}
+		return td;
+	}
+
 	/**
 	 * put your documentation comment here
 	 * 
@@ -94,15 +171,35 @@ public class TermMap extends HashMap<String, TermMap.TermData> {
 	// =================
 	// Inner Class(es)
 	// =================
-	public class TermData implements Serializable {
+	static public class TermData implements Serializable {
 
 		// ==============
 		// Data Members
 		// ==============
 
-		private static final long serialVersionUID = 1L;
+		private static final long serialVersionUID = 2L;
+
+		/**
+		 * Number of forms searched linearly before a hash index is built.
+		 */
+		static private final int LINEAR_LIMIT = 8;
+
+		static private final String[] NO_FORMS = new String[0];
+
+		private String[] _origForms = NO_FORMS;
+
+		private int _numForms = 0;
+
+		/**
+		 * Position + 1 of each form by hash, built past LINEAR_LIMIT forms.
+		 */
+		private transient int[] _index = null;
 
-		private ArrayList<String> _origForms = null;
+		/**
+		 * OriginalFormsPool id + 1 last added, skipped when added again; 0
+		 * for none.
+		 */
+		private transient int _lastFormsId = 0;
 
 		private String _image = "";
 
@@ -131,42 +228,92 @@ public class TermMap extends HashMap<String, TermMap.TermData> {
 		}
 
 		/**
-		 * put your documentation comment here
+		 * Replace the original forms with the distinct forms in <b>s</b>.
 		 * 
 		 * @param s
 		 */
 		public void setOrigForms(ArrayList<String> s) {
-			_origForms = s;
+			_origForms = NO_FORMS;
+			_numForms = 0;
+			_index = null;
+			_lastFormsId = 0;
+			addOrigForms(s);
 		}
 
 		/**
-		 * put your documentation comment here
+		 * Returns a new list of the original forms.
 		 * 
 		 * @return
 		 */
 		public ArrayList<String> getOrigForms() {
-			return _origForms;
+			ArrayList<String> ret = new ArrayList<String>(_numForms);
+			for (int i = 0; i < _numForms; i++) {
+				ret.add(_origForms[i]);
+			}
+			return ret;
+		}
+
+		public int getNumOrigForms() {
+			return _numForms;
+		}
+
+		public String getOrigForm(int i) {
+			return _origForms[i];
 		}
 
 		/**
-		 * put your documentation comment here
+		 * Add the forms of <b>list</b> that are not there yet.
 		 * 
 		 * @param list
 		 */
 		public void addOrigForms(ArrayList<String> list) {
 			// bei added 09-13-2004 to avoid null pointer exception from addAll.
 			if (list == null)
-				list = new ArrayList<String>();
-			// //
-			if (_origForms == null) {
-				_origForms.addAll(list);
 				return;
-			}
 			for (int i = 0, n = list.size(); i < n; i++) {
-				String ofrm = list.get(i);
-				if (!_origForms.contains(ofrm)) {
-					_origForms.add(ofrm);
+				addOrigForm(list.get(i));
+			}
+		}
+
+		/**
+		 * Add the forms pooled under <b>formsId</b> that are not there yet.
+		 * 
+		 * @param formsId
+		 */
+		public void addOrigForms(int formsId) {
+			if (formsId + 1 == _lastFormsId)
+				return;
+			String[] forms = OriginalFormsPool.formsOf(formsId);
+			if (forms != null) {
+				for (int i = 0; i < forms.length; i++) {
+					addOrigForm(forms[i]);
+				}
+			}
+			_lastFormsId = formsId + 1;
+		}
+
+		/**
+		 * Add <b>form</b> if it is not there yet.
+		 * 
+		 * @param form
+		 */
+		public void addOrigForm(String form) {
+			if (indexOf(form) >= 0)
+				return;
+			if (_numForms == _origForms.length) {
+				String[] forms = new String[Math.max(2, _numForms * 2)];
+				System.arraycopy(_origForms, 0, forms, 0, _numForms);
+				_origForms = forms;
+			}
+			_origForms[_numForms++] = form;
+			if (_index != null) {
+				if (_numForms * 2 > _index.length) {
+					buildIndex();
+				} else {
+					insert(_index, _numForms - 1);
 				}
+			} else if (_numForms > LINEAR_LIMIT) {
+				buildIndex();
 			}
 		}
 
@@ -205,5 +352,50 @@ public class TermMap extends HashMap<String, TermMap.TermData> {
 		public String getID() {
 			return _id;
 		}
+
+		// =================
+		// Private Methods
+		// =================
+
+		private int indexOf(String form) {
+			if ((_index == null) && (_numForms > LINEAR_LIMIT)) {
+				// after deserialization
+				buildIndex();
+			}
+			if (_index == null) {
+				for (int i = 0; i < _numForms; i++) {
+					if (_origForms[i].equals(form))
+						return i;
+				}
+				return -1;
+			}
+			int mask = _index.length - 1;
+			for (int slot = form.hashCode() & mask; _index[slot] != 0; slot = (slot + 1)
+					& mask) {
+				if (_origForms[_index[slot] - 1].equals(form))
+					return _index[slot] - 1;
+			}
+			return -1;
+		}
+
+		private void buildIndex() {
+			int size = 16;
+			while (size < _numForms * 4) {
+				size <<= 1;
+			}
+			_index = new int[size];
+			for (int i = 0; i < _numForms; i++) {
+				insert(_index, i);
+			}
+		}
+
+		private void insert(int[] index, int pos) {
+			int mask = index.length - 1;
+			int slot = _origForms[pos].hashCode() & mask;
+			while (index[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = pos + 1;
+		}
 	}
 }
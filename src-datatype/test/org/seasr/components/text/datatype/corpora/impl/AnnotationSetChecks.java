@@ -0,0 +1,140 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+
+/**
+ * Content checks shared by the annotation set tests: a query result is
+ * compared, annotation by annotation, with a scan of the whole set.
+ */
+final class AnnotationSetChecks {
+
+	// ================
+	// Constructors
+	// ================
+
+	private AnnotationSetChecks() {
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * The annotations of a set keyed by id, with their type, offsets and
+	 * features. A null set is empty.
+	 */
+	static Map<Integer, String> describe(AnnotationSet set) {
+		Map<Integer, String> m = new TreeMap<Integer, String>();
+		if (set == null)
+			return m;
+
+		int n = 0;
+		for (Iterator<Annotation> it = set.iterator(); it.hasNext(); n++) {
+			Annotation a = it.next();
+			m.put(new Integer(a.getId()), describe(a));
+		}
+		assertEquals(n, set.size());
+		assertEquals(n, m.size());
+		return m;
+	}
+
+	static String describe(Annotation a) {
+		return a.getType() + " " + a.getStartNodeOffset() + "-"
+				+ a.getEndNodeOffset() + " "
+				+ new TreeMap<String, String>(a.getFeatures());
+	}
+
+	/**
+	 * Compare the overlapping, contained, exact and exact start queries of
+	 * <b>set</b> for <b>start</b> to <b>end</b> with a scan of the set.
+	 */
+	static void checkRange(AnnotationSet set, long start, long end) {
+		Map<Integer, String> overlapping = new TreeMap<Integer, String>();
+		Map<Integer, String> contained = new TreeMap<Integer, String>();
+		Map<Integer, String> exact = new TreeMap<Integer, String>();
+		Map<Integer, String> exactStart = new TreeMap<Integer, String>();
+		for (Iterator<Annotation> it = set.iterator(); it.hasNext();) {
+			Annotation a = it.next();
+			Integer id = new Integer(a.getId());
+			String desc = describe(a);
+			long s = a.getStartNodeOffset();
+			long e = a.getEndNodeOffset();
+			if ((s <= end) && (e >= start)) {
+				overlapping.put(id, desc);
+			}
+			if ((s >= start) && (e <= end)) {
+				contained.put(id, desc);
+			}
+			if (s == start) {
+				exactStart.put(id, desc);
+				if (e == end) {
+					exact.put(id, desc);
+				}
+			}
+		}
+		String q = start + "-" + end;
+		assertEquals(q, overlapping, describe(set.get(start, end)));
+		assertEquals(q, !overlapping.isEmpty(), set.coversPartialRange(start,
+				end));
+		assertEquals(q, contained, describe(set.getContained(start, end)));
+		assertEquals(q, exact, describe(set.getExact(start, end)));
+		assertEquals(q, exactStart, describe(set.getExactStart(start)));
+	}
+}
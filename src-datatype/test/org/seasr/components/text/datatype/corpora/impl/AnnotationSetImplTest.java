@@ -0,0 +1,254 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.seasr.components.text.datatype.corpora.impl.AnnotationSetChecks.checkRange;
+import static org.seasr.components.text.datatype.corpora.impl.AnnotationSetChecks.describe;
+
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationPredicate;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.Document;
+
+/**
+ * Checks the indexes of <code>AnnotationSetImpl</code> against a scan of
+ * the whole set as annotations are added and removed.
+ */
+public class AnnotationSetImplTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private final String[] TYPES = { "token", "sentence", "ngram" };
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void singleRemovesLeaveQueriesExact() throws Exception {
+		Random rand = new Random(7);
+		AnnotationSet set = newSet(rand, 400);
+		for (int i = 0; i < 150; i++) {
+			set.remove(pick(rand, set));
+			if ((i % 10) == 0) {
+				checkQueries(rand, set);
+			}
+		}
+		checkQueries(rand, set);
+	}
+
+	@Test
+	public void removedAnnotationCanBeAddedAgain() throws Exception {
+		Random rand = new Random(11);
+		AnnotationSet set = newSet(rand, 100);
+		for (int i = 0; i < 50; i++) {
+			Annotation a = pick(rand, set);
+			assertTrue(set.remove(a));
+			assertFalse(set.remove(a));
+			set.add(a);
+			set.add(a);
+			checkQueries(rand, set);
+		}
+	}
+
+	@Test
+	public void addingAnExistingIdReplacesIt() throws Exception {
+		Random rand = new Random(13);
+		AnnotationSet set = newSet(rand, 100);
+		int before = set.size();
+		for (int i = 0; i < 30; i++) {
+			Annotation a = pick(rand, set);
+			set.add(a.getId(), a.getStartNodeOffset() + 1, a
+					.getEndNodeOffset() + 1, TYPES[i % TYPES.length], null);
+		}
+		assertEquals(before, set.size());
+		checkQueries(rand, set);
+	}
+
+	@Test
+	public void removeMatchingRemovesEveryMatch() throws Exception {
+		Random rand = new Random(17);
+		AnnotationSet set = newSet(rand, 300);
+		assertTrue(set.removeMatching(new AnnotationPredicate() {
+			public boolean test(Annotation a) {
+				return a.getType().equals("token")
+						&& ((a.getStartNodeOffset() & 1) == 0);
+			}
+		}));
+		for (Iterator<Annotation> it = set.iterator(); it.hasNext();) {
+			Annotation a = it.next();
+			assertFalse(a.getType().equals("token")
+					&& ((a.getStartNodeOffset() & 1) == 0));
+		}
+		checkQueries(rand, set);
+	}
+
+	@Test
+	public void changingTheSetWhileIteratingAViewFailsFast() throws Exception {
+		AnnotationSet set = newSet(new Random(23), 100);
+		try {
+			for (Iterator<Annotation> it = set.get("token").iterator(); it
+					.hasNext();) {
+				set.remove(it.next());
+			}
+			fail("removal while iterating a view was not detected");
+		} catch (ConcurrentModificationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void copyOfAViewCanBeChanged() throws Exception {
+		AnnotationSet set = newSet(new Random(29), 100);
+		AnnotationSet tokens = set.get("token");
+		Annotation a = tokens.iterator().next();
+		try {
+			tokens.remove(a);
+			fail("a view accepted a removal");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		int before = set.size();
+		AnnotationSet copy = tokens.get();
+		assertTrue(copy.remove(a));
+		assertEquals(before, set.size());
+
+		// walking the copy lets the loop change the set
+		for (Iterator<Annotation> it = copy.iterator(); it.hasNext();) {
+			set.remove(it.next());
+		}
+		assertEquals(1, set.get("token").size());
+	}
+
+	@Test
+	public void serializedSetHoldsOnlyCurrentAnnotations() throws Exception {
+		Random rand = new Random(19);
+		AnnotationSet set = newSet(rand, 200);
+		for (int i = 0; i < 80; i++) {
+			set.remove(pick(rand, set));
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(set);
+		out.close();
+		AnnotationSet copy = (AnnotationSet) new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertEquals(describe(set), describe(copy));
+		for (int t = 0; t < TYPES.length; t++) {
+			assertEquals(describe(set.get(TYPES[t])), describe(copy
+					.get(TYPES[t])));
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private AnnotationSet newSet(Random rand, int n) throws Exception {
+		Document doc = new DocumentImpl();
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < 600; i++) {
+			sb.append('a');
+		}
+		doc.setContent(sb.toString());
+		AnnotationSet set = doc.getAnnotations();
+		for (int i = 0; i < n; i++) {
+			long start = rand.nextInt(500);
+			set.add(start, start + rand.nextInt(40), TYPES[rand
+					.nextInt(TYPES.length)], null);
+		}
+		return set;
+	}
+
+	static private Annotation pick(Random rand, AnnotationSet set) {
+		return set.getAnnotationAtPos(rand.nextInt(set.size()));
+	}
+
+	/**
+	 * Compare the indexed queries with a scan of the set.
+	 */
+	static private void checkQueries(Random rand, AnnotationSet set) {
+		for (int t = 0; t < TYPES.length; t++) {
+			Map<Integer, String> expected = new TreeMap<Integer, String>();
+			for (Iterator<Annotation> it = set.iterator(); it.hasNext();) {
+				Annotation a = it.next();
+				if (a.getType().equals(TYPES[t])) {
+					expected.put(new Integer(a.getId()), describe(a));
+				}
+			}
+			assertEquals(expected, describe(set.get(TYPES[t])));
+		}
+		for (int q = 0; q < 10; q++) {
+			long start = rand.nextInt(520);
+			checkRange(set, start, start + rand.nextInt(60));
+		}
+	}
+}
@@ -0,0 +1,345 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.seasr.components.text.datatype.corpora.impl.AnnotationSetChecks.checkRange;
+import static org.seasr.components.text.datatype.corpora.impl.AnnotationSetChecks.describe;
+
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.corpora.SymbolTable;
+
+/**
+ * Checks that a <code>ColumnarAnnotationSet</code> answers every query like
+ * an <code>AnnotationSetImpl</code> given the same changes.
+ */
+public class ColumnarAnnotationSetTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private final String[] TYPES = { "token", "ngram", "sentence" };
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void queriesMatchAnnotationSetImpl() throws Exception {
+		Random rand = new Random(3);
+		for (int trial = 0; trial < 20; trial++) {
+			AnnotationSet impl = newDocument(false).getAnnotations();
+			AnnotationSet cols = newDocument(true).getAnnotations();
+			List<Integer> ids = new ArrayList<Integer>();
+			for (int step = 0; step < 300; step++) {
+				if ((rand.nextInt(4) > 0) || ids.isEmpty()) {
+					long start = rand.nextInt(500);
+					long end = start + rand.nextInt(30);
+					String type = TYPES[rand.nextInt(TYPES.length)];
+					int id = impl.add(start, end, type, randomFeatures(rand));
+					cols.add(id, start, end, type, impl.get(id).getFeatures());
+					ids.add(new Integer(id));
+				} else {
+					int id = ids.remove(rand.nextInt(ids.size())).intValue();
+					impl.remove(impl.get(id));
+					cols.remove(cols.get(id));
+				}
+				if ((step % 25) == 0) {
+					checkQueries(rand, impl, cols);
+				}
+			}
+			checkQueries(rand, impl, cols);
+		}
+	}
+
+	@Test
+	public void containsAnAnnotationAddedByCopy() throws Exception {
+		Document doc = newDocument(true);
+		AnnotationSet cols = doc.getAnnotations();
+		AnnotationImpl a = new AnnotationImpl(42, 10, 20, "token", null);
+		cols.add(a);
+		assertTrue(cols.contains(a));
+		assertTrue(cols.contains(cols.get(42)));
+		assertTrue(cols.get("token").contains(a));
+		assertFalse(cols.contains(new AnnotationImpl(42, 10, 21, "token",
+				null)));
+
+		// a view of another set of the same document has the same id
+		AnnotationSet other = doc.getAnnotations("other");
+		other.add(a);
+		assertTrue(cols.contains(other.get(42)));
+		assertFalse(newDocument(true).getAnnotations().contains(a));
+	}
+
+	@Test
+	public void sparseIdsAndBulkRemoval() throws Exception {
+		Random rand = new Random(9);
+		AnnotationSet impl = newDocument(false).getAnnotations();
+		AnnotationSet cols = newDocument(true).getAnnotations();
+		for (int i = 0; i < 400; i++) {
+			// ids far beyond the size of the set
+			int id = (i * 7919) + (1 << 24);
+			long start = rand.nextInt(500);
+			long end = start + rand.nextInt(30);
+			String type = TYPES[rand.nextInt(TYPES.length)];
+			FeatureMap fm = randomFeatures(rand);
+			impl.add(id, start, end, type, fm);
+			cols.add(id, start, end, type, fm);
+		}
+		checkQueries(rand, impl, cols);
+
+		List<Annotation> drop = new ArrayList<Annotation>();
+		for (Iterator<Annotation> it = impl.iterator(); it.hasNext();) {
+			Annotation a = it.next();
+			if (rand.nextBoolean()) {
+				drop.add(a);
+			}
+		}
+		impl.removeAll(drop);
+		cols.removeAll(drop);
+		checkQueries(rand, impl, cols);
+		for (Annotation a : drop) {
+			assertNull(cols.get(a.getId()));
+		}
+	}
+
+	@Test
+	public void typedValuesKeepTheirKind() throws Exception {
+		int flag = SymbolTable.intern("flag");
+		int count = SymbolTable.intern("count");
+		int weight = SymbolTable.intern("weight");
+		int ref = SymbolTable.intern("ref");
+		int ids = SymbolTable.intern("ids");
+		FeatureMap fm = new FeatureMapImpl();
+		fm.setBoolean(flag, true);
+		fm.setLong(count, 1L << 40);
+		fm.setDouble(weight, 0.25);
+		fm.put("pos", "NN");
+
+		Document doc = newDocument(true);
+		AnnotationSet cols = doc.getAnnotations();
+		int id = cols.add(1, 5, "token", fm);
+		Annotation a = cols.get(id);
+		FeatureMap row = a.getFeatures();
+		assertTrue(row.getBoolean(flag));
+		assertEquals(1L << 40, row.getLong(count, 0));
+		assertEquals(0.25, row.getDouble(weight, 0), 0);
+		assertEquals("true", row.get("flag"));
+		assertEquals(Long.toString(1L << 40), row.get(count));
+		assertEquals("NN", row.get(SymbolTable.intern("pos")));
+
+		Annotation other = new AnnotationImpl(99, 2, 3, "word",
+				new FeatureMapImpl());
+		row.setAnnotation(ref, other);
+		row.setIntArray(ids, new int[] { 3, 1, 2 });
+		row.setInt(count, 7);
+		assertSame(other, row.getAnnotation(ref));
+		assertEquals("[3, 1, 2]", Arrays.toString(row
+				.getIntArray(ids)));
+		assertEquals(7, row.getInt(count, 0));
+		assertEquals("7", row.get("count"));
+		row.remove(flag);
+		assertFalse(row.containsKey(flag));
+		assertFalse(row.getBoolean(flag));
+
+		// a row of another columnar set is taken over cell by cell
+		AnnotationSet copy = doc.getAnnotations("copy");
+		copy.add(a);
+		FeatureMap copied = copy.get(id).getFeatures();
+		assertSame(other, copied.getAnnotation(ref));
+		assertEquals(7, copied.getInt(count, 0));
+		assertEquals(0.25, copied.getDouble(weight, 0), 0);
+		assertEquals(new TreeMap<String, String>(row),
+				new TreeMap<String, String>(copied));
+
+		// and the features survive serialization by name
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(copy);
+		out.close();
+		AnnotationSet read = (AnnotationSet) new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		FeatureMap back = read.get(id).getFeatures();
+		assertEquals(new TreeMap<String, String>(copied),
+				new TreeMap<String, String>(back));
+		assertEquals(7, back.getInt(count, 0));
+		assertEquals(99, back.getAnnotation(ref).getId());
+	}
+
+	@Test
+	public void viewsAreLiveReadOnlyAndFailFast() throws Exception {
+		Random rand = new Random(21);
+		AnnotationSet cols = newDocument(true).getAnnotations();
+		for (int i = 0; i < 50; i++) {
+			long start = rand.nextInt(500);
+			cols.add(start, start + 5, TYPES[i % TYPES.length], null);
+		}
+		AnnotationSet tokens = cols.get("token");
+		for (Iterator<Annotation> it = tokens.iterator(); it.hasNext();) {
+			it.next().getFeatures().put("seen", "yes");
+		}
+		for (Iterator<Annotation> it = cols.get("token").iterator(); it
+				.hasNext();) {
+			assertEquals("yes", it.next().getFeatures().get("seen"));
+		}
+		try {
+			tokens.remove(tokens.iterator().next());
+			fail("a view accepted a removal");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			for (Iterator<Annotation> it = tokens.iterator(); it.hasNext();) {
+				cols.remove(it.next());
+			}
+			fail("removal while iterating a view was not detected");
+		} catch (ConcurrentModificationException e) {
+			// expected
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private Document newDocument(boolean columnar) {
+		Document doc = new DocumentImpl(columnar);
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < 600; i++) {
+			sb.append('a');
+		}
+		doc.setContent(sb.toString());
+		return doc;
+	}
+
+	static private FeatureMap randomFeatures(Random rand) {
+		FeatureMap fm = new FeatureMapImpl();
+		if (rand.nextBoolean()) {
+			fm.put("pos", "NN" + rand.nextInt(3));
+		}
+		if (rand.nextBoolean()) {
+			fm.put("k" + rand.nextInt(3), "v");
+		}
+		return fm;
+	}
+
+	static private void checkQueries(Random rand, AnnotationSet impl,
+			AnnotationSet cols) {
+		assertEquals(describe(impl), describe(cols));
+		assertEquals(impl.getAllTypes(), cols.getAllTypes());
+		FeatureMap fm = new FeatureMapImpl();
+		fm.put("pos", "NN1");
+		Set<String> names = Collections.singleton("k1");
+		Set<String> types = new HashSet<String>();
+		types.add("token");
+		types.add("sentence");
+		for (int t = 0; t < TYPES.length; t++) {
+			assertEquals(describe(impl.get(TYPES[t])), describe(cols
+					.get(TYPES[t])));
+			assertEquals(describe(impl.get(TYPES[t], fm)), describe(cols.get(
+					TYPES[t], fm)));
+			assertEquals(describe(impl.get(TYPES[t], names)), describe(cols
+					.get(TYPES[t], names)));
+		}
+		assertEquals(describe(impl.get(types)), describe(cols.get(types)));
+		for (int q = 0; q < 10; q++) {
+			long start = rand.nextInt(550);
+			long end = start + rand.nextInt(60);
+			assertEquals(describe(impl.getContained(start, end)),
+					describe(cols.getContained(start, end)));
+			assertEquals(describe(impl.get(start, end)), describe(cols.get(
+					start, end)));
+			assertEquals(describe(impl.get(start)), describe(cols.get(start)));
+			assertEquals(describe(impl.getExactStart(start)), describe(cols
+					.getExactStart(start)));
+			assertEquals(describe(impl.get("token", fm, start)),
+					describe(cols.get("token", fm, start)));
+			assertEquals(impl.coversPartialRange(start, end), cols
+					.coversPartialRange(start, end));
+			checkRange(cols, start, end);
+		}
+		if (impl.size() > 0) {
+			List<Annotation> sorted = cols.getAllSortedAsArrayList();
+			assertEquals(impl.size(), sorted.size());
+			for (int i = 0; i < sorted.size(); i++) {
+				Annotation a = sorted.get(i);
+				assertEquals(impl.getAnnotationAtPos(i).getId(), a.getId());
+				assertEquals(i, cols.getPosition(a));
+			}
+		}
+	}
+}
@@ -0,0 +1,341 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.corpora.SymbolTable;
+import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoder;
+
+/**
+ * Checks <code>FeatureMapImpl</code> against a LinkedHashMap as it grows
+ * past a linear scan and shrinks back, and its typed features against their
+ * String view.
+ */
+public class FeatureMapImplTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private final int LIST = SymbolTable.intern("test_list");
+
+	static private final int VALUE = SymbolTable.intern("test_value");
+
+	static private final int MISSING = SymbolTable.intern("test_missing");
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void mapActsAsALinkedHashMap() throws Exception {
+		Random rand = new Random(1);
+		for (int trial = 0; trial < 200; trial++) {
+			FeatureMapImpl fm = new FeatureMapImpl();
+			Map<String, String> model = new LinkedHashMap<String, String>();
+			// up to 40 names, so maps pass LINEAR_MAX and fall back under it
+			int names = 1 + rand.nextInt(40);
+			for (int op = 0; op < 300; op++) {
+				// a name built at run time is not the interned instance
+				String key = new String("feat" + rand.nextInt(names));
+				switch (rand.nextInt(5)) {
+				case 0:
+				case 1:
+					String value = (rand.nextInt(10) == 0) ? null : "v" + op;
+					assertEquals(model.put(key, value), fm.put(key, value));
+					break;
+				case 2:
+					assertEquals(model.remove(key), fm.remove(key));
+					break;
+				case 3:
+					int n = rand.nextInt(4) + 2;
+					removeEvery(n, model.entrySet().iterator());
+					removeEvery(n, fm.entrySet().iterator());
+					assertEntries(model, fm);
+					break;
+				default:
+					assertEquals(model.get(key), fm.get(key));
+					assertEquals(model.containsKey(key), fm.containsKey(key));
+					assertEquals(model.containsKey(key), fm
+							.containsKey(SymbolTable.intern(key)));
+				}
+			}
+			assertEntries(model, fm);
+			assertEquals(fm, copy(fm));
+			fm.clear();
+			assertEquals(0, fm.size());
+			assertNull(fm.get("feat0"));
+		}
+	}
+
+	@Test
+	public void setValuesWriteThrough() {
+		FeatureMapImpl fm = new FeatureMapImpl();
+		for (int i = 0; i < 20; i++) {
+			fm.put("feat" + i, "v" + i);
+		}
+		for (Map.Entry<String, String> e : fm.entrySet()) {
+			e.setValue(e.getValue() + "!");
+		}
+		for (int i = 0; i < 20; i++) {
+			assertEquals("v" + i + "!", fm.get("feat" + i));
+		}
+		assertFalse(fm.containsKey(new Object()));
+		assertNull(fm.get(null));
+	}
+
+	@Test
+	public void typedValuesReadBackAsStrings() throws Exception {
+		FeatureMap fm = new FeatureMapImpl();
+		fm.setBoolean(VALUE, true);
+		assertTrue(fm.getBoolean(VALUE));
+		assertEquals("true", fm.get("test_value"));
+		fm.setBoolean(VALUE, false);
+		assertFalse(fm.getBoolean(VALUE));
+		assertEquals("false", fm.get(VALUE));
+
+		fm.setInt(VALUE, -42);
+		assertEquals(-42, fm.getInt(VALUE, 0));
+		assertEquals(-42L, fm.getLong(VALUE, 0));
+		assertEquals(-42.0, fm.getDouble(VALUE, 0), 0);
+		assertEquals("-42", fm.get("test_value"));
+
+		fm.setLong(VALUE, Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, fm.getLong(VALUE, 0));
+		assertEquals(Long.toString(Long.MAX_VALUE), fm.get("test_value"));
+
+		fm.setDouble(VALUE, 2.5);
+		assertEquals(2.5, fm.getDouble(VALUE, 0), 0);
+		assertEquals(2, fm.getInt(VALUE, 0));
+		assertEquals("2.5", fm.get("test_value"));
+
+		int[] ids = new int[] { 3, 1, 2 };
+		fm.setIntArray(VALUE, ids);
+		assertSame(ids, fm.getIntArray(VALUE));
+		assertEquals(FeatureValueEncoderDecoder.encodeIds(ids), fm
+				.get("test_value"));
+
+		Annotation annot = members()[1];
+		fm.setAnnotation(VALUE, annot);
+		assertSame(annot, fm.getAnnotation(VALUE));
+		assertEquals(annot.encode(), fm.get("test_value"));
+		fm.setAnnotation(VALUE, null);
+		assertFalse(fm.containsKey(VALUE));
+
+		// the map compares and copies as its String view
+		fm.setInt(VALUE, 7);
+		Map<String, String> strings = new LinkedHashMap<String, String>();
+		strings.put("test_value", "7");
+		assertEquals(strings, fm);
+		assertEquals(fm, copy(fm));
+		assertEquals(7, copy(fm).getInt(VALUE, 0));
+	}
+
+	@Test
+	public void stringValuesReadBackTyped() throws Exception {
+		FeatureMap fm = new FeatureMapImpl();
+		fm.put("test_value", "TRUE");
+		assertTrue(fm.getBoolean(VALUE));
+		fm.put("test_value", "yes");
+		assertFalse(fm.getBoolean(VALUE));
+
+		fm.put("test_value", " 12 ");
+		assertEquals(12, fm.getInt(VALUE, 0));
+		assertEquals(12.0, fm.getDouble(VALUE, 0), 0);
+		fm.put("test_value", "3.75");
+		assertEquals(3, fm.getInt(VALUE, 0));
+		assertEquals(3.75, fm.getDouble(VALUE, 0), 0);
+		fm.put("test_value", "n/a");
+		assertEquals(-1, fm.getInt(VALUE, -1));
+		assertEquals(-1.0, fm.getDouble(VALUE, -1), 0);
+		assertNull(fm.getAnnotation(VALUE));
+		assertNull(fm.getIntArray(VALUE));
+
+		int[] ids = new int[] { 5, 8 };
+		fm.put("test_value", FeatureValueEncoderDecoder.encodeIds(ids));
+		assertArrayEquals(ids, fm.getIntArray(VALUE));
+
+		Annotation annot = members()[0];
+		fm.put("test_value", annot.encode());
+		Annotation parsed = fm.getAnnotation(VALUE);
+		assertEquals(annot.getId(), parsed.getId());
+		assertEquals(annot.getFeatures(), parsed.getFeatures());
+
+		// a string put over a typed value replaces it
+		fm.setInt(VALUE, 9);
+		assertEquals("9", fm.put("test_value", "x"));
+		assertEquals(0, fm.getInt(VALUE, 0));
+		assertEquals("x", fm.get(VALUE));
+
+		assertFalse(fm.getBoolean(MISSING));
+		assertEquals(-1, fm.getInt(MISSING, -1));
+		assertEquals(-1L, fm.getLong(MISSING, -1));
+		assertEquals(-1.0, fm.getDouble(MISSING, -1), 0);
+		assertNull(fm.getAnnotation(MISSING));
+		assertNull(fm.getIntArray(MISSING));
+	}
+
+	@Test
+	public void idArrayReadsBackAsIdsAndString() throws Exception {
+		int[] ids = new int[] { 4, 9 };
+		FeatureMap fm = new FeatureMapImpl();
+		fm.setIntArray(LIST, ids);
+
+		assertSame(ids, fm.getIntArray(LIST));
+		assertSame(fm.getIntArray(LIST), fm.getIntArray(LIST));
+		assertEquals(FeatureValueEncoderDecoder.encodeIds(ids), fm
+				.get("test_list"));
+
+		// the same feature set as a string
+		FeatureMap parsed = new FeatureMapImpl();
+		parsed.put("test_list", fm.get("test_list"));
+		assertArrayEquals(ids, parsed.getIntArray(LIST));
+
+		// n-grams used to hold their encoded tokens
+		parsed.put("test_list", FeatureValueEncoderDecoder
+				.encodeListofAnnotations(Arrays.asList(members())));
+		assertArrayEquals(ids, parsed.getIntArray(LIST));
+
+		fm.setIntArray(LIST, null);
+		assertNull(fm.get("test_list"));
+	}
+
+	@Test
+	public void idArraySurvivesSerialization() throws Exception {
+		FeatureMapImpl fm = new FeatureMapImpl();
+		fm.setIntArray(LIST, new int[] { 4, 9 });
+		fm.put("other", "x");
+
+		FeatureMap copy = copy(fm);
+		assertArrayEquals(new int[] { 4, 9 }, copy.getIntArray(LIST));
+		assertEquals(fm.get("test_list"), copy.get("test_list"));
+		assertEquals("x", copy.get("other"));
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Drop every <b>n</b>th entry through the iterator.
+	 */
+	static private void removeEvery(int n,
+			Iterator<Map.Entry<String, String>> it) {
+		for (int i = 1; it.hasNext(); i++) {
+			it.next();
+			if ((i % n) == 0) {
+				it.remove();
+			}
+		}
+	}
+
+	static private void assertEntries(Map<String, String> model,
+			FeatureMapImpl fm) {
+		assertEquals(model.size(), fm.size());
+		assertEquals(entries(model), entries(fm));
+		assertEquals(model, fm);
+		assertEquals(fm, model);
+		assertEquals(model.hashCode(), fm.hashCode());
+		for (String key : model.keySet()) {
+			assertTrue(fm.containsKey(key));
+			assertEquals(model.get(key), fm.get(key));
+		}
+	}
+
+	static private List<String> entries(Map<String, String> map) {
+		List<String> ret = new ArrayList<String>();
+		for (Map.Entry<String, String> e : map.entrySet()) {
+			ret.add(e.getKey() + "=" + e.getValue());
+		}
+		return ret;
+	}
+
+	static private FeatureMap copy(FeatureMap fm) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(fm);
+		out.close();
+		return (FeatureMap) new ObjectInputStream(new ByteArrayInputStream(
+				bytes.toByteArray())).readObject();
+	}
+
+	static private Annotation[] members() {
+		FeatureMap fm1 = new FeatureMapImpl();
+		fm1.put("pos", "NN");
+		FeatureMap fm2 = new FeatureMapImpl();
+		fm2.put("pos", "VBZ");
+		fm2.put("norm", "run");
+		return new Annotation[] { new AnnotationImpl(4, 0, 3, "token", fm1),
+				new AnnotationImpl(9, 4, 8, "token", fm2) };
+	}
+}
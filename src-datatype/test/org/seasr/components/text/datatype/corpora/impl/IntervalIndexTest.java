@@ -0,0 +1,209 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.corpora.impl;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.seasr.components.text.datatype.corpora.impl.AnnotationSetChecks.checkRange;
+
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.Document;
+
+/**
+ * Checks that the interval index kept by an annotation set stays equal to a
+ * fresh sort of the set while annotations are added and removed between
+ * queries, and that its range queries return what a scan of the set finds.
+ */
+public class IntervalIndexTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	/**
+	 * Annotation lengths, zero length the most common.
+	 */
+	static private final int[] LENGTHS = { 0, 0, 0, 1, 5, 10 };
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void interleavedChangesAndQueries() throws Exception {
+		Random rand = new Random(5);
+		AnnotationSet set = newDocument().getAnnotations();
+		List<Annotation> held = new ArrayList<Annotation>();
+		for (int step = 0; step < 600; step++) {
+			int op = rand.nextInt(10);
+			if ((op < 6) || held.isEmpty()) {
+				long start = rand.nextInt(900);
+				int id = set.add(start, start + rand.nextInt(50), "token",
+						null);
+				held.add(set.get(id));
+			} else if (op < 8) {
+				Annotation a = held.remove(rand.nextInt(held.size()));
+				set.remove(a);
+			} else {
+				// out and back in before the next query
+				Annotation a = held.get(rand.nextInt(held.size()));
+				set.remove(a);
+				set.add(a);
+			}
+			if ((step % 7) == 0) {
+				check(rand, set, held);
+			}
+		}
+		check(rand, set, held);
+	}
+
+	@Test
+	public void emptySpansZeroLengthAndTiedStarts() throws Exception {
+		Random rand = new Random(13);
+		AnnotationSet set = newDocument().getAnnotations();
+		checkEveryRange(set);
+
+		List<Annotation> held = new ArrayList<Annotation>();
+		for (int i = 0; i < 120; i++) {
+			// few distinct starts, so most annotations tie with another
+			long start = 10 * rand.nextInt(20);
+			int id = set.add(start, start
+					+ LENGTHS[rand.nextInt(LENGTHS.length)], "token", null);
+			held.add(set.get(id));
+		}
+		check(rand, set, held);
+		checkEveryRange(set);
+
+		for (int i = 0; i < 40; i++) {
+			set.remove(held.remove(rand.nextInt(held.size())));
+		}
+		check(rand, set, held);
+		checkEveryRange(set);
+	}
+
+	@Test
+	public void sortedIteratorIsASnapshot() throws Exception {
+		Random rand = new Random(9);
+		AnnotationSet set = newDocument().getAnnotations();
+		for (int i = 0; i < 100; i++) {
+			long start = rand.nextInt(900);
+			set.add(start, start + rand.nextInt(50), "token", null);
+		}
+		List<Annotation> before = set.getAllSortedAsArrayList();
+		Iterator<Annotation> it = set.sortedIterator();
+		for (int i = 0; i < 50; i++) {
+			set.remove(before.get(2 * i));
+			set.add(10, 20, "token", null);
+		}
+		set.getAllSortedAsArrayList();
+		for (int i = 0; i < before.size(); i++) {
+			assertSame(before.get(i), it.next());
+		}
+		assertFalse(it.hasNext());
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private Document newDocument() {
+		Document doc = new DocumentImpl();
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < 1000; i++) {
+			sb.append('a');
+		}
+		doc.setContent(sb.toString());
+		return doc;
+	}
+
+	/**
+	 * Check every query from 0 to 215 up to 12 long, empty spans included.
+	 */
+	static private void checkEveryRange(AnnotationSet set) {
+		for (long start = 0; start <= 215; start++) {
+			for (long end = start; end <= start + 12; end++) {
+				checkRange(set, start, end);
+			}
+		}
+	}
+
+	/**
+	 * Compare the index with a sort of the annotations the set should hold.
+	 */
+	static private void check(Random rand, AnnotationSet set,
+			List<Annotation> held) {
+		List<Annotation> expected = new ArrayList<Annotation>(held);
+		Collections.sort(expected, IntervalIndex.DOCUMENT_ORDER);
+		assertEquals(expected.size(), set.size());
+		if (expected.isEmpty())
+			return;
+
+		assertEquals(expected, set.getAllSortedAsArrayList());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(i, set.getPosition(expected.get(i)));
+			assertSame(expected.get(i), set.getAnnotationAtPos(i));
+		}
+		for (int q = 0; q < 5; q++) {
+			long start = rand.nextInt(950);
+			checkRange(set, start, start + rand.nextInt(100));
+		}
+	}
+}
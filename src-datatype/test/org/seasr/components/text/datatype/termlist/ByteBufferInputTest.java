@@ -0,0 +1,104 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Checks that a <code>ByteBufferInput</code> reads what a
+ * <code>DataOutputStream</code> wrote, as a file read through
+ * <code>RandomAccessFile</code> does.
+ */
+public class ByteBufferInputTest {
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void readsAsARandomAccessFile() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(-7);
+		out.writeBytes("first\nsecond\r\nthird\rfourth\n\n\u00e9nd\n");
+		out.writeUTF("caf\u00e9 \ud83d\ude00");
+		out.close();
+		byte[] data = bytes.toByteArray();
+
+		File f = File.createTempFile("bbinput", ".bin");
+		f.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.write(data);
+		raf.seek(0);
+
+		ByteBufferInput in = new ByteBufferInput(ByteBuffer.wrap(data));
+		assertEquals(raf.readInt(), in.readInt());
+		for (int i = 0; i < 6; i++) {
+			assertEquals(raf.readLine(), in.readLine());
+		}
+		assertEquals(raf.readUTF(), in.readUTF());
+		assertNull(raf.readLine());
+		assertNull(in.readLine());
+		raf.close();
+
+		// the last line need not end with a terminator
+		in = new ByteBufferInput(ByteBuffer.wrap("a\rb"
+				.getBytes("ISO-8859-1")));
+		assertEquals("a", in.readLine());
+		assertEquals("b", in.readLine());
+		assertNull(in.readLine());
+	}
+}
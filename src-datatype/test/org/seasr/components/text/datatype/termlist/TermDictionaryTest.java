@@ -0,0 +1,195 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the ids handed out by <code>TermDictionary</code>.
+ */
+public class TermDictionaryTest {
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Before
+	public void clearDictionary() {
+		TermDictionary.acquire();
+		TermDictionary.release();
+	}
+
+	@Test
+	public void idsAreDenseAndStable() {
+		assertEquals(0, TermDictionary.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals(i, TermDictionary.intern("term" + i));
+		}
+		assertEquals(5000, TermDictionary.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals(i, TermDictionary.intern("term" + i));
+			assertEquals(i, TermDictionary.lookup("term" + i));
+			assertEquals("term" + i, TermDictionary.termOf(i));
+		}
+		assertEquals(5000, TermDictionary.size());
+	}
+
+	@Test
+	public void missingTermsHaveNoId() {
+		TermDictionary.intern("present");
+		assertEquals(TermDictionary.NO_TERM, TermDictionary.intern(null));
+		assertEquals(TermDictionary.NO_TERM, TermDictionary.lookup(null));
+		assertEquals(TermDictionary.NO_TERM, TermDictionary.lookup("absent"));
+		assertEquals(1, TermDictionary.size());
+		assertNull(TermDictionary.termOf(TermDictionary.NO_TERM));
+		assertNull(TermDictionary.termOf(1));
+		assertNull(TermDictionary.termOf(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void releaseByTheLastUserClears() {
+		TermDictionary.acquire();
+		TermDictionary.acquire();
+		TermDictionary.intern("kept");
+		int generation = TermDictionary.generation();
+
+		TermDictionary.release();
+		assertEquals(0, TermDictionary.lookup("kept"));
+		assertEquals(generation, TermDictionary.generation());
+
+		TermDictionary.release();
+		assertEquals(TermDictionary.NO_TERM, TermDictionary.lookup("kept"));
+		assertNull(TermDictionary.termOf(0));
+		assertEquals(0, TermDictionary.size());
+		assertTrue(generation != TermDictionary.generation());
+		assertEquals(0, TermDictionary.intern("new"));
+	}
+
+	@Test
+	public void concurrentInternsAgree() throws Exception {
+		final int threads = 8;
+		final int terms = 20000;
+		final int[][] seen = new int[threads][terms];
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int n = t;
+			workers[t] = new Thread() {
+				public void run() {
+					try {
+						// each thread walks the terms from a different start
+						for (int i = 0; i < terms; i++) {
+							int k = (i + n * 997) % terms;
+							seen[n][k] = TermDictionary.intern("t" + k);
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			};
+			workers[t].start();
+		}
+		for (Thread w : workers) {
+			w.join();
+		}
+		assertNull(failure.get());
+
+		assertEquals(terms, TermDictionary.size());
+		boolean[] used = new boolean[terms];
+		for (int k = 0; k < terms; k++) {
+			int id = seen[0][k];
+			for (int t = 1; t < threads; t++) {
+				assertEquals(id, seen[t][k]);
+			}
+			assertTrue(!used[id]);
+			used[id] = true;
+			assertEquals("t" + k, TermDictionary.termOf(id));
+		}
+	}
+
+	@Test
+	public void writtenTermsReadBack() throws Exception {
+		for (int i = 0; i < 300; i++) {
+			TermDictionary.intern("w\u00e9" + i);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TermDictionary.writeTo(new DataOutputStream(bytes));
+
+		// into an empty dictionary the terms keep their ids
+		clearDictionary();
+		int[] ids = TermDictionary.readFrom(new DataInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(300, ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(i, ids[i]);
+			assertEquals("w\u00e9" + i, TermDictionary.termOf(i));
+		}
+
+		// otherwise they are mapped to the ids they get
+		clearDictionary();
+		TermDictionary.intern("w\u00e9" + 7);
+		TermDictionary.intern("other");
+		ids = TermDictionary.readFrom(new DataInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())));
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals("w\u00e9" + i, TermDictionary.termOf(ids[i]));
+		}
+		assertEquals(0, ids[7]);
+		assertEquals(301, TermDictionary.size());
+	}
+}
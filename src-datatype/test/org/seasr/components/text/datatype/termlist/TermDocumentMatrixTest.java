@@ -0,0 +1,108 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks that <code>TermDocumentMatrix.appendRows()</code> builds the same
+ * matrix as adding the remapped rows one entry at a time.
+ */
+public class TermDocumentMatrixTest {
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void appendedRowsMatchRowsAddedOneByOne() {
+		Random rand = new Random(4);
+		TermDocumentMatrix byEntry = new TermDocumentMatrix();
+		TermDocumentMatrix appended = new TermDocumentMatrix();
+		for (int p = 0; p < 30; p++) {
+			TermDocumentMatrix part = new TermDocumentMatrix();
+			int ncols = 1 + rand.nextInt(40);
+			int[] colMap = new int[ncols];
+			for (int c = 0; c < ncols; c++) {
+				colMap[c] = rand.nextInt(200);
+			}
+			// some parts are empty, some have empty rows
+			int rows = rand.nextInt(4) * rand.nextInt(60);
+			for (int r = 0; r < rows; r++) {
+				part.startRow();
+				byEntry.startRow();
+				for (int k = rand.nextInt(3) * rand.nextInt(20); k > 0; k--) {
+					int col = rand.nextInt(ncols);
+					float value = rand.nextInt(5);
+					part.add(col, value);
+					byEntry.add(colMap[col], value);
+				}
+				part.endRow();
+				byEntry.endRow();
+			}
+			if ((p % 7) == 3) {
+				appended.trim();
+			}
+			appended.appendRows(part, colMap);
+
+			assertEquals(byEntry.getNumRows(), appended.getNumRows());
+			assertEquals(byEntry.getNumNonZero(), appended.getNumNonZero());
+			for (int r = 0; r < byEntry.getNumRows(); r++) {
+				assertEquals(byEntry.getRowStart(r), appended.getRowStart(r));
+				assertEquals(byEntry.getRowEnd(r), appended.getRowEnd(r));
+			}
+			for (int k = 0; k < byEntry.getNumNonZero(); k++) {
+				assertEquals(byEntry.getColumnAt(k), appended.getColumnAt(k));
+				assertEquals(byEntry.getValueAt(k), appended.getValueAt(k), 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.datatype.termlist;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Round trips term lists through the <code>TermListCodec</code> binary
+ * format.
+ */
+public class TermListCodecTest {
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void streamOfListsRoundTrips() throws Exception {
+		Random rand = new Random(1);
+		List<TermListLite> lists = new ArrayList<TermListLite>();
+		for (int i = 0; i < 50; i++) {
+			lists.add(randomList(rand, i));
+		}
+		byte[] bytes = write(lists);
+
+		TermListCodec.Reader in = new TermListCodec.Reader(
+				new DataInputStream(new ByteArrayInputStream(bytes)));
+		for (int i = 0; i < lists.size(); i++) {
+			assertEquals("list " + i, describe(lists.get(i)),
+					describe(in.read()));
+		}
+		assertNull(in.read());
+		assertNull(in.read());
+	}
+
+	@Test
+	public void streamReadsIntoAClearedDictionary() throws Exception {
+		Random rand = new Random(2);
+		List<TermListLite> lists = new ArrayList<TermListLite>();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 10; i++) {
+			TermListLite tl = randomList(rand, i);
+			lists.add(tl);
+			expected.add(describe(tl));
+		}
+		byte[] bytes = write(lists);
+
+		// the term ids written are gone once the dictionary is cleared
+		TermDictionary.acquire();
+		TermDictionary.release();
+		TermDictionary.intern("a term that takes id 0");
+
+		TermListCodec.Reader in = new TermListCodec.Reader(
+				new DataInputStream(new ByteArrayInputStream(bytes)));
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals("list " + i, expected.get(i), describe(in.read()));
+		}
+	}
+
+	@Test
+	public void singleListRoundTrips() throws Exception {
+		TermListLite tl = randomList(new Random(3), 0);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		tl.writeTo(new DataOutputStream(bytes));
+		assertEquals(describe(tl), describe(TermListLite
+				.readFrom(new DataInputStream(new ByteArrayInputStream(bytes
+						.toByteArray())))));
+	}
+
+	@Test
+	public void emptyListRoundTrips() throws Exception {
+		TermListLite tl = new TermListLite();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		tl.writeTo(new DataOutputStream(bytes));
+		assertEquals(describe(tl), describe(TermListLite
+				.readFrom(new DataInputStream(new ByteArrayInputStream(bytes
+						.toByteArray())))));
+	}
+
+	@Test
+	public void otherStreamsAreRejected() throws Exception {
+		byte[] bytes = write(new ArrayList<TermListLite>());
+		try {
+			TermListLite.readFrom(new DataInputStream(new ByteArrayInputStream(
+					bytes)));
+			fail("read a term list from an empty stream");
+		} catch (IOException e) {
+			// expected
+		}
+		bytes[0] ^= 1;
+		try {
+			new TermListCodec.Reader(new DataInputStream(
+					new ByteArrayInputStream(bytes)));
+			fail("read a stream with the wrong magic number");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private TermListLite randomList(Random rand, int n) {
+		TermListLite tl = new TermListLite();
+		// a supplementary character is written as two surrogates
+		tl.setTitle("T\u00ef\u4e2d\ud83d\ude00 " + n);
+		tl.setDocID("doc" + n);
+		tl.setDate(rand.nextBoolean() ? -1 : rand.nextLong());
+		if ((n % 2) == 0) {
+			Map<String, String> props = new HashMap<String, String>();
+			props.put("key" + n, "value \ud83d\ude00");
+			tl.setProperties(props);
+		}
+		for (int i = 0, sz = rand.nextInt(300); i < sz; i++) {
+			ArrayList<String> forms = null;
+			if (rand.nextBoolean()) {
+				forms = new ArrayList<String>();
+				forms.add("Form" + rand.nextInt(20));
+				forms.add("\u00e9" + rand.nextInt(3));
+			}
+			tl.addTerm("term" + rand.nextInt(2000) + "_" + i,
+					rand.nextInt(1000) - 5, forms);
+		}
+		return tl;
+	}
+
+	static private byte[] write(List<TermListLite> lists) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		TermListCodec.Writer writer = new TermListCodec.Writer(out);
+		for (TermListLite tl : lists) {
+			writer.write(tl);
+		}
+		writer.finish();
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Everything a term list holds, by term image.
+	 */
+	static private String describe(TermListLite tl) {
+		StringBuffer sb = new StringBuffer();
+		sb.append(tl.getDocID()).append('|').append(tl.getTitle()).append('|')
+				.append(tl.getDate()).append('|').append(tl.getProperties());
+		Object[] terms = tl.getTermsAsArray();
+		for (int i = 0; i < terms.length; i++) {
+			sb.append('\n').append(terms[i]).append(' ').append(
+					tl.getTermFreqByIndex(i)).append(' ').append(
+					tl.getTermOrigFormsByIndex(i));
+		}
+		return sb.toString();
+	}
+}
@@ -128,6 +128,9 @@ public class TextFileToDoc implements ExecutableComponent {
 	@ComponentProperty(description = "Treat source as webdav?", name = "webdav", defaultValue = "false")
 	public final static String DATA_PROPERTY_WEBDAV = "webdav";
 
+	@ComponentProperty(description = "Store annotations in the compact columnar annotation store? A boolean value (true or false).", name = "columnar_annotations", defaultValue = "false")
+	public final static String DATA_PROPERTY_COLUMNAR_ANNOTATIONS = "columnar_annotations";
+
 	// io
 
 	@ComponentInput(description = "File name.", name = "file_name")
@@ -179,6 +182,11 @@ public class TextFileToDoc implements ExecutableComponent {
 		return Boolean.parseBoolean(s.toLowerCase());
 	}
 
+	public boolean getColumnarAnnotations(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_COLUMNAR_ANNOTATIONS);
+		return Boolean.parseBoolean(s.toLowerCase());
+	}
+
 	public void dispose(ComponentContextProperties ccp) {
 		_logger.fine("dispose() called");
 		long end = System.currentTimeMillis();
@@ -198,6 +206,7 @@ public class TextFileToDoc implements ExecutableComponent {
 		boolean addSpace = this.getAddSpaceAtNewlineChars(ctx);
 		boolean retNL = this.getRetainNewlineChars(ctx);
 		boolean saveDir = this.getSaveDirName(ctx);
+		boolean columnar = this.getColumnarAnnotations(ctx);
 		//========================================
 
 		try {
@@ -257,7 +266,8 @@ public class TextFileToDoc implements ExecutableComponent {
 					body.append(_newLine);
 				}
 			}
-			Document doc = Factory.newDocument();
+			Document doc = (columnar) ? Factory.newColumnarDocument()
+					: Factory.newDocument();
 			doc.setContent(body.toString());
 			String name = (webdav)?m_fileName:fvar.getName();
 			doc.setTitle(name);
@@ -62,7 +62,6 @@ import org.seasr.components.text.datatype.corpora.Document;
 import org.meandre.components.abstracts.AbstractExecutableComponent;
 import org.meandre.core.*;
 import org.meandre.annotations.*;
-import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoder;
 
 /*
  * @author D. Searsmith
@@ -174,9 +173,9 @@ public class FilterByPOS extends AbstractExecutableComponent {
 			int origSz = annots.size();
 			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {
 				Annotation tok = iter.next();
-				if (tok.getType().equals(AnnotationConstants.TOKEN_ANNOT_TYPE)) {
+				if (tok.getTypeId() == AnnotationConstants.TOKEN_ANNOT_TYPE_ID) {
 					String postag = tok.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS);
+							AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID);
 					String tokimg = tok.getContent(doc);
 					if ((hasTag(postag))
 							&& (Character.isLetter(tokimg.charAt(0)))) {
@@ -186,9 +185,7 @@ public class FilterByPOS extends AbstractExecutableComponent {
 					}
 				}
 			}
-			for (int i = 0, n = removes.size(); i < n; i++) {
-				annots.remove(removes.get(i));
-			}
+			annots.removeAll(removes);
 
 			/**
 			 * Filter ngrams -- at least one token in the ngram should match one
@@ -197,16 +194,18 @@ public class FilterByPOS extends AbstractExecutableComponent {
 			removes = new ArrayList<Annotation>();
 			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {
 				Annotation tok = (Annotation) iter.next();
-				if (tok.getType().equals(AnnotationConstants.NGRAM_ANNOT_TYPE)) {
-					ArrayList<Annotation> list = FeatureValueEncoderDecoder
-							.decodeToListofAnnotations(tok
-									.getFeatures()
-									.get(AnnotationConstants.NGRAM_ANNOT_FEAT_TOKEN_LIST));
+				if (tok.getTypeId() == AnnotationConstants.NGRAM_ANNOT_TYPE_ID) {
+					int[] ids = tok.getFeatures().getIntArray(
+							AnnotationConstants.NGRAM_ANNOT_FEAT_TOKEN_LIST_ID);
 					boolean keep = false;
-					for (int i = 0, n = list.size(); i < n; i++) {
-						Annotation tok2 = list.get(i);
+					for (int i = 0, n = (ids == null) ? 0 : ids.length; i < n; i++) {
+						// tokens filtered out above are no longer in the set
+						Annotation tok2 = annots.get(ids[i]);
+						if (tok2 == null) {
+							continue;
+						}
 						String postag = tok2.getFeatures().get(
-								AnnotationConstants.TOKEN_ANNOT_FEAT_POS);
+								AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID);
 						String tokimg = tok2.getContent(doc);
 						if ((hasTag(postag))
 								&& (Character.isLetter(tokimg.charAt(0)))) {
@@ -221,9 +220,7 @@ public class FilterByPOS extends AbstractExecutableComponent {
 					}
 				}
 			}
-			for (int i = 0, n = removes.size(); i < n; i++) {
-				annots.remove(removes.get(i));
-			}
+			annots.removeAll(removes);
 
 			console.fine(toks_selected
 					+ " tokens were selected "
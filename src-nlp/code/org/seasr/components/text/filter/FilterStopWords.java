@@ -164,8 +164,8 @@ public class FilterStopWords extends AbstractExecutableComponent {
 					for (Iterator<Annotation> iter = annots.iterator(); iter
 							.hasNext();) {
 						Annotation tok = iter.next();
-						if (tok.getType().equals(
-								AnnotationConstants.TOKEN_ANNOT_TYPE)) {
+						if (tok.getTypeId()
+								== AnnotationConstants.TOKEN_ANNOT_TYPE_ID) {
 
 							String img = tok.getContent(doc);
 							if (m_stops.contains(img.toLowerCase())) {
@@ -174,9 +174,7 @@ public class FilterStopWords extends AbstractExecutableComponent {
 							}
 						}
 					}
-					for (int i2 = 0, n2 = removes.size(); i2 < n2; i2++) {
-						annots.remove(removes.get(i2));
-					}
+					annots.removeAll(removes);
 
 					console.fine("Number of stop words removed for "
 							+ doc.getTitle() + ": " + cnt);
@@ -46,9 +46,6 @@ package org.seasr.components.text.ngram;
 // Java Imports
 // ==============
 
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.logging.Logger;
@@ -68,7 +65,6 @@ import org.seasr.components.text.datatype.corpora.FeatureMap;
 import org.seasr.components.text.datatype.pos.PoSTag;
 import org.seasr.components.text.util.Factory;
 import org.meandre.core.*;
-import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoder;
 import org.meandre.annotations.Component;
 import org.meandre.annotations.ComponentInput;
 import org.meandre.annotations.ComponentOutput;
@@ -183,60 +179,60 @@ public class AddTokenNGrams implements ExecutableComponent {
 					.getDataComponentFromInput(DATA_INPUT_DOCUMENT);
 
 			AnnotationSet annots = doc.getAnnotations();
-			Set<Annotation> tset = new TreeSet<Annotation>(
-					new Annot_Comparator());
-			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {
-				Annotation tok = iter.next();
-				if (tok.getType().equals(AnnotationConstants.TOKEN_ANNOT_TYPE)) {
-					tset.add(tok);
-				}
-			}
-
-			ArrayList<Annotation> q = new ArrayList<Annotation>();
-			for (Iterator<Annotation> iter = tset.iterator(); iter.hasNext();) {
-				Annotation tok = iter.next();
-				String img = tok.getContent(doc);
-				String ptag = tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_POS);
-
-				PoSTag postag = PoSTag.getPoSTag(ptag);
-
-				if ((PoSTag.isSymbol(postag)) || (img.trim().equals("/"))
-						|| (img.trim().equals("%"))
-						|| (PoSTag.PoS_CD == postag)) {
-					if ((postag == PoSTag.PoS_PERIOD)
-							|| (img.trim().equals("?"))
-							|| (img.trim().equals("!"))) {
-						q.clear();
+			AnnotationSet toks = annots.get(AnnotationConstants.TOKEN_ANNOT_TYPE);
+
+			if (toks != null) {
+				// the sorted iterator walks the tokens present when it was
+				// created, so the n-grams can be added as we go
+				ArrayList<Annotation> q = new ArrayList<Annotation>();
+				for (Iterator<Annotation> iter = toks.sortedIterator(); iter
+						.hasNext();) {
+					Annotation tok = iter.next();
+					String img = tok.getContent(doc);
+					String ptag = tok.getFeatures().get(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_POS);
+
+					PoSTag postag = PoSTag.getPoSTag(ptag);
+
+					if ((PoSTag.isSymbol(postag)) || (img.trim().equals("/"))
+							|| (img.trim().equals("%"))
+							|| (PoSTag.PoS_CD == postag)) {
+						if ((postag == PoSTag.PoS_PERIOD)
+								|| (img.trim().equals("?"))
+								|| (img.trim().equals("!"))) {
+							q.clear();
+						}
+						continue;
 					}
-					continue;
-				}
 
-				q.add(tok);
-
-				if (q.size() == getArity(ctx)) {
-					FeatureMap fm = Factory.newFeatureMap();
-					fm
-							.put(
-									AnnotationConstants.NGRAM_ANNOT_FEAT_TOKEN_LIST,
-									FeatureValueEncoderDecoder
-											.encodeListofAnnotations(new ArrayList<Annotation>(
-													q)));
-					fm.put(AnnotationConstants.NGRAM_ANNOT_FEAT_ARITY_INT, ""
-							+ getArity(ctx));
-					String nimg = "";
-					for (int i = 0, n = q.size(); i < n; i++) {
-						nimg += q.get(i).getContent(doc) + " ";
+					q.add(tok);
+
+					if (q.size() == getArity(ctx)) {
+						FeatureMap fm = Factory.newFeatureMap();
+						// the tokens are referenced by id in this set
+						int[] ids = new int[q.size()];
+						for (int i = 0; i < ids.length; i++) {
+							ids[i] = q.get(i).getId();
+						}
+						fm.setIntArray(
+								AnnotationConstants.NGRAM_ANNOT_FEAT_TOKEN_LIST_ID,
+								ids);
+						fm.setInt(AnnotationConstants.NGRAM_ANNOT_FEAT_ARITY_INT_ID,
+								getArity(ctx));
+						String nimg = "";
+						for (int i = 0, n = q.size(); i < n; i++) {
+							nimg += q.get(i).getContent(doc) + " ";
+						}
+						if (this.getVerbose(ctx)) {
+							_logger.info(nimg.trim());
+						}
+						long beg = ((Annotation) q.get(0)).getStartNodeOffset();
+						long end = ((Annotation) q.get(q.size() - 1))
+								.getEndNodeOffset();
+						annots.add(beg, end, AnnotationConstants.NGRAM_ANNOT_TYPE,
+								fm);
+						q.remove(0);
 					}
-					if (this.getVerbose(ctx)) {
-						_logger.info(nimg.trim());
-					}
-					long beg = ((Annotation) q.get(0)).getStartNodeOffset();
-					long end = ((Annotation) q.get(q.size() - 1))
-							.getEndNodeOffset();
-					annots.add(beg, end, AnnotationConstants.NGRAM_ANNOT_TYPE,
-							fm);
-					q.remove(0);
 				}
 			}
 			if (getVerbose(ctx)) {
@@ -254,30 +250,4 @@ public class AddTokenNGrams implements ExecutableComponent {
 		}
 	}
 
-	// =================
-	// Private Methods
-	// =================
-
-	private class Annot_Comparator implements Comparator<Annotation> {
-
-		public Annot_Comparator() {
-		}
-
-		// ======================
-		// Interface: Comparator
-		// ======================
-		public int compare(Annotation ann1, Annotation ann2) {
-			if (ann1.getStartNodeOffset() < ann2.getStartNodeOffset()) {
-				return -1;
-			} else if (ann1.getStartNodeOffset() > ann2.getStartNodeOffset()) {
-				return 1;
-			}
-			return 1;
-		}
-
-		public boolean equals(Object o) {
-			return this.equals(o);
-		}
-	}
-
 }
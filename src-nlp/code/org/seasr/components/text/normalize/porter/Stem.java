@@ -46,7 +46,6 @@ package org.seasr.components.text.normalize.porter;
 // Java Imports
 // ==============
 
-import java.util.ArrayList;
 import java.util.Iterator;
 
 import org.meandre.annotations.Component;
@@ -60,7 +59,6 @@ import org.seasr.components.text.datatype.corpora.Annotation;
 import org.seasr.components.text.datatype.corpora.AnnotationConstants;
 import org.seasr.components.text.datatype.corpora.AnnotationSet;
 import org.seasr.components.text.datatype.corpora.Document;
-import org.seasr.components.text.util.feature_maps.FeatureValueEncoderDecoder;
 
 /**
  * @author D. Searsmith
@@ -146,11 +144,11 @@ public class Stem  extends AbstractExecutableComponent {
 
 			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {
 				Annotation tok = iter.next();
-				if (tok.getType().equals(AnnotationConstants.TOKEN_ANNOT_TYPE)) {
+				if (tok.getTypeId() == AnnotationConstants.TOKEN_ANNOT_TYPE_ID) {
 					String img = tok.getContent(doc);
 					String stem = _stemmer.normalizeTerm(img);
 					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_NORM_IMAGE,
+							AnnotationConstants.TOKEN_ANNOT_FEAT_NORM_IMAGE_ID,
 							stem);
 				}
 			}
@@ -158,19 +156,23 @@ public class Stem  extends AbstractExecutableComponent {
 			// set the image feature for ngrams
 			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {
 				Annotation tok = iter.next();
-				if (tok.getType().equals(AnnotationConstants.NGRAM_ANNOT_TYPE)) {
-					ArrayList<?> list = FeatureValueEncoderDecoder
-							.decodeToListofAnnotations(tok
-									.getFeatures()
-									.get(
-											AnnotationConstants.NGRAM_ANNOT_FEAT_TOKEN_LIST));
+				if (tok.getTypeId() == AnnotationConstants.NGRAM_ANNOT_TYPE_ID) {
+					int[] ids = tok.getFeatures().getIntArray(
+							AnnotationConstants.NGRAM_ANNOT_FEAT_TOKEN_LIST_ID);
+					if (ids == null) {
+						continue;
+					}
 					StringBuffer s = new StringBuffer("");
-					for (int i = 0, n = list.size(); i < n; i++) {
-						Annotation tok2 = (Annotation) list.get(i);
+					for (int i = 0; i < ids.length; i++) {
+						// tokens removed earlier in the flow are left out
+						Annotation tok2 = annots.get(ids[i]);
+						if (tok2 == null) {
+							continue;
+						}
 						String t = (String) tok2
 								.getFeatures()
 								.get(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_NORM_IMAGE);
+										AnnotationConstants.TOKEN_ANNOT_FEAT_NORM_IMAGE_ID);
 						if (t == null) {
 							s.append(tok2.getContent(doc) + " ");
 						} else {
@@ -178,7 +180,7 @@ public class Stem  extends AbstractExecutableComponent {
 						}
 					}
 					tok.getFeatures().put(
-							AnnotationConstants.NGRAM_ANNOT_FEAT_NORM_IMAGE,
+							AnnotationConstants.NGRAM_ANNOT_FEAT_NORM_IMAGE_ID,
 							s.toString().trim());
 				}
 			}
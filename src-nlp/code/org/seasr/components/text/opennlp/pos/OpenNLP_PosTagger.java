@@ -264,8 +264,8 @@ public class OpenNLP_PosTagger extends OpenNLPBaseUtilities {
 						.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
 
 				StringBuffer buff = new StringBuffer();
-				for (Iterator<Annotation> itty = toks.getAllSortedAsArrayList()
-						.iterator(); itty.hasNext();) {
+				for (Iterator<Annotation> itty = toks.sortedIterator(); itty
+						.hasNext();) {
 					Annotation tok = itty.next();
 					buff.append("Token: " + tok.getContent(idoc));
 					FeatureMap fm = tok.getFeatures();
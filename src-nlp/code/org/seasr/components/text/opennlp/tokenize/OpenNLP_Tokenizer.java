@@ -263,9 +263,9 @@ public class OpenNLP_Tokenizer extends OpenNLPBaseUtilities {
 						 */
 						FeatureMap fm = Factory.newFeatureMap();
 						fm
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL,
-										Boolean.TRUE.toString());
+								.setBoolean(
+										AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL_ID,
+										true);
 						annotsP.add(posB, posE,
 								AnnotationConstants.TOKEN_ANNOT_TYPE, fm);
 					} else {
@@ -276,9 +276,9 @@ public class OpenNLP_Tokenizer extends OpenNLPBaseUtilities {
 						 */
 						FeatureMap fm = Factory.newFeatureMap();
 						fm
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL,
-										Boolean.TRUE.toString());
+								.setBoolean(
+										AnnotationConstants.TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL_ID,
+										true);
 						annotsP.add(posB, posE,
 								AnnotationConstants.TOKEN_ANNOT_TYPE, fm);
 					}
@@ -292,8 +292,8 @@ public class OpenNLP_Tokenizer extends OpenNLPBaseUtilities {
 				for (int i = 0, n = spans.length; i < n; i++) {
 					Span spn = spans[i];
 					FeatureMap fm = Factory.newFeatureMap();
-					fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL,
-							Boolean.TRUE.toString());
+					fm.setBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL_ID,
+							true);
 					annotsP.add(spn.getStart(), spn.getEnd(),
 							AnnotationConstants.TOKEN_ANNOT_TYPE, fm);
 				}
@@ -310,8 +310,8 @@ public class OpenNLP_Tokenizer extends OpenNLPBaseUtilities {
 						+ " tokens created.\n\n");
 
 				StringBuffer buff = new StringBuffer();
-				for (Iterator<Annotation> itty = toks.getAllSortedAsArrayList()
-						.iterator(); itty.hasNext();) {
+				for (Iterator<Annotation> itty = toks.sortedIterator(); itty
+						.hasNext();) {
 					Annotation tok = itty.next();
 					buff.append("Token: " + tok.getContent(idoc));
 					FeatureMap fm = tok.getFeatures();
@@ -100,9 +100,13 @@ import org.meandre.annotations.*;
  * </p>
  * 
  * <p>
- * Scalability: This module makes one pass over the token list resulting in
- * linear time complexity per the number of tokens. Memory usage is proportional
- * to the number tokens.
+ * Scalability: The positions of the tokens carrying each tag are indexed and
+ * kept up to date as tokens are retagged, and each rule visits only the
+ * tokens carrying its old tag, in document order. Time grows with the number
+ * of tokens each rule can change rather than rules times tokens. Memory usage
+ * is proportional to the number tokens. The rules read and change the tags
+ * in the BrillTagBuffer LexTag attached to the document, and the features of
+ * the tokens retagged are written when the document is done.
  * </p>
  * 
  * <p>
@@ -135,8 +139,12 @@ import org.meandre.annotations.*;
 		+ "<p>Data Handling: <br>"
 		+ "This module will modify (as described above) the document object that is input.</p>"
 		+ "<p>Scalability: <br>"
-		+ "This module makes one pass over the token list resulting in linear time complexity "
-		+ "per the number of tokens.  Memory usage is proportional to the number tokens.</p>"
+		+ "The positions of the tokens carrying each tag are indexed and kept up to date as "
+		+ "tokens are retagged, and each rule visits only the tokens carrying the tag it "
+		+ "changes, in document order.  Time grows with the number of tokens each rule can "
+		+ "change rather than rules times tokens.  Memory usage is proportional to the number tokens.  "
+		+ "The rules read and change the tags in the BrillTagBuffer LexTag attached to the "
+		+ "document, and the features of the tokens retagged are written when the document is done.</p>"
 		+ "<p>Trigger Criteria: <br>" + "Standard.</p>", 
 		
 		name = "ConTag", tags = "text brill pos nlp", firingPolicy = Component.FiringPolicy.any,
@@ -439,34 +447,25 @@ public class ConTag implements ExecutableComponent {
 
 					Document doc = _docs.get(i);
 
-					DocTokMap dtmap = (DocTokMap) doc.getAuxMap().get(
+					Object o = doc.getAuxMap().get(
 							DocumentConstants.BRILL_TOK_MAP);
-					if (dtmap == null) {
+					if (o == null) {
 						throw new Exception(
-								"No DocTokMap found in document object.");
+								"No token map found in document object.");
 					}
+					BrillTagBuffer buf = (o instanceof BrillTagBuffer) ? (BrillTagBuffer) o
+							: new BrillTagBuffer(doc);
 
 					if (verbose) {
 						_logger.info("Begin ConTag");
 					}
 
-					AnnotationSet annots = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
-
-					/**
-					 * Loop through each rule and apply it to every document
-					 * word in turn.
-					 */
-					for (int x = 0, y = m_rules.length; x < y; x++) {
-						for (Iterator<Annotation> iter = annots.iterator(); iter
-								.hasNext();) {
-							Annotation tok = iter.next();
-							((ContextRule) m_rules[x]).applyRule(doc, tok,
-									rtm, m_lex, dtmap,
-									incDesc);
-							if ((x == (y - 1)) && (tok
-									.getFeatures()
-									.get(
-											AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL) != null)) {
+					ContextRule.applyRules(m_rules, buf, rtm, m_lex, incDesc);
+					buf.writeFeatures();
+					contagged = 0;
+					if (verbose) {
+						for (int p = 0, np = buf.getListSize(); p < np; p++) {
+							if (buf.isSet(p, BrillTagBuffer.CONTAGGED)) {
 								contagged++;
 							}
 						}
@@ -490,7 +489,7 @@ public class ConTag implements ExecutableComponent {
 						AnnotationSet toks = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
 
 						StringBuffer buff = new StringBuffer();
-						for (Iterator<Annotation> itty = toks.getAllSortedAsArrayList().iterator(); itty.hasNext();){
+						for (Iterator<Annotation> itty = toks.sortedIterator(); itty.hasNext();){
 							Annotation tok = itty.next();
 							buff.append("Token: " + tok.getContent(doc));
 							FeatureMap fm = tok.getFeatures();
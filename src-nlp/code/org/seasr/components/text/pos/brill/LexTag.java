@@ -56,11 +56,9 @@ import java.util.logging.*;
 //import org.meandre.tools.components.*;
 //import org.meandre.tools.components.FlowBuilderAPI.WorkingFlow;
 
-import org.seasr.components.text.datatype.corpora.Annotation;
-import org.seasr.components.text.datatype.corpora.AnnotationConstants;
-import org.seasr.components.text.datatype.corpora.AnnotationSet;
 import org.seasr.components.text.datatype.corpora.Document;
 import org.seasr.components.text.datatype.corpora.DocumentConstants;
+import org.seasr.components.text.datatype.pos.PoSTag;
 import org.meandre.core.*;
 import org.meandre.annotations.*;
 
@@ -99,9 +97,15 @@ import org.meandre.annotations.*;
  * </p>
  * 
  * <p>
- * Scalability: This module makes one pass over the token list resulting in
- * linear time complexity per the number of tokens. Memory usage is proportional
- * to the number tokens.
+ * Scalability: This module makes one pass over the token list, applying the
+ * whole rule set to each token not pre-tagged before moving to the next. The
+ * rules are compiled once into a LexRuleProgram, and the result for an image
+ * and initial tag is remembered for the rest of the document, so time grows
+ * with the number of distinct unknown tokens. The tags are read from and
+ * kept in the BrillTagBuffer attached to the document, which is built here
+ * if PreTag did not leave one, and the features of the tokens retagged are
+ * written when the document is done. Memory usage is proportional to the
+ * number tokens.
  * </p>
  * 
  * <p>
@@ -134,8 +138,14 @@ import org.meandre.annotations.*;
 		+ "<p>Data Handling: <br>"
 		+ "This module will modify (as described above) the document object that is input.</p>"
 		+ "<p>Scalability: <br>"
-		+ "This module makes one pass over the token list resulting in linear time complexity "
-		+ "per the number of tokens.  Memory usage is proportional to the number tokens.</p>"
+		+ "This module makes one pass over the token list, applying the whole rule set to "
+		+ "each token that was not pre-tagged before moving to the next.  The rules are "
+		+ "compiled once, and the result for a token image and initial tag is reused for "
+		+ "the rest of the document, so time grows with the number of distinct unknown "
+		+ "tokens.  The tags are read from and kept in the BrillTagBuffer attached to the "
+		+ "document, which is built here if PreTag did not leave one, and the features of the "
+		+ "tokens retagged are written when the document is done.  Memory usage is proportional "
+		+ "to the number tokens.</p>"
 		+ "<p>Trigger Criteria: <br>Standard.</p>", 
 		
 		name = "LexTag", tags = "text brill pos nlp", firingPolicy = Component.FiringPolicy.any,
@@ -150,6 +160,7 @@ public class LexTag implements ExecutableComponent {
 	private long m_start = 0;
 	private Lexicon m_lex = null;
 	private Object[] m_rules = null;
+	private LexRuleProgram m_program = null;
 	private List<Document> _docs = null;
 
 	private static Logger _logger = Logger.getLogger("LexTag");
@@ -230,6 +241,7 @@ public class LexTag implements ExecutableComponent {
 		_docs = null;
 		m_lex = null;
 		m_rules = null;
+		m_program = null;
 	}
 
 	/*
@@ -259,6 +271,7 @@ public class LexTag implements ExecutableComponent {
 				Object o = ctx
 						.getDataComponentFromInput(DATA_INPUT_LEXICAL_RULES);
 				m_rules = (Object[]) o;
+				m_program = new LexRuleProgram(m_rules);
 			}
 
 			if (ctx.isInputAvailable(DATA_INPUT_DOCUMENT)) {
@@ -271,42 +284,58 @@ public class LexTag implements ExecutableComponent {
 
 					Document doc = _docs.get(i);
 
-					DocTokMap dtmap = new DocTokMap(doc);
-					doc.getAuxMap().put(DocumentConstants.BRILL_TOK_MAP, dtmap);
-
-					AnnotationSet annots = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
+					// keep the working buffer an earlier stage left, if any
+					Object o = doc.getAuxMap().get(
+							DocumentConstants.BRILL_TOK_MAP);
+					BrillTagBuffer buf = null;
+					if (o instanceof BrillTagBuffer) {
+						buf = (BrillTagBuffer) o;
+					} else {
+						buf = new BrillTagBuffer(doc);
+						doc.getAuxMap().put(DocumentConstants.BRILL_TOK_MAP,
+								buf);
+					}
 
+					lextagged = 0;
+					tokensprocessed = 0;
 					if (verbose) {
 						_logger.info("Begin LexTag");
 					}
-					for (int x = 0, y = m_rules.length; x < y; x++) {
-						for (Iterator<Annotation> iter = annots.iterator(); iter
-								.hasNext();) {
-							Annotation tok = iter.next();
-							if (tok.getType().equals(
-									AnnotationConstants.TOKEN_ANNOT_TYPE)) {
-								if (tok
-										.getFeatures()
-										.get(
-												AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL) == null) {
-									((LexRule) m_rules[x]).applyRule(doc, tok,
-											m_lex, dtmap,
-											incdesc);
-									if (tok
-											.getFeatures()
-											.get(
-													AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL) != null) {
-										lextagged++;
-									}
-								}
+
+					// the index + 2 of the last rule applied to a word, by
+					// initial tag ordinal + 1 (0 for no tag) and word id; 1 if
+					// none was, 0 if not yet computed
+					int[][] byTag = new int[PoSTag.getNumTags() + 1][];
+					for (int p = 0, np = buf.getListSize(); p < np; p++) {
+						if (buf.isSet(p, BrillTagBuffer.PRETAGGED)) {
+							continue;
+						}
+						tokensprocessed++;
+						int t = (buf.isSet(p, BrillTagBuffer.TAGGED)) ? buf
+								.getTagOrdinal(p) + 1 : 0;
+						int w = buf.getWordId(p);
+						if (byTag[t] == null) {
+							byTag[t] = new int[buf.getNumWords()];
+						}
+						int rule = byTag[t][w] - 2;
+						if (rule == -2) {
+							rule = m_program.apply(buf.getImage(p), buf
+									.getTag(p), m_lex, buf);
+							byTag[t][w] = rule + 2;
+						}
+						if (rule >= 0) {
+							buf.setTag(p, m_program.getChangeTo(rule));
+							buf.set(p, BrillTagBuffer.LEXTAGGED);
+							if (incdesc) {
+								buf.setDescription(p, BrillTagBuffer.LEXTAGGED,
+										m_program.getDescription(rule));
 							}
+							lextagged++;
 						}
 					}
-					if (doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS).get(
-							AnnotationConstants.TOKEN_ANNOT_TYPE) != null) {
-						tokensprocessed = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS).get(
-								AnnotationConstants.TOKEN_ANNOT_TYPE).size();
-					}
+					// the features are current whether or not ConTag follows
+					buf.writeFeatures();
+
 					if (verbose) {
 						_logger
 								.info("Out of "
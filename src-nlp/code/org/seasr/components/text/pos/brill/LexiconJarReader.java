@@ -47,6 +47,7 @@ package org.seasr.components.text.pos.brill;
 // ==============
 
 import java.io.File;
+import java.io.IOException;
 import java.util.logging.*;
 
 // ===============
@@ -69,6 +70,10 @@ import org.meandre.annotations.*;
  * also saved in the module's <i>ResourceManager</i> where it can be referenced 
  * by other modules in the itinerary.  The Lexicon object is used by the Brill 
  * part-of-speech tagger modules.
+ * The file may also be a compiled lexicon, written by
+ * <code>Lexicon.writeCompiled()</code> (or <code>main()</code> with the
+ * lexicon text file and compiled file names as arguments), which is mapped
+ * rather than parsed.
  * References: 
  * Brill, Eric, <i>Some Advances In Rule-Based Part of Speech Tagging</i>, AAAI, 1994
  * 
@@ -86,6 +91,8 @@ import org.meandre.annotations.*;
 		+ "object which is output for later processing.  " 
 		+ "The Lexicon object is used by the Brill "
 		+ "part-of-speech tagger modules.</p>"
+		+ "<p>The file may also be a compiled lexicon, which is mapped into memory read-only "
+		+ "rather than parsed; lexicons opened on the same compiled file share its pages.</p>"
 		+ "<p>References: <br>"
 		+ "Brill, Eric, <i>Some Advances In Rule-Based Part of Speech Tagging</i>, AAAI, 1994 </p>", 
 		
@@ -125,6 +132,29 @@ public class LexiconJarReader implements ExecutableComponent {
 	public LexiconJarReader() {
 	}
 
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * Compile the lexicon text file named by the first argument into the
+	 * file named by the second.
+	 */
+	static public void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("usage: LexiconJarReader lexicon compiled_lexicon");
+			return;
+		}
+		try {
+			Lexicon lex = new Lexicon(args[0], false);
+			lex.writeCompiled(args[1]);
+			_logger.info(lex.size() + " lexicon entries written to "
+					+ args[1]);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+	}
+
 	// ================
 	// Public Methods
 	// ================
@@ -155,7 +185,7 @@ public class LexiconJarReader implements ExecutableComponent {
 		try {
 			File f = MeandreJarFileReaderUtil.findAndInstallFileResource(
 					getResourceName(ctx), getFilename(ctx), ctx);
-			Lexicon lex = new Lexicon(f.getCanonicalPath(), getVerbose(ctx));
+			Lexicon lex = Lexicon.open(f.getCanonicalPath(), getVerbose(ctx));
 			if (getVerbose(ctx)) {
 				_logger.info("\n\nLexicon file parsed.  " + lex.size()
 						+ " entries created.\n\n");
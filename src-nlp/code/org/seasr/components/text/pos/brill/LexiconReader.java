@@ -67,7 +67,8 @@ import org.meandre.annotations.*;
  * 
  * Overview: This module takes the input filename and reads the file to create a
  * Lexicon object which is output for later processing. The Lexicon object is
- * used by the Brill part-of-speech tagger modules. References: Brill, Eric,
+ * used by the Brill part-of-speech tagger modules. A compiled lexicon file is
+ * mapped rather than parsed. References: Brill, Eric,
  * <i>Some Advances In Rule-Based Part of Speech Tagging</i>, AAAI, 1994
  * 
  * @author D. Searsmith
@@ -82,7 +83,8 @@ import org.meandre.annotations.*;
 		+ "This module takes the input filename and reads the file to create a Lexicon "
 		+ "object which is output for later processing.  "
 		+ "The Lexicon object is used by the Brill "
-		+ "part-of-speech tagger modules.</p>"
+		+ "part-of-speech tagger modules.  A compiled lexicon file is mapped into memory "
+		+ "rather than parsed.</p>"
 		+ "<p>Reference: <br>"
 		+ "Brill, Eric, Some Advances In Rule-Based Part of Speech Tagging, AAAI, 1994 </p>", 
 		
@@ -135,7 +137,7 @@ public class LexiconReader implements ExecutableComponent {
 		try {
 			String fname = (String) ctx
 					.getDataComponentFromInput(DATA_INPUT_FILE_NAME);
-			Lexicon lex = new Lexicon(fname, getVerbose(ctx));
+			Lexicon lex = Lexicon.open(fname, getVerbose(ctx));
 			if (getVerbose(ctx)) {
 				_logger.info("\n\nLexicon file parsed.  " + lex.size()
 						+ " entries created.\n\n");
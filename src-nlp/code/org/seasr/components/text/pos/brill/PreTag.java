@@ -60,6 +60,7 @@ import org.seasr.components.text.datatype.corpora.Annotation;
 import org.seasr.components.text.datatype.corpora.AnnotationConstants;
 import org.seasr.components.text.datatype.corpora.AnnotationSet;
 import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.DocumentConstants;
 import org.seasr.components.text.datatype.pos.PoSTag;
 import org.meandre.core.*;
 import org.meandre.annotations.*;
@@ -100,7 +101,11 @@ import org.meandre.annotations.*;
  * <p>
  * Scalability: This module makes one pass over the token list resulting in O(n)
  * time complexity per the number of tokens. Memory usage is proportional to the
- * number tokens.
+ * number tokens. With tag_buffer set the tags are also kept in a
+ * BrillTagBuffer attached to the document, and the lexicon is consulted once
+ * for each distinct word; LexTag and ConTag then read the tags from the
+ * buffer instead of the token features. The features are written either
+ * way, so the document can be used without the later stages.
  * </p>
  * 
  * <p>
@@ -135,7 +140,11 @@ import org.meandre.annotations.*;
 		+ "This module will modify (as described above) the document object that is input.</p>"
 		+ "<p>Scalability: <br>"
 		+ "This module makes one pass over the token list resulting in linear time complexity "
-		+ "per the number of tokens.  Memory usage is proportional to the number tokens.</p>"
+		+ "per the number of tokens.  Memory usage is proportional to the number tokens.  "
+		+ "With tag_buffer set the tags are also kept in a BrillTagBuffer attached to the document, "
+		+ "and the lexicon is consulted once for each distinct word; LexTag and ConTag then read "
+		+ "the tags from the buffer instead of the token features.  The features are written either "
+		+ "way, so the document can be used without the later stages.</p>"
 		+ "<p>Trigger Criteria: <br>" + "Standard.</p>", 
 		
 		name = "PreTag", tags = "nlp text brill pos", firingPolicy = Component.FiringPolicy.any,
@@ -171,6 +180,11 @@ public class PreTag implements ExecutableComponent {
 	final static String DATA_PROPERTY_INCLUDE_DESC = "include_description";
 	private boolean _incDesc = false;
 
+	@ComponentProperty(description = "Keep the tags in a working buffer attached to the document for LexTag and "
+			+ "ConTag? A boolean value (true or false).  The token features are written as well.", name = "tag_buffer", defaultValue = "false")
+	final static String DATA_PROPERTY_TAG_BUFFER = "tag_buffer";
+	private boolean _tagBuffer = false;
+
 	// io
 	
 	@ComponentInput(description = "Lexicon object.", name = "lexicon")
@@ -206,6 +220,11 @@ public class PreTag implements ExecutableComponent {
 		return Integer.parseInt(s);
 	}
 
+	public boolean getTagBuffer(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_TAG_BUFFER);
+		return Boolean.parseBoolean(s.toLowerCase());
+	}
+
 	// ================
 	// Constructor(s)
 	// ================
@@ -227,6 +246,7 @@ public class PreTag implements ExecutableComponent {
 		_incDesc = this.getIncludeDescription(ccp);
 		_printInc = this.getPrintIncrement(ccp);
 		_showProg = this.getShowProgress(ccp);
+		_tagBuffer = this.getTagBuffer(ccp);
 		//=====================================
 	}
 
@@ -276,92 +296,138 @@ public class PreTag implements ExecutableComponent {
 
 					Document doc = _docs.get(i);
 
-					AnnotationSet annots = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
-
-					for (Iterator<Annotation> iter = annots.iterator(); iter
-							.hasNext();) {
-						Annotation tok = iter.next();
-						if (tok.getType().equals(
-								AnnotationConstants.TOKEN_ANNOT_TYPE)) {
-							String img = (String) tok.getContent(doc);
-							PoSTag[] tags = m_lex.getTagsForTerm(img);
+					if (_tagBuffer) {
+						BrillTagBuffer buf = new BrillTagBuffer(doc);
+						doc.getAuxMap().put(DocumentConstants.BRILL_TOK_MAP,
+								buf);
+						// the lexicon entry of each distinct word
+						PoSTag[][] entries = new PoSTag[buf.getNumWords()][];
+						for (int p = 0, np = buf.getListSize(); p < np; p++) {
+							String img = buf.getImage(p);
+							int w = buf.getWordId(p);
+							if (entries[w] == null) {
+								entries[w] = m_lex.getTagsForTerm(img);
+							}
+							PoSTag[] tags = entries[w];
+							PoSTag tag = null;
+							String desc = null;
 							if (tags.length > 0) {
-								tok
-										.getFeatures()
-										.put(
-												AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-												tags[0].toString());
-								if (_incDesc) {
+								tag = tags[0];
+								desc = "Pretagged lookup as: " + tag.toString();
+								buf.set(p, BrillTagBuffer.PRETAGGED);
+								tagsFoundInLex++;
+							} else if (Character.isDigit(img.charAt(0))) {
+								tag = PoSTag.PoS_CD;
+								desc = "Pretagged default as: CD";
+								tagsSetCD++;
+							} else if (!Character.isLetter(img.charAt(0))) {
+								tag = PoSTag.PoS_SYM;
+								desc = "Pretagged default as: SYM";
+								tagsSetSYM++;
+							} else if (Character.isLetter(img.charAt(0))) {
+								tag = PoSTag.PoS_NNP;
+								desc = "Pretagged default as: NNP";
+								tagsSetNNP++;
+							} else {
+								tag = PoSTag.PoS_NN;
+								desc = "Pretagged default as NN";
+								tagsSetNN++;
+							}
+							buf.setTag(p, tag);
+							if (_incDesc) {
+								buf.setDescription(p, BrillTagBuffer.PRETAGGED,
+										desc);
+							}
+						}
+						buf.writeFeatures();
+					} else {
+						AnnotationSet annots = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
+
+						for (Iterator<Annotation> iter = annots.iterator(); iter
+								.hasNext();) {
+							Annotation tok = iter.next();
+							if (tok.getTypeId()
+									== AnnotationConstants.TOKEN_ANNOT_TYPE_ID) {
+								String img = (String) tok.getContent(doc);
+								PoSTag[] tags = m_lex.getTagsForTerm(img);
+								if (tags.length > 0) {
 									tok
 											.getFeatures()
 											.put(
-													AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC,
-													"Pretagged lookup as: "
-															+ tags[0]
-																	.toString());
-								}
-								tok
-										.getFeatures()
-										.put(
-												AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL,
-												Boolean.TRUE.toString());
-								tagsFoundInLex++;
-							} else if (Character.isDigit(img.charAt(0))) {
-								tok
-										.getFeatures()
-										.put(
-												AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-												PoSTag.PoS_CD.toString());
-								if (_incDesc) {
+													AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID,
+													tags[0].toString());
+									if (_incDesc) {
+										tok
+												.getFeatures()
+												.put(
+														AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC_ID,
+														"Pretagged lookup as: "
+																+ tags[0]
+																		.toString());
+									}
+									tok
+											.getFeatures()
+											.setBoolean(
+													AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL_ID,
+													true);
+									tagsFoundInLex++;
+								} else if (Character.isDigit(img.charAt(0))) {
 									tok
 											.getFeatures()
 											.put(
-													AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC,
-													"Pretagged default as: CD");
-								}
-								tagsSetCD++;
-							} else if (!Character.isLetter(img.charAt(0))) {
-								tok
-										.getFeatures()
-										.put(
-												AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-												PoSTag.PoS_SYM.toString());
-								if (_incDesc) {
+													AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID,
+													PoSTag.PoS_CD.toString());
+									if (_incDesc) {
+										tok
+												.getFeatures()
+												.put(
+														AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC_ID,
+														"Pretagged default as: CD");
+									}
+									tagsSetCD++;
+								} else if (!Character.isLetter(img.charAt(0))) {
 									tok
 											.getFeatures()
 											.put(
-													AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC,
-													"Pretagged default as: SYM");
-								}
-								tagsSetSYM++;
-							} else if (Character.isLetter(img.charAt(0))) {
-								tok
-										.getFeatures()
-										.put(
-												AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-												PoSTag.PoS_NNP.toString());
-								if (_incDesc) {
+													AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID,
+													PoSTag.PoS_SYM.toString());
+									if (_incDesc) {
+										tok
+												.getFeatures()
+												.put(
+														AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC_ID,
+														"Pretagged default as: SYM");
+									}
+									tagsSetSYM++;
+								} else if (Character.isLetter(img.charAt(0))) {
 									tok
 											.getFeatures()
 											.put(
-													AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC,
-													"Pretagged default as: NNP");
-								}
-								tagsSetNNP++;
-							} else {
-								tok
-										.getFeatures()
-										.put(
-												AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-												PoSTag.PoS_NN.toString());
-								if (_incDesc) {
+													AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID,
+													PoSTag.PoS_NNP.toString());
+									if (_incDesc) {
+										tok
+												.getFeatures()
+												.put(
+														AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC_ID,
+														"Pretagged default as: NNP");
+									}
+									tagsSetNNP++;
+								} else {
 									tok
 											.getFeatures()
 											.put(
-													AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC,
-													"Pretagged default as NN");
+													AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID,
+													PoSTag.PoS_NN.toString());
+									if (_incDesc) {
+										tok
+												.getFeatures()
+												.put(
+														AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC_ID,
+														"Pretagged default as NN");
+									}
+									tagsSetNN++;
 								}
-								tagsSetNN++;
 							}
 						}
 					}
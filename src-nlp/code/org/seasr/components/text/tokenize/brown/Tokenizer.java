@@ -256,7 +256,7 @@ public class Tokenizer implements ExecutableComponent {
 						+ " tokens created.\n\n");
 				
 				StringBuffer buff = new StringBuffer();
-				for (Iterator<Annotation> itty = toks.getAllSortedAsArrayList().iterator(); itty.hasNext();){
+				for (Iterator<Annotation> itty = toks.sortedIterator(); itty.hasNext();){
 					Annotation tok = itty.next();
 					buff.append("Token: " + tok.getContent(idoc));
 					FeatureMap fm = tok.getFeatures();
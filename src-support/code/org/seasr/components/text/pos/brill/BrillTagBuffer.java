@@ -0,0 +1,429 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.Iterator;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationConstants;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.pos.PoSTag;
+
+/**
+ * The tokens of a document in document order, with the word, part-of-speech
+ * tag and tagging state of each held in arrays, for the length of a Brill
+ * tagging run.
+ * 
+ * The tags and flags are read from the token features when the buffer is
+ * built. PreTag (with tag_buffer set), LexTag and ConTag leave the buffer
+ * attached to the document for the next stage, and each stage calls
+ * <code>writeFeatures()</code> when it is done, so the features are current
+ * whichever stage is the last to run. Words are numbered in the order they
+ * are first seen in the document, through an open addressing table of word
+ * ids, and tags are held as their PoSTag ordinals.
+ */
+public class BrillTagBuffer implements TokenSequence {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	/**
+	 * Flag set on a token that has been given a tag.
+	 */
+	static public final int TAGGED = 1;
+
+	/**
+	 * Flag set on a token whose tag was found in the lexicon.
+	 */
+	static public final int PRETAGGED = 2;
+
+	static public final int LEXTAGGED = 4;
+
+	static public final int CONTAGGED = 8;
+
+	/**
+	 * Flag set on a token that starts a line, read from its features when the
+	 * buffer is built.
+	 */
+	static public final int START_OF_LINE = 16;
+
+	/**
+	 * Flag set on a token whose state has changed since its features were
+	 * last written.
+	 */
+	static private final int CHANGED = 32;
+
+	private final Annotation[] _toks;
+
+	private final int[] _words;
+
+	private final byte[] _tags;
+
+	private final byte[] _flags;
+
+	/**
+	 * The image of each word, by word id.
+	 */
+	private String[] _vocab = new String[64];
+
+	private int _numWords = 0;
+
+	/**
+	 * Word id + 1 for each hash slot, 0 for an empty slot.
+	 */
+	private int[] _slots = new int[128];
+
+	/**
+	 * The positions of the tokens of each word, in document order: those of
+	 * word w run from <code>_starts[w]</code> to <code>_starts[w + 1]</code>
+	 * in <code>_posits</code>.
+	 */
+	private final int[] _starts;
+
+	private final int[] _posits;
+
+	private String[] _preDescs = null;
+
+	private String[] _lexDescs = null;
+
+	private String[] _conDescs = null;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	public BrillTagBuffer(Document doc) {
+		AnnotationSet toks = doc.getAnnotations(
+				AnnotationConstants.ANNOTATION_SET_TOKENS).get(
+				AnnotationConstants.TOKEN_ANNOT_TYPE);
+		int n = (toks == null) ? 0 : toks.size();
+		_toks = new Annotation[n];
+		_words = new int[n];
+		_tags = new byte[n];
+		_flags = new byte[n];
+		if (toks != null) {
+			int p = 0;
+			for (Iterator<Annotation> iter = toks.sortedIterator(); iter
+					.hasNext(); p++) {
+				Annotation tok = iter.next();
+				_toks[p] = tok;
+				_words[p] = intern(tok.getContent(doc));
+				readFeatures(p, tok.getFeatures());
+			}
+		}
+
+		_starts = new int[_numWords + 1];
+		for (int p = 0; p < n; p++) {
+			_starts[_words[p] + 1]++;
+		}
+		for (int w = 0; w < _numWords; w++) {
+			_starts[w + 1] += _starts[w];
+		}
+		_posits = new int[n];
+		int[] next = new int[_numWords];
+		System.arraycopy(_starts, 0, next, 0, _numWords);
+		for (int p = 0; p < n; p++) {
+			_posits[next[_words[p]]++] = p;
+		}
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	public int getListSize() {
+		return _toks.length;
+	}
+
+	public Annotation getAnnotationAtPos(int pos) {
+		return _toks[pos];
+	}
+
+	public String getImage(int pos) {
+		return _vocab[_words[pos]];
+	}
+
+	/**
+	 * Returns the id of the word at <b>pos</b>, from 0 to one less than
+	 * <code>getNumWords()</code>.
+	 */
+	public int getWordId(int pos) {
+		return _words[pos];
+	}
+
+	/**
+	 * Returns the number of distinct words in the document.
+	 */
+	public int getNumWords() {
+		return _numWords;
+	}
+
+	public String getWord(int id) {
+		return _vocab[id];
+	}
+
+	/**
+	 * Returns the id of the word <b>img</b>, or -1 if no token has it.
+	 */
+	public int getWordId(String img) {
+		int mask = _slots.length - 1;
+		int slot = hash(img) & mask;
+		int id;
+		while ((id = _slots[slot]) != 0) {
+			if (_vocab[id - 1].equals(img)) {
+				return id - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	public boolean isWord(String img) {
+		return getWordId(img) >= 0;
+	}
+
+	public int[] getPositions(String img) {
+		int w = getWordId(img);
+		if (w < 0) {
+			return null;
+		}
+		int n = _starts[w + 1] - _starts[w];
+		int[] ret = new int[n];
+		System.arraycopy(_posits, _starts[w], ret, 0, n);
+		return ret;
+	}
+
+	public boolean isAtPosition(String img, int pos) {
+		return (pos >= 0) && (pos < _words.length)
+				&& (_vocab[_words[pos]].equals(img));
+	}
+
+	public PoSTag getTag(int pos) {
+		return ((_flags[pos] & TAGGED) == 0) ? null : PoSTag
+				.getPoSTag(_tags[pos]);
+	}
+
+	public int getTagOrdinal(int pos) {
+		return _tags[pos];
+	}
+
+	public void setTag(int pos, PoSTag tag) {
+		_tags[pos] = (byte) tag.getOrdinal();
+		_flags[pos] |= TAGGED | CHANGED;
+	}
+
+	public boolean isStartOfLine(int pos) {
+		return (_flags[pos] & START_OF_LINE) != 0;
+	}
+
+	/**
+	 * Is <b>flag</b>, one of the flag constants of this class, set for the
+	 * token at <b>pos</b>?
+	 */
+	public boolean isSet(int pos, int flag) {
+		return (_flags[pos] & flag) != 0;
+	}
+
+	public void set(int pos, int flag) {
+		_flags[pos] |= flag | CHANGED;
+	}
+
+	/**
+	 * Record <b>desc</b> as the description of the tagging stage named by
+	 * <b>flag</b> (PRETAGGED, LEXTAGGED or CONTAGGED) for the token at
+	 * <b>pos</b>.
+	 */
+	public void setDescription(int pos, int flag, String desc) {
+		if (flag == PRETAGGED) {
+			if (_preDescs == null) {
+				_preDescs = new String[_tags.length];
+			}
+			_preDescs[pos] = desc;
+		} else if (flag == LEXTAGGED) {
+			if (_lexDescs == null) {
+				_lexDescs = new String[_tags.length];
+			}
+			_lexDescs[pos] = desc;
+		} else if (flag == CONTAGGED) {
+			if (_conDescs == null) {
+				_conDescs = new String[_tags.length];
+			}
+			_conDescs[pos] = desc;
+		} else {
+			throw new IllegalArgumentException("Not a tagging stage: " + flag);
+		}
+		_flags[pos] |= CHANGED;
+	}
+
+	/**
+	 * Set the features of each token changed since the last call from the
+	 * buffer, as the taggers do when they work on the features directly.
+	 */
+	public void writeFeatures() {
+		for (int p = 0, n = _tags.length; p < n; p++) {
+			int flags = _flags[p];
+			if ((flags & CHANGED) == 0) {
+				continue;
+			}
+			_flags[p] &= ~CHANGED;
+			FeatureMap fm = _toks[p].getFeatures();
+			if ((flags & TAGGED) != 0) {
+				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID, PoSTag
+						.getPoSTag(_tags[p]).toString());
+			}
+			if ((_preDescs != null) && (_preDescs[p] != null)) {
+				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_DESC_ID,
+						_preDescs[p]);
+			}
+			if ((flags & PRETAGGED) != 0) {
+				fm.setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL_ID,
+						true);
+			}
+			if ((flags & LEXTAGGED) != 0) {
+				fm.setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+						true);
+			}
+			if ((_lexDescs != null) && (_lexDescs[p] != null)) {
+				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_DESC_ID,
+						_lexDescs[p]);
+			}
+			if ((flags & CONTAGGED) != 0) {
+				fm.setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL_ID,
+						true);
+			}
+			if ((_conDescs != null) && (_conDescs[p] != null)) {
+				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
+						_conDescs[p]);
+			}
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Set the tag and flags of the token at <b>pos</b> from <b>fm</b>.
+	 */
+	private void readFeatures(int pos, FeatureMap fm) {
+		String img = fm.get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID);
+		PoSTag tag = (img == null) ? null : PoSTag.getPoSTag(img);
+		int flags = 0;
+		if (tag != null) {
+			_tags[pos] = (byte) tag.getOrdinal();
+			flags |= TAGGED;
+		}
+		if (fm.getBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL_ID)) {
+			flags |= PRETAGGED;
+		}
+		if (fm.getBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID)) {
+			flags |= LEXTAGGED;
+		}
+		if (fm.getBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL_ID)) {
+			flags |= CONTAGGED;
+		}
+		if (fm.getBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL_ID)) {
+			flags |= START_OF_LINE;
+		}
+		_flags[pos] = (byte) flags;
+	}
+
+	/**
+	 * Returns the id of the word <b>img</b>, numbering it if it is new.
+	 */
+	private int intern(String img) {
+		int mask = _slots.length - 1;
+		int slot = hash(img) & mask;
+		int id;
+		while ((id = _slots[slot]) != 0) {
+			if (_vocab[id - 1].equals(img)) {
+				return id - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (_numWords == _vocab.length) {
+			String[] vocab = new String[_numWords * 2];
+			System.arraycopy(_vocab, 0, vocab, 0, _numWords);
+			_vocab = vocab;
+		}
+		id = _numWords++;
+		_vocab[id] = img;
+		_slots[slot] = id + 1;
+		if (_numWords * 2 > _slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void rehash() {
+		int[] slots = new int[_slots.length * 2];
+		int mask = slots.length - 1;
+		for (int w = 0; w < _numWords; w++) {
+			int slot = hash(_vocab[w]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = w + 1;
+		}
+		_slots = slots;
+	}
+
+	static private int hash(String img) {
+		int h = img.hashCode();
+		return h ^ (h >>> 16);
+	}
+}
@@ -56,6 +56,7 @@ import java.util.*;
 import org.seasr.components.text.datatype.corpora.Annotation;
 import org.seasr.components.text.datatype.corpora.AnnotationConstants;
 import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
 import org.seasr.components.text.datatype.pos.PoSTag;
 
 /**
@@ -301,8 +302,8 @@ public class ContextRule implements Serializable {
 	 * @param lex
 	 * @return
 	 */
-	private static boolean hasTagInLex(Document doc, Annotation term, PoSTag tag, Lexicon lex) {
-		PoSTag[] tags = lex.getTagsForTerm((String) term.getContent(doc));
+	private static boolean hasTagInLex(String term, PoSTag tag, Lexicon lex) {
+		PoSTag[] tags = lex.getTagsForTerm(term);
 		for (int i = 0, n = tags.length; i < n; i++) {
 			if (tags[i] == tag) {
 				return true;
@@ -314,9 +315,86 @@ public class ContextRule implements Serializable {
 	// ================
 	// Public Methods
 	// ================
+	/**
+	 * Apply the rule to the token features of <b>tok</b>, one of the tokens
+	 * of <b>dtmap</b>.
+	 * 
+	 * @param restrict
+	 *            if true the token is only given a tag <b>lex</b> lists for
+	 *            its word.
+	 * @param incdesc
+	 *            if true record the rule type when the token is retagged.
+	 */
 	public void applyRule(Document doc, Annotation tok, boolean restrict,
 			Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-		m_operation.applyRule(doc, tok, this, restrict, lex, dtmap, incdesc);
+		FeatureMap fm = tok.getFeatures();
+		if (PoSTag.getPoSTag(fm.get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) != m_oldTag) {
+			return;
+		}
+		if (restrict && !hasTagInLex(tok.getContent(doc), m_newTag, lex)) {
+			return;
+		}
+		int pos = dtmap.getPosition(tok);
+		if ((pos < 0) || !m_operation.matches(this, dtmap, pos)) {
+			return;
+		}
+		fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS, m_newTag.toString());
+		fm.setBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL_ID,
+				true);
+		if (incdesc) {
+			fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
+					"Contagged by " + m_type.toString());
+		}
+	}
+
+	/**
+	 * Apply the rule to the token at <b>pos</b> in <b>buf</b>.
+	 * 
+	 * @return true if the token was retagged.
+	 * @see #applyRule(Document, Annotation, boolean, Lexicon, DocTokMap,
+	 *      boolean)
+	 */
+	public boolean applyRule(BrillTagBuffer buf, int pos, boolean restrict,
+			Lexicon lex, boolean incdesc) {
+		if (buf.getTag(pos) != m_oldTag) {
+			return false;
+		}
+		if (restrict && !hasTagInLex(buf.getImage(pos), m_newTag, lex)) {
+			return false;
+		}
+		if (!m_operation.matches(this, buf, pos)) {
+			return false;
+		}
+		buf.setTag(pos, m_newTag);
+		buf.set(pos, BrillTagBuffer.CONTAGGED);
+		if (incdesc) {
+			buf.setDescription(pos, BrillTagBuffer.CONTAGGED, "Contagged by "
+					+ m_type.toString());
+		}
+		return true;
+	}
+
+	/**
+	 * Apply <b>rules</b>, an array of ContextRule objects, in order to the
+	 * tokens of <b>buf</b>. Each rule visits only the tokens carrying its old
+	 * tag, in document order, through a TagPositionIndex kept up to date as
+	 * tokens are retagged; the tags are those of each rule applied in turn to
+	 * every token.
+	 */
+	static public void applyRules(Object[] rules, BrillTagBuffer buf,
+			boolean restrict, Lexicon lex, boolean incdesc) {
+		TagPositionIndex index = new TagPositionIndex(buf);
+		for (int x = 0, y = rules.length; x < y; x++) {
+			ContextRule cr = (ContextRule) rules[x];
+			PoSTag oldTag = cr.getOldTag();
+			PoSTag newTag = cr.getNewTag();
+			for (int p = index.nextPosition(oldTag, 0); p >= 0; p = index
+					.nextPosition(oldTag, p + 1)) {
+				if (cr.applyRule(buf, p, restrict, lex, incdesc)) {
+					index.move(p, oldTag, newTag);
+				}
+			}
+		}
 	}
 
 	/**
@@ -382,22 +460,36 @@ public class ContextRule implements Serializable {
 		return m_type;
 	}
 
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Returns the tag at <b>pos</b>, or STAART if the token there starts a
+	 * line.
+	 */
+	static private PoSTag tagTerm(TokenSequence seq, int pos) {
+		return (seq.isStartOfLine(pos)) ? PoSTag.PoS_STAART : seq.getTag(pos);
+	}
+
+	/**
+	 * Returns the word at <b>pos</b>, or "STAART" if the token there starts a
+	 * line.
+	 */
+	static private String wordTerm(TokenSequence seq, int pos) {
+		return (seq.isStartOfLine(pos)) ? "STAART" : seq.getImage(pos);
+	}
+
 	// ===============
 	// Inner Classes
 	// ===============
 	private interface ContextualRuleOperation extends Serializable {
 
 		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
+		 * Does the context of the token at <b>pos</b> in <b>seq</b> match
+		 * the terms of <b>cr</b>? The caller has checked the token's tag.
 		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc);
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos);
 	}
 
 	/**
@@ -412,74 +504,15 @@ public class ContextRule implements Serializable {
 			ContextualRuleOperation {
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 1)) {
-					return;
-				}
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-
-				PoSTag termL = null;
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = PoSTag.PoS_STAART;
-				} else {
-					termL = PoSTag.getPoSTag(dtmap.getAnnotationAtPos(pos - 1)
-							.getFeatures().get(
-									AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 1);
-				PoSTag termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-				} else {
-					termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if ((termL == cr.getTag1()) && (termR == cr.getTag2())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 1) || (pos == 0)) {
+				return false;
 			}
+			PoSTag termL = (seq.isStartOfLine(pos)) ? PoSTag.PoS_STAART : seq
+					.getTag(pos - 1);
+			PoSTag termR = tagTerm(seq, pos + 1);
+			return (termL == cr.getTag1()) && (termR == cr.getTag2());
 		}
 	}
 
@@ -496,58 +529,12 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 1)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 1);
-				PoSTag termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-				} else {
-					termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if (termR == cr.getTag1()) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 1)) {
+				return false;
 			}
+			return tagTerm(seq, pos + 1) == cr.getTag1();
 		}
 	}
 
@@ -563,43 +550,8 @@ public class ContextRule implements Serializable {
 			ContextualRuleOperation {
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-
-				if (((String) tok.getContent(doc)).equals(cr
-						.getWord1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
-			}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			return seq.getImage(pos).equals(cr.getWord1());
 		}
 	}
 
@@ -615,57 +567,12 @@ public class ContextRule implements Serializable {
 			ContextualRuleOperation {
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 1)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 1);
-				String termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = "STAART";
-				} else {
-					termR = (String) tokR.getContent(doc);
-				}
-
-				if (termR.equals(cr.getWord1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 1)) {
+				return false;
 			}
+			return wordTerm(seq, pos + 1).equals(cr.getWord1());
 		}
 	}
 
@@ -681,59 +588,13 @@ public class ContextRule implements Serializable {
 			ContextualRuleOperation {
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 1)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 1);
-				String termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = "STAART";
-				} else {
-					termR = (String) tokR.getContent(doc);
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((img.equals(cr.getWord1()))
-						&& (termR.equals(cr.getWord2()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 1)) {
+				return false;
 			}
+			return (seq.getImage(pos).equals(cr.getWord1()))
+					&& (wordTerm(seq, pos + 1).equals(cr.getWord2()));
 		}
 	}
 
@@ -750,59 +611,13 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 1)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 1);
-				PoSTag termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-				} else {
-					termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((img.equals(cr.getWord1())) && (termR == cr.getTag1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 1)) {
+				return false;
 			}
+			return (seq.getImage(pos).equals(cr.getWord1()))
+					&& (tagTerm(seq, pos + 1) == cr.getTag1());
 		}
 	}
 
@@ -819,59 +634,13 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 2);
-				String termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = "STAART";
-				} else {
-					termR = (String) tokR.getContent(doc);
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((img.equals(cr.getWord1()))
-						&& (termR.equals(cr.getWord2()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 2)) {
+				return false;
 			}
+			return (seq.getImage(pos).equals(cr.getWord1()))
+					&& (wordTerm(seq, pos + 2).equals(cr.getWord2()));
 		}
 	}
 
@@ -888,59 +657,13 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 2);
-				PoSTag termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-				} else {
-					termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((img.equals(cr.getWord1())) && (termR == cr.getTag1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 2)) {
+				return false;
 			}
+			return (seq.getImage(pos).equals(cr.getWord1()))
+					&& (tagTerm(seq, pos + 2) == cr.getTag1());
 		}
 	}
 
@@ -957,60 +680,12 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 2);
-				PoSTag termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-				} else {
-					termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				// String img =
-				// (String)tok.getContent(doc);
-				if (termR == cr.getTag1()) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 2)) {
+				return false;
 			}
+			return tagTerm(seq, pos + 2) == cr.getTag1();
 		}
 	}
 
@@ -1027,59 +702,12 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 2);
-				String termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = "STAART";
-				} else {
-					termR = (String) tokR.getContent(doc);
-				}
-
-				// String img =
-				// (String)tok.getContent(doc);
-				if (termR.equals(cr.getWord1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 2)) {
+				return false;
 			}
+			return wordTerm(seq, pos + 2).equals(cr.getWord1());
 		}
 	}
 
@@ -1096,69 +724,21 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos + 1);
-				PoSTag termL = null;
-				Annotation tokR = dtmap.getAnnotationAtPos(pos + 2);
-				if (tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = PoSTag.PoS_STAART;
-					tokR = tokL;
-				} else {
-					termL = PoSTag.getPoSTag(tokL.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				PoSTag termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-				} else {
-					termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if ((termL == cr.getTag1()) && (termR == cr.getTag2())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 2)) {
+				return false;
 			}
+			PoSTag termL = null;
+			int posR = pos + 2;
+			if (seq.isStartOfLine(pos + 1)) {
+				termL = PoSTag.PoS_STAART;
+				posR = pos + 1;
+			} else {
+				termL = seq.getTag(pos + 1);
+			}
+			PoSTag termR = tagTerm(seq, posR);
+			return (termL == cr.getTag1()) && (termR == cr.getTag2());
 		}
 	}
 
@@ -1175,73 +755,21 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-				int pos2 = pos + 2;
-				if (!(pos < sz - 2)) {
-					pos2 = pos + 1;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos + 1);
-				PoSTag termL = null;
-				Annotation tokR = dtmap.getAnnotationAtPos(pos2);
-				if (tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = PoSTag.PoS_STAART;
-					tokR = tokL;
-				} else {
-					termL = PoSTag.getPoSTag(tokL.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				PoSTag termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-				} else {
-					termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if ((termL == cr.getTag1()) || (termR == cr.getTag1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 2)) {
+				return false;
 			}
+			PoSTag termL = null;
+			int posR = pos + 2;
+			if (seq.isStartOfLine(pos + 1)) {
+				termL = PoSTag.PoS_STAART;
+				posR = pos + 1;
+			} else {
+				termL = seq.getTag(pos + 1);
+			}
+			PoSTag termR = tagTerm(seq, posR);
+			return (termL == cr.getTag1()) || (termR == cr.getTag1());
 		}
 	}
 
@@ -1257,72 +785,21 @@ public class ContextRule implements Serializable {
 			ContextualRuleOperation {
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-				int pos2 = pos + 2;
-				if (!(pos < sz - 2)) {
-					pos2 = pos + 1;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos + 1);
-				String termL = null;
-				Annotation tokR = dtmap.getAnnotationAtPos(pos2);
-				if (tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = "STAART";
-					tokR = tokL;
-				} else {
-					termL = (String) tokL.getContent(doc);
-				}
-
-				String termR = null;
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = "STAART";
-				} else {
-					termR = (String) tokR.getContent(doc);
-				}
-
-				if ((termL.equals(cr.getWord1()))
-						|| (termR.equals(cr.getWord1()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (!(pos < seq.getListSize() - 2)) {
+				return false;
+			}
+			String termL = null;
+			int posR = pos + 2;
+			if (seq.isStartOfLine(pos + 1)) {
+				termL = "STAART";
+				posR = pos + 1;
+			} else {
+				termL = seq.getImage(pos + 1);
 			}
+			String termR = wordTerm(seq, posR);
+			return (termL.equals(cr.getWord1())) || (termR.equals(cr.getWord1()));
 		}
 	}
 
@@ -1339,90 +816,32 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-				int pos2 = pos + 2;
-				if (!(pos < sz - 2)) {
-					pos2 = pos + 1;
-				}
-				int pos3 = pos + 3;
-				if (!(pos < sz - 3)) {
-					pos3 = pos + 1;
-				}
-
-				Annotation tok1 = dtmap.getAnnotationAtPos(pos + 1);
-				PoSTag term1 = null;
-				Annotation tok2 = dtmap.getAnnotationAtPos(pos2);
-				Annotation tok3 = dtmap.getAnnotationAtPos(pos3);
-				if (tok1.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term1 = PoSTag.PoS_STAART;
-					tok2 = tok1;
-					tok3 = tok2;
-				} else {
-					term1 = PoSTag.getPoSTag(tok1.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				PoSTag term2 = null;
-				if (tok2.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term2 = PoSTag.PoS_STAART;
-					tok3 = tok2;
-				} else {
-					term2 = PoSTag.getPoSTag(tok2.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				PoSTag term3 = null;
-				if (tok3.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term3 = PoSTag.PoS_STAART;
-				} else {
-					term3 = PoSTag.getPoSTag(tok3.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if ((term1 == cr.getTag1()) || (term2 == cr.getTag1())
-						|| (term3 == cr.getTag1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			int sz = seq.getListSize();
+			// bounds check
+			if (!(pos < sz - 2)) {
+				return false;
+			}
+			int pos2 = pos + 2;
+			int pos3 = (pos < sz - 3) ? pos + 3 : pos + 1;
+			PoSTag term1 = null;
+			PoSTag term2 = null;
+			if (seq.isStartOfLine(pos + 1)) {
+				term1 = PoSTag.PoS_STAART;
+				pos2 = pos + 1;
+				pos3 = pos2;
+			} else {
+				term1 = seq.getTag(pos + 1);
 			}
+			if (seq.isStartOfLine(pos2)) {
+				term2 = PoSTag.PoS_STAART;
+				pos3 = pos2;
+			} else {
+				term2 = seq.getTag(pos2);
+			}
+			PoSTag term3 = tagTerm(seq, pos3);
+			return (term1 == cr.getTag1()) || (term2 == cr.getTag1())
+					|| (term3 == cr.getTag1());
 		}
 	}
 
@@ -1439,88 +858,33 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				int sz = dtmap.getListSize();
-				// bounds check
-				if (!(pos < sz - 2)) {
-					return;
-				}
-				int pos2 = pos + 2;
-				if (!(pos < sz - 2)) {
-					pos2 = pos + 1;
-				}
-				int pos3 = pos + 3;
-				if (!(pos < sz - 3)) {
-					pos3 = pos + 1;
-				}
-
-				Annotation tok1 = dtmap.getAnnotationAtPos(pos + 1);
-				String term1 = null;
-				Annotation tok2 = dtmap.getAnnotationAtPos(pos2);
-				Annotation tok3 = dtmap.getAnnotationAtPos(pos3);
-				if (tok1.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term1 = "STAART";
-					tok2 = tok1;
-					tok3 = tok2;
-				} else {
-					term1 = (String) tok1.getContent(doc);
-				}
-
-				String term2 = null;
-				if (tok2.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term2 = "STAART";
-					tok3 = tok2;
-				} else {
-					term2 = (String) tok2.getContent(doc);
-				}
-
-				String term3 = null;
-				if (tok3.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term3 = "STAART";
-				} else {
-					term3 = (String) tok3.getContent(doc);
-				}
-
-				if ((term1.equals(cr.getWord1()))
-						|| (term2.equals(cr.getWord1()))
-						|| (term3.equals(cr.getWord1()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			int sz = seq.getListSize();
+			// bounds check
+			if (!(pos < sz - 2)) {
+				return false;
+			}
+			int pos2 = pos + 2;
+			int pos3 = (pos < sz - 3) ? pos + 3 : pos + 1;
+			String term1 = null;
+			String term2 = null;
+			if (seq.isStartOfLine(pos + 1)) {
+				term1 = "STAART";
+				pos2 = pos + 1;
+				pos3 = pos2;
+			} else {
+				term1 = seq.getImage(pos + 1);
+			}
+			if (seq.isStartOfLine(pos2)) {
+				term2 = "STAART";
+				pos3 = pos2;
+			} else {
+				term2 = seq.getImage(pos2);
 			}
+			String term3 = wordTerm(seq, pos3);
+			return (term1.equals(cr.getWord1()))
+					|| (term2.equals(cr.getWord1()))
+					|| (term3.equals(cr.getWord1()));
 		}
 	}
 
@@ -1537,57 +901,12 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos - 1);
-				PoSTag termL = null;
-				if (tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = PoSTag.PoS_STAART;
-				} else {
-					termL = PoSTag.getPoSTag(tokL.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if (termL == cr.getTag1()) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
 			}
+			return tagTerm(seq, pos - 1) == cr.getTag1();
 		}
 	}
 
@@ -1604,56 +923,12 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos - 1);
-				String termL = null;
-				if (tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = "STAART";
-				} else {
-					termL = (String) tokL.getContent(doc);
-				}
-
-				if (termL.equals(cr.getWord1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
 			}
+			return wordTerm(seq, pos - 1).equals(cr.getWord1());
 		}
 	}
 
@@ -1670,58 +945,13 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos - 1);
-				String termL = null;
-				if (tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = "STAART";
-				} else {
-					termL = (String) tokL.getContent(doc);
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((termL.equals(cr.getWord1()))
-						&& (img.equals(cr.getWord2()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
 			}
+			return (wordTerm(seq, pos - 1).equals(cr.getWord1()))
+					&& (seq.getImage(pos).equals(cr.getWord2()));
 		}
 	}
 
@@ -1738,58 +968,13 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos - 1);
-				PoSTag termL = null;
-				if (tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = PoSTag.PoS_STAART;
-				} else {
-					termL = PoSTag.getPoSTag(tokL.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((termL == cr.getTag1()) && (img.equals(cr.getWord1()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
 			}
+			return (tagTerm(seq, pos - 1) == cr.getTag1())
+					&& (seq.getImage(pos).equals(cr.getWord1()));
 		}
 	}
 
@@ -1806,59 +991,15 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos < 2) {
-					return;
-				}
-
-				Annotation tok1 = dtmap.getAnnotationAtPos(pos - 2);
-				Annotation tok0 = dtmap.getAnnotationAtPos(pos - 1);
-				String term1 = null;
-				if (tok0.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term1 = "STAART";
-				} else {
-					term1 = (String) tok1.getContent(doc);
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((term1.equals(cr.getWord1()))
-						&& (img.equals(cr.getWord2()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos < 2) {
+				return false;
 			}
+			String termL = (seq.isStartOfLine(pos - 1)) ? "STAART" : seq
+					.getImage(pos - 2);
+			return (termL.equals(cr.getWord1()))
+					&& (seq.getImage(pos).equals(cr.getWord2()));
 		}
 	}
 
@@ -1875,59 +1016,15 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos < 2) {
-					return;
-				}
-
-				Annotation tok1 = dtmap.getAnnotationAtPos(pos - 2);
-				Annotation tok0 = dtmap.getAnnotationAtPos(pos - 1);
-				PoSTag term1 = null;
-				if (tok0.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term1 = PoSTag.PoS_STAART;
-				} else {
-					term1 = PoSTag.getPoSTag(tok1.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				String img = (String) tok.getContent(doc);
-				if ((term1 == cr.getTag1()) && (img.equals(cr.getWord1()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos < 2) {
+				return false;
 			}
+			PoSTag termL = (seq.isStartOfLine(pos - 1)) ? PoSTag.PoS_STAART
+					: seq.getTag(pos - 2);
+			return (termL == cr.getTag1())
+					&& (seq.getImage(pos).equals(cr.getWord1()));
 		}
 	}
 
@@ -1941,62 +1038,17 @@ public class ContextRule implements Serializable {
 	// PREV2TAG
 	static private class ContextualRuleOp_PREV2TAG implements
 			ContextualRuleOperation {
-
-		/**
-		 * 
-		 */
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos < 2) {
-					return;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos - 2);
-				PoSTag termL = null;
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					tokL = dtmap.getAnnotationAtPos(pos - 1);
-					termL = PoSTag.getPoSTag(tokL.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if (termL == cr.getTag1()) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos < 2) {
+				return false;
 			}
+			// only a token that starts a line has a term, the tag before it
+			PoSTag termL = (seq.isStartOfLine(pos)) ? seq.getTag(pos - 1)
+					: null;
+			return termL == cr.getTag1();
 		}
 	}
 
@@ -2013,55 +1065,15 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos < 2) {
-					return;
-				}
-
-				Annotation tokL = dtmap.getAnnotationAtPos(pos - 2);
-				String termL = null;
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					tokL = dtmap.getAnnotationAtPos(pos - 1);
-					termL = (String) tokL.getContent(doc);
-				}
-
-				if (termL.equals(cr.getWord1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos < 2) {
+				return false;
 			}
+			// only a token that starts a line has a term, the word before it
+			String termL = (seq.isStartOfLine(pos)) ? seq.getImage(pos - 1)
+					: null;
+			return (termL != null) && termL.equals(cr.getWord1());
 		}
 	}
 
@@ -2078,70 +1090,22 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-				int pos2 = pos - 2;
-				if (pos < 2) {
-					pos2 = pos - 1;
-				}
-
-				PoSTag termL = null;
-				PoSTag termR = null;
-				Annotation tokL = dtmap.getAnnotationAtPos(pos2);
-				Annotation tokR = dtmap.getAnnotationAtPos(pos - 1);
-				termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-					tokL = tokR;
-				}
-				termL = PoSTag.getPoSTag(tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = PoSTag.PoS_STAART;
-				}
-
-				if ((termL == cr.getTag1()) || (termR == cr.getTag1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
 			}
+			int posL = (pos < 2) ? pos - 1 : pos - 2;
+			PoSTag termR = seq.getTag(pos - 1);
+			if (seq.isStartOfLine(pos)) {
+				termR = PoSTag.PoS_STAART;
+				posL = pos - 1;
+			}
+			PoSTag termL = seq.getTag(posL);
+			if (seq.isStartOfLine(pos - 1)) {
+				termL = PoSTag.PoS_STAART;
+			}
+			return (termL == cr.getTag1()) || (termR == cr.getTag1());
 		}
 	}
 
@@ -2158,69 +1122,22 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-				int pos2 = pos - 2;
-				if (pos < 2) {
-					pos2 = pos - 1;
-				}
-
-				String termL = null;
-				String termR = null;
-				Annotation tokL = dtmap.getAnnotationAtPos(pos2);
-				Annotation tokR = dtmap.getAnnotationAtPos(pos - 1);
-				termR = (String) tokR.getContent(doc);
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = "STAART";
-					tokL = tokR;
-				}
-				termL = (String) tokL.getContent(doc);
-
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = "STAART";
-				}
-
-				if ((termL.equals(cr.getWord1()))
-						|| (termR.equals(cr.getWord1()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
+			}
+			int posL = (pos < 2) ? pos - 1 : pos - 2;
+			String termR = seq.getImage(pos - 1);
+			if (seq.isStartOfLine(pos)) {
+				termR = "STAART";
+				posL = pos - 1;
 			}
+			String termL = seq.getImage(posL);
+			if (seq.isStartOfLine(pos - 1)) {
+				termL = "STAART";
+			}
+			return (termL.equals(cr.getWord1())) || (termR.equals(cr.getWord1()));
 		}
 	}
 
@@ -2237,84 +1154,27 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-				int pos2 = pos - 2;
-				if (pos < 2) {
-					pos2 = pos - 1;
-				}
-
-				Annotation tok1 = dtmap.getAnnotationAtPos(pos - 1);
-				Annotation tok2 = dtmap.getAnnotationAtPos(pos2);
-				PoSTag term1 = null;
-				PoSTag term2 = null;
-				PoSTag term3 = null;
-
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term1 = PoSTag.PoS_STAART;
-					tok2 = dtmap.getAnnotationAtPos(pos - 1);
-				} else {
-					term1 = PoSTag.getPoSTag(tok.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if (tok1.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term2 = PoSTag.PoS_STAART;
-				} else {
-					term2 = PoSTag.getPoSTag(tok.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if (tok2.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term3 = PoSTag.PoS_STAART;
-				} else {
-					term2 = PoSTag.getPoSTag(tok.getFeatures().get(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				}
-
-				if ((term1 == cr.getTag1()) || (term2 == cr.getTag1())
-						|| (term3 == cr.getTag1())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
 			}
+			int pos2 = (pos < 2) ? pos - 1 : pos - 2;
+			PoSTag term1 = null;
+			if (seq.isStartOfLine(pos)) {
+				term1 = PoSTag.PoS_STAART;
+				pos2 = pos - 1;
+			} else {
+				term1 = seq.getTag(pos);
+			}
+			// the terms are the token's own tag unless the tokens before it
+			// start lines, and a third term is only set by a line start
+			PoSTag term2 = (seq.isStartOfLine(pos - 1) && seq
+					.isStartOfLine(pos2)) ? PoSTag.PoS_STAART : seq.getTag(pos);
+			PoSTag term3 = (seq.isStartOfLine(pos2)) ? PoSTag.PoS_STAART
+					: null;
+			return (term1 == cr.getTag1()) || (term2 == cr.getTag1())
+					|| (term3 == cr.getTag1());
 		}
 	}
 
@@ -2331,82 +1191,27 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-
-				// bounds check
-				if (pos == 0) {
-					return;
-				}
-				int pos2 = pos - 2;
-				if (pos < 2) {
-					pos2 = pos - 1;
-				}
-
-				Annotation tok1 = dtmap.getAnnotationAtPos(pos - 1);
-				Annotation tok2 = dtmap.getAnnotationAtPos(pos2);
-				String term1 = null;
-				String term2 = null;
-				String term3 = null;
-
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term1 = "STAART";
-					tok2 = dtmap.getAnnotationAtPos(pos - 1);
-				} else {
-					term1 = (String) tok.getContent(doc);
-				}
-
-				if (tok1.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term2 = "STAART";
-				} else {
-					term2 = (String) tok.getContent(doc);
-				}
-
-				if (tok2.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					term3 = "STAART";
-				} else {
-					term2 = (String) tok.getContent(doc);
-				}
-
-				if ((term1.equals(cr.getWord1()))
-						|| (term2.equals(cr.getWord1()))
-						|| (term3.equals(cr.getWord1()))) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos == 0) {
+				return false;
 			}
+			int pos2 = (pos < 2) ? pos - 1 : pos - 2;
+			String term1 = null;
+			if (seq.isStartOfLine(pos)) {
+				term1 = "STAART";
+				pos2 = pos - 1;
+			} else {
+				term1 = seq.getImage(pos);
+			}
+			// the terms are the token's own word unless the tokens before it
+			// start lines, and a third term is only set by a line start
+			String term2 = (seq.isStartOfLine(pos - 1) && seq
+					.isStartOfLine(pos2)) ? "STAART" : seq.getImage(pos);
+			String term3 = (seq.isStartOfLine(pos2)) ? "STAART" : null;
+			return (term1.equals(cr.getWord1()))
+					|| (term2.equals(cr.getWord1()))
+					|| ((term3 != null) && term3.equals(cr.getWord1()));
 		}
 	}
 
@@ -2423,66 +1228,22 @@ public class ContextRule implements Serializable {
 
 		private static final long serialVersionUID = 1L;
 
-		/**
-		 * put your documentation comment here
-		 * 
-		 * @param doc
-		 * @param pos
-		 * @param cr
-		 * @param restrict
-		 * @param lex
-		 */
-		public void applyRule(Document doc, Annotation tok, ContextRule cr,
-				boolean restrict, Lexicon lex, DocTokMap dtmap, boolean incdesc) {
-			if (PoSTag.getPoSTag(tok.getFeatures().get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)) == cr
-					.getOldTag()) {
-				if (restrict) {
-					if (!(hasTagInLex(doc, tok, cr.getNewTag(), lex))) {
-						return;
-					}
-				}
-				int pos = dtmap.getPosition(tok);
-				// bounds check
-				if (pos < 2) {
-					return;
-				}
-
-				PoSTag termL = null;
-				PoSTag termR = null;
-				Annotation tokL = dtmap.getAnnotationAtPos(pos - 2);
-				Annotation tokR = dtmap.getAnnotationAtPos(pos - 1);
-				termR = PoSTag.getPoSTag(tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-				if (tok.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termR = PoSTag.PoS_STAART;
-					tokL = tokR;
-				}
-				termL = PoSTag.getPoSTag(tokL.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
-
-				if (tokR.getFeatures().get(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL) != null) {
-					termL = PoSTag.PoS_STAART;
-				}
-
-				if ((termL == cr.getTag1()) && (termR == cr.getTag2())) {
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
-							cr.getNewTag().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL,
-							Boolean.TRUE.toString());
-					if (incdesc) {
-						tok
-								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC,
-										"Contagged by "
-												+ cr.getType().toString());
-					}
-				}
+		public boolean matches(ContextRule cr, TokenSequence seq, int pos) {
+			// bounds check
+			if (pos < 2) {
+				return false;
+			}
+			int posL = pos - 2;
+			PoSTag termR = seq.getTag(pos - 1);
+			if (seq.isStartOfLine(pos)) {
+				termR = PoSTag.PoS_STAART;
+				posL = pos - 1;
+			}
+			PoSTag termL = seq.getTag(posL);
+			if (seq.isStartOfLine(pos - 1)) {
+				termL = PoSTag.PoS_STAART;
 			}
+			return (termL == cr.getTag1()) && (termR == cr.getTag2());
 		}
 	}
 }
@@ -56,6 +56,7 @@ import org.seasr.components.text.datatype.corpora.Annotation;
 import org.seasr.components.text.datatype.corpora.AnnotationConstants;
 import org.seasr.components.text.datatype.corpora.AnnotationSet;
 import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.pos.PoSTag;
 
 import gnu.trove.*;
 
@@ -63,12 +64,15 @@ import gnu.trove.*;
  * 
  * A support class for the Brill POSTagger.
  * 
+ * The tags and start-of-line flags it reports are read from the token
+ * features each time they are asked for.
+ * 
  * @author D. Searsmith
  *
  * TODO: Unit Testing
  *
  */
-public class DocTokMap {
+public class DocTokMap implements TokenSequence {
 
 	// ==============
 	// Data Members
@@ -78,6 +82,8 @@ public class DocTokMap {
 
 	private ArrayList<Annotation> _tokList = null;
 
+	private ArrayList<String> _imgList = null;
+
 	private HashSet<String> _tokHash = null;
 
 	private HashMap<Annotation, Integer> _tokPosMap = null;
@@ -89,6 +95,7 @@ public class DocTokMap {
 	public DocTokMap() {
 		_tokMap = new HashMap<String, TIntHashSet>();
 		_tokList = new ArrayList<Annotation>();
+		_imgList = new ArrayList<String>();
 		_tokHash = new HashSet<String>();
 		_tokPosMap = new HashMap<Annotation, Integer>();
 	}
@@ -96,23 +103,22 @@ public class DocTokMap {
 	public DocTokMap(Document doc) {
 		_tokMap = new HashMap<String, TIntHashSet>();
 		_tokList = new ArrayList<Annotation>();
+		_imgList = new ArrayList<String>();
 		_tokHash = new HashSet<String>();
 		_tokPosMap = new HashMap<Annotation, Integer>();
 
-		TreeSet<Annotation> tset = new TreeSet<Annotation>(new Annots_Comparator());
-
 		AnnotationSet annots = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
-		for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {
-			Annotation tok = iter.next();
-			if (tok.getType().equals(AnnotationConstants.TOKEN_ANNOT_TYPE)) {
-				tset.add(tok);
-			}
+		AnnotationSet toks = annots.get(AnnotationConstants.TOKEN_ANNOT_TYPE);
+		if (toks == null) {
+			return;
 		}
 
-		for (Iterator<Annotation> iter = tset.iterator(); iter.hasNext();) {
+		// the set keeps its tokens in document order, no sort needed
+		for (Iterator<Annotation> iter = toks.sortedIterator(); iter.hasNext();) {
 			Annotation o = iter.next();
 			_tokList.add(o);
 			String img = (String) o.getContent(doc);
+			_imgList.add(img);
 			TIntHashSet lst = _tokMap.get(img);
 			if (lst == null) {
 				lst = new TIntHashSet();
@@ -150,6 +156,14 @@ public class DocTokMap {
 		}
 	}
 
+	/**
+	 * Returns true if the token at <b>pos</b> has image <b>img</b>.
+	 */
+	public boolean isAtPosition(String img, int pos) {
+		TIntHashSet iob = _tokMap.get(img);
+		return (iob != null) && iob.contains(pos);
+	}
+
 	public int getPosition(Annotation annot) {
 		Integer iob = _tokPosMap.get(annot);
 		if (iob == null) {
@@ -169,57 +183,26 @@ public class DocTokMap {
 		return _tokList.get(pos);
 	}
 
-	public boolean isWord(String s) {
-		return _tokHash.contains(s);
+	public String getImage(int pos) {
+		return _imgList.get(pos);
 	}
 
-	public int getListSize() {
-		return _tokList.size();
+	public PoSTag getTag(int pos) {
+		String img = _tokList.get(pos).getFeatures().get(
+				AnnotationConstants.TOKEN_ANNOT_FEAT_POS_ID);
+		return (img == null) ? null : PoSTag.getPoSTag(img);
 	}
 
-	// =================
-	// Inner Class(es)
-	// =================
-
-	private class Annots_Comparator implements Comparator<Annotation> {
-
-		public Annots_Comparator() {
-		}
+	public boolean isStartOfLine(int pos) {
+		return _tokList.get(pos).getFeatures().getBoolean(
+				AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL_ID);
+	}
 
-		// ======================
-		// Interface: Comparator
-		// ======================
-		public int compare(Annotation o1, Annotation o2) {
-			long s1 = o1.getStartNodeOffset();
-			long s2 = o2.getStartNodeOffset();
-
-			if (s1 > s2) {
-				return 1;
-			} else if (s1 < s2) {
-				return -1;
-			} else {
-				long e1 = ((Annotation) o1).getEndNodeOffset();
-				long e2 = ((Annotation) o2).getEndNodeOffset();
-				if (e1 < e2) {
-					return 1;
-				} else if (e1 > e2) {
-					return -1;
-				} else {
-					int i1 = ((Annotation) o1).getId();
-					int i2 = ((Annotation) o2).getId();
-					if (i1 > i2) {
-						return 1;
-					} else if (i1 < i2) {
-						return -1;
-					} else {
-						return 0;
-					}
-				}
-			}
-		}
+	public boolean isWord(String s) {
+		return _tokHash.contains(s);
+	}
 
-		public boolean equals(Object o) {
-			return this.equals(o);
-		}
+	public int getListSize() {
+		return _tokList.size();
 	}
 }
@@ -321,9 +321,9 @@ public class LexRule implements Serializable {
 			if (img.indexOf(lr.getCompareStr()) != -1) {
 				tok.getFeatures().put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 						lr.getChangeTo().toString());
-				tok.getFeatures().put(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-						Boolean.TRUE.toString());
+				tok.getFeatures().setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+						true);
 				if (incdesc) {
 					tok
 							.getFeatures()
@@ -361,9 +361,9 @@ public class LexRule implements Serializable {
 					tok.getFeatures().put(
 							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 							lr.getChangeTo().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-							Boolean.TRUE.toString());
+					tok.getFeatures().setBoolean(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+							true);
 					if (incdesc) {
 						tok
 								.getFeatures()
@@ -400,9 +400,9 @@ public class LexRule implements Serializable {
 			if (img.endsWith(lr.getCompareStr())) {
 				tok.getFeatures().put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 						lr.getChangeTo().toString());
-				tok.getFeatures().put(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-						Boolean.TRUE.toString());
+				tok.getFeatures().setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+						true);
 				if (incdesc) {
 					tok
 							.getFeatures()
@@ -441,9 +441,9 @@ public class LexRule implements Serializable {
 					tok.getFeatures().put(
 							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 							lr.getChangeTo().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-							Boolean.TRUE.toString());
+					tok.getFeatures().setBoolean(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+							true);
 					if (incdesc) {
 						tok
 								.getFeatures()
@@ -480,9 +480,9 @@ public class LexRule implements Serializable {
 			if (img.startsWith(lr.getCompareStr())) {
 				tok.getFeatures().put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 						lr.getChangeTo().toString());
-				tok.getFeatures().put(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-						Boolean.TRUE.toString());
+				tok.getFeatures().setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+						true);
 				if (incdesc) {
 					tok
 							.getFeatures()
@@ -521,9 +521,9 @@ public class LexRule implements Serializable {
 					tok.getFeatures().put(
 							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 							lr.getChangeTo().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-							Boolean.TRUE.toString());
+					tok.getFeatures().setBoolean(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+							true);
 					if (incdesc) {
 						tok
 								.getFeatures()
@@ -564,9 +564,9 @@ public class LexRule implements Serializable {
 					tok.getFeatures().put(
 							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 							lr.getChangeTo().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-							Boolean.TRUE.toString());
+					tok.getFeatures().setBoolean(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+							true);
 					if (incdesc) {
 						tok
 								.getFeatures()
@@ -610,9 +610,9 @@ public class LexRule implements Serializable {
 						tok.getFeatures().put(
 								AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 								lr.getChangeTo().toString());
-						tok.getFeatures().put(
-								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-								Boolean.TRUE.toString());
+						tok.getFeatures().setBoolean(
+								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+								true);
 						if (incdesc) {
 							tok
 									.getFeatures()
@@ -654,9 +654,9 @@ public class LexRule implements Serializable {
 					tok.getFeatures().put(
 							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 							lr.getChangeTo().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-							Boolean.TRUE.toString());
+					tok.getFeatures().setBoolean(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+							true);
 					if (incdesc) {
 						tok
 								.getFeatures()
@@ -700,9 +700,9 @@ public class LexRule implements Serializable {
 						tok.getFeatures().put(
 								AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 								lr.getChangeTo().toString());
-						tok.getFeatures().put(
-								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-								Boolean.TRUE.toString());
+						tok.getFeatures().setBoolean(
+								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+								true);
 						if (incdesc) {
 							tok
 									.getFeatures()
@@ -741,9 +741,9 @@ public class LexRule implements Serializable {
 			if ((lex.isInLexicon(newimg)) || (dtmap.isWord(newimg))) {
 				tok.getFeatures().put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 						lr.getChangeTo().toString());
-				tok.getFeatures().put(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-						Boolean.TRUE.toString());
+				tok.getFeatures().setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+						true);
 				if (incdesc) {
 					tok
 							.getFeatures()
@@ -783,9 +783,9 @@ public class LexRule implements Serializable {
 					tok.getFeatures().put(
 							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 							lr.getChangeTo().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-							Boolean.TRUE.toString());
+					tok.getFeatures().setBoolean(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+							true);
 					if (incdesc) {
 						tok
 								.getFeatures()
@@ -823,9 +823,9 @@ public class LexRule implements Serializable {
 			if ((lex.isInLexicon(newimg)) || (dtmap.isWord(newimg))) {
 				tok.getFeatures().put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 						lr.getChangeTo().toString());
-				tok.getFeatures().put(
-						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-						Boolean.TRUE.toString());
+				tok.getFeatures().setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+						true);
 				if (incdesc) {
 					tok
 							.getFeatures()
@@ -865,9 +865,9 @@ public class LexRule implements Serializable {
 					tok.getFeatures().put(
 							AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 							lr.getChangeTo().toString());
-					tok.getFeatures().put(
-							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-							Boolean.TRUE.toString());
+					tok.getFeatures().setBoolean(
+							AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+							true);
 					if (incdesc) {
 						tok
 								.getFeatures()
@@ -911,9 +911,9 @@ public class LexRule implements Serializable {
 						tok.getFeatures().put(
 								AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 								lr.getChangeTo().toString());
-						tok.getFeatures().put(
-								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-								Boolean.TRUE.toString());
+						tok.getFeatures().setBoolean(
+								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+								true);
 						if (incdesc) {
 							tok
 									.getFeatures()
@@ -963,9 +963,9 @@ public class LexRule implements Serializable {
 									lr.getChangeTo().toString());
 							tok
 									.getFeatures()
-									.put(
-											AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-											Boolean.TRUE.toString());
+									.setBoolean(
+											AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+											true);
 							if (incdesc) {
 								tok
 										.getFeatures()
@@ -1012,9 +1012,9 @@ public class LexRule implements Serializable {
 						tok.getFeatures().put(
 								AnnotationConstants.TOKEN_ANNOT_FEAT_POS,
 								lr.getChangeTo().toString());
-						tok.getFeatures().put(
-								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-								Boolean.TRUE.toString());
+						tok.getFeatures().setBoolean(
+								AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+								true);
 						if (incdesc) {
 							tok
 									.getFeatures()
@@ -1064,9 +1064,9 @@ public class LexRule implements Serializable {
 									lr.getChangeTo().toString());
 							tok
 									.getFeatures()
-									.put(
-											AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL,
-											Boolean.TRUE.toString());
+									.setBoolean(
+											AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+											true);
 							if (incdesc) {
 								tok
 										.getFeatures()
@@ -0,0 +1,284 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+//===============
+// Other Imports
+//===============
+import org.seasr.components.text.datatype.pos.PoSTag;
+
+/**
+ * An ordered set of lexical rules compiled into parallel arrays so that all
+ * of them can be applied to one token before moving to the next.
+ * 
+ * A lexical rule only looks at the token it changes: its image, its current
+ * tag, the lexicon and the words of the document. Applying every rule in
+ * order to each token in turn therefore tags a document exactly as applying
+ * each rule in turn to every token does, and a token's result depends only on
+ * its image and the tag it starts with. <code>apply()</code> runs the rules
+ * for one such pair, carrying the tag from rule to rule instead of reading
+ * it back from the token's features.
+ */
+public class LexRuleProgram {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private final int OP_CHAR = 0;
+
+	static private final int OP_HASSUF = 1;
+
+	static private final int OP_HASPREF = 2;
+
+	static private final int OP_DELSUF = 3;
+
+	static private final int OP_DELPREF = 4;
+
+	static private final int OP_ADDSUF = 5;
+
+	static private final int OP_ADDPREF = 6;
+
+	static private final int OP_GOODRIGHT = 7;
+
+	static private final int OP_GOODLEFT = 8;
+
+	private final int[] _ops;
+
+	/**
+	 * Tag a restricted rule requires, null if it applies to any tag.
+	 */
+	private final PoSTag[] _when;
+
+	private final String[] _strs;
+
+	private final int[] _lengths;
+
+	private final PoSTag[] _changeTo;
+
+	private final String[] _descs;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	/**
+	 * Compile <b>rules</b>, an array of LexRule objects in the order they are
+	 * applied.
+	 */
+	public LexRuleProgram(Object[] rules) {
+		int n = rules.length;
+		_ops = new int[n];
+		_when = new PoSTag[n];
+		_strs = new String[n];
+		_lengths = new int[n];
+		_changeTo = new PoSTag[n];
+		_descs = new String[n];
+		for (int r = 0; r < n; r++) {
+			LexRule lr = (LexRule) rules[r];
+			LexicalRuleType type = lr.getType();
+			boolean restricted = true;
+			if (type == LexicalRuleType.LR_CHAR) {
+				_ops[r] = OP_CHAR;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FCHAR) {
+				_ops[r] = OP_CHAR;
+			} else if (type == LexicalRuleType.LR_HASSUF) {
+				_ops[r] = OP_HASSUF;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FHASSUF) {
+				_ops[r] = OP_HASSUF;
+			} else if (type == LexicalRuleType.LR_HASPREF) {
+				_ops[r] = OP_HASPREF;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FHASPREF) {
+				_ops[r] = OP_HASPREF;
+			} else if (type == LexicalRuleType.LR_DELSUF) {
+				_ops[r] = OP_DELSUF;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FDELSUF) {
+				_ops[r] = OP_DELSUF;
+			} else if (type == LexicalRuleType.LR_DELPREF) {
+				_ops[r] = OP_DELPREF;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FDELPREF) {
+				_ops[r] = OP_DELPREF;
+			} else if (type == LexicalRuleType.LR_ADDSUF) {
+				_ops[r] = OP_ADDSUF;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FADDSUF) {
+				_ops[r] = OP_ADDSUF;
+			} else if (type == LexicalRuleType.LR_ADDPREF) {
+				_ops[r] = OP_ADDPREF;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FADDPREF) {
+				_ops[r] = OP_ADDPREF;
+			} else if (type == LexicalRuleType.LR_GOODRIGHT) {
+				_ops[r] = OP_GOODRIGHT;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FGOODRIGHT) {
+				_ops[r] = OP_GOODRIGHT;
+			} else if (type == LexicalRuleType.LR_GOODLEFT) {
+				_ops[r] = OP_GOODLEFT;
+				restricted = false;
+			} else if (type == LexicalRuleType.LR_FGOODLEFT) {
+				_ops[r] = OP_GOODLEFT;
+			} else {
+				throw new IllegalArgumentException("Rule type not found: "
+						+ type);
+			}
+			_when[r] = (restricted) ? lr.getPoSTag() : null;
+			_strs[r] = lr.getCompareStr();
+			_lengths[r] = lr.getLength();
+			_changeTo[r] = lr.getChangeTo();
+			_descs[r] = "Lextagged by " + type.toString();
+		}
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	public int getNumRules() {
+		return _ops.length;
+	}
+
+	/**
+	 * Apply the rules in order to a token with image <b>img</b> and tag
+	 * <b>tag</b>.
+	 * 
+	 * @return the index of the last rule that changed the tag, or -1 if none
+	 *         did.
+	 */
+	public int apply(String img, PoSTag tag, Lexicon lex, TokenSequence seq) {
+		int last = -1;
+		int[] posits = null;
+		for (int r = 0, n = _ops.length; r < n; r++) {
+			if ((_when[r] != null) && (_when[r] != tag)) {
+				continue;
+			}
+			String s = _strs[r];
+			boolean hit;
+			switch (_ops[r]) {
+			case OP_CHAR:
+				hit = (img.indexOf(s) != -1);
+				break;
+			case OP_HASSUF:
+				hit = img.endsWith(s);
+				break;
+			case OP_HASPREF:
+				hit = img.startsWith(s);
+				break;
+			case OP_DELSUF:
+				hit = img.endsWith(s)
+						&& isWord(img.substring(0, img.length()
+								- _lengths[r]), lex, seq);
+				break;
+			case OP_DELPREF:
+				hit = img.startsWith(s)
+						&& isWord(img.substring(_lengths[r]), lex, seq);
+				break;
+			case OP_ADDSUF:
+				hit = isWord(img + s, lex, seq);
+				break;
+			case OP_ADDPREF:
+				hit = isWord(s + img, lex, seq);
+				break;
+			default:
+				if (posits == null) {
+					posits = seq.getPositions(img);
+				}
+				hit = isNextTo(posits, s,
+						(_ops[r] == OP_GOODRIGHT) ? -1 : 1, seq);
+			}
+			if (hit) {
+				tag = _changeTo[r];
+				last = r;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Returns the tag rule <b>r</b> changes to.
+	 */
+	public PoSTag getChangeTo(int r) {
+		return _changeTo[r];
+	}
+
+	/**
+	 * Returns the lextagged description of rule <b>r</b>.
+	 */
+	public String getDescription(int r) {
+		return _descs[r];
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private boolean isWord(String img, Lexicon lex, TokenSequence seq) {
+		return lex.isInLexicon(img) || seq.isWord(img);
+	}
+
+	/**
+	 * Returns true if <b>word</b> is at <b>offset</b> from any of
+	 * <b>posits</b>.
+	 */
+	static private boolean isNextTo(int[] posits, String word, int offset,
+			TokenSequence seq) {
+		if (posits == null) {
+			return false;
+		}
+		for (int i = 0, n = posits.length; i < n; i++) {
+			if (seq.isAtPosition(word, posits[i] + offset)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -47,6 +47,8 @@ package org.seasr.components.text.pos.brill;
 //==============
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.io.Serializable;
 import java.util.logging.*;
@@ -67,6 +69,17 @@ import org.seasr.components.text.datatype.pos.PoSTag;
  * 
  * This lexicon file is used for the Brill POS tagger.
  * 
+ * A lexicon can also be written in a compiled binary form with
+ * <code>writeCompiled()</code> and opened with <code>open()</code>. The
+ * compiled file holds the terms sorted, as UTF-16 chars, an open addressing
+ * hash table of the terms, and for each term the index of its list of tags
+ * in a table of the distinct tag lists, which are stored as PoSTag ordinals.
+ * It is mapped read-only rather than parsed: lookups probe the mapped table
+ * and allocate nothing, and every lexicon opened on the same file in a JVM
+ * shares its pages. A
+ * serialized compiled lexicon holds only the file name and maps the file
+ * again when it is read back.
+ * 
  * @author D. Searsmith
  * 
  * TODO: Unit Testing
@@ -84,11 +97,53 @@ public class Lexicon implements Serializable {
 
 	static final int s_EOF = 1;
 
+	/**
+	 * First int of a compiled lexicon file.
+	 */
+	static private final int s_MAGIC = 0xB1E7C0DE;
+
+	static private final int s_VERSION = 2;
+
+	static private final int s_HEADER_SIZE = 20;
+
+	static private final PoSTag[] s_NO_TAGS = new PoSTag[0];
+
 	private String m_term = null;
 
 	private PoSTag[] m_tags = null;
 
-	private HashMap<String, PoSTag[]> m_ht = new HashMap<String, PoSTag[]>(125000);
+	private HashMap<String, PoSTag[]> m_ht = null;
+
+	/**
+	 * The compiled lexicon file this lexicon maps, null if it was parsed from
+	 * text.
+	 */
+	private String m_compiledFile = null;
+
+	private transient ByteBuffer m_buf = null;
+
+	/**
+	 * The distinct tag lists of a compiled lexicon.
+	 */
+	private transient PoSTag[][] m_tagLists = null;
+
+	private transient int m_numTerms = 0;
+
+	private transient int m_termOffsetsBase = 0;
+
+	private transient int m_termListsBase = 0;
+
+	private transient int m_termHashesBase = 0;
+
+	private transient int m_bucketsBase = 0;
+
+	/**
+	 * The number of hash table buckets less one; the number is a power of
+	 * two.
+	 */
+	private transient int m_bucketMask = 0;
+
+	private transient int m_charsBase = 0;
 
 	private long m_linecnt = 0;
 
@@ -101,9 +156,46 @@ public class Lexicon implements Serializable {
 	// ================
 	public Lexicon(String filename, boolean verbose) {
 		m_verbose = verbose;
+		m_ht = new HashMap<String, PoSTag[]>(125000);
 		buildLexicon(filename);
 	}
 
+	private Lexicon(File compiled) throws IOException {
+		m_compiledFile = compiled.getCanonicalPath();
+		map();
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * Open the lexicon in <b>filename</b>: map it if it is a compiled
+	 * lexicon, else parse it as a lexicon text file.
+	 */
+	static public Lexicon open(String filename, boolean verbose)
+			throws IOException {
+		if (isCompiled(filename)) {
+			return new Lexicon(new File(filename));
+		}
+		return new Lexicon(filename, verbose);
+	}
+
+	/**
+	 * Does <b>filename</b> start with the compiled lexicon header?
+	 */
+	static public boolean isCompiled(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(
+				filename));
+		try {
+			return in.readInt() == s_MAGIC;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			in.close();
+		}
+	}
+
 	// ================
 	// Public Methods
 	// ================
@@ -112,7 +204,7 @@ public class Lexicon implements Serializable {
 	 * Number of terms in the lexicon.
 	 */
 	public int size() {
-		return m_ht.size();
+		return (m_ht != null) ? m_ht.size() : m_numTerms;
 	}
 
 	/**
@@ -123,6 +215,11 @@ public class Lexicon implements Serializable {
 	 * @return An array of PoSTag objects.
 	 */
 	public PoSTag[] getTagsForTerm(String key) {
+		if (m_ht == null) {
+			int i = find(key);
+			return (i < 0) ? s_NO_TAGS : m_tagLists[m_buf.getInt(m_termListsBase
+					+ 4 * i)];
+		}
 		PoSTag[] ptarr = (PoSTag[]) m_ht.get(key);
 		if (ptarr == null) {
 			ptarr = new PoSTag[0];
@@ -137,6 +234,9 @@ public class Lexicon implements Serializable {
 	 * @return True/False as to whether term is in the lexicon.
 	 */
 	public boolean isInLexicon(String key) {
+		if (m_ht == null) {
+			return find(key) >= 0;
+		}
 		return (m_ht.get(key) != null);
 	}
 
@@ -144,13 +244,252 @@ public class Lexicon implements Serializable {
 	 * Print the lexicon's map.
 	 */
 	public void print() {
+		if (m_ht == null) {
+			StringBuffer buff = new StringBuffer("{");
+			for (int i = 0; i < m_numTerms; i++) {
+				buff.append((i == 0) ? "" : ", ").append(getTerm(i)).append(
+						"=").append(
+						Arrays.asList(m_tagLists[m_buf.getInt(m_termListsBase
+								+ 4 * i)]));
+			}
+			System.out.println(buff.append("}"));
+			return;
+		}
 		System.out.println(m_ht);
 	}
 
+	/**
+	 * Write this lexicon, which must have been parsed from text, to
+	 * <b>filename</b> in the compiled form read by <code>open()</code>.
+	 * 
+	 * The file is, in order: the magic number, the format version, the
+	 * hashTags() value of the PoSTag images in ordinal order, the number of
+	 * terms and the number of tag lists;
+	 * the offset of each tag list, plus the end, in the tag list data; the
+	 * tag list data, one byte per tag ordinal; the offset of each term, plus
+	 * the end, in the term chars; the tag list index of each term; the
+	 * String.hashCode() of each term; the number of hash buckets and the
+	 * buckets, each the index + 1 of a term or 0, probed linearly; and the
+	 * term chars. Terms are sorted as by String.compareTo().
+	 */
+	public void writeCompiled(String filename) throws IOException {
+		if (m_ht == null) {
+			throw new IllegalStateException(
+					"Lexicon is already compiled: " + m_compiledFile);
+		}
+		String[] terms = m_ht.keySet().toArray(new String[m_ht.size()]);
+		Arrays.sort(terms);
+
+		// number the distinct tag lists
+		HashMap<String, Integer> listIds = new HashMap<String, Integer>();
+		ArrayList<PoSTag[]> lists = new ArrayList<PoSTag[]>();
+		int[] termLists = new int[terms.length];
+		int listBytes = 0;
+		StringBuffer buff = new StringBuffer();
+		for (int i = 0; i < terms.length; i++) {
+			PoSTag[] tags = m_ht.get(terms[i]);
+			buff.setLength(0);
+			for (int j = 0; j < tags.length; j++) {
+				buff.append((char) tags[j].getOrdinal());
+			}
+			String k = buff.toString();
+			Integer id = listIds.get(k);
+			if (id == null) {
+				id = new Integer(lists.size());
+				listIds.put(k, id);
+				lists.add(tags);
+				listBytes += tags.length;
+			}
+			termLists[i] = id.intValue();
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(filename)));
+		try {
+			out.writeInt(s_MAGIC);
+			out.writeInt(s_VERSION);
+			out.writeInt(hashTags(tagImages()));
+			out.writeInt(terms.length);
+			out.writeInt(lists.size());
+			int off = 0;
+			for (int i = 0, n = lists.size(); i < n; i++) {
+				out.writeInt(off);
+				off += lists.get(i).length;
+			}
+			out.writeInt(listBytes);
+			for (int i = 0, n = lists.size(); i < n; i++) {
+				PoSTag[] tags = lists.get(i);
+				for (int j = 0; j < tags.length; j++) {
+					out.writeByte(tags[j].getOrdinal());
+				}
+			}
+			off = 0;
+			for (int i = 0; i < terms.length; i++) {
+				out.writeInt(off);
+				off += terms[i].length();
+			}
+			out.writeInt(off);
+			for (int i = 0; i < terms.length; i++) {
+				out.writeInt(termLists[i]);
+			}
+			int cap = 2;
+			while (cap < 2 * terms.length) {
+				cap <<= 1;
+			}
+			int[] buckets = new int[cap];
+			for (int i = 0; i < terms.length; i++) {
+				int h = terms[i].hashCode();
+				out.writeInt(h);
+				int b = spread(h) & (cap - 1);
+				while (buckets[b] != 0) {
+					b = (b + 1) & (cap - 1);
+				}
+				buckets[b] = i + 1;
+			}
+			out.writeInt(cap);
+			for (int b = 0; b < cap; b++) {
+				out.writeInt(buckets[b]);
+			}
+			for (int i = 0; i < terms.length; i++) {
+				out.writeChars(terms[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
 	// =================
 	// Private Methods
 	// =================
-	
+
+	/**
+	 * Map the compiled lexicon file and read its header and tag lists.
+	 */
+	private void map() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(m_compiledFile, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			m_buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		} finally {
+			raf.close();
+		}
+		if ((m_buf.getInt(0) != s_MAGIC) || (m_buf.getInt(4) != s_VERSION)) {
+			throw new IOException("Not a compiled lexicon: " + m_compiledFile);
+		}
+		if (m_buf.getInt(8) != hashTags(tagImages())) {
+			throw new IOException("Compiled lexicon " + m_compiledFile
+					+ " was written for a different set of tags.");
+		}
+		m_numTerms = m_buf.getInt(12);
+		int numLists = m_buf.getInt(16);
+		int listData = s_HEADER_SIZE + 4 * (numLists + 1);
+		m_tagLists = new PoSTag[numLists][];
+		for (int i = 0; i < numLists; i++) {
+			int beg = m_buf.getInt(s_HEADER_SIZE + 4 * i);
+			int end = m_buf.getInt(s_HEADER_SIZE + 4 * (i + 1));
+			PoSTag[] tags = new PoSTag[end - beg];
+			for (int j = 0; j < tags.length; j++) {
+				tags[j] = PoSTag.getPoSTag(m_buf.get(listData + beg + j));
+			}
+			m_tagLists[i] = tags;
+		}
+		m_termOffsetsBase = listData
+				+ m_buf.getInt(s_HEADER_SIZE + 4 * numLists);
+		m_termListsBase = m_termOffsetsBase + 4 * (m_numTerms + 1);
+		m_termHashesBase = m_termListsBase + 4 * m_numTerms;
+		int cap = m_buf.getInt(m_termHashesBase + 4 * m_numTerms);
+		m_bucketMask = cap - 1;
+		m_bucketsBase = m_termHashesBase + 4 * m_numTerms + 4;
+		m_charsBase = m_bucketsBase + 4 * cap;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		if (m_compiledFile != null) {
+			map();
+		}
+	}
+
+	/**
+	 * Hash of the tag <b>images</b>, in order. A compiled file stores the
+	 * ordinals of its tags, so it is only read back if the images of the
+	 * PoSTag ordinals, not just their number, are the ones it was written
+	 * with.
+	 */
+	static int hashTags(String[] images) {
+		int h = images.length;
+		for (int i = 0; i < images.length; i++) {
+			h = 31 * h + images[i].hashCode();
+		}
+		return h;
+	}
+
+	/**
+	 * The images of the PoSTags in ordinal order.
+	 */
+	static String[] tagImages() {
+		String[] images = new String[PoSTag.getNumTags()];
+		for (int i = 0; i < images.length; i++) {
+			images[i] = PoSTag.getPoSTag(i).toString();
+		}
+		return images;
+	}
+
+	/**
+	 * Mix the high bits of <b>h</b> into the low bits used to pick a bucket.
+	 */
+	static private int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the index of <b>key</b> in the compiled terms, or -1.
+	 */
+	private int find(String key) {
+		int h = key.hashCode();
+		int b = spread(h) & m_bucketMask;
+		while (true) {
+			int i = m_buf.getInt(m_bucketsBase + 4 * b) - 1;
+			if (i < 0) {
+				return -1;
+			}
+			if ((m_buf.getInt(m_termHashesBase + 4 * i) == h)
+					&& isTerm(i, key)) {
+				return i;
+			}
+			b = (b + 1) & m_bucketMask;
+		}
+	}
+
+	/**
+	 * Is compiled term <b>i</b> equal to <b>key</b>?
+	 */
+	private boolean isTerm(int i, String key) {
+		int beg = m_buf.getInt(m_termOffsetsBase + 4 * i);
+		int len = m_buf.getInt(m_termOffsetsBase + 4 * (i + 1)) - beg;
+		if (len != key.length()) {
+			return false;
+		}
+		int base = m_charsBase + 2 * beg;
+		for (int j = 0; j < len; j++) {
+			if (m_buf.getChar(base + 2 * j) != key.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String getTerm(int i) {
+		int beg = m_buf.getInt(m_termOffsetsBase + 4 * i);
+		int end = m_buf.getInt(m_termOffsetsBase + 4 * (i + 1));
+		char[] chars = new char[end - beg];
+		for (int j = 0; j < chars.length; j++) {
+			chars[j] = m_buf.getChar(m_charsBase + 2 * (beg + j));
+		}
+		return new String(chars);
+	}
+
 	
 	final private boolean contains(Vector<PoSTag> fv, PoSTag o) {
 		for (int x = 0, y = fv.size(); x < y; x++) {
@@ -0,0 +1,142 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.pos.PoSTag;
+
+/**
+ * The positions in a TokenSequence of the tokens carrying each part-of-speech
+ * tag, one bit set per tag, kept up to date as tokens are retagged.
+ * 
+ * A contextual rule can only change a token whose current tag is the rule's
+ * old tag, so the contextual tagger walks the positions of that tag in
+ * document order instead of every token.
+ */
+public class TagPositionIndex {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	private final HashMap<PoSTag, BitSet> _positions = new HashMap<PoSTag, BitSet>();
+
+	private final int _size;
+
+	// ================
+	// Constructor(s)
+	// ================
+
+	/**
+	 * Index the tokens of <b>seq</b> by their tags.
+	 */
+	public TagPositionIndex(TokenSequence seq) {
+		_size = seq.getListSize();
+		for (int p = 0; p < _size; p++) {
+			PoSTag tag = seq.getTag(p);
+			if (tag != null) {
+				positions(tag).set(p);
+			}
+		}
+	}
+
+	// ================
+	// Public Methods
+	// ================
+
+	/**
+	 * Returns the first position at or after <b>from</b> whose token has
+	 * <b>tag</b>, or -1 if there is none.
+	 */
+	public int nextPosition(PoSTag tag, int from) {
+		BitSet bits = _positions.get(tag);
+		return (bits == null) ? -1 : bits.nextSetBit(from);
+	}
+
+	/**
+	 * Returns the number of tokens with <b>tag</b>.
+	 */
+	public int getCount(PoSTag tag) {
+		BitSet bits = _positions.get(tag);
+		return (bits == null) ? 0 : bits.cardinality();
+	}
+
+	/**
+	 * Record that the token at <b>pos</b> has been retagged from
+	 * <b>from</b> to <b>to</b>.
+	 */
+	public void move(int pos, PoSTag from, PoSTag to) {
+		if (from == to) {
+			return;
+		}
+		if (from != null) {
+			positions(from).clear(pos);
+		}
+		if (to != null) {
+			positions(to).set(pos);
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	private BitSet positions(PoSTag tag) {
+		BitSet bits = _positions.get(tag);
+		if (bits == null) {
+			bits = new BitSet(_size);
+			_positions.put(tag, bits);
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+//===============
+// Other Imports
+//===============
+import org.seasr.components.text.datatype.pos.PoSTag;
+
+/**
+ * The tokens of a document in document order, as the Brill rules read them:
+ * the image, part-of-speech tag and start-of-line flag at each position,
+ * and the positions of each image.
+ * 
+ * DocTokMap reads the tags and flags from the token features;
+ * BrillTagBuffer holds them in arrays.
+ */
+public interface TokenSequence {
+
+	/**
+	 * Returns the number of tokens.
+	 */
+	public int getListSize();
+
+	public String getImage(int pos);
+
+	/**
+	 * Returns the tag of the token at <b>pos</b>, or null if it has none.
+	 */
+	public PoSTag getTag(int pos);
+
+	/**
+	 * Does the token at <b>pos</b> start a line?
+	 */
+	public boolean isStartOfLine(int pos);
+
+	/**
+	 * Is <b>img</b> the image of any token?
+	 */
+	public boolean isWord(String img);
+
+	/**
+	 * Returns the positions of the tokens with image <b>img</b>, or null if
+	 * there are none.
+	 */
+	public int[] getPositions(String img);
+
+	/**
+	 * Returns true if the token at <b>pos</b> has image <b>img</b>.
+	 */
+	public boolean isAtPosition(String img, int pos);
+}
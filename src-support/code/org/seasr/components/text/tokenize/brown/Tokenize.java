@@ -141,8 +141,8 @@ public class Tokenize {
 					continue;
 				}
 				FeatureMap fm = Factory.newFeatureMap();
-				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL,
-						Boolean.TRUE.toString());
+				fm.setBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL_ID,
+						true);
 				transfer_flags(fm, tok);
 				annots.add(pos1, pos1 + img.length(), AnnotationConstants.TOKEN_ANNOT_TYPE, fm);
 				cnt++;
@@ -196,11 +196,11 @@ public class Tokenize {
 		for (Iterator<TokenFlag> iter = tok.getFlags(); iter.hasNext();) {
 			TokenFlag flag = iter.next();
 			if (flag == TokenFlag.START_OF_LINE) {
-				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL,
-						Boolean.TRUE.toString());
+				fm.setBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL_ID,
+						true);
 			} else if (flag == TokenFlag.END_OF_LINE) {
-				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL,
-						Boolean.TRUE.toString());
+				fm.setBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL_ID,
+						true);
 			}
 		}
 	}
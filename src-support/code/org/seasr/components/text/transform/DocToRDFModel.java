@@ -153,8 +153,9 @@ public class DocToRDFModel {
 		}
 		// Adding document features
 		Map<String, String> features = doc.getFeatures();
-		for (String sKey : features.keySet()) {
-			String sValue = features.get(sKey).toString();
+		for (Map.Entry<String, String> feat : features.entrySet()) {
+			String sKey = feat.getKey();
+			String sValue = feat.getValue();
 			root.addProperty(DocumentVocabulary.feature_set, model
 					.createResource(resID + "/feature/" + sKey).addProperty(
 							RDF.type, DocumentVocabulary.feature).addProperty(
@@ -190,8 +191,10 @@ public class DocToRDFModel {
 								DocumentVocabulary.annotation_type,
 								model.createTypedLiteral(annot.getType()));
 
-				for (String sKey : annot.getFeatures().keySet()) {
-					String sValue = features.get(sKey).toString();
+				for (Map.Entry<String, String> feat : annot.getFeatures()
+						.entrySet()) {
+					String sKey = feat.getKey();
+					String sValue = feat.getValue();
 					annR.addProperty(DocumentVocabulary.feature_set, model
 							.createResource(resID + "/feature/" + sKey)
 							.addProperty(RDF.type, DocumentVocabulary.feature)
@@ -239,8 +242,10 @@ public class DocToRDFModel {
 										model.createTypedLiteral(annot
 												.getType()));
 
-						for (String sKey : annot.getFeatures().keySet()) {
-							String sValue = features.get(sKey).toString();
+						for (Map.Entry<String, String> feat : annot.getFeatures()
+								.entrySet()) {
+							String sKey = feat.getKey();
+							String sValue = feat.getValue();
 							annR.addProperty(DocumentVocabulary.feature_set, model.createResource(resID + "/feature/" + sKey)
 													.addProperty(
 															RDF.type,
@@ -0,0 +1,351 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertNotNull;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationConstants;
+import org.seasr.components.text.datatype.corpora.AnnotationSet;
+import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.corpora.impl.DocumentImpl;
+import org.seasr.components.text.datatype.corpora.impl.FeatureMapImpl;
+
+/**
+ * Documents, lexicons and rules for the Brill tagger tests, and the plain
+ * rule-by-rule application the tests compare the tagger against.
+ */
+final class BrillTestFixture {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static final String[] WORDS = { "un", "happy", "unhappy", "ly", "quick",
+			"quickly", "Mr.", "Smith", "run", "running", "-", "well-known",
+			"the", "a", "0", "10", "re", "do", "redo", "ing" };
+
+	static final String[] TAGS = { "NN", "VBN", "JJ", "RB", "NNP", "VB",
+			"VBG", "CD" };
+
+	static private final String[] AFFIXES = { "un", "ly", "re", "ing", "-",
+			"0", "do", "Mr.", "a", "the" };
+
+	static private final String[] STRING_RULES = { "char", "hassuf",
+			"haspref", "deletesuf", "deletepref", "addsuf", "addpref" };
+
+	static private final String[] WORD_RULES = { "goodright", "goodleft" };
+
+	static private final String[] TAG_RULES = { "NEXTTAG", "NEXT2TAG",
+			"NEXT1OR2TAG", "NEXT1OR2OR3TAG", "PREVTAG", "PREV2TAG",
+			"PREV1OR2TAG", "PREV1OR2OR3TAG" };
+
+	static private final String[] WD_RULES = { "CURWD", "NEXTWD", "NEXT2WD",
+			"NEXT1OR2WD", "NEXT1OR2OR3WD", "PREVWD", "PREV2WD", "PREV1OR2WD",
+			"PREV1OR2OR3WD" };
+
+	static private final String[] TAG_TAG_RULES = { "SURROUNDTAG",
+			"NEXTBIGRAM", "PREVBIGRAM" };
+
+	static private final String[] WD_WD_RULES = { "RBIGRAM", "WDAND2AFT",
+			"WDAND2BFR", "LBIGRAM" };
+
+	static private final String[] WD_TAG_RULES = { "WDNEXTTAG",
+			"WDAND2TAGAFT" };
+
+	static private final String[] TAG_WD_RULES = { "WDPREVTAG",
+			"WDAND2TAGBFR" };
+
+	// ==============
+	// Constructors
+	// ==============
+
+	private BrillTestFixture() {
+	}
+
+	// ================
+	// Static Methods
+	// ================
+
+	/**
+	 * A small lexicon over some of <code>WORDS</code>.
+	 */
+	static Lexicon newLexicon() throws Exception {
+		File f = File.createTempFile("lexicon", ".txt");
+		f.deleteOnExit();
+		PrintWriter out = new PrintWriter(f);
+		out.println("happy JJ");
+		out.println("quick JJ RB");
+		out.println("do VB");
+		out.println("running VBG NN");
+		out.println("known VBN");
+		out.println("run VB NN");
+		out.println("the NNP");
+		out.close();
+		return new Lexicon(f.getPath(), false);
+	}
+
+	/**
+	 * <b>lex</b> written in the compiled format and opened again.
+	 */
+	static Lexicon compile(Lexicon lex) throws Exception {
+		File f = File.createTempFile("lexicon", ".bin");
+		f.deleteOnExit();
+		lex.writeCompiled(f.getPath());
+		return Lexicon.open(f.getPath(), false);
+	}
+
+	/**
+	 * A document with a token for each of <b>words</b>, tagged with
+	 * <b>tags</b>. Either flag array may be null.
+	 */
+	static Document newDocument(String[] words, String[] tags,
+			boolean[] pretagged, boolean[] lineStarts) throws Exception {
+		Document doc = new DocumentImpl();
+		StringBuffer sb = new StringBuffer();
+		long[] starts = new long[words.length];
+		for (int i = 0; i < words.length; i++) {
+			starts[i] = sb.length();
+			sb.append(words[i]).append(' ');
+		}
+		doc.setContent(sb.toString());
+		AnnotationSet toks = doc
+				.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);
+		for (int i = 0; i < words.length; i++) {
+			FeatureMap fm = new FeatureMapImpl();
+			fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS, tags[i]);
+			if (pretagged != null) {
+				fm.setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL_ID,
+						pretagged[i]);
+			}
+			if (lineStarts != null) {
+				fm.setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_START_OF_LINE_BOOL_ID,
+						lineStarts[i]);
+			}
+			toks.add(starts[i], starts[i] + words[i].length(),
+					AnnotationConstants.TOKEN_ANNOT_TYPE, fm);
+		}
+		return doc;
+	}
+
+	/**
+	 * A document of <b>size</b> random tokens: words from
+	 * <code>WORDS</code>, sometimes run together, with random tags, about a
+	 * third of them pretagged and some starting a line.
+	 */
+	static Document newDocument(Random rand, int size) throws Exception {
+		String[] words = new String[size];
+		String[] tags = new String[size];
+		boolean[] pretagged = new boolean[size];
+		boolean[] lineStarts = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			words[i] = pick(rand, WORDS);
+			if (rand.nextInt(5) == 0) {
+				words[i] += pick(rand, WORDS);
+			}
+			tags[i] = pick(rand, TAGS);
+			pretagged[i] = rand.nextInt(3) == 0;
+			lineStarts[i] = rand.nextInt(8) == 0;
+		}
+		return newDocument(words, tags, pretagged, lineStarts);
+	}
+
+	/**
+	 * <b>n</b> random lexical rules, each in its plain or f- form.
+	 */
+	static Object[] randomLexRules(Random rand, int n) {
+		Object[] rules = new Object[n];
+		for (int i = 0; i < n; i++) {
+			// the f- form of each rule applies only to tokens with a given tag
+			String prefix = "";
+			String f = "";
+			if (rand.nextBoolean()) {
+				prefix = pick(rand, TAGS) + " ";
+				f = "f";
+			}
+			String line;
+			if (rand.nextInt(4) == 0) {
+				line = prefix + pick(rand, WORDS) + " " + f
+						+ pick(rand, WORD_RULES) + " " + pick(rand, TAGS)
+						+ " x";
+			} else {
+				String affix = pick(rand, AFFIXES);
+				line = prefix + affix + " " + f + pick(rand, STRING_RULES)
+						+ " " + affix.length() + " " + pick(rand, TAGS)
+						+ " x";
+			}
+			rules[i] = LexRule.createRule(line);
+			assertNotNull(line, rules[i]);
+		}
+		return rules;
+	}
+
+	/**
+	 * <b>n</b> random contextual rules of every type. The words include
+	 * STAART so the line start terms are tested too.
+	 */
+	static Object[] randomContextRules(Random rand, int n) {
+		Object[] rules = new Object[n];
+		for (int i = 0; i < n; i++) {
+			String line = pick(rand, TAGS) + " " + pick(rand, TAGS) + " ";
+			switch (rand.nextInt(6)) {
+			case 0:
+				line += pick(rand, TAG_RULES) + " " + pick(rand, TAGS);
+				break;
+			case 1:
+				line += pick(rand, WD_RULES) + " " + word(rand);
+				break;
+			case 2:
+				line += pick(rand, TAG_TAG_RULES) + " " + pick(rand, TAGS)
+						+ " " + pick(rand, TAGS);
+				break;
+			case 3:
+				line += pick(rand, WD_WD_RULES) + " " + word(rand) + " "
+						+ word(rand);
+				break;
+			case 4:
+				line += pick(rand, WD_TAG_RULES) + " " + word(rand) + " "
+						+ pick(rand, TAGS);
+				break;
+			default:
+				line += pick(rand, TAG_WD_RULES) + " " + pick(rand, TAGS)
+						+ " " + word(rand);
+			}
+			rules[i] = ContextRule.createRule(line);
+			assertNotNull(line, rules[i]);
+		}
+		return rules;
+	}
+
+	/**
+	 * Apply each lexical rule in turn to every token not pretagged, as
+	 * LexTag did before the rules were compiled.
+	 */
+	static void applyLexRules(Document doc, Object[] rules, Lexicon lex) {
+		DocTokMap dtmap = new DocTokMap(doc);
+		for (int r = 0; r < rules.length; r++) {
+			for (int p = 0; p < dtmap.getListSize(); p++) {
+				Annotation tok = dtmap.getAnnotationAtPos(p);
+				if (!tok.getFeatures().getBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL_ID)) {
+					((LexRule) rules[r]).applyRule(doc, tok, lex, dtmap, true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Apply each contextual rule in turn to every token, on the token
+	 * features, as ConTag did before the tag positions were indexed.
+	 */
+	static void applyContextRules(Document doc, Object[] rules,
+			boolean restrict, Lexicon lex, boolean incdesc) {
+		DocTokMap dtmap = new DocTokMap(doc);
+		for (int r = 0; r < rules.length; r++) {
+			for (int p = 0; p < dtmap.getListSize(); p++) {
+				((ContextRule) rules[r]).applyRule(doc, dtmap
+						.getAnnotationAtPos(p), restrict, lex, dtmap, incdesc);
+			}
+		}
+	}
+
+	/**
+	 * The tag of each token, in order.
+	 */
+	static List<String> tags(Document doc) {
+		List<String> ret = new ArrayList<String>();
+		for (Iterator<Annotation> it = tokens(doc); it.hasNext();) {
+			ret.add(it.next().getFeatures().get(
+					AnnotationConstants.TOKEN_ANNOT_FEAT_POS));
+		}
+		return ret;
+	}
+
+	/**
+	 * The tag, <b>flag</b> and <b>desc</b> features of each token, in order.
+	 */
+	static List<String> state(Document doc, int flag, String desc) {
+		List<String> ret = new ArrayList<String>();
+		for (Iterator<Annotation> it = tokens(doc); it.hasNext();) {
+			FeatureMap fm = it.next().getFeatures();
+			ret.add(fm.get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS) + "/"
+					+ fm.getBoolean(flag) + "/" + fm.get(desc));
+		}
+		return ret;
+	}
+
+	static String pick(Random rand, String[] a) {
+		return a[rand.nextInt(a.length)];
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private String word(Random rand) {
+		return (rand.nextInt(10) == 0) ? "STAART" : pick(rand, WORDS);
+	}
+
+	static private Iterator<Annotation> tokens(Document doc) {
+		return doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS)
+				.sortedIterator();
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.AnnotationConstants;
+import org.seasr.components.text.datatype.corpora.Document;
+
+/**
+ * Checks the contextual rule operations at the places where a neighbour
+ * term is missing, and that <code>ContextRule.applyRules()</code> over the
+ * tag position index of a BrillTagBuffer, as ConTag runs it, tags documents
+ * exactly as each rule run in turn over every token.
+ */
+public class ContextRuleTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private Lexicon s_lex = null;
+
+	static private Lexicon s_compiled = null;
+
+	// ================
+	// Public Methods
+	// ================
+
+	@BeforeClass
+	static public void readLexicon() throws Exception {
+		s_lex = BrillTestFixture.newLexicon();
+		s_compiled = BrillTestFixture.compile(s_lex);
+	}
+
+	@Test
+	public void missingNeighbourTermsMatchNoRule() throws Exception {
+		// no token starts a line, so PREV2WD has no term to compare and
+		// PREV1OR2OR3WD only its first two
+		List<String> tags = apply(new String[] { "NN VB PREV2WD a",
+				"JJ VB PREV1OR2OR3WD a" }, new String[] { "a", "b", "c", "d" },
+				new String[] { "DT", "DT", "NN", "JJ" }, new boolean[4]);
+		assertEquals("[DT, DT, NN, JJ]", tags.toString());
+	}
+
+	@Test
+	public void lineStartsSupplyTheTerms() throws Exception {
+		// at a line start PREV2WD compares the word before, and the third
+		// term of PREV1OR2OR3WD is STAART
+		List<String> tags = apply(new String[] { "NN VB PREV2WD b",
+				"JJ VB PREV1OR2OR3WD STAART" }, new String[] { "a", "b", "c",
+				"d" }, new String[] { "DT", "DT", "NN", "JJ" }, new boolean[] {
+				false, true, true, true });
+		assertEquals("[DT, DT, VB, VB]", tags.toString());
+	}
+
+	@Test
+	public void indexedRulesSeeEarlierRetags() throws Exception {
+		// each rule looks up tags the rules before it, or the same rule
+		// further left, have just changed
+		String[] rules = { "NN VB PREVTAG NN", "VB JJ NEXTTAG NN",
+				"NN RB NEXTTAG JJ", "NN VB PREV1OR2TAG RB" };
+		String[] words = { "a", "b", "c", "d", "e" };
+		String[] tags = { "NN", "NN", "NN", "NN", "DT" };
+		assertEquals("[RB, JJ, VB, VB, DT]", apply(rules, words, tags,
+				new boolean[5]).toString());
+
+		Object[] crs = new Object[rules.length];
+		for (int r = 0; r < rules.length; r++) {
+			crs[r] = ContextRule.createRule(rules[r]);
+		}
+		Document doc = BrillTestFixture.newDocument(words, tags, null,
+				new boolean[5]);
+		applyIndexed(doc, crs, false, null, false);
+		assertEquals("[RB, JJ, VB, VB, DT]", BrillTestFixture.tags(doc)
+				.toString());
+	}
+
+	@Test
+	public void indexedRulesTagAsTheRules() throws Exception {
+		Random rand = new Random(3);
+		int retagged = 0;
+		for (int trial = 0; trial < 60; trial++) {
+			Object[] rules = BrillTestFixture.randomContextRules(rand, 80);
+			// half the rules again retag from the tag an earlier rule gives
+			for (int i = 0; i < 40; i++) {
+				ContextRule cr = (ContextRule) rules[rand.nextInt(i + 40)];
+				rules[i + 40] = ContextRule.createRule(cr.getNewTag() + " "
+						+ BrillTestFixture.pick(rand, BrillTestFixture.TAGS)
+						+ " PREV1OR2TAG " + cr.getNewTag());
+			}
+			boolean restrict = (trial % 3 == 0);
+			boolean incdesc = (trial % 2 == 0);
+			long seed = 200 + trial;
+
+			Document byRule = BrillTestFixture.newDocument(new Random(seed),
+					300);
+			BrillTestFixture.applyContextRules(byRule, rules, restrict,
+					s_lex, incdesc);
+			List<String> expected = state(byRule);
+
+			Document indexed = BrillTestFixture.newDocument(new Random(seed),
+					300);
+			applyIndexed(indexed, rules, restrict, s_compiled, incdesc);
+			assertEquals("trial " + trial, expected, state(indexed));
+
+			for (String s : expected) {
+				if (s.indexOf("true") >= 0) {
+					retagged++;
+				}
+			}
+		}
+		assertTrue(retagged > 0);
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Apply the rules as ConTag does, over the tag position index of a
+	 * buffer, then write the buffer to the features.
+	 */
+	static private void applyIndexed(Document doc, Object[] rules,
+			boolean restrict, Lexicon lex, boolean incdesc) {
+		BrillTagBuffer buf = new BrillTagBuffer(doc);
+		ContextRule.applyRules(rules, buf, restrict, lex, incdesc);
+		buf.writeFeatures();
+	}
+
+	static private List<String> state(Document doc) {
+		return BrillTestFixture.state(doc,
+				AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_BOOL_ID,
+				AnnotationConstants.TOKEN_ANNOT_FEAT_CONTAGGED_DESC);
+	}
+
+	/**
+	 * Apply each rule in turn to every token of a document of
+	 * <b>words</b>, and return the tags that result.
+	 */
+	static private List<String> apply(String[] rules, String[] words,
+			String[] tags, boolean[] lineStarts) throws Exception {
+		Document doc = BrillTestFixture.newDocument(words, tags, null,
+				lineStarts);
+		Object[] crs = new Object[rules.length];
+		for (int r = 0; r < rules.length; r++) {
+			crs[r] = ContextRule.createRule(rules[r]);
+			assertNotNull(rules[r], crs[r]);
+		}
+		BrillTestFixture.applyContextRules(doc, crs, false, null, false);
+		return BrillTestFixture.tags(doc);
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.AnnotationConstants;
+import org.seasr.components.text.datatype.corpora.Document;
+import org.seasr.components.text.datatype.corpora.FeatureMap;
+import org.seasr.components.text.datatype.pos.PoSTag;
+
+/**
+ * Checks that a <code>LexRuleProgram</code> applied token by token tags
+ * documents exactly as <code>LexRule.applyRule()</code> run rule by rule over
+ * every token, on the token features and on a BrillTagBuffer over a compiled
+ * lexicon.
+ */
+public class LexRuleProgramTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private Lexicon s_lex = null;
+
+	static private Lexicon s_compiled = null;
+
+	// ================
+	// Public Methods
+	// ================
+
+	@BeforeClass
+	static public void readLexicon() throws Exception {
+		s_lex = BrillTestFixture.newLexicon();
+		s_compiled = BrillTestFixture.compile(s_lex);
+	}
+
+	@Test
+	public void programTagsAsTheRules() throws Exception {
+		Random rand = new Random(1);
+		int retagged = 0;
+		for (int trial = 0; trial < 40; trial++) {
+			Object[] rules = BrillTestFixture.randomLexRules(rand, 60);
+			long seed = 100 + trial;
+
+			Document byRule = BrillTestFixture.newDocument(new Random(seed),
+					300);
+			BrillTestFixture.applyLexRules(byRule, rules, s_lex);
+			List<String> expected = state(byRule);
+
+			LexRuleProgram program = new LexRuleProgram(rules);
+			assertEquals(rules.length, program.getNumRules());
+			Document compiled = BrillTestFixture.newDocument(
+					new Random(seed), 300);
+			applyProgram(compiled, program);
+			assertEquals("trial " + trial, expected, state(compiled));
+
+			Document buffered = BrillTestFixture.newDocument(
+					new Random(seed), 300);
+			applyProgram(new BrillTagBuffer(buffered), program);
+			assertEquals("trial " + trial, expected, state(buffered));
+
+			for (String s : expected) {
+				if (s.indexOf("true") >= 0) {
+					retagged++;
+				}
+			}
+		}
+		assertTrue(retagged > 0);
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Apply all the rules to each token not pretagged in turn, on the token
+	 * features.
+	 */
+	static private void applyProgram(Document doc, LexRuleProgram program) {
+		DocTokMap dtmap = new DocTokMap(doc);
+		for (int p = 0; p < dtmap.getListSize(); p++) {
+			Annotation tok = dtmap.getAnnotationAtPos(p);
+			FeatureMap fm = tok.getFeatures();
+			if (fm
+					.getBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_PRETAGGED_BOOL_ID)) {
+				continue;
+			}
+			int rule = program.apply(tok.getContent(doc), PoSTag
+					.getPoSTag(fm.get(AnnotationConstants.TOKEN_ANNOT_FEAT_POS)),
+					s_lex, dtmap);
+			if (rule >= 0) {
+				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_POS, program
+						.getChangeTo(rule).toString());
+				fm.setBoolean(
+						AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+						true);
+				fm.put(AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_DESC,
+						program.getDescription(rule));
+			}
+		}
+	}
+
+	/**
+	 * Apply all the rules to each token not pretagged in turn, on the buffer
+	 * and the compiled lexicon, then write the buffer to the features.
+	 */
+	static private void applyProgram(BrillTagBuffer buf,
+			LexRuleProgram program) {
+		for (int p = 0; p < buf.getListSize(); p++) {
+			if (buf.isSet(p, BrillTagBuffer.PRETAGGED)) {
+				continue;
+			}
+			int rule = program.apply(buf.getImage(p), buf.getTag(p),
+					s_compiled, buf);
+			if (rule >= 0) {
+				buf.setTag(p, program.getChangeTo(rule));
+				buf.set(p, BrillTagBuffer.LEXTAGGED);
+				buf.setDescription(p, BrillTagBuffer.LEXTAGGED, program
+						.getDescription(rule));
+			}
+		}
+		buf.writeFeatures();
+	}
+
+	static private List<String> state(Document doc) {
+		return BrillTestFixture.state(doc,
+				AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_BOOL_ID,
+				AnnotationConstants.TOKEN_ANNOT_FEAT_LEXTAGGED_DESC);
+	}
+}
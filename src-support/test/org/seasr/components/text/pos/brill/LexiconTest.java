@@ -0,0 +1,256 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.pos.brill;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.pos.PoSTag;
+
+/**
+ * Checks that a compiled lexicon answers every lookup as the lexicon text
+ * file it was compiled from.
+ */
+public class LexiconTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private final String[] TAGS = { "NN", "NNS", "VB", "VBZ", "JJ",
+			"DT", "IN", "RB", "CD", "PRP$", "$", ",", "-LRB-", "." };
+
+	static private List<String> s_terms = new ArrayList<String>();
+
+	static private Lexicon s_parsed = null;
+
+	static private Lexicon s_compiled = null;
+
+	static private String s_compiledFile = null;
+
+	// ================
+	// Public Methods
+	// ================
+
+	@BeforeClass
+	static public void writeLexicons() throws Exception {
+		Random rand = new Random(5);
+		for (int i = 0; i < 3000; i++) {
+			s_terms.add(randomTerm(rand));
+		}
+		// terms with equal String.hashCode() values share a bucket
+		s_terms.addAll(Arrays.asList("Aa", "BB", "AaAa", "BBBB", "AaBB",
+				"BBAa"));
+
+		File text = File.createTempFile("lexicon", ".txt");
+		text.deleteOnExit();
+		// written, as FileReader reads it, in the platform encoding
+		PrintWriter out = new PrintWriter(text);
+		for (String term : s_terms) {
+			out.print(term);
+			for (int j = 0, n = rand.nextInt(4); j < n; j++) {
+				out.print(rand.nextBoolean() ? ' ' : '\t');
+				// an unknown tag is dropped, a repeated one kept once
+				out.print((rand.nextInt(20) == 0) ? "XX" : TAGS[rand
+						.nextInt(TAGS.length)]);
+			}
+			out.println();
+		}
+		out.close();
+		s_parsed = new Lexicon(text.getPath(), false);
+
+		File compiled = File.createTempFile("lexicon", ".bin");
+		compiled.deleteOnExit();
+		s_compiledFile = compiled.getPath();
+		s_parsed.writeCompiled(s_compiledFile);
+		s_compiled = Lexicon.open(s_compiledFile, false);
+	}
+
+	@Test
+	public void compiledLexiconMatchesText() throws Exception {
+		assertTrue(Lexicon.isCompiled(s_compiledFile));
+		assertEquals(s_parsed.size(), s_compiled.size());
+		assertTrue(s_parsed.size() > 0);
+		for (String term : s_terms) {
+			assertLooksUpAlike(s_compiled, term);
+		}
+	}
+
+	@Test
+	public void unknownTermsMatchText() throws Exception {
+		Random rand = new Random(6);
+		for (int i = 0; i < 3000; i++) {
+			assertLooksUpAlike(s_compiled, randomTerm(rand) + "~");
+		}
+		assertLooksUpAlike(s_compiled, "");
+		assertLooksUpAlike(s_compiled, "Ab");
+		assertLooksUpAlike(s_compiled, "AaAaAa");
+	}
+
+	@Test
+	public void compiledLexiconSurvivesSerialization() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(s_compiled);
+		out.close();
+		Lexicon copy = (Lexicon) new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertEquals(s_parsed.size(), copy.size());
+		for (String term : s_terms) {
+			assertLooksUpAlike(copy, term);
+		}
+	}
+
+	@Test
+	public void onlyTextIsCompiled() throws Exception {
+		try {
+			s_compiled.writeCompiled(s_compiledFile + ".again");
+			fail("compiled a compiled lexicon");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		File text = File.createTempFile("lexicon", ".txt");
+		text.deleteOnExit();
+		PrintWriter out = new PrintWriter(text);
+		out.println("dog NN");
+		out.close();
+		assertFalse(Lexicon.isCompiled(text.getPath()));
+		Lexicon lex = Lexicon.open(text.getPath(), false);
+		assertEquals(1, lex.size());
+		assertEquals(PoSTag.PoS_NN, lex.getTagsForTerm("dog")[0]);
+	}
+
+	@Test
+	public void compiledLexiconNeedsTheSameTags() throws Exception {
+		String[] images = Lexicon.tagImages();
+		String swap = images[1];
+		images[1] = images[2];
+		images[2] = swap;
+		// the same number of tags in another order
+		assertRejected(Lexicon.hashTags(images));
+		String[] fewer = new String[images.length - 1];
+		System.arraycopy(images, 0, fewer, 0, fewer.length);
+		assertRejected(Lexicon.hashTags(fewer));
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Copy the compiled lexicon with <b>tagsHash</b> as its tags and check
+	 * that it will not open.
+	 */
+	static private void assertRejected(int tagsHash) throws Exception {
+		File copy = File.createTempFile("lexicon", ".bin");
+		copy.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(s_compiledFile, "r");
+		byte[] bytes = new byte[(int) raf.length()];
+		raf.readFully(bytes);
+		raf.close();
+		raf = new RandomAccessFile(copy, "rw");
+		raf.write(bytes);
+		raf.seek(8);
+		raf.writeInt(tagsHash);
+		raf.close();
+		try {
+			Lexicon.open(copy.getPath(), false);
+			fail("opened a lexicon compiled for other tags");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	static private void assertLooksUpAlike(Lexicon lex, String term) {
+		assertEquals(term, s_parsed.isInLexicon(term), lex.isInLexicon(term));
+		assertEquals(term, Arrays.asList(s_parsed.getTagsForTerm(term)),
+				Arrays.asList(lex.getTagsForTerm(term)));
+	}
+
+	static private String randomTerm(Random rand) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0, n = 1 + rand.nextInt(8); i < n; i++) {
+			int c = rand.nextInt(30);
+			if (c < 26) {
+				sb.append((char) ('a' + c));
+			} else if (c == 26) {
+				sb.append('\'');
+			} else if (c == 27) {
+				sb.append('.');
+			} else if (c == 28) {
+				sb.append('\u00e9');
+			} else {
+				sb.append('A');
+			}
+		}
+		return sb.toString();
+	}
+}
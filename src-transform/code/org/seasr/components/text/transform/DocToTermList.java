@@ -1 +1 @@
-/** * University of Illinois/NCSA * Open Source License *  * Copyright (c) 2008, Board of Trustees-University of Illinois.   * All rights reserved. *  * Developed by:  *  * Automated Learning Group * National Center for Supercomputing Applications * http://www.seasr.org *  *   * Permission is hereby granted, free of charge, to any person obtaining a copy * of this software and associated documentation files (the "Software"), to * deal with the Software without restriction, including without limitation the * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or * sell copies of the Software, and to permit persons to whom the Software is * furnished to do so, subject to the following conditions:  *  *  * Redistributions of source code must retain the above copyright notice, *    this list of conditions and the following disclaimers.  *  *  * Redistributions in binary form must reproduce the above copyright notice, *    this list of conditions and the following disclaimers in the  *    documentation and/or other materials provided with the distribution.  *  *  * Neither the names of Automated Learning Group, The National Center for *    Supercomputing Applications, or University of Illinois, nor the names of *    its contributors may be used to endorse or promote products derived from *    this Software without specific prior written permission.  *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS * WITH THE SOFTWARE. */package org.seasr.components.text.transform;// ==============// Java Imports// ==============import java.util.*;import java.io.*;import java.util.logging.*;// ===============// Other Imports// ===============import org.meandre.core.*;import org.meandre.annotations.*;import org.seasr.components.text.datatype.corpora.Annotation;import org.seasr.components.text.datatype.corpora.AnnotationConstants;import org.seasr.components.text.datatype.corpora.AnnotationSet;import org.seasr.components.text.datatype.corpora.Document;import org.seasr.components.text.datatype.corpora.FeatureMap;import org.seasr.components.text.datatype.termlist.TermListLite;// import org.meandre.tools.components.*;// import org.meandre.tools.components.FlowBuilderAPI.WorkingFlow;/** * Overview: This module takes in a <i>Document</i> object that has been * tokenized and outputs a list of the tokens, or terms, and the number of times * each token appears (frequency count) as a <i>TermList</i> object. *  *  * Data Type Restrictions: The input document must have been tokenized. *  *  * Data Handling: This module creates a new TermList object for each document. *  *  * Scalability: This module makes one pass over the token list resulting in * linear time complexity per the number of tokens. Memory usage is proportional * to the number tokens. *  *  * Trigger Criteria: Standard. *  *  * @author D. Searsmith *  * TODO: Testing, Unit Testing *  */@Component(creator = "Duane Searsmith",description = "<p>Overview: <br>"		+ "This module takes in a Document object that has been tokenized and "		+ "outputs a list of the tokens, or terms, and the number of times each "		+ "token appears (frequency count) as a TermList object. </p>"		+ "<p>Data Type Restrictions: <br>"		+ "The input document must have been tokenized.</p>"		+ "<p>Data Handling: <br>"		+ "This module creates a new TermList object for each document. Note that each feature"		+ "from the Document is added to TermList properties unless the value is not of type String.</p>"		+ "<p>Scalability: <br>"		+ "This module makes one pass over the token list resulting in linear time complexity "		+ "per the number of tokens.  Memory usage is proportional to the number tokens.</p>"		+ "<p>Trigger Criteria: <br>" + "Standard.</p>",name = "DocToTermList", tags = "text document termlist transform",baseURL="meandre://seasr.org/components/")public class DocToTermList implements ExecutableComponent {	// ==============	// Data Members	// ==============	private int m_docsProcessed = 0;	private static Logger _logger = Logger.getLogger("DocToTermList");	// props	@ComponentProperty(description = "Verbose output? A boolean value (true or false).", name = "verbose", defaultValue = "false")	final static String DATA_PROPERTY_VERBOSE = "verbose";	@ComponentProperty(description = "Debug? A boolean value (true or false).", name = "debug", defaultValue = "false")	final static String DATA_PROPERTY_DEBUG = "debug";	@ComponentProperty(description = "Clear the document object? A boolean value (true or false).", name = "free_doc", defaultValue = "true")	final static String DATA_PROPERTY_FREE_DOC = "free_doc";	@ComponentProperty(description = "Maximum number of tokens.", name = "max_tokens", defaultValue = "-1")	final static String DATA_PROPERTY_TOKEN_LIMIT = "max_tokens";	@ComponentProperty(description = "Title weight.", name = "title_weight", defaultValue = "0")	final static String DATA_PROPERTY_TITLE_WEIGHT = "title_weight";	// io	@ComponentInput(description = "Document object.", name = "document")	public final static String DATA_INPUT_DOCUMENT = "document";	@ComponentOutput(description = "Term list object.", name = "termlist")	public final static String DATA_OUTPUT_TERMLIST = "termlist";	// ================	// Static Methods	// ================	/**	 * Test	 */	static public void main(String[] args) {		// // get a flow builder instance		// FlowBuilderAPI flowBuilder = new FlowBuilderAPI();		// // get a flow object		// WorkingFlow wflow = flowBuilder.newWorkingFlow("test");		// // add a component		// String pushString = wflow		// .addComponent("org.seasr.meandre.components.io.PushString");		// // set a component property		// wflow.setComponentInstanceProp(pushString, "string",		// "http://norma.ncsa.uiuc.edu/public-dav/capitanu");		// // add another component		// String reader = wflow		// .addComponent("org.seasr.meandre.components.t2k.io.file.ReadFileNames");		// wflow.setComponentInstanceProp(reader, DATA_PROPERTY_FILTER,		// ".*\\.xml");		// wflow.setComponentInstanceProp(reader, DATA_PROPERTY_WEBDAV, "true");		// // make a connection between two components		// wflow.connectComponents(pushString, "output_string", reader,		// DATA_INPUT_DIRNAME);		//		// // execute the flow specifying that we want a web UI displayed		// flowBuilder.execute(wflow, false);		//		// // For some reason the process does not end without a forced exit.		// System.exit(0);	}	// ================	// Constructor(s)	// ================	public DocToTermList() {	}	// ================	// Public Methods	// ================	public boolean getVerbose(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_VERBOSE);		return Boolean.parseBoolean(s.toLowerCase());	}	public boolean getDebug(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_DEBUG);		return Boolean.parseBoolean(s.toLowerCase());	}	public boolean getFreeDoc(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_FREE_DOC);		return Boolean.parseBoolean(s.toLowerCase());	}	public int getTokenLimit(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_TOKEN_LIMIT);		return Integer.parseInt(s);	}	public int getTitleWeight(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_TITLE_WEIGHT);		return Integer.parseInt(s);	}	// =====================================	// Interface Impl: ExecutableComponent	// =====================================	public void initialize(ComponentContextProperties ccp) {		_logger.fine("initialize() called");		m_docsProcessed = 0;	}	public void dispose(ComponentContextProperties ccp) {		_logger.fine("dispose() called");		if (getVerbose(ccp) || getDebug(ccp)) {			_logger.info("\nEND EXEC -- DocumentToTermList -- Docs Processed: "					+ m_docsProcessed + "\n");		}		m_docsProcessed = 0;	}	/**	 * In frequency include all occurrences of a term even if it only matches	 * the POS tag criteria for a subset of occurrences.	 */	public void execute(ComponentContext ctx)			throws ComponentExecutionException, ComponentContextException {		_logger.fine("execute() called");		//props ==============		boolean verbose = this.getVerbose(ctx);		int toklim = this.getTokenLimit(ctx);		boolean debug = this.getDebug(ctx);		int titwt = this.getTitleWeight(ctx);		boolean freedoc = this.getFreeDoc(ctx);		//====================		int tokens_processed = 0;		try {			Document doc = (Document) ctx					.getDataComponentFromInput(DATA_INPUT_DOCUMENT);			if (debug) {				_logger.info("Document: "						+ doc.getDocID()						+ " has "						+ doc.getAnnotations().get(								AnnotationConstants.TOKEN_ANNOT_TYPE).size()						+ " tokens.");			}			AnnotationSet annots = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);			Map<String, TLCont> map = new HashMap<String, TLCont>();			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {				Annotation tok = iter.next();				if (tok.getType().equals(AnnotationConstants.TOKEN_ANNOT_TYPE)) {					String tokimg = (String) tok.getFeatures().get(							AnnotationConstants.TOKEN_ANNOT_FEAT_NORM_IMAGE);					String otokimg = tok.getContent(doc);					if (tokimg == null) {						tokimg = otokimg;					}					if (tokimg.length() > 0) {						TLCont obarr = map.get(tokimg);						if (obarr == null) {							obarr = new TLCont();							obarr._img = tokimg;							obarr._cnt = 1;							HashSet<String> set = new HashSet<String>();							set.add(otokimg);							obarr._orig_imgs = set;							if (tok									.getFeatures()									.containsKey(											AnnotationConstants.TOKEN_ANNOT_FEAT_OCCURENCE_MULTIPLIER)) {								obarr._occurence_multiplier = Integer										.parseInt(tok												.getFeatures()												.get(														AnnotationConstants.TOKEN_ANNOT_FEAT_OCCURENCE_MULTIPLIER));							}							map.put(tokimg, obarr);						} else {							obarr._cnt++;							obarr._orig_imgs.add(otokimg);						}						String intit = tok								.getFeatures()								.get(										AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL);						if (intit != null) {							obarr._inTitle = Boolean.valueOf(intit);						}						tokens_processed++;					}				}			}			// for ngrams			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {				Annotation tok = iter.next();				if (tok.getType().equals(AnnotationConstants.NGRAM_ANNOT_TYPE)) {					String tokimg = (String) tok.getFeatures().get(							AnnotationConstants.NGRAM_ANNOT_FEAT_NORM_IMAGE);					String otokimg = tok.getContent(doc);					if (tokimg == null) {						tokimg = otokimg;					}					if (tokimg.length() > 0) {						TLCont obarr = map.get(tokimg);						if (obarr == null) {							obarr = new TLCont();							obarr._img = tokimg;							obarr._cnt = 1;							HashSet<String> set = new HashSet<String>();							set.add(otokimg);							obarr._orig_imgs = set;							if (tok									.getFeatures()									.containsKey(											AnnotationConstants.TOKEN_ANNOT_FEAT_OCCURENCE_MULTIPLIER)) {								obarr._occurence_multiplier = Integer										.parseInt(tok												.getFeatures()												.get(														AnnotationConstants.TOKEN_ANNOT_FEAT_OCCURENCE_MULTIPLIER));							}							map.put(tokimg, obarr);						} else {							obarr._cnt++;							obarr._orig_imgs.add(otokimg);						}						tokens_processed++;					}				}			}			// Now sort by freq descending			TreeSet<TLCont> ts = new TreeSet<TLCont>(new TokElementComparator());			ts.addAll(map.values());			// load into TermListLite			TermListLite tlist = new TermListLite();			int cnt = Integer.MAX_VALUE;			if (toklim > 0) {				cnt = toklim;			}			for (Iterator<TLCont> it = ts.iterator(); it.hasNext() && (cnt > 0); cnt--) {				TLCont obarr = it.next();				int freq = obarr._cnt;				if (obarr._inTitle) {					freq += titwt;				}				if (obarr._occurence_multiplier > 0) {					freq = freq * obarr._occurence_multiplier;				}				if (freq > 0) {					tlist.addTerm(obarr._img, freq, new ArrayList<String>(							obarr._orig_imgs));				}			}			tlist.setDocID(doc.getDocID());			tlist.setTitle(doc.getTitle());			tlist.setDate(doc.getDate());			try {				tlist.setProperties(doc.getFeatures());				if (verbose || debug)					_logger.info("DocToTermList: set properties successfully");			} catch (NullPointerException e) {				try {					FeatureMap fMap = doc.getFeatures();					Iterator<String> keys = fMap.keySet().iterator();					Map<String, String> newMap = new HashMap<String, String>();					while (keys.hasNext()) {						String key = (String) keys.next();						String value = (String) fMap.get(key);						if ((value != null) && (value instanceof String)) {							newMap.put(key, value);						} else {							if (verbose)								_logger										.info("DocToTermList: removed property key - "												+ key												+ " cause it had a null value (for document "												+ doc.getDocID() + ".");						}					}// while					tlist.setProperties(newMap);					if (verbose || debug)						_logger								.info("DocToTermList: set properties successfully for document "										+ doc.getDocID());				} catch (Exception ex) {					_logger.severe("DocToTermList: " + doc.getDocID());					ex.printStackTrace();				}			}			if (verbose || debug) {				_logger.info(tokens_processed						+ " tokens were processed for this document -- "						+ tlist.getTitle());				_logger.info("# terms in list: " + tlist.getSize() + "\n\n");			}			if (freedoc) {				doc.free();			}			ctx.pushDataComponentToOutput(DATA_OUTPUT_TERMLIST, tlist);			m_docsProcessed++;		} catch (Exception ex) {			ex.printStackTrace();			_logger.severe(ex.getMessage());			_logger.severe("ERROR: DocToTermList.execute()");			throw new ComponentExecutionException(ex);		}	}	// =============	// Inner Class	// =============	private class TLCont {		String _img = null;		int _cnt = -1;		Set<String> _orig_imgs = null;		boolean _inTitle = Boolean.FALSE;		int _occurence_multiplier = -1;	}	public class TokElementComparator implements Comparator<TLCont>,			Serializable {		private static final long serialVersionUID = 1L;		/**		 * 		 * put your documentation comment here		 * 		 */		public TokElementComparator() {		}		// ======================		// Interface: Comparator		// ======================		public int compare(TLCont o1, TLCont o2) {			int pos1 = o1._cnt;			int pos2 = o2._cnt;			if (pos1 < pos2) {				return 1;			} else if (pos1 > pos2) {				return -1;			} else {				return o1._img.compareTo(o2._img);			}		}		/**		 * 		 * put your documentation comment here		 * 		 * @param o		 * 		 * @return		 * 		 */		public boolean equals(Object o) {			return this.equals(o);		}	}}
\ No newline at end of file
+/** * University of Illinois/NCSA * Open Source License *  * Copyright (c) 2008, Board of Trustees-University of Illinois.   * All rights reserved. *  * Developed by:  *  * Automated Learning Group * National Center for Supercomputing Applications * http://www.seasr.org *  *   * Permission is hereby granted, free of charge, to any person obtaining a copy * of this software and associated documentation files (the "Software"), to * deal with the Software without restriction, including without limitation the * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or * sell copies of the Software, and to permit persons to whom the Software is * furnished to do so, subject to the following conditions:  *  *  * Redistributions of source code must retain the above copyright notice, *    this list of conditions and the following disclaimers.  *  *  * Redistributions in binary form must reproduce the above copyright notice, *    this list of conditions and the following disclaimers in the  *    documentation and/or other materials provided with the distribution.  *  *  * Neither the names of Automated Learning Group, The National Center for *    Supercomputing Applications, or University of Illinois, nor the names of *    its contributors may be used to endorse or promote products derived from *    this Software without specific prior written permission.  *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS * WITH THE SOFTWARE. */package org.seasr.components.text.transform;// ==============// Java Imports// ==============import java.util.*;import java.util.logging.*;// ===============// Other Imports// ===============import org.meandre.core.*;import org.meandre.annotations.*;import org.seasr.components.text.datatype.corpora.Annotation;import org.seasr.components.text.datatype.corpora.AnnotationConstants;import org.seasr.components.text.datatype.corpora.AnnotationSet;import org.seasr.components.text.datatype.corpora.Document;import org.seasr.components.text.datatype.corpora.FeatureMap;import org.seasr.components.text.datatype.termlist.OriginalFormsPool;import org.seasr.components.text.datatype.termlist.TermDictionary;import org.seasr.components.text.datatype.termlist.TermListLite;// import org.meandre.tools.components.*;// import org.meandre.tools.components.FlowBuilderAPI.WorkingFlow;/** * Overview: This module takes in a <i>Document</i> object that has been * tokenized and outputs a list of the tokens, or terms, and the number of times * each token appears (frequency count) as a <i>TermList</i> object. *  *  * Data Type Restrictions: The input document must have been tokenized. *  *  * Data Handling: This module creates a new TermList object for each document. *  *  * Scalability: This module makes one pass over the token list resulting in * linear time complexity per the number of tokens. Memory usage is proportional * to the number tokens. *  *  * Trigger Criteria: Standard. *  *  * @author D. Searsmith *  * TODO: Testing, Unit Testing *  */@Component(creator = "Duane Searsmith",description = "<p>Overview: <br>"		+ "This module takes in a Document object that has been tokenized and "		+ "outputs a list of the tokens, or terms, and the number of times each "		+ "token appears (frequency count) as a TermList object. </p>"		+ "<p>Data Type Restrictions: <br>"		+ "The input document must have been tokenized.</p>"		+ "<p>Data Handling: <br>"		+ "This module creates a new TermList object for each document. Note that each feature"		+ "from the Document is added to TermList properties unless the value is not of type String.</p>"		+ "<p>Scalability: <br>"		+ "This module makes one pass over the token list resulting in linear time complexity "		+ "per the number of tokens.  Memory usage is proportional to the number tokens.</p>"		+ "<p>Trigger Criteria: <br>" + "Standard.</p>",name = "DocToTermList", tags = "text document termlist transform",baseURL="meandre://seasr.org/components/")public class DocToTermList implements ExecutableComponent {	// ==============	// Data Members	// ==============	private int m_docsProcessed = 0;	private TermCounts m_counts = null;	private static Logger _logger = Logger.getLogger("DocToTermList");	// props	@ComponentProperty(description = "Verbose output? A boolean value (true or false).", name = "verbose", defaultValue = "false")	final static String DATA_PROPERTY_VERBOSE = "verbose";	@ComponentProperty(description = "Debug? A boolean value (true or false).", name = "debug", defaultValue = "false")	final static String DATA_PROPERTY_DEBUG = "debug";	@ComponentProperty(description = "Clear the document object? A boolean value (true or false).", name = "free_doc", defaultValue = "true")	final static String DATA_PROPERTY_FREE_DOC = "free_doc";	@ComponentProperty(description = "Maximum number of tokens.", name = "max_tokens", defaultValue = "-1")	final static String DATA_PROPERTY_TOKEN_LIMIT = "max_tokens";	@ComponentProperty(description = "Title weight.", name = "title_weight", defaultValue = "0")	final static String DATA_PROPERTY_TITLE_WEIGHT = "title_weight";	@ComponentProperty(description = "Keep the original forms of each term? A boolean value (true or false).", name = "keep_original_forms", defaultValue = "true")	final static String DATA_PROPERTY_KEEP_ORIGINAL_FORMS = "keep_original_forms";	// io	@ComponentInput(description = "Document object.", name = "document")	public final static String DATA_INPUT_DOCUMENT = "document";	@ComponentOutput(description = "Term list object.", name = "termlist")	public final static String DATA_OUTPUT_TERMLIST = "termlist";	// ================	// Static Methods	// ================	/**	 * Test	 */	static public void main(String[] args) {		// // get a flow builder instance		// FlowBuilderAPI flowBuilder = new FlowBuilderAPI();		// // get a flow object		// WorkingFlow wflow = flowBuilder.newWorkingFlow("test");		// // add a component		// String pushString = wflow		// .addComponent("org.seasr.meandre.components.io.PushString");		// // set a component property		// wflow.setComponentInstanceProp(pushString, "string",		// "http://norma.ncsa.uiuc.edu/public-dav/capitanu");		// // add another component		// String reader = wflow		// .addComponent("org.seasr.meandre.components.t2k.io.file.ReadFileNames");		// wflow.setComponentInstanceProp(reader, DATA_PROPERTY_FILTER,		// ".*\\.xml");		// wflow.setComponentInstanceProp(reader, DATA_PROPERTY_WEBDAV, "true");		// // make a connection between two components		// wflow.connectComponents(pushString, "output_string", reader,		// DATA_INPUT_DIRNAME);		//		// // execute the flow specifying that we want a web UI displayed		// flowBuilder.execute(wflow, false);		//		// // For some reason the process does not end without a forced exit.		// System.exit(0);	}	// ================	// Constructor(s)	// ================	public DocToTermList() {	}	// ================	// Public Methods	// ================	public boolean getVerbose(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_VERBOSE);		return Boolean.parseBoolean(s.toLowerCase());	}	public boolean getDebug(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_DEBUG);		return Boolean.parseBoolean(s.toLowerCase());	}	public boolean getFreeDoc(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_FREE_DOC);		return Boolean.parseBoolean(s.toLowerCase());	}	public int getTokenLimit(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_TOKEN_LIMIT);		return Integer.parseInt(s);	}	public int getTitleWeight(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_TITLE_WEIGHT);		return Integer.parseInt(s);	}	public boolean getKeepOriginalForms(ComponentContextProperties ccp) {		String s = ccp.getProperty(DATA_PROPERTY_KEEP_ORIGINAL_FORMS);		return Boolean.parseBoolean(s.toLowerCase());	}	// =====================================	// Interface Impl: ExecutableComponent	// =====================================	public void initialize(ComponentContextProperties ccp) {		_logger.fine("initialize() called");		m_docsProcessed = 0;		m_counts = new TermCounts();		TermDictionary.acquire();	}	public void dispose(ComponentContextProperties ccp) {		_logger.fine("dispose() called");		if (getVerbose(ccp) || getDebug(ccp)) {			_logger.info("\nEND EXEC -- DocumentToTermList -- Docs Processed: "					+ m_docsProcessed + "\n");		}		m_docsProcessed = 0;		m_counts = null;		TermDictionary.release();	}	/**	 * In frequency include all occurrences of a term even if it only matches	 * the POS tag criteria for a subset of occurrences.	 */	public void execute(ComponentContext ctx)			throws ComponentExecutionException, ComponentContextException {		_logger.fine("execute() called");		//props ==============		boolean verbose = this.getVerbose(ctx);		int toklim = this.getTokenLimit(ctx);		boolean debug = this.getDebug(ctx);		int titwt = this.getTitleWeight(ctx);		boolean freedoc = this.getFreeDoc(ctx);		boolean origforms = this.getKeepOriginalForms(ctx);		//====================		int tokens_processed = 0;		try {			Document doc = (Document) ctx					.getDataComponentFromInput(DATA_INPUT_DOCUMENT);			if (debug) {				_logger.info("Document: "						+ doc.getDocID()						+ " has "						+ doc.getAnnotations().get(								AnnotationConstants.TOKEN_ANNOT_TYPE).size()						+ " tokens.");			}			AnnotationSet annots = doc.getAnnotations(AnnotationConstants.ANNOTATION_SET_TOKENS);			TermCounts counts = m_counts;			counts.clear();			// tokens and n-grams in one pass			for (Iterator<Annotation> iter = annots.iterator(); iter.hasNext();) {				Annotation tok = iter.next();				int type = tok.getTypeId();				boolean isToken = (type == AnnotationConstants.TOKEN_ANNOT_TYPE_ID);				if (!isToken && (type != AnnotationConstants.NGRAM_ANNOT_TYPE_ID)) {					continue;				}				FeatureMap fm = tok.getFeatures();				String tokimg = (String) fm.get((isToken) ? AnnotationConstants.TOKEN_ANNOT_FEAT_NORM_IMAGE_ID						: AnnotationConstants.NGRAM_ANNOT_FEAT_NORM_IMAGE_ID);				String otokimg = null;				if ((tokimg == null) || origforms) {					otokimg = tok.getContent(doc);				}				if (tokimg == null) {					tokimg = otokimg;				}				if (tokimg.length() > 0) {					int entry = counts.add(TermDictionary.intern(tokimg));					if (counts._cnts[entry] == 1) {						counts._mults[entry] = fm.getInt(								AnnotationConstants.TOKEN_ANNOT_FEAT_OCCURENCE_MULTIPLIER_ID,								-1);					}					if (origforms) {						counts.addForm(entry, otokimg);					}					if (isToken							&& fm.containsKey(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL_ID)) {						counts._inTitle[entry] = fm								.getBoolean(AnnotationConstants.TOKEN_ANNOT_FEAT_INTITLE_BOOL_ID);					}					tokens_processed++;				}			}			// Now rank by freq descending, keeping only the top toklim			int[] ranked = counts.rank(toklim);			// load into TermListLite			TermListLite tlist = new TermListLite();			for (int i = 0; i < ranked.length; i++) {				int entry = ranked[i];				int freq = counts._cnts[entry];				if (counts._inTitle[entry]) {					freq += titwt;				}				if (counts._mults[entry] > 0) {					freq = freq * counts._mults[entry];				}				if (freq > 0) {					tlist.addTerm(counts._ids[entry], freq,							(origforms) ? OriginalFormsPool.intern(counts									.getForms(entry)) : OriginalFormsPool.NO_FORMS);				}			}			tlist.setDocID(doc.getDocID());			tlist.setTitle(doc.getTitle());			tlist.setDate(doc.getDate());			try {				tlist.setProperties(doc.getFeatures());				if (verbose || debug)					_logger.info("DocToTermList: set properties successfully");			} catch (NullPointerException e) {				try {					FeatureMap fMap = doc.getFeatures();					Iterator<String> keys = fMap.keySet().iterator();					Map<String, String> newMap = new HashMap<String, String>();					while (keys.hasNext()) {						String key = (String) keys.next();						String value = (String) fMap.get(key);						if ((value != null) && (value instanceof String)) {							newMap.put(key, value);						} else {							if (verbose)								_logger										.info("DocToTermList: removed property key - "												+ key												+ " cause it had a null value (for document "												+ doc.getDocID() + ".");						}					}// while					tlist.setProperties(newMap);					if (verbose || debug)						_logger								.info("DocToTermList: set properties successfully for document "										+ doc.getDocID());				} catch (Exception ex) {					_logger.severe("DocToTermList: " + doc.getDocID());					ex.printStackTrace();				}			}			if (verbose || debug) {				_logger.info(tokens_processed						+ " tokens were processed for this document -- "						+ tlist.getTitle());				_logger.info("# terms in list: " + tlist.getSize() + "\n\n");			}			if (freedoc) {				doc.free();			}			ctx.pushDataComponentToOutput(DATA_OUTPUT_TERMLIST, tlist);			m_docsProcessed++;		} catch (Exception ex) {			ex.printStackTrace();			_logger.severe(ex.getMessage());			_logger.severe("ERROR: DocToTermList.execute()");			throw new ComponentExecutionException(ex);		}	}	// =============	// Inner Class	// =============	/**	 * Counts of the terms of a document in an open addressing table keyed by	 * TermDictionary id, reused from document to document. The entries are	 * numbered in the order the terms are first seen and their data kept in	 * parallel arrays. The original forms of each term are kept as a chain	 * of distinct forms with their counts, in shared arrays.	 */	static private final class TermCounts {		static private final int INITIAL_CAPACITY = 256;		/**		 * Entry + 1 for each hash slot, 0 for an empty slot.		 */		int[] _slots = new int[INITIAL_CAPACITY * 2];		int _size = 0;		int[] _ids = new int[INITIAL_CAPACITY];		int[] _cnts = new int[INITIAL_CAPACITY];		int[] _mults = new int[INITIAL_CAPACITY];		boolean[] _inTitle = new boolean[INITIAL_CAPACITY];		/**		 * First form of each entry, -1 for none.		 */		int[] _formHead = new int[INITIAL_CAPACITY];		String[] _forms = new String[INITIAL_CAPACITY];		int[] _formCnts = new int[INITIAL_CAPACITY];		int[] _formNext = new int[INITIAL_CAPACITY];		int _numForms = 0;		private final ArrayList<String> _formList = new ArrayList<String>();		void clear() {			Arrays.fill(_slots, 0);			Arrays.fill(_forms, 0, _numForms, null);			_size = 0;			_numForms = 0;		}		/**		 * Count one occurrence of the term with id <b>termId</b>.		 * 		 * @return the entry of the term.		 */		int add(int termId) {			int mask = _slots.length - 1;			int slot = hash(termId) & mask;			int entry;			while ((entry = _slots[slot]) != 0) {				if (_ids[entry - 1] == termId) {					_cnts[entry - 1]++;					return entry - 1;				}				slot = (slot + 1) & mask;			}			if (_size == _ids.length) {				growEntries();			}			entry = _size++;			_ids[entry] = termId;			_cnts[entry] = 1;			_mults[entry] = -1;			_inTitle[entry] = false;			_formHead[entry] = -1;			_slots[slot] = entry + 1;			if (_size * 2 > _slots.length) {				rehash();			}			return entry;		}		/**		 * Count one occurrence of <b>form</b> for <b>entry</b>.		 */		void addForm(int entry, String form) {			int last = -1;			for (int f = _formHead[entry]; f >= 0; f = _formNext[f]) {				if (_forms[f].equals(form)) {					_formCnts[f]++;					return;				}				last = f;			}			if (_numForms == _forms.length) {				int cap = _numForms * 2;				String[] forms = new String[cap];				System.arraycopy(_forms, 0, forms, 0, _numForms);				_forms = forms;				_formCnts = grow(_formCnts, cap);				_formNext = grow(_formNext, cap);			}			int f = _numForms++;			_forms[f] = form;			_formCnts[f] = 1;			_formNext[f] = -1;			if (last < 0) {				_formHead[entry] = f;			} else {				_formNext[last] = f;			}		}		/**		 * Returns the distinct forms of <b>entry</b> in the order they were		 * seen, in a list that is reused by the next call.		 */		List<String> getForms(int entry) {			_formList.clear();			for (int f = _formHead[entry]; f >= 0; f = _formNext[f]) {				_formList.add(_forms[f]);			}			return _formList;		}		/**		 * Returns the entries by count descending, then by term, keeping the		 * first <b>limit</b> if it is positive. A heap holding the entries		 * kept, worst at the root, selects and then sorts them.		 */		int[] rank(int limit) {			int k = ((limit > 0) && (limit < _size)) ? limit : _size;			int[] heap = new int[k];			int n = 0;			for (int e = 0; e < _size; e++) {				if (n < k) {					heap[n] = e;					siftUp(heap, n++);				} else if (before(e, heap[0])) {					heap[0] = e;					siftDown(heap, 0, k);				}			}			// move the worst to the end until sorted best first			for (int i = k - 1; i > 0; i--) {				int worst = heap[0];				heap[0] = heap[i];				heap[i] = worst;				siftDown(heap, 0, i);			}			return heap;		}		/**		 * True if entry <b>a</b> ranks before entry <b>b</b>.		 */		private boolean before(int a, int b) {			if (_cnts[a] != _cnts[b]) {				return _cnts[a] > _cnts[b];			}			return TermDictionary.termOf(_ids[a]).compareTo(					TermDictionary.termOf(_ids[b])) < 0;		}		private void siftUp(int[] heap, int i) {			int e = heap[i];			while (i > 0) {				int parent = (i - 1) >>> 1;				if (!before(heap[parent], e)) {					break;				}				heap[i] = heap[parent];				i = parent;			}			heap[i] = e;		}		private void siftDown(int[] heap, int i, int n) {			int e = heap[i];			int child;			while ((child = 2 * i + 1) < n) {				if ((child + 1 < n) && before(heap[child], heap[child + 1])) {					child++;				}				if (!before(e, heap[child])) {					break;				}				heap[i] = heap[child];				i = child;			}			heap[i] = e;		}		private void growEntries() {			int cap = _ids.length * 2;			_ids = grow(_ids, cap);			_cnts = grow(_cnts, cap);			_mults = grow(_mults, cap);			_formHead = grow(_formHead, cap);			boolean[] inTitle = new boolean[cap];			System.arraycopy(_inTitle, 0, inTitle, 0, _size);			_inTitle = inTitle;		}		private void rehash() {			int[] slots = new int[_slots.length * 2];			int mask = slots.length - 1;			for (int e = 0; e < _size; e++) {				int slot = hash(_ids[e]) & mask;				while (slots[slot] != 0) {					slot = (slot + 1) & mask;				}				slots[slot] = e + 1;			}			_slots = slots;		}		static private int hash(int termId) {			int h = termId * 0x9E3779B9;			return h ^ (h >>> 16);		}		static private int[] grow(int[] a, int cap) {			int[] ret = new int[cap];			System.arraycopy(a, 0, ret, 0, a.length);			return ret;		}	}}
\ No newline at end of file
@@ -10,8 +10,8 @@
 package org.seasr.components.text.transform;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.logging.Level;
@@ -24,6 +24,8 @@ import org.meandre.core.ComponentContextException;
 import org.meandre.core.ComponentContextProperties;
 import org.meandre.core.ComponentExecutionException;
 import org.meandre.core.ExecutableComponent;
+import org.seasr.components.text.datatype.termlist.OriginalFormsPool;
+import org.seasr.components.text.datatype.termlist.TermDictionary;
 import org.seasr.components.text.datatype.termlist.TermListLite;
 
 
@@ -47,11 +49,13 @@ public class MonkToTermList implements ExecutableComponent {
 			throws ComponentExecutionException, ComponentContextException {
 		logger = ccp.getLogger();
 		logger.setLevel(Level.INFO);
+		TermDictionary.acquire();
 		logger.info("Initialized "+ this.getClass().getName());
 	}
 
 	public void dispose(ComponentContextProperties ccp)
 			throws ComponentExecutionException, ComponentContextException {
+		TermDictionary.release();
 		logger.info("Disposed "+ this.getClass().getName());
 	}
 
@@ -109,9 +113,8 @@ public class MonkToTermList implements ExecutableComponent {
 					Spelling spelling = tok.getFeature();
 					int count = (int) tok.getCount(CumKind.CUM);
 					String tokimg =  spelling.getTag();
-					ArrayList<String> alist=new ArrayList<String>();
-					alist.add(tokimg);
-					tlist.addTerm(tokimg, count, alist);
+					tlist.addTerm(TermDictionary.intern(tokimg), count,
+							OriginalFormsPool.intern(Collections.singletonList(tokimg)));
 					tokens_processed++;
 			}
 			tlist.setDocID(work.getTag());
@@ -124,9 +127,8 @@ public class MonkToTermList implements ExecutableComponent {
 					Spelling spelling = tok.getFeature();
 					int count = (int) tok.getCount(CumKind.CUM);
 					String tokimg =  spelling.getTag();
-					ArrayList<String> alist=new ArrayList<String>();
-					alist.add(tokimg);
-					tlist.addTerm(tokimg, count, alist);
+					tlist.addTerm(TermDictionary.intern(tokimg), count,
+							OriginalFormsPool.intern(Collections.singletonList(tokimg)));
 					tokens_processed++;
 			}
 			tlist.setDocID(workPart.getTag());
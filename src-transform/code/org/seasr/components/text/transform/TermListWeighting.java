@@ -0,0 +1,379 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ *
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.
+ * All rights reserved.
+ *
+ * Developed by:
+ *
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ *
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the
+ *    documentation and/or other materials provided with the distribution.
+ *
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */
+
+package org.seasr.components.text.transform;
+
+// ==============
+// Java Imports
+// ==============
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+import org.meandre.annotations.Component;
+import org.meandre.annotations.ComponentInput;
+import org.meandre.annotations.ComponentOutput;
+import org.meandre.annotations.ComponentProperty;
+import org.meandre.components.abstracts.AbstractExecutableComponent;
+import org.meandre.core.ComponentContext;
+import org.meandre.core.ComponentContextProperties;
+import org.meandre.core.ComponentExecutionException;
+import org.seasr.components.text.datatype.termlist.TermDictionary;
+import org.seasr.components.text.datatype.termlist.TermListCodec;
+import org.seasr.components.text.datatype.termlist.TermListLite;
+import org.seasr.components.text.datatype.termlist.TermVector;
+import org.seasr.meandre.support.parsers.DataTypeParser;
+
+/**
+ * Weights the term frequencies of a stream of term lists by TF-IDF or BM25.
+ */
+
+@Component(creator = "agent",
+
+description = "<p>Overview: <br>"
+		+ "This component weights the term frequencies of a set of term lists by "
+		+ "TF-IDF or BM25 and outputs a weighted term vector for each one.  The "
+		+ "weights need the document frequency of every term, so the term lists are "
+		+ "read in two passes: as they arrive their document frequencies are counted "
+		+ "and they are written to a temporary file in the binary term list format; "
+		+ "once the number of term lists told to expect is in, the file is read back "
+		+ "and a term vector is pushed for each term list, in the order they arrived."
+		+ "</p>"
+		+ "<p>Properties: <br>"
+		+ "The property 'weighting' is 'tfidf', for term frequency times the log of the "
+		+ "number of documents over the document frequency, or 'bm25', for the Okapi "
+		+ "BM25 term weight with parameters 'bm25_k1' and 'bm25_b'. The default is tfidf.<br>"
+		+ "The property 'normalize' if set to true, scales each vector to unit length. "
+		+ "The default is true.<br>"
+		+ "The property 'spill_directory' names the directory for the temporary file; "
+		+ "empty for the system temporary directory."
+		+ "</p>"
+		+ "<p>Scalability: <br>"
+		+ "Memory use is proportional to the vocabulary, not the number of term lists: "
+		+ "the document frequencies are kept in an int array indexed by term id and the "
+		+ "term lists wait on disk."
+		+ "</p>"
+		+ "<p>Trigger Criteria: <br>"
+		+ "Any. <br>"
+		+ "Term lists are read and counted until the number told to expect is reached.  "
+		+ "At that time the term vectors are pushed to output, followed by their count."
+		+ "</p>",
+
+name = "TermListWeighting", tags = "text termlist transform tfidf bm25",
+firingPolicy = Component.FiringPolicy.any,
+baseURL="meandre://seasr.org/components/")
+public class TermListWeighting extends AbstractExecutableComponent {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static public final String WEIGHTING_TFIDF = "tfidf";
+
+	static public final String WEIGHTING_BM25 = "bm25";
+
+	/**
+	 * Document frequency of each TermDictionary id.
+	 */
+	private int[] _df = null;
+
+	private int _numDocs = 0;
+
+	/**
+	 * Sum of the frequencies of every term list, for the BM25 average length.
+	 */
+	private long _totalLength = 0;
+
+	private int m_numRecs = Integer.MAX_VALUE;
+
+	private File _file = null;
+
+	private DataOutputStream _out = null;
+
+	private TermListCodec.Writer _writer = null;
+
+	// props
+
+	@ComponentProperty(description = "Weighting scheme, tfidf or bm25.", name = "weighting", defaultValue = "tfidf")
+	final static String DATA_PROPERTY_WEIGHTING = "weighting";
+
+	@ComponentProperty(description = "BM25 term frequency saturation parameter k1.", name = "bm25_k1", defaultValue = "1.2")
+	final static String DATA_PROPERTY_BM25_K1 = "bm25_k1";
+
+	@ComponentProperty(description = "BM25 length normalization parameter b.", name = "bm25_b", defaultValue = "0.75")
+	final static String DATA_PROPERTY_BM25_B = "bm25_b";
+
+	@ComponentProperty(description = "Scale each vector to unit length? A boolean value (true or false).", name = "normalize", defaultValue = "true")
+	final static String DATA_PROPERTY_NORMALIZE = "normalize";
+
+	@ComponentProperty(description = "Directory for the temporary file of term lists; empty for the system temporary directory.", name = "spill_directory", defaultValue = "")
+	final static String DATA_PROPERTY_SPILL_DIRECTORY = "spill_directory";
+
+	// io
+
+	@ComponentInput(description = "Term list object.", name = "termlist")
+	public final static String DATA_INPUT_TERMLIST = "termlist";
+
+	@ComponentInput(description = "Number of TermList objects expected.", name = "num_termlist")
+	public final static String DATA_INPUT_NUMBER_OF_TERMLIST = "num_termlist";
+
+	@ComponentOutput(description = "Weighted term vector object.", name = "term_vector")
+	public final static String DATA_OUTPUT_TERM_VECTOR = "term_vector";
+
+	@ComponentOutput(description = "Number of term vectors pushed.", name = "num_term_vector")
+	public final static String DATA_OUTPUT_NUMBER_OF_TERM_VECTOR = "num_term_vector";
+
+	// ================
+	// Public Methods
+	// ================
+
+	public String getWeighting(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_WEIGHTING);
+		return s.trim().toLowerCase();
+	}
+
+	public float getBM25K1(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_BM25_K1);
+		return Float.parseFloat(s.trim());
+	}
+
+	public float getBM25B(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_BM25_B);
+		return Float.parseFloat(s.trim());
+	}
+
+	public boolean getNormalize(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_NORMALIZE);
+		return Boolean.parseBoolean(s.toLowerCase());
+	}
+
+	public File getSpillDirectory(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_SPILL_DIRECTORY);
+		return ((s == null) || (s.trim().length() == 0)) ? null : new File(s
+				.trim());
+	}
+
+	@Override
+    public void initializeCallBack(ComponentContextProperties ccp)
+    throws Exception {
+		String w = getWeighting(ccp);
+		if (!WEIGHTING_TFIDF.equals(w) && !WEIGHTING_BM25.equals(w)) {
+			throw new ComponentExecutionException("Unknown weighting: " + w);
+		}
+		TermDictionary.acquire();
+		_df = new int[1024];
+		_numDocs = 0;
+		_totalLength = 0;
+		m_numRecs = Integer.MAX_VALUE;
+	}
+
+	@Override
+    public void disposeCallBack(ComponentContextProperties ccp)
+    throws Exception {
+		closeFile();
+		_df = null;
+		TermDictionary.release();
+	}
+
+	@Override
+    public void executeCallBack(ComponentContext ctx)
+    throws Exception {
+		try {
+			if (ctx.isInputAvailable(DATA_INPUT_TERMLIST)) {
+				count((TermListLite) ctx
+						.getDataComponentFromInput(DATA_INPUT_TERMLIST), ctx);
+			}
+
+			if (ctx.isInputAvailable(DATA_INPUT_NUMBER_OF_TERMLIST)) {
+				m_numRecs = DataTypeParser.parseAsInteger(ctx.getDataComponentFromInput(DATA_INPUT_NUMBER_OF_TERMLIST))[0];
+				console.info("TermListWeighting: Number of records was told to expect: "
+									+ m_numRecs);
+			}
+
+			if (_numDocs >= m_numRecs) {
+				weigh(ctx);
+				ctx.pushDataComponentToOutput(
+						DATA_OUTPUT_NUMBER_OF_TERM_VECTOR, new Integer(
+								_numDocs));
+				console.info(_numDocs + " term vectors pushed.");
+				_df = new int[1024];
+				_numDocs = 0;
+				_totalLength = 0;
+				m_numRecs = Integer.MAX_VALUE;
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			ctx.getLogger().severe(ex.getMessage());
+			ctx.getLogger().severe("ERROR: TermListWeighting.execute()");
+			throw new ComponentExecutionException(ex);
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * First pass: count the document frequencies of the terms of <b>tl</b>
+	 * and write it to the temporary file.
+	 */
+	private void count(TermListLite tl, ComponentContext ctx)
+			throws Exception {
+		if (_writer == null) {
+			_file = File.createTempFile("termlists", ".bin",
+					getSpillDirectory(ctx));
+			_file.deleteOnExit();
+			_out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(_file), 1 << 16));
+			_writer = new TermListCodec.Writer(_out);
+		}
+		for (int i = 0, n = tl.getSize(); i < n; i++) {
+			int termId = tl.getTermIdByIndex(i);
+			if (termId >= _df.length) {
+				int[] df = new int[Math.max(termId + 1, _df.length * 2)];
+				System.arraycopy(_df, 0, df, 0, _df.length);
+				_df = df;
+			}
+			_df[termId]++;
+			_totalLength += tl.getTermFreqByIndex(i);
+		}
+		_writer.write(tl);
+		_numDocs++;
+		tl.free();
+	}
+
+	/**
+	 * Second pass: read the term lists back and push a weighted vector for
+	 * each.
+	 */
+	private void weigh(ComponentContext ctx) throws Exception {
+		boolean bm25 = WEIGHTING_BM25.equals(getWeighting(ctx));
+		float k1 = getBM25K1(ctx);
+		float b = getBM25B(ctx);
+		boolean normalize = getNormalize(ctx);
+		double avgLength = (_numDocs == 0) ? 0 : (double) _totalLength
+				/ _numDocs;
+
+		// the idf of every term, once
+		float[] idf = new float[_df.length];
+		for (int t = 0; t < idf.length; t++) {
+			int df = _df[t];
+			if (df > 0) {
+				idf[t] = (float) ((bm25) ? Math.log(1 + (_numDocs - df + 0.5)
+						/ (df + 0.5)) : Math.log((double) _numDocs / df));
+			}
+		}
+
+		if (_writer == null) {
+			return;
+		}
+		_writer.finish();
+		_out.close();
+		_writer = null;
+		_out = null;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(_file), 1 << 16));
+		try {
+			TermListCodec.Reader reader = new TermListCodec.Reader(in);
+			TermListLite tl;
+			while ((tl = reader.read()) != null) {
+				int n = tl.getSize();
+				int[] termIds = new int[n];
+				float[] weights = new float[n];
+				double length = 0;
+				if (bm25) {
+					for (int i = 0; i < n; i++) {
+						length += tl.getTermFreqByIndex(i);
+					}
+				}
+				double norm = 0;
+				for (int i = 0; i < n; i++) {
+					int termId = tl.getTermIdByIndex(i);
+					double tf = tl.getTermFreqByIndex(i);
+					double w;
+					if (bm25) {
+						w = idf[termId] * tf * (k1 + 1)
+								/ (tf + k1 * (1 - b + b * length / avgLength));
+					} else {
+						w = idf[termId] * tf;
+					}
+					termIds[i] = termId;
+					weights[i] = (float) w;
+					norm += w * w;
+				}
+				if (normalize && (norm > 0)) {
+					float scale = (float) (1 / Math.sqrt(norm));
+					for (int i = 0; i < n; i++) {
+						weights[i] *= scale;
+					}
+				}
+				ctx.pushDataComponentToOutput(DATA_OUTPUT_TERM_VECTOR,
+						new TermVector(tl.getDocID(), tl.getTitle(), termIds,
+								weights));
+			}
+		} finally {
+			in.close();
+			closeFile();
+		}
+	}
+
+	private void closeFile() {
+		try {
+			if (_out != null) {
+				_out.close();
+			}
+		} catch (java.io.IOException e) {
+			// nothing to keep
+		}
+		_out = null;
+		_writer = null;
+		if (_file != null) {
+			_file.delete();
+			_file = null;
+		}
+	}
+}
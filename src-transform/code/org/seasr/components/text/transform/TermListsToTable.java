@@ -46,11 +46,27 @@ package org.seasr.components.text.transform;
 // Java Imports
 // ==============
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import gnu.trove.TIntArrayList;
 
 import org.meandre.annotations.Component;
 import org.meandre.annotations.ComponentInput;
@@ -61,11 +77,17 @@ import org.meandre.components.datatype.table.Column;
 import org.meandre.components.datatype.table.ColumnTypes;
 import org.meandre.components.datatype.table.ExampleTable;
 import org.meandre.components.datatype.table.TableFactory;
+import org.meandre.components.datatype.table.sparse.SparseTableFactory;
+import org.meandre.components.datatype.table.sparse.columns.SparseFloatColumn;
 import org.meandre.core.ComponentContext;
 import org.meandre.core.ComponentContextProperties;
 import org.meandre.core.ComponentExecutionException;
+import org.seasr.components.text.datatype.termlist.TermDictionary;
+import org.seasr.components.text.datatype.termlist.TermDocumentMatrix;
 import org.seasr.components.text.datatype.termlist.TermList;
+import org.seasr.components.text.datatype.termlist.TermListCodec;
 import org.seasr.components.text.datatype.termlist.TermListLite;
+import org.seasr.components.text.datatype.termlist.TermMatrixSpill;
 import org.seasr.components.text.datatype.termmap.TermMap;
 import org.seasr.meandre.support.parsers.DataTypeParser;
 
@@ -94,7 +116,10 @@ description = "<p>Overview: <br>"
 		+ "only those columns with actual data are stored in memory.  Because of the very "
 		+ "large number of features (tens of thousands) typically encountered in text "
 		+ "learning, storing only non-zero values greatly reduces the amount of memory "
-		+ "needed for the table."
+		+ "needed for the table.  The term frequencies are accumulated in a compressed "
+		+ "sparse row matrix (primitive int and float arrays) and the table is built from "
+		+ "it with the SparseTableFactory once all term lists are in.  The matrix itself "
+		+ "is also pushed to output for components that can use it directly."
 		+ "</p>"
 		+ "<p>Properties: <br>"
 		+ "The property 'verbose' if set to true, the component will generate additional output "
@@ -110,7 +135,38 @@ description = "<p>Overview: <br>"
 		+ "components in the floe from getting key information.<br>"
 		+ "The property 'add_term_count_column' if set to true, will add an additional column "
 		+ "to the table where for each document processed, the number of terms total for that "
-		+ "document is recorded. The default value for this property is false."
+		+ "document is recorded. The default value for this property is false.<br>"
+		+ "The property 'dense_table' if set to true, the component will fill the table "
+		+ "made by the table factory input one cell at a time instead of building a sparse "
+		+ "table, and will wait for that input before processing term lists. The term "
+		+ "matrix is not produced in that case. The default value is false.<br>"
+		+ "The property 'spill_budget_mb' if greater than zero, bounds the heap used by "
+		+ "the rows of the sparse matrix and the document properties: when they pass it "
+		+ "they are written to a run file and the heap is cleared, and the runs are "
+		+ "merged into the table through memory-mapped buffers once all term lists are "
+		+ "in. The term matrix is not produced when rows were spilled. It does not apply "
+		+ "to dense tables. The default is 0, never spill.<br>"
+		+ "The property 'spill_directory' names the directory for the run files; empty "
+		+ "for the system temporary directory.<br>"
+		+ "The property 'parallelism' sets the number of worker threads building the "
+		+ "sparse matrix. Above 1, term lists are gathered in chunks and each chunk is "
+		+ "turned into a partial matrix with its own columns by a worker; the partial "
+		+ "matrices are then remapped to the global columns and appended in the order "
+		+ "the term lists arrived, so the table is the same as with one thread. It does "
+		+ "not apply to dense tables. The default is 1.<br>"
+		+ "The properties 'min_df', 'max_df' and 'max_terms' prune the vocabulary of "
+		+ "the sparse table. When any of them is set the term lists are read in two "
+		+ "passes: as they arrive the number of documents each term occurs in is "
+		+ "counted and they are written to a temporary file in the binary term list "
+		+ "format; once all are in, only the terms in at least 'min_df' documents and "
+		+ "in at most the fraction 'max_df' of the documents are kept, and of those "
+		+ "the 'max_terms' that occur in the most documents, and the file is read "
+		+ "back to build the matrix and table from the kept terms alone. Rare terms "
+		+ "are most of the vocabulary, so this narrows the table a great deal. The "
+		+ "defaults, 1, 1.0 and 0 for no limit, keep every term. A 'max_df' so "
+		+ "small that it allows less than one document is raised to one document. "
+		+ "When pruning, the term count column counts the kept terms of each "
+		+ "document only. Pruning does not apply to dense tables."
 		+ "<p>Scalability: <br>"
 		+ "This component creates a table that conatins at least as many numerical entries as "
 		+ "term list entries."
@@ -142,8 +198,66 @@ public class TermListsToTable extends AbstractExecutableComponent {
 
 	private TableFactory _fact = null;
 
-	// make a new GlobalTermMap (class scope)
-	HashMap<String, Integer> m_gtm = null;
+	private TermDocumentMatrix _matrix = null;
+
+	/**
+	 * Number of terms in each row, for the term count column.
+	 */
+	private ArrayList<Integer> _termCounts = null;
+
+	/**
+	 * Rows spilled to disk, null until the first spill.
+	 */
+	private TermMatrixSpill _spill = null;
+
+	/**
+	 * Estimated heap held by the property maps in _propList.
+	 */
+	private long _propBytes = 0;
+
+	/**
+	 * Workers building partial matrices, null when running on one thread.
+	 */
+	private ExecutorService _pool = null;
+
+	private int _parallelism = 1;
+
+	/**
+	 * Term lists gathered for the next partial matrix.
+	 */
+	private ArrayList<TermListLite> _chunk = null;
+
+	/**
+	 * Partial matrices being built, in the order their term lists arrived.
+	 */
+	private LinkedList<Future<PartialMatrix>> _pending = null;
+
+	static private final int CHUNK_SIZE = 256;
+
+	/**
+	 * Number of documents each TermDictionary id occurs in, while pruning.
+	 */
+	private int[] _df = null;
+
+	private int _dfDocs = 0;
+
+	/**
+	 * Term lists held for the second pass while pruning, null otherwise.
+	 */
+	private File _pruneFile = null;
+
+	private DataOutputStream _pruneOut = null;
+
+	private TermListCodec.Writer _pruneWriter = null;
+
+	/**
+	 * The TermDictionary ids kept by pruning, null to keep every term.
+	 */
+	private boolean[] _keep = null;
+
+	// make a new GlobalTermMap (class scope), the column + 1 of each
+	// TermDictionary id
+	int[] m_gtm = null;
 
 	// SparseExampleTable
 	ExampleTable _termTable = null;
@@ -168,6 +282,27 @@ public class TermListsToTable extends AbstractExecutableComponent {
 	@ComponentProperty(description = "Add extra column for term counts per document? A boolean value (true or false).", name = "add_term_count_column", defaultValue = "false")
 	final static String DATA_PROPERTY_ADD_TERM_COUNT_COLUMN = "add_term_count_column";
 
+	@ComponentProperty(description = "Fill a table from the table factory input cell by cell instead of building a sparse table from a compressed term matrix? A boolean value (true or false).", name = "dense_table", defaultValue = "false")
+	final static String DATA_PROPERTY_DENSE_TABLE = "dense_table";
+
+	@ComponentProperty(description = "Megabytes of heap for matrix rows and document properties before they are spilled to disk; 0 never spills.", name = "spill_budget_mb", defaultValue = "0")
+	final static String DATA_PROPERTY_SPILL_BUDGET = "spill_budget_mb";
+
+	@ComponentProperty(description = "Directory for spilled run files; empty for the system temporary directory.", name = "spill_directory", defaultValue = "")
+	final static String DATA_PROPERTY_SPILL_DIRECTORY = "spill_directory";
+
+	@ComponentProperty(description = "Number of threads building the sparse matrix.", name = "parallelism", defaultValue = "1")
+	final static String DATA_PROPERTY_PARALLELISM = "parallelism";
+
+	@ComponentProperty(description = "Minimum number of documents a term must occur in to get a column.", name = "min_df", defaultValue = "1")
+	final static String DATA_PROPERTY_MIN_DF = "min_df";
+
+	@ComponentProperty(description = "Maximum fraction of the documents a term may occur in to get a column.", name = "max_df", defaultValue = "1.0")
+	final static String DATA_PROPERTY_MAX_DF = "max_df";
+
+	@ComponentProperty(description = "Maximum number of term columns, keeping the terms in the most documents; 0 for no limit.", name = "max_terms", defaultValue = "0")
+	final static String DATA_PROPERTY_MAX_TERMS = "max_terms";
+
 	// io
 
 	@ComponentInput(description = "Term list object.", name = "termlist")
@@ -182,6 +317,9 @@ public class TermListsToTable extends AbstractExecutableComponent {
 	@ComponentOutput(description = "Table object.", name = "document")
 	public final static String DATA_OUPUT_TABLE = "document";
 
+	@ComponentOutput(description = "Compressed sparse row term by document matrix, not produced when building a dense table.", name = "term_matrix")
+	public final static String DATA_OUPUT_TERM_MATRIX = "term_matrix";
+
 	// ================
 	// Public Methods
 	// ================
@@ -201,6 +339,50 @@ public class TermListsToTable extends AbstractExecutableComponent {
 		return Boolean.parseBoolean(s.toLowerCase());
 	}
 
+	public boolean getDenseTable(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_DENSE_TABLE);
+		return Boolean.parseBoolean(s.toLowerCase());
+	}
+
+	public long getSpillBudget(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_SPILL_BUDGET);
+		return Long.parseLong(s.trim()) * 1024 * 1024;
+	}
+
+	public File getSpillDirectory(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_SPILL_DIRECTORY);
+		return ((s == null) || (s.trim().length() == 0)) ? null : new File(s
+				.trim());
+	}
+
+	public int getParallelism(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_PARALLELISM);
+		return Math.max(1, Integer.parseInt(s.trim()));
+	}
+
+	public int getMinDF(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_MIN_DF);
+		return Integer.parseInt(s.trim());
+	}
+
+	public double getMaxDF(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_MAX_DF);
+		return Double.parseDouble(s.trim());
+	}
+
+	public int getMaxTerms(ComponentContextProperties ccp) {
+		String s = ccp.getProperty(DATA_PROPERTY_MAX_TERMS);
+		return Integer.parseInt(s.trim());
+	}
+
+	/**
+	 * Returns true if the vocabulary is to be pruned by document frequency.
+	 */
+	public boolean getPrune(ComponentContextProperties ccp) {
+		return (getMinDF(ccp) > 1) || (getMaxDF(ccp) < 1)
+				|| (getMaxTerms(ccp) > 0);
+	}
+
 	@Override
     public void initializeCallBack(ComponentContextProperties ccp)
     throws Exception {
@@ -208,9 +390,20 @@ public class TermListsToTable extends AbstractExecutableComponent {
 		_termMaps = new HashMap<ExampleTable, TermMap>();
 		_fact = null;
 
+		TermDictionary.acquire();
 		_tmap = new TermMap();
-		m_gtm = new HashMap<String, Integer>();
+		m_gtm = new int[0];
 		_propList = new ArrayList<Map<String, String>>();
+		_termCounts = new ArrayList<Integer>();
+		_matrix = new TermDocumentMatrix();
+		_spill = null;
+		_propBytes = 0;
+		_parallelism = getParallelism(ccp);
+		if (_parallelism > 1) {
+			_pool = Executors.newFixedThreadPool(_parallelism);
+			_chunk = new ArrayList<TermListLite>(CHUNK_SIZE);
+			_pending = new LinkedList<Future<PartialMatrix>>();
+		}
 
 		m_docsProcessed = 0;
 		_cnter = 0;
@@ -223,6 +416,24 @@ public class TermListsToTable extends AbstractExecutableComponent {
     throws Exception {
 		_fact = null;
 		_propList = null;
+		_termCounts = null;
+		_matrix = null;
+		if (_spill != null) {
+			_spill.delete();
+			_spill = null;
+		}
+		_tmap = null;
+		m_gtm = null;
+		if (_pool != null) {
+			_pool.shutdownNow();
+			_pool = null;
+		}
+		_chunk = null;
+		_pending = null;
+		closePruneFile();
+		_df = null;
+		_keep = null;
+		TermDictionary.release();
 		long end = System.currentTimeMillis();
 		console.info("\nEND EXEC -- TermListsToTable -- Docs Processed: "
 				+ m_docsProcessed + " in " + (end - m_start) / 1000
@@ -245,10 +456,14 @@ public class TermListsToTable extends AbstractExecutableComponent {
     throws Exception {
 		try {
 
+			boolean dense = getDenseTable(ctx);
+
 			if (ctx.isInputAvailable(DATA_INPUT_TABLE_FACTORY)) {
 				_fact = (TableFactory) ctx
 						.getDataComponentFromInput(DATA_INPUT_TABLE_FACTORY);
-				_termTable = _fact.createTable().toExampleTable();
+				if (dense) {
+					_termTable = _fact.createTable().toExampleTable();
+				}
 			}
 
 			if (ctx.isInputAvailable(DATA_INPUT_TERMLIST)) {
@@ -262,7 +477,8 @@ public class TermListsToTable extends AbstractExecutableComponent {
 									+ m_numRecs);
 			}
 
-			if ((_termTable != null) && (!_docs.isEmpty())) {
+			// the sparse matrix does not need the table factory
+			if (((_termTable != null) || !dense) && (!_docs.isEmpty())) {
 				for (int i = 0, n = _docs.size(); i < n; i++) {
 
 					TermListLite tl = (TermListLite) _docs.get(i);
@@ -272,112 +488,103 @@ public class TermListsToTable extends AbstractExecutableComponent {
 						console.info("Termlist had no terms -- discarding: "
 								+ tl.getDocID() + " " + tl.getTitle());
 					} else {
-						int row = _termTable.getNumRows();
-						_termTable.addRows(1);
-						for (Iterator<String> it = tl.getTerms(); it.hasNext();) {
-							String term = it.next();
-
-							Integer colobj = m_gtm.get(term);
-							int col = 0;
-							boolean flag = false;
-							if (colobj == null) {
-								col = _termTable.getNumColumns();
-								m_gtm.put(term, new Integer(col));
-								flag = true;
-							} else {
-								col = colobj.intValue();
-							}
-							int freq = tl.getTermFreqByImage(term);
-
-							// set the value in the table
-							_termTable.setDouble(freq, row, col);
-							if (flag) {
-								_termTable.setColumnLabel(term, col);
-							}
-							ArrayList<String> oforms = tl
-									.getTermOrigFormsByImage(term);
-
-							// added by Bei Yu to avoid the null pointer problem
-							// caused by empty forms
-							if (oforms == null) {
-								oforms = new ArrayList<String>();
-							}
-							_tmap.addTermData(_termTable.getColumnLabel(col),
-									term, oforms);
+						if (dense) {
+							addToTable(tl);
+							_propList.add(tl.getProperties());
+						} else if (getPrune(ctx)) {
+							countForPruning(ctx, tl);
+						} else if (_pool != null) {
+							// freed by the worker
+							addToChunk(ctx, tl);
+							continue;
+						} else {
+							addToMatrix(tl);
+							addProperties(tl.getProperties());
+							spillIfOverBudget(ctx);
 						}
-						_propList.add(tl.getProperties());
-
 					}
 					tl.free();
 				}
 				_docs.clear();
 			}
 
-			if (_cnter >= m_numRecs) {
+			if ((_cnter >= m_numRecs) && ((_termTable != null) || !dense)) {
 
-				m_count = _termTable.getNumRows();
+				if (_pruneWriter != null) {
+					addPruned(ctx);
+				}
+				if (_pool != null) {
+					submitChunk();
+					mergePending(ctx, 0);
+				}
+				ExampleTable table = null;
+				boolean spilled = (_spill != null);
+				if (dense) {
+					table = _termTable;
+				} else if (spilled) {
+					// all rows go through the runs
+					_spill.spill(_matrix, _propList);
+					table = spillToTable(_spill, _matrix);
+				} else {
+					_matrix.trim();
+					table = matrixToTable(_matrix);
+				}
+				m_count = (spilled) ? _spill.getNumRows() : _propList.size();
 				console.info(m_count + " rows added.");
 
-				HashMap<String, Integer> colprops = new HashMap<String, Integer>();
-				// add column for each document property
-				int row = _termTable.getNumRows();
-				int col = _termTable.getNumColumns();
-				for (int i = 0; i < row; i++) {
-					Map<String, String> m = _propList.get(i);
-					for (Iterator<String> it = m.keySet().iterator(); it
-							.hasNext();) {
-						String key = it.next();
-						String ob = m.get(key);
-						Integer icol = colprops.get(key);
-						boolean flag = false;
-						if (icol == null) {
-							icol = new Integer(_termTable.getNumColumns());
-							colprops.put(key, icol);
-							flag = true;
-						}
-						_termTable.setString(ob, i, icol.intValue());
-						if (flag) {
-							_termTable.setColumnLabel(key + "_DOCPROP", icol
-									.intValue());
-						}
-					}
+				// the term columns come first
+				int col = table.getNumColumns();
+				addPropertyColumns(table, dense);
+				if (spilled) {
+					_spill.delete();
+					_spill = null;
 				}
+
 				// set remaining features as input features
 				int[] feats = new int[col];
 				for (int i = 0, n = feats.length; i < n; i++) {
 					feats[i] = i;
 				}
-				_termTable.setInputFeatures(feats);
+				table.setInputFeatures(feats);
 
 				if (this.getAddColumnForTermCounts(ctx)) {
-					Column numTermsColumn = _fact
+					TableFactory fact = (dense) ? _fact
+							: new SparseTableFactory();
+					Column numTermsColumn = fact
 							.createColumn(ColumnTypes.INTEGER);
 					numTermsColumn.setLabel(NUM_TERMS);
-					numTermsColumn.addRows(_termTable.getNumRows());
-					int numTermIdx = _termTable.getNumColumns();
-					_termTable.addColumn(numTermsColumn);
-
-					for (int i = 0; i < _termTable.getNumRows(); i++) {
-						int numTerms = 0;
-						for (int j = 0; j < feats.length; j++) {
-							if (_termTable.getDouble(i, feats[j]) != 0)
-								numTerms++;
-						}
-						_termTable.setInt(numTerms, i, numTermIdx);
+					numTermsColumn.addRows(m_count);
+					int numTermIdx = table.getNumColumns();
+					table.addColumn(numTermsColumn);
+
+					// counted as the rows were added
+					for (int i = 0; i < m_count; i++) {
+						table.setInt(_termCounts.get(i).intValue(), i,
+								numTermIdx);
 					}
 				}// end of if adding num terms column
 
-				ctx.pushDataComponentToOutput(DATA_OUPUT_TABLE, _termTable);
+				ctx.pushDataComponentToOutput(DATA_OUPUT_TABLE, table);
+				if (!dense && !spilled) {
+					ctx.pushDataComponentToOutput(DATA_OUPUT_TERM_MATRIX,
+							_matrix);
+				}
 				if (this.getSaveTermMap(ctx)) {
-					_termMaps.put(_termTable, _tmap);
+					_termMaps.put(table, _tmap);
 				}
 				m_numRecs = Integer.MAX_VALUE;
-				_termTable = _fact.createTable().toExampleTable();
-				console.info("GlobalTermMap contains "
-						+ m_gtm.size() + " terms.");
+				_termTable = (dense) ? _fact.createTable().toExampleTable()
+						: null;
+				console.info("GlobalTermMap contains " + col + " terms.");
 				_tmap = new TermMap();
-				m_gtm = new HashMap<String, Integer>();
+				m_gtm = new int[0];
+				_matrix = new TermDocumentMatrix();
 				_propList = new ArrayList<Map<String, String>>();
+				_termCounts = new ArrayList<Integer>();
+				_propBytes = 0;
+				_df = null;
+				_dfDocs = 0;
+				_keep = null;
 				_cnter = 0;
 			}
 
@@ -388,4 +595,492 @@ public class TermListsToTable extends AbstractExecutableComponent {
 			throw new ComponentExecutionException(ex);
 		}
 	}
-}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Add a row for <b>tl</b> to the dense table, adding a column for each
+	 * term not seen before.
+	 */
+	private void addToTable(TermListLite tl) {
+		int row = _termTable.getNumRows();
+		_termTable.addRows(1);
+		int numTerms = 0;
+		for (int i = 0, n = tl.getSize(); i < n; i++) {
+			int termId = tl.getTermIdByIndex(i);
+
+			if (termId >= m_gtm.length) {
+				int[] gtm = new int[Math.max(termId + 1, m_gtm.length * 2)];
+				System.arraycopy(m_gtm, 0, gtm, 0, m_gtm.length);
+				m_gtm = gtm;
+			}
+			int col = m_gtm[termId] - 1;
+			boolean flag = false;
+			if (col < 0) {
+				col = _termTable.getNumColumns();
+				m_gtm[termId] = col + 1;
+				flag = true;
+			}
+			int freq = tl.getTermFreqByIndex(i);
+			if (freq != 0) {
+				numTerms++;
+			}
+
+			// set the value in the table
+			_termTable.setDouble(freq, row, col);
+			if (flag) {
+				_termTable.setColumnLabel(TermDictionary.termOf(termId), col);
+			}
+			addTermData(tl, i);
+		}
+		_termCounts.add(new Integer(numTerms));
+	}
+
+	/**
+	 * Add a row for <b>tl</b> to the sparse term matrix, leaving out the
+	 * terms pruned.
+	 */
+	private void addToMatrix(TermListLite tl) {
+		_matrix.startRow();
+		for (int i = 0, n = tl.getSize(); i < n; i++) {
+			int termId = tl.getTermIdByIndex(i);
+			if (!isKept(_keep, termId)) {
+				continue;
+			}
+			_matrix.add(_matrix.getColumn(termId), tl.getTermFreqByIndex(i));
+			addTermData(tl, i);
+		}
+		int row = _matrix.endRow();
+		_termCounts.add(new Integer(_matrix.getRowNonZero(row)));
+	}
+
+	/**
+	 * First pass of pruning: count the documents the terms of <b>tl</b>
+	 * occur in and write it to the temporary file.
+	 */
+	private void countForPruning(ComponentContext ctx, TermListLite tl)
+			throws IOException {
+		if (_pruneWriter == null) {
+			_pruneFile = File.createTempFile("termlists", ".bin",
+					getSpillDirectory(ctx));
+			_pruneFile.deleteOnExit();
+			_pruneOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(_pruneFile), 1 << 16));
+			_pruneWriter = new TermListCodec.Writer(_pruneOut);
+			_df = new int[Math.max(1024, TermDictionary.size())];
+			_dfDocs = 0;
+		}
+		for (int i = 0, n = tl.getSize(); i < n; i++) {
+			int termId = tl.getTermIdByIndex(i);
+			if (termId >= _df.length) {
+				int[] df = new int[Math.max(termId + 1, _df.length * 2)];
+				System.arraycopy(_df, 0, df, 0, _df.length);
+				_df = df;
+			}
+			_df[termId]++;
+		}
+		_pruneWriter.write(tl);
+		_dfDocs++;
+	}
+
+	/**
+	 * Second pass of pruning: choose the terms to keep, then read the term
+	 * lists back and add them to the matrix with only those terms.
+	 */
+	private void addPruned(ComponentContext ctx) throws Exception {
+		_pruneWriter.finish();
+		_pruneOut.close();
+		_pruneWriter = null;
+		_pruneOut = null;
+		double maxDF = getMaxDF(ctx);
+		if (Math.floor(maxDF * _dfDocs) < 1) {
+			console.warning("max_df " + maxDF + " allows no documents of "
+					+ _dfDocs + "; keeping terms in at most one document.");
+		}
+		_keep = selectTerms(_df, _dfDocs, getMinDF(ctx), maxDF,
+				getMaxTerms(ctx));
+		int numKept = 0;
+		for (int t = 0; t < _keep.length; t++) {
+			if (_keep[t]) {
+				numKept++;
+			}
+		}
+		console.info("Pruning kept " + numKept + " terms of "
+				+ _dfDocs + " term lists.");
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(_pruneFile), 1 << 16));
+		try {
+			TermListCodec.Reader reader = new TermListCodec.Reader(in);
+			TermListLite tl;
+			while ((tl = reader.read()) != null) {
+				if (_pool != null) {
+					addToChunk(ctx, tl);
+				} else {
+					addToMatrix(tl);
+					addProperties(tl.getProperties());
+					spillIfOverBudget(ctx);
+					tl.free();
+				}
+			}
+		} finally {
+			in.close();
+			closePruneFile();
+		}
+	}
+
+	/**
+	 * Returns, by TermDictionary id, the terms in at least <b>minDF</b> and
+	 * at most <b>maxDF</b> times <b>numDocs</b> documents, but at least one,
+	 * cut to the <b>maxTerms</b> in the most documents if above 0. Ties go to
+	 * the term interned first.
+	 */
+	static private boolean[] selectTerms(int[] df, int numDocs, int minDF,
+			double maxDF, int maxTerms) {
+		long max = Math.max(1, (long) Math.floor(maxDF * numDocs));
+		boolean[] keep = new boolean[df.length];
+		int numKept = 0;
+		for (int t = 0; t < df.length; t++) {
+			if ((df[t] > 0) && (df[t] >= minDF) && (df[t] <= max)) {
+				keep[t] = true;
+				numKept++;
+			}
+		}
+		if ((maxTerms > 0) && (numKept > maxTerms)) {
+			// document frequency above, inverted id below, so the sort puts
+			// the terms to keep last
+			long[] keys = new long[numKept];
+			for (int t = 0, k = 0; t < df.length; t++) {
+				if (keep[t]) {
+					keys[k++] = ((long) df[t] << 32)
+							| (Integer.MAX_VALUE - t);
+				}
+			}
+			Arrays.sort(keys);
+			Arrays.fill(keep, false);
+			for (int k = numKept - maxTerms; k < numKept; k++) {
+				keep[Integer.MAX_VALUE - (int) keys[k]] = true;
+			}
+		}
+		return keep;
+	}
+
+	static private boolean isKept(boolean[] keep, int termId) {
+		return (keep == null) || ((termId < keep.length) && keep[termId]);
+	}
+
+	private void closePruneFile() {
+		try {
+			if (_pruneOut != null) {
+				_pruneOut.close();
+			}
+		} catch (IOException e) {
+			// nothing to keep
+		}
+		_pruneOut = null;
+		_pruneWriter = null;
+		if (_pruneFile != null) {
+			_pruneFile.delete();
+			_pruneFile = null;
+		}
+	}
+
+	/**
+	 * Spill the matrix rows and property maps to a run once their estimated
+	 * heap passes the spill budget.
+	 */
+	private void spillIfOverBudget(ComponentContext ctx) throws IOException {
+		long budget = getSpillBudget(ctx);
+		if (budget <= 0) {
+			return;
+		}
+		long used = 8L * _matrix.getNumNonZero() + 4L
+				* _matrix.getNumRows() + _propBytes;
+		if (used > budget) {
+			if (_spill == null) {
+				_spill = new TermMatrixSpill(getSpillDirectory(ctx));
+			}
+			int rows = _matrix.getNumRows();
+			_spill.spill(_matrix, _propList);
+			_propBytes = 0;
+			console.info("Spilled " + rows + " rows to run "
+					+ _spill.getNumRuns());
+		}
+	}
+
+	/**
+	 * Add the properties of the next row, counting their heap for the spill
+	 * budget.
+	 */
+	private void addProperties(Map<String, String> props) {
+		_propList.add(props);
+		_propBytes += 48;
+		for (Map.Entry<String, String> ent : props.entrySet()) {
+			_propBytes += 80 + 2 * (ent.getKey().length() + ent.getValue()
+					.length());
+		}
+	}
+
+	/**
+	 * Gather <b>tl</b> for a worker, submitting the chunk when it is full and
+	 * merging the partial matrices that are done. At most two chunks per
+	 * thread are held at a time.
+	 */
+	private void addToChunk(ComponentContext ctx, TermListLite tl)
+			throws Exception {
+		_chunk.add(tl);
+		if (_chunk.size() >= CHUNK_SIZE) {
+			submitChunk();
+			mergePending(ctx, 2 * _parallelism);
+		}
+	}
+
+	private void submitChunk() {
+		if (!_chunk.isEmpty()) {
+			_pending.add(_pool.submit(new PartialMatrix(_chunk, _keep)));
+			_chunk = new ArrayList<TermListLite>(CHUNK_SIZE);
+		}
+	}
+
+	/**
+	 * Merge the partial matrices in order, while more than <b>keep</b> are
+	 * pending or the next one is done.
+	 */
+	private void mergePending(ComponentContext ctx, int keep)
+			throws Exception {
+		while (!_pending.isEmpty()
+				&& ((_pending.size() > keep) || _pending.getFirst().isDone())) {
+			mergePartial(_pending.removeFirst().get());
+			spillIfOverBudget(ctx);
+		}
+	}
+
+	/**
+	 * Append the rows of <b>part</b> to the matrix, remapping its columns to
+	 * the global ones, and add its term data to the term map.
+	 */
+	private void mergePartial(PartialMatrix part) {
+		TermDocumentMatrix pm = part._matrix;
+		int[] colMap = new int[pm.getNumColumns()];
+		for (int c = 0; c < colMap.length; c++) {
+			int termId = part._termIds.get(c);
+			colMap[c] = _matrix.getColumn(termId);
+			TIntArrayList forms = part._forms[c];
+			for (int f = 0, n = forms.size(); f < n; f++) {
+				_tmap.addTermData(termId, forms.get(f));
+			}
+		}
+		_matrix.appendRows(pm, colMap);
+		for (int r = 0, n = pm.getNumRows(); r < n; r++) {
+			_termCounts.add(new Integer(pm.getRowNonZero(r)));
+			addProperties(part._props.get(r));
+		}
+	}
+
+	private void addTermData(TermListLite tl, int index) {
+		_tmap.addTermData(tl.getTermIdByIndex(index), tl
+				.getTermFormsIdByIndex(index));
+	}
+
+	/**
+	 * Build a sparse table with one column per term from <b>matrix</b>. The
+	 * rows are turned into columns with a counting pass over the entries, so
+	 * no cell is visited that does not hold a value.
+	 */
+	private ExampleTable matrixToTable(TermDocumentMatrix matrix) {
+		int ncols = matrix.getNumColumns();
+		int[] counts = matrix.getColumnCounts();
+		int[][] rows = new int[ncols][];
+		float[][] vals = new float[ncols][];
+		allocateColumns(counts, rows, vals);
+		int[] fill = new int[ncols];
+		for (int r = 0, n = matrix.getNumRows(); r < n; r++) {
+			for (int k = matrix.getRowStart(r), end = matrix.getRowEnd(r); k < end; k++) {
+				int c = matrix.getColumnAt(k);
+				rows[c][fill[c]] = r;
+				vals[c][fill[c]] = matrix.getValueAt(k);
+				fill[c]++;
+			}
+		}
+		return columnsToTable(rows, vals, matrix);
+	}
+
+	/**
+	 * Build a sparse table like <code>matrixToTable()</code> from the rows
+	 * of <b>spill</b>, reading the runs once to count the entries of each
+	 * column and once to fill them. <b>matrix</b> supplies the column
+	 * labels.
+	 */
+	private ExampleTable spillToTable(TermMatrixSpill spill,
+			TermDocumentMatrix matrix) throws IOException {
+		int ncols = matrix.getNumColumns();
+		final int[] counts = new int[ncols];
+		spill.forEachEntry(new TermMatrixSpill.EntryVisitor() {
+			public void entry(int row, int col, float value) {
+				counts[col]++;
+			}
+		});
+		final int[][] rows = new int[ncols][];
+		final float[][] vals = new float[ncols][];
+		allocateColumns(counts, rows, vals);
+		final int[] fill = counts;
+		Arrays.fill(fill, 0);
+		spill.forEachEntry(new TermMatrixSpill.EntryVisitor() {
+			public void entry(int row, int col, float value) {
+				rows[col][fill[col]] = row;
+				vals[col][fill[col]] = value;
+				fill[col]++;
+			}
+		});
+		return columnsToTable(rows, vals, matrix);
+	}
+
+	static private void allocateColumns(int[] counts, int[][] rows,
+			float[][] vals) {
+		for (int c = 0; c < counts.length; c++) {
+			rows[c] = new int[counts[c]];
+			vals[c] = new float[counts[c]];
+		}
+	}
+
+	/**
+	 * Make a sparse table of one column per term from the row indices and
+	 * values of each column.
+	 */
+	private ExampleTable columnsToTable(int[][] rows, float[][] vals,
+			TermDocumentMatrix matrix) {
+		int ncols = rows.length;
+		Column[] cols = new Column[ncols];
+		for (int c = 0; c < ncols; c++) {
+			cols[c] = new SparseFloatColumn(vals[c], rows[c]);
+			cols[c].setLabel(matrix.getTerm(c));
+			rows[c] = null;
+			vals[c] = null;
+		}
+		ExampleTable table = new SparseTableFactory().createTable()
+				.toExampleTable();
+		table.addColumns(cols);
+		return table;
+	}
+
+	// =================
+	// Inner Class(es)
+	// =================
+
+	/**
+	 * A chunk of term lists turned into a matrix with its own columns, by a
+	 * worker thread. The columns are in the order their terms are first
+	 * seen, which keeps the global column order when the chunks are merged
+	 * in order.
+	 */
+	static private class PartialMatrix implements Callable<PartialMatrix> {
+
+		private final List<TermListLite> _docs;
+
+		private final TermDocumentMatrix _matrix = new TermDocumentMatrix();
+
+		/**
+		 * TermDictionary id of each column.
+		 */
+		private final TIntArrayList _termIds = new TIntArrayList();
+
+		/**
+		 * Distinct OriginalFormsPool ids of each column.
+		 */
+		private TIntArrayList[] _forms = null;
+
+		private final ArrayList<Map<String, String>> _props = new ArrayList<Map<String, String>>();
+
+		/**
+		 * The TermDictionary ids kept by pruning, or null.
+		 */
+		private final boolean[] _keep;
+
+		PartialMatrix(List<TermListLite> docs, boolean[] keep) {
+			_docs = docs;
+			_keep = keep;
+		}
+
+		public PartialMatrix call() {
+			ArrayList<TIntArrayList> forms = new ArrayList<TIntArrayList>();
+			for (int d = 0, nd = _docs.size(); d < nd; d++) {
+				TermListLite tl = _docs.get(d);
+				_matrix.startRow();
+				for (int i = 0, n = tl.getSize(); i < n; i++) {
+					int termId = tl.getTermIdByIndex(i);
+					if (!isKept(_keep, termId)) {
+						continue;
+					}
+					int col = _matrix.getColumn(termId);
+					if (col == forms.size()) {
+						_termIds.add(termId);
+						forms.add(new TIntArrayList(1));
+					}
+					_matrix.add(col, tl.getTermFreqByIndex(i));
+					TIntArrayList f = forms.get(col);
+					int formsId = tl.getTermFormsIdByIndex(i);
+					if (!f.contains(formsId)) {
+						f.add(formsId);
+					}
+				}
+				_matrix.endRow();
+				_props.add(tl.getProperties());
+				tl.free();
+			}
+			_forms = forms.toArray(new TIntArrayList[forms.size()]);
+			_docs.clear();
+			return this;
+		}
+	}
+
+	/**
+	 * Add a column for each document property, filled from the property maps
+	 * of the rows, which are read back one row at a time when the rows were
+	 * spilled.
+	 */
+	private void addPropertyColumns(final ExampleTable table,
+			final boolean dense) throws IOException {
+		final HashMap<String, Integer> colprops = new HashMap<String, Integer>();
+		if (_spill != null) {
+			_spill.forEachProperties(new TermMatrixSpill.PropertyVisitor() {
+				public void properties(int row, Map<String, String> props) {
+					setRowProperties(table, dense, colprops, row, props);
+				}
+			});
+		} else {
+			for (int i = 0; i < m_count; i++) {
+				setRowProperties(table, dense, colprops, i, _propList.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Set the properties of row <b>row</b>, adding a column for each property
+	 * not seen before.
+	 */
+	private void setRowProperties(ExampleTable table, boolean dense,
+			HashMap<String, Integer> colprops, int row, Map<String, String> m) {
+		for (Iterator<String> it = m.keySet().iterator(); it.hasNext();) {
+			String key = it.next();
+			String ob = m.get(key);
+			Integer icol = colprops.get(key);
+			boolean flag = false;
+			if (icol == null) {
+				icol = new Integer(table.getNumColumns());
+				colprops.put(key, icol);
+				flag = true;
+				if (!dense) {
+					// sparse tables do not grow columns on a set
+					Column pcol = new SparseTableFactory()
+							.createColumn(ColumnTypes.STRING);
+					pcol.addRows(m_count);
+					table.addColumn(pcol);
+				}
+			}
+			table.setString(ob, row, icol.intValue());
+			if (flag) {
+				table.setColumnLabel(key + "_DOCPROP", icol.intValue());
+			}
+		}
+	}}
@@ -315,11 +315,9 @@ public class DocumentToGATEDocument implements ExecutableComponent
                     FeatureMap t2k_fmap =
                         seasr_a.getFeatures();
 
-                    Object[] keys = t2k_fmap.keySet().toArray();
-
                     // copy over the features (key-value mappings)
-                    for (int i = 0; i < keys.length; i++) {
-                        gate_fmap.put(keys[i], t2k_fmap.get(keys[i]));
+                    for (Map.Entry<String, String> feat : t2k_fmap.entrySet()) {
+                        gate_fmap.put(feat.getKey(), feat.getValue());
                     }
 
                     // create a brand new annotation in the GATE document
@@ -327,9 +327,9 @@ public class GATEDocumentToDocument implements ExecutableComponent {
 								.next();
 						t2kannot
 								.getFeatures()
-								.put(
-										AnnotationConstants.TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL,
-										Boolean.TRUE.toString());
+								.setBoolean(
+										AnnotationConstants.TOKEN_ANNOT_FEAT_END_OF_LINE_BOOL_ID,
+										true);
 					} else {
 						_logger.info("GATEDocumentToDocument -- token not found corresponding to gate split: "
 										+ seasrset + " / " + gate_a);
@@ -0,0 +1,291 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.transform;
+
+//==============
+// Java Imports
+//==============
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+import org.meandre.core.ComponentContext;
+import org.seasr.components.text.datatype.termlist.TermListLite;
+import org.seasr.components.text.datatype.termlist.TermVector;
+
+/**
+ * Checks the weights of <code>TermListWeighting</code> against TF-IDF and
+ * BM25 weights worked out by hand.
+ */
+public class TermListWeightingTest {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private final double DELTA = 1e-5;
+
+	/**
+	 * Three documents of lengths 3, 4 and 2 (average 3). Term "a" is in every
+	 * one (df = N = 3), "b" in two and "c" in one.
+	 */
+	static private final Object[][] EVERY_DOC = {
+			{ "a", 2, "b", 1 },
+			{ "a", 1, "c", 3 },
+			{ "a", 1, "b", 1 } };
+
+	/**
+	 * Three documents of lengths 1, 0 and 3 (average 4/3).
+	 */
+	static private final Object[][] EMPTY_DOC = {
+			{ "x", 1 },
+			{},
+			{ "x", 1, "y", 2 } };
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void tfidfOfATermInEveryDocumentIsZero() throws Exception {
+		List<TermVector> out = new ArrayList<TermVector>();
+		List<Map<String, Float>> vecs = weigh("tfidf", false, EVERY_DOC, out);
+
+		// idf(a) = ln(3/3) = 0, idf(b) = ln(3/2), idf(c) = ln(3)
+		assertWeights(vecs.get(0), "a", 0, "b", Math.log(1.5));
+		assertWeights(vecs.get(1), "a", 0, "c", 3 * Math.log(3));
+		assertWeights(vecs.get(2), "a", 0, "b", Math.log(1.5));
+
+		assertEquals(3, out.size());
+		assertEquals("doc0", out.get(0).getDocID());
+		assertEquals("title 2", out.get(2).getTitle());
+	}
+
+	@Test
+	public void normalizedTfidf() throws Exception {
+		List<Map<String, Float>> vecs = weigh("tfidf", true, EVERY_DOC,
+				null);
+
+		// the only non zero weight takes the whole unit length
+		assertWeights(vecs.get(0), "a", 0, "b", 1);
+		assertWeights(vecs.get(1), "a", 0, "c", 1);
+		assertWeights(vecs.get(2), "a", 0, "b", 1);
+	}
+
+	@Test
+	public void bm25OfATermInEveryDocumentIsPositive() throws Exception {
+		List<Map<String, Float>> vecs = weigh("bm25", false, EVERY_DOC, null);
+
+		// idf = ln(1 + (N - df + 0.5) / (df + 0.5)):
+		// a = ln(1 + 0.5/3.5) = ln(8/7), b = ln(1 + 1.5/2.5) = ln(1.6),
+		// c = ln(1 + 2.5/1.5) = ln(8/3)
+		// w = idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * len / avg)),
+		// k1 = 1.2, b = 0.75; the length factor is
+		// 1.2 for len 3, 1.5 for len 4 and 0.9 for len 2
+		double a = Math.log(8.0 / 7), b = Math.log(1.6), c = Math.log(8.0 / 3);
+		assertWeights(vecs.get(0), "a", a * 2 * 2.2 / 3.2, "b", b);
+		assertWeights(vecs.get(1), "a", a * 2.2 / 2.5, "c", c * 3 * 2.2 / 4.5);
+		assertWeights(vecs.get(2), "a", a * 2.2 / 1.9, "b", b * 2.2 / 1.9);
+	}
+
+	@Test
+	public void emptyDocumentsGiveEmptyVectors() throws Exception {
+		List<TermVector> out = new ArrayList<TermVector>();
+
+		// idf(x) = ln(3/2), idf(y) = ln(3)
+		List<Map<String, Float>> vecs = weigh("tfidf", false, EMPTY_DOC, out);
+		assertWeights(vecs.get(0), "x", Math.log(1.5));
+		assertWeights(vecs.get(1));
+		assertWeights(vecs.get(2), "x", Math.log(1.5), "y", 2 * Math.log(3));
+		assertEquals("doc1", out.get(1).getDocID());
+
+		// idf(x) = ln(1.6), idf(y) = ln(8/3); the length factor is
+		// 1.2 * (0.25 + 0.75 * 3/4) = 0.975 for len 1 and
+		// 1.2 * (0.25 + 0.75 * 9/4) = 2.325 for len 3
+		vecs = weigh("bm25", false, EMPTY_DOC, null);
+		double x = Math.log(1.6), y = Math.log(8.0 / 3);
+		assertWeights(vecs.get(0), "x", x * 2.2 / 1.975);
+		assertWeights(vecs.get(1));
+		assertWeights(vecs.get(2), "x", x * 2.2 / 3.325, "y", y * 2 * 2.2
+				/ 4.325);
+
+		// nothing to scale, and no NaN from a zero length
+		vecs = weigh("bm25", true, EMPTY_DOC, null);
+		assertWeights(vecs.get(1));
+		for (float w : vecs.get(2).values()) {
+			assertFalse(Float.isNaN(w));
+		}
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	/**
+	 * Run <b>docs</b>, each a list of term, frequency pairs, through the
+	 * component and return the weight of each term of each pushed vector.
+	 * The vectors themselves are added to <b>out</b> if it is not null.
+	 */
+	static private List<Map<String, Float>> weigh(String weighting,
+			boolean normalize, Object[][] docs, List<TermVector> out)
+			throws Exception {
+		Map<String, String> props = new HashMap<String, String>();
+		props.put(TermListWeighting.DATA_PROPERTY_WEIGHTING, weighting);
+		props.put(TermListWeighting.DATA_PROPERTY_NORMALIZE, Boolean.toString(normalize));
+		props.put(TermListWeighting.DATA_PROPERTY_BM25_K1, "1.2");
+		props.put(TermListWeighting.DATA_PROPERTY_BM25_B, "0.75");
+		props.put(TermListWeighting.DATA_PROPERTY_SPILL_DIRECTORY, "");
+		props.put("debug_level", "off");
+		props.put("ignore_errors", "false");
+		Map<String, Object> inputs = new HashMap<String, Object>();
+		List<Object> pushed = new ArrayList<Object>();
+		ComponentContext ctx = newContext(props, inputs, pushed);
+
+		TermListWeighting comp = new TermListWeighting();
+		comp.initialize(ctx);
+		try {
+			for (int d = 0; d < docs.length; d++) {
+				TermListLite tl = new TermListLite();
+				tl.setDocID("doc" + d);
+				tl.setTitle("title " + d);
+				for (int i = 0; i < docs[d].length; i += 2) {
+					tl.addTerm((String) docs[d][i], (Integer) docs[d][i + 1],
+							new ArrayList<String>());
+				}
+				inputs.clear();
+				inputs.put(TermListWeighting.DATA_INPUT_TERMLIST, tl);
+				if (d == docs.length - 1) {
+					inputs.put(TermListWeighting.DATA_INPUT_NUMBER_OF_TERMLIST,
+							new Integer(docs.length));
+				}
+				comp.execute(ctx);
+			}
+
+			List<Map<String, Float>> vecs = new ArrayList<Map<String, Float>>();
+			for (Object o : pushed) {
+				if (!(o instanceof TermVector)) {
+					continue;
+				}
+				TermVector tv = (TermVector) o;
+				Map<String, Float> weights = new HashMap<String, Float>();
+				for (int i = 0; i < tv.getSize(); i++) {
+					weights.put(tv.getTermByIndex(i), tv.getWeightByIndex(i));
+				}
+				vecs.add(weights);
+				if (out != null) {
+					out.add(tv);
+				}
+			}
+			assertEquals(docs.length, vecs.size());
+			assertEquals(new Integer(docs.length), pushed
+					.get(pushed.size() - 1));
+			return vecs;
+		} finally {
+			comp.dispose(ctx);
+		}
+	}
+
+	/**
+	 * <b>expected</b> holds term, weight pairs.
+	 */
+	static private void assertWeights(Map<String, Float> weights,
+			Object... expected) {
+		assertEquals(expected.length / 2, weights.size());
+		for (int i = 0; i < expected.length; i += 2) {
+			String term = (String) expected[i];
+			assertEquals(term, ((Number) expected[i + 1]).doubleValue(),
+					weights.get(term), DELTA);
+		}
+	}
+
+	/**
+	 * A context that reads <b>props</b>, takes its inputs from
+	 * <b>inputs</b> and adds whatever is pushed to <b>pushed</b>.
+	 */
+	static private ComponentContext newContext(
+			final Map<String, String> props, final Map<String, Object> inputs,
+			final List<Object> pushed) {
+		final PrintStream console = new PrintStream(new ByteArrayOutputStream());
+		final Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		return (ComponentContext) Proxy.newProxyInstance(
+				TermListWeightingTest.class.getClassLoader(),
+				new Class<?>[] { ComponentContext.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method m, Object[] args) {
+						String name = m.getName();
+						if (name.equals("getProperty")) {
+							return props.get(args[0]);
+						} else if (name.equals("isInputAvailable")) {
+							return Boolean.valueOf(inputs.containsKey(args[0]));
+						} else if (name.equals("getDataComponentFromInput")) {
+							return inputs.get(args[0]);
+						} else if (name.equals("pushDataComponentToOutput")) {
+							pushed.add(args[1]);
+						} else if (name.equals("getLogger")) {
+							return logger;
+						} else if (name.equals("getOutputConsole")) {
+							return console;
+						} else if (name.equals("getInputNames")
+								|| name.equals("getOutputNames")) {
+							return new String[0];
+						} else if (m.getReturnType() == String.class) {
+							return "meandre://seasr.org/test/" + name;
+						}
+						return null;
+					}
+				});
+	}
+}
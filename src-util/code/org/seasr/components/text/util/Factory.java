@@ -82,6 +82,15 @@ public class Factory {
 		return doc;
 	} // newDocument()
 
+	/**
+	 * Create a new Document that keeps its annotations in the compact
+	 * column oriented store.
+	 */
+	public static Document newColumnarDocument() {
+		Document doc = new DocumentImpl(true);
+		return doc;
+	} // newColumnarDocument()
+
 	/** Create a new FeatureMap. */
 	public static FeatureMap newFeatureMap() {
 		return new FeatureMapImpl();
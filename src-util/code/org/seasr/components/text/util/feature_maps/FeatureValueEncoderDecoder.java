@@ -61,6 +61,23 @@ import org.seasr.components.text.datatype.corpora.impl.AnnotationImpl;
  * For sets: ^set{<val_1>, ... , <val_n>} For lists: ^list{<val_1>, ... ,
  * <val_n>} For maps: ^map{<key_1>, <val_1>, ... , <key_n>, <val_n>}
  * 
+ * Commas and braces inside string values are escaped as ;&comma ;&lbrace
+ * and ;&rbrace, so the only raw braces are those of nested encodings (such
+ * as the ^annot{} elements of a list of annotations). The decoder is a
+ * single pass over the string that tracks the brace depth; nested elements
+ * are returned in their encoded form.
+ * 
+ * Values written before braces were escaped are still decoded: a raw brace
+ * only counts as nesting when it opens a ^name{ encoding, and the old empty
+ * forms ^map}, ^list} and ^set} decode as empty. Such a value reads
+ * differently only if it holds the text ;&lbrace or ;&rbrace, which now
+ * decodes as a brace, or a raw closing brace inside a nested encoding,
+ * which the old decoder could not read either.
+ * 
+ * Besides the methods returning new collections, values can be decoded into
+ * a caller supplied collection or map, or handed to a visitor, and encoded
+ * into a caller supplied StringBuilder that can be reused between calls.
+ * 
  * @author dsears
  * 
  * TODO: Unit Test
@@ -72,8 +89,17 @@ public class FeatureValueEncoderDecoder {
 	// Data Members
 	// ==============
 
-	private static int s_SetEncoding = 0;
-	private static int s_ListEncoding = 1;
+	static private final String COMMA = ";&comma";
+
+	static private final String LBRACE = ";&lbrace";
+
+	static private final String RBRACE = ";&rbrace";
+
+	static private final String MAP_PREFIX = "^map{";
+
+	static private final String LIST_PREFIX = "^list{";
+
+	static private final String SET_PREFIX = "^set{";
 
 	// ================
 	// Constructor(s)
@@ -82,6 +108,26 @@ public class FeatureValueEncoderDecoder {
 	public FeatureValueEncoderDecoder() {
 	}
 
+	// ===================
+	// Visitor Interfaces
+	// ===================
+
+	/**
+	 * Receives the elements of an encoded list or set, in order.
+	 */
+	public interface ElementVisitor {
+		public void element(String value)
+				throws FeatureValueEncoderDecoderException;
+	}
+
+	/**
+	 * Receives the entries of an encoded map, in order.
+	 */
+	public interface EntryVisitor {
+		public void entry(String key, String value)
+				throws FeatureValueEncoderDecoderException;
+	}
+
 	// ================
 	// Static Methods
 	// ================
@@ -148,45 +194,94 @@ public class FeatureValueEncoderDecoder {
 		}
 	}
 
-	// Decode with strings
-	
-	static public HashMap<String, String> decodeToMap(String val)
+	// Decode with visitors
+
+	/**
+	 * Hands each entry of an encoded map to <b>visitor</b>.
+	 */
+	static public void decodeEntries(String val, EntryVisitor visitor)
 			throws FeatureValueEncoderDecoderException {
-		if (val == null){
-			return null;
-		}
-		if (!val.startsWith("^map{")) {
+		if (!isEncoding(val, MAP_PREFIX)) {
 			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToMap' does not represent an encoded map: "
+					"String submitted to method 'decodeEntries' does not represent an encoded map: "
 							+ val);
 		}
-		HashMap<String, String> ret = new HashMap<String, String>();
-		int beg = val.indexOf("{");
-		if (beg == -1) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToMap' not properly encoded: "
-							+ val);
+		int end = bodyEnd(val, "decodeEntries");
+		int pos = MAP_PREFIX.length();
+		if (pos >= end) {
+			return;
 		}
-		int end = val.indexOf("}");
-		if (end == -1) {
+		while (true) {
+			int kend = elementEnd(val, pos, end);
+			if (kend == end) {
+				throw new FeatureValueEncoderDecoderException(
+						"String submitted to method 'decodeEntries' has odd number of elements, "
+								+ "must have an even number of elements that make up 'key' and 'value' "
+								+ "pairs: " + val);
+			}
+			int vend = elementEnd(val, kend + 1, end);
+			visitor.entry(element(val, pos, kend), element(val, kend + 1,
+					vend));
+			if (vend == end) {
+				return;
+			}
+			pos = vend + 1;
+		}
+	}
+
+	/**
+	 * Hands each element of an encoded list or set to <b>visitor</b>.
+	 * Elements that are themselves encodings are passed as they are.
+	 */
+	static public void decodeElements(String val, ElementVisitor visitor)
+			throws FeatureValueEncoderDecoderException {
+		int pos;
+		if (isEncoding(val, LIST_PREFIX)) {
+			pos = LIST_PREFIX.length();
+		} else if (isEncoding(val, SET_PREFIX)) {
+			pos = SET_PREFIX.length();
+		} else {
 			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToMap' not properly encoded: "
+					"String submitted to method 'decodeElements' does not represent an encoded list or set: "
 							+ val);
 		}
-		val = val.substring(beg + 1, end);
-		StringTokenizer toker = new StringTokenizer(val, ",");
-		if ((toker.countTokens() % 2) != 0) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToMap' has odd number of elements, "
-							+ "must have an even number of elements that make up 'key' and 'value' "
-							+ "pairs: " + toker.countTokens());
+		int end = bodyEnd(val, "decodeElements");
+		if (pos >= end) {
+			return;
 		}
-		while (toker.hasMoreTokens()) {
-			String k = deNormalize(toker.nextToken());
-			String v = deNormalize(toker.nextToken());
-			ret.put(k, v);
+		while (true) {
+			int eend = elementEnd(val, pos, end);
+			visitor.element(element(val, pos, eend));
+			if (eend == end) {
+				return;
+			}
+			pos = eend + 1;
 		}
-		return ret;
+	}
+
+	// Decode with strings
+
+	static public HashMap<String, String> decodeToMap(String val)
+			throws FeatureValueEncoderDecoderException {
+		if (val == null){
+			return null;
+		}
+		return decodeToMap(val, new HashMap<String, String>());
+	}
+
+	/**
+	 * Decodes an encoded map into <b>into</b>.
+	 * 
+	 * @return into
+	 */
+	static public <M extends Map<String, String>> M decodeToMap(String val,
+			final M into) throws FeatureValueEncoderDecoderException {
+		decodeEntries(val, new EntryVisitor() {
+			public void entry(String key, String value) {
+				into.put(key, value);
+			}
+		});
+		return into;
 	}
 
 	static public ArrayList<String> decodeToList(String val)
@@ -194,12 +289,12 @@ public class FeatureValueEncoderDecoder {
 		if (val == null){
 			return null;
 		}
-		if (!val.startsWith("^list{")) {
+		if (!isEncoding(val, LIST_PREFIX)) {
 			throw new FeatureValueEncoderDecoderException(
 					"String submitted to method 'decodeToList' does not represent an encoded list: "
 							+ val);
 		}
-		return new ArrayList<String>(decodeToColl(val, s_ListEncoding));
+		return decodeToCollection(val, new ArrayList<String>());
 	}
 
 	static public HashSet<String> decodeToSet(String val)
@@ -207,52 +302,48 @@ public class FeatureValueEncoderDecoder {
 		if (val == null){
 			return null;
 		}
-		if (!val.startsWith("^set{")) {
+		if (!isEncoding(val, SET_PREFIX)) {
 			throw new FeatureValueEncoderDecoderException(
 					"String submitted to method 'decodeToSet' does not represent an encoded set: "
 							+ val);
 		}
-		return new HashSet<String>(decodeToColl(val, s_SetEncoding));
+		return decodeToCollection(val, new HashSet<String>());
+	}
+
+	/**
+	 * Decodes an encoded list or set into <b>into</b>.
+	 * 
+	 * @return into
+	 */
+	static public <C extends Collection<String>> C decodeToCollection(
+			String val, final C into) throws FeatureValueEncoderDecoderException {
+		decodeElements(val, new ElementVisitor() {
+			public void element(String value) {
+				into.add(value);
+			}
+		});
+		return into;
 	}
 
 	// Decode with annotations
-	
+
 	static public HashMap<String, Annotation> decodeToMapofStringstoAnnotations(
 			String val) throws FeatureValueEncoderDecoderException {
 		if (val == null){
 			return null;
 		}
-		if (!val.startsWith("^map{")) {
+		if (!isEncoding(val, MAP_PREFIX)) {
 			throw new FeatureValueEncoderDecoderException(
 					"String submitted to method 'decodeToMapofStringstoAnnotations' does not represent an encoded map: "
 							+ val);
 		}
-		HashMap<String, Annotation> ret = new HashMap<String, Annotation>();
-		int beg = val.indexOf("{");
-		if (beg == -1) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToMapofStringstoAnnotations' not properly encoded: "
-							+ val);
-		}
-		int end = val.indexOf("}");
-		if (end == -1) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToMapofStringstoAnnotations' not properly encoded: "
-							+ val);
-		}
-		val = val.substring(beg + 1, end);
-		StringTokenizer toker = new StringTokenizer(val, ",");
-		if ((toker.countTokens() % 2) != 0) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToMapofStringstoAnnotations' has odd number of elements, "
-							+ "must have an even number of elements that make up 'key' and 'value' "
-							+ "pairs: " + toker.countTokens());
-		}
-		while (toker.hasMoreTokens()) {
-			String k = deNormalize(toker.nextToken());
-			Annotation v = decodeToAnnotation(toker.nextToken());
-			ret.put(k, v);
-		}
+		final HashMap<String, Annotation> ret = new HashMap<String, Annotation>();
+		decodeEntries(val, new EntryVisitor() {
+			public void entry(String key, String value)
+					throws FeatureValueEncoderDecoderException {
+				ret.put(key, decodeToAnnotation(value));
+			}
+		});
 		return ret;
 	}
 
@@ -261,13 +352,12 @@ public class FeatureValueEncoderDecoder {
 		if (val == null){
 			return null;
 		}
-		if (!val.startsWith("^list{")) {
+		if (!isEncoding(val, LIST_PREFIX)) {
 			throw new FeatureValueEncoderDecoderException(
 					"String submitted to method 'decodeToList' does not represent an encoded list: "
 							+ val);
 		}
-		return new ArrayList<Annotation>(decodeToCollofAnnots(val,
-				s_ListEncoding));
+		return decodeToAnnotations(val, new ArrayList<Annotation>());
 	}
 
 	static public HashSet<Annotation> decodeToSetofAnnotations(String val)
@@ -275,12 +365,77 @@ public class FeatureValueEncoderDecoder {
 		if (val == null){
 			return null;
 		}
-		if (!val.startsWith("^set{")) {
+		if (!isEncoding(val, SET_PREFIX)) {
 			throw new FeatureValueEncoderDecoderException(
 					"String submitted to method 'decodeToSet' does not represent an encoded set: "
 							+ val);
 		}
-		return new HashSet<Annotation>(decodeToCollofAnnots(val, s_SetEncoding));
+		return decodeToAnnotations(val, new HashSet<Annotation>());
+	}
+
+	/**
+	 * Decodes an encoded list or set of annotations into <b>into</b>.
+	 * 
+	 * @return into
+	 */
+	static public <C extends Collection<Annotation>> C decodeToAnnotations(
+			String val, final C into) throws FeatureValueEncoderDecoderException {
+		decodeElements(val, new ElementVisitor() {
+			public void element(String value)
+					throws FeatureValueEncoderDecoderException {
+				into.add(decodeToAnnotation(value));
+			}
+		});
+		return into;
+	}
+
+	/**
+	 * Decodes a list of annotation ids written by encodeIds(). A list of
+	 * encoded annotations is also accepted, its annotations' ids are
+	 * returned.
+	 */
+	static public int[] decodeToIds(String val)
+			throws FeatureValueEncoderDecoderException {
+		if (val == null){
+			return null;
+		}
+		if (!isEncoding(val, LIST_PREFIX) || !val.endsWith("}")) {
+			throw new FeatureValueEncoderDecoderException(
+					"String submitted to method 'decodeToIds' does not represent an encoded list: "
+							+ val);
+		}
+		if (val.indexOf("^annot{") != -1) {
+			ArrayList<Annotation> annots = decodeToListofAnnotations(val);
+			int[] ret = new int[annots.size()];
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = annots.get(i).getId();
+			}
+			return ret;
+		}
+		int beg = LIST_PREFIX.length();
+		int end = val.length() - 1;
+		int n = (end > beg) ? 1 : 0;
+		for (int i = beg; i < end; i++) {
+			if (val.charAt(i) == ',') {
+				n++;
+			}
+		}
+		int[] ret = new int[n];
+		try {
+			for (int i = 0; i < n; i++) {
+				int comma = val.indexOf(',', beg);
+				if (comma == -1) {
+					comma = end;
+				}
+				ret[i] = Integer.parseInt(val.substring(beg, comma));
+				beg = comma + 1;
+			}
+		} catch (NumberFormatException e) {
+			throw new FeatureValueEncoderDecoderException(
+					"String submitted to method 'decodeToIds' has a non integer element: "
+							+ val);
+		}
+		return ret;
 	}
 
 	// Encode with strings
@@ -295,33 +450,41 @@ public class FeatureValueEncoderDecoder {
 	 */
 	static public String encodeMap(Map<String, String> val)
 			throws FeatureValueEncoderDecoderException {
-		StringBuffer ret = new StringBuffer();
+		return encodeMap(val, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Appends the encoding of <b>val</b> to <b>out</b>.
+	 * 
+	 * @return out
+	 */
+	static public StringBuilder encodeMap(Map<String, String> val,
+			StringBuilder out) throws FeatureValueEncoderDecoderException {
 		if (val == null) {
 			throw new FeatureValueEncoderDecoderException(
 					"Null values are not permitted in SEASR feature maps.");
 		}
-		ret.append("^map{");
-		for (String s : val.keySet()) {
-
-			if (s == null) {
+		out.append(MAP_PREFIX);
+		boolean first = true;
+		for (Map.Entry<String, String> e : val.entrySet()) {
+			if (e.getKey() == null) {
 				throw new FeatureValueEncoderDecoderException(
 						"Null keys are not permitted in SEASR feature maps.");
 			}
-			ret.append(normalize(s));
-			ret.append(",");
-
-			s = val.get(s);
-			if (s == null) {
+			if (e.getValue() == null) {
 				throw new FeatureValueEncoderDecoderException(
 						"Null values are not permitted in SEASR feature maps.");
 			}
-			ret.append(normalize(s));
-			ret.append(",");
-
+			if (!first) {
+				out.append(',');
+			}
+			first = false;
+			normalize(e.getKey(), out);
+			out.append(',');
+			normalize(e.getValue(), out);
 		}
-		ret.deleteCharAt(ret.length() - 1);
-		ret.append("}");
-		return ret.toString();
+		out.append('}');
+		return out;
 	}
 
 	/**
@@ -333,11 +496,21 @@ public class FeatureValueEncoderDecoder {
 	 */
 	static public String encodeList(List<String> val)
 			throws FeatureValueEncoderDecoderException {
+		return encodeList(val, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Appends the list encoding of <b>val</b> to <b>out</b>.
+	 * 
+	 * @return out
+	 */
+	static public StringBuilder encodeList(Collection<String> val,
+			StringBuilder out) throws FeatureValueEncoderDecoderException {
 		if (val == null) {
 			throw new FeatureValueEncoderDecoderException(
 					"Null values are not permitted in SEASR feature maps.");
 		}
-		return encodeColl(val, "list");
+		return encodeColl(val, LIST_PREFIX, out);
 	}
 
 	/**
@@ -349,16 +522,26 @@ public class FeatureValueEncoderDecoder {
 	 */
 	static public String encodeSet(Set<String> val)
 			throws FeatureValueEncoderDecoderException {
+		return encodeSet(val, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Appends the set encoding of <b>val</b> to <b>out</b>.
+	 * 
+	 * @return out
+	 */
+	static public StringBuilder encodeSet(Collection<String> val,
+			StringBuilder out) throws FeatureValueEncoderDecoderException {
 		if (val == null) {
 			throw new FeatureValueEncoderDecoderException(
 					"Null values are not permitted in SEASR feature maps.");
 		}
-		return encodeColl(val, "set");
+		return encodeColl(val, SET_PREFIX, out);
 	}
 
-	
+
 	// Encode with Annotations
-	
+
 	/**
 	 * For maps: <Java Set Instance> -> ^map{<key_1>, <val_1>, ... , <key_n>,
 	 * <val_n>}
@@ -369,43 +552,42 @@ public class FeatureValueEncoderDecoder {
 	 */
 	static public String encodeMapofStrongstoAnnotations(Map<String, Annotation> val)
 			throws FeatureValueEncoderDecoderException {
-		StringBuffer ret = new StringBuffer();
 		if (val == null) {
 			throw new FeatureValueEncoderDecoderException(
 					"Null values are not permitted in SEASR feature maps.");
 		}
-		ret.append("^map{");
-		for (String s : val.keySet()) {
-
-			if (s == null) {
+		StringBuilder out = new StringBuilder();
+		out.append(MAP_PREFIX);
+		boolean first = true;
+		for (Map.Entry<String, Annotation> e : val.entrySet()) {
+			if (e.getKey() == null) {
 				throw new FeatureValueEncoderDecoderException(
 						"Null keys are not permitted in SEASR feature maps.");
 			}
-			ret.append(normalize(s));
-			ret.append(",");
-
-			Annotation a = val.get(s);
-			if (s == null) {
+			if (e.getValue() == null) {
 				throw new FeatureValueEncoderDecoderException(
 						"Null values are not permitted in SEASR feature maps.");
 			}
-			ret.append(encodeAnnotation(a));
-			ret.append(",");
-
+			if (!first) {
+				out.append(',');
+			}
+			first = false;
+			normalize(e.getKey(), out);
+			out.append(',');
+			out.append(encodeAnnotation(e.getValue()));
 		}
-		ret.deleteCharAt(ret.length() - 1);
-		ret.append("}");
-		return ret.toString();
+		out.append('}');
+		return out.toString();
 	}
-	
-	
+
+
 	static public String encodeListofAnnotations(List<Annotation> val)
 			throws FeatureValueEncoderDecoderException {
 		if (val == null) {
 			throw new FeatureValueEncoderDecoderException(
 					"Null values are not permitted in SEASR feature maps.");
 		}
-		return encodeCollofAnnots(val, "list");
+		return encodeCollofAnnots(val, LIST_PREFIX);
 	}
 
 	static public String encodeSetofAnnotations(Set<Annotation> val)
@@ -414,121 +596,217 @@ public class FeatureValueEncoderDecoder {
 			throw new FeatureValueEncoderDecoderException(
 					"Null values are not permitted in SEASR feature maps.");
 		}
-		return encodeCollofAnnots(val, "set");
+		return encodeCollofAnnots(val, SET_PREFIX);
 	}
 
-	// =================
-	// Private Methods
-	// =================
+	/**
+	 * For annotation id lists: int[] -> ^list{<id_1>, ... , <id_n>}
+	 * 
+	 * @param val
+	 *            The annotation ids to be encoded.
+	 * @return A string that represents the ids, in order.
+	 */
+	static public String encodeIds(int[] val) {
+		return encodeIds(val, new StringBuilder(8 + val.length * 4))
+				.toString();
+	}
 
-	static private String normalize(String s) {
-		return s.replaceAll(",", ";&comma");
+	/**
+	 * Appends the encoding of the annotation ids <b>val</b> to <b>out</b>.
+	 * 
+	 * @return out
+	 */
+	static public StringBuilder encodeIds(int[] val, StringBuilder out) {
+		out.append(LIST_PREFIX);
+		for (int i = 0; i < val.length; i++) {
+			if (i > 0) {
+				out.append(',');
+			}
+			out.append(val[i]);
+		}
+		out.append('}');
+		return out;
 	}
 
-	static private String deNormalize(String s) {
-		return s.replaceAll(";&comma", ",");
+	// Escaping
+
+	/**
+	 * Appends <b>s</b> to <b>out</b> with its commas and braces escaped.
+	 * 
+	 * @return out
+	 */
+	static private StringBuilder normalize(String s, StringBuilder out) {
+		int len = s.length();
+		int run = 0;
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			String esc = (c == ',') ? COMMA : (c == '{') ? LBRACE
+					: (c == '}') ? RBRACE : null;
+			if (esc != null) {
+				out.append(s, run, i);
+				out.append(esc);
+				run = i + 1;
+			}
+		}
+		out.append(s, run, len);
+		return out;
 	}
 
-	static private String encodeColl(Collection<String> val, String collType)
+	/**
+	 * Returns the characters of <b>s</b> from <b>beg</b> to <b>end</b> with
+	 * the escapes written by normalize() undone.
+	 */
+	static private String deNormalize(String s, int beg, int end) {
+		int semi = s.indexOf(';', beg);
+		if ((semi == -1) || (semi >= end)) {
+			return s.substring(beg, end);
+		}
+		StringBuilder out = new StringBuilder(end - beg);
+		int run = beg;
+		while ((semi != -1) && (semi < end)) {
+			char c;
+			int len;
+			if (s.startsWith(COMMA, semi)) {
+				c = ',';
+				len = COMMA.length();
+			} else if (s.startsWith(LBRACE, semi)) {
+				c = '{';
+				len = LBRACE.length();
+			} else if (s.startsWith(RBRACE, semi)) {
+				c = '}';
+				len = RBRACE.length();
+			} else {
+				semi = s.indexOf(';', semi + 1);
+				continue;
+			}
+			if (semi + len > end) {
+				break;
+			}
+			out.append(s, run, semi);
+			out.append(c);
+			run = semi + len;
+			semi = s.indexOf(';', run);
+		}
+		out.append(s, run, end);
+		return out.toString();
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private StringBuilder encodeColl(Collection<String> val,
+			String prefix, StringBuilder out)
 			throws FeatureValueEncoderDecoderException {
-		StringBuffer ret = new StringBuffer();
-		ret.append("^");
-		ret.append(collType);
-		ret.append("{");
+		out.append(prefix);
+		boolean first = true;
 		for (String s : val) {
 			if (s == null) {
 				throw new FeatureValueEncoderDecoderException(
 						"Null values are not permitted in SEASR feature sets.");
 			}
-			ret.append(normalize(s));
-			ret.append(",");
+			if (!first) {
+				out.append(',');
+			}
+			first = false;
+			normalize(s, out);
 		}
-		ret.deleteCharAt(ret.length() - 1);
-		ret.append("}");
-		return ret.toString();
+		out.append('}');
+		return out;
 	}
 
-	static private String encodeCollofAnnots(Collection<Annotation> val, String collType)
-			throws FeatureValueEncoderDecoderException {
-		StringBuffer ret = new StringBuffer();
-		ret.append("^");
-		ret.append(collType);
-		ret.append("{");
+	static private String encodeCollofAnnots(Collection<Annotation> val,
+			String prefix) throws FeatureValueEncoderDecoderException {
+		StringBuilder out = new StringBuilder();
+		out.append(prefix);
+		boolean first = true;
 		for (Annotation s : val) {
 			if (s == null) {
 				throw new FeatureValueEncoderDecoderException(
 						"Null values are not permitted in SEASR feature sets.");
 			}
-			ret.append(encodeAnnotation(s));
-			ret.append(",");
+			if (!first) {
+				out.append(',');
+			}
+			first = false;
+			out.append(encodeAnnotation(s));
 		}
-		ret.deleteCharAt(ret.length() - 1);
-		ret.append("}");
-		return ret.toString();
+		out.append('}');
+		return out.toString();
 	}
 
-	static private Collection<String> decodeToColl(String val, int type)
+	/**
+	 * Position of the closing brace of an encoding.
+	 */
+	static private int bodyEnd(String val, String method)
 			throws FeatureValueEncoderDecoderException {
-		Collection<String> ret = null;
-		if (type == s_SetEncoding) {
-			ret = new HashSet<String>();
-		} else if (type == s_ListEncoding) {
-			ret = new ArrayList<String>();
-		} else {
-			throw new FeatureValueEncoderDecoderException(
-					"Type specified for decoding is unrecognized: " + type);
-		}
-		int beg = val.indexOf("{");
-		if (beg == -1) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToColl' not properly encoded: "
-							+ val);
-		}
-		int end = val.indexOf("}");
+		int end = val.lastIndexOf('}');
 		if (end == -1) {
 			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToColl' not properly encoded: "
-							+ val);
-		}
-		val = val.substring(beg + 1, end);
-		StringTokenizer toker = new StringTokenizer(val, ",");
-		while (toker.hasMoreTokens()) {
-			String s = deNormalize(toker.nextToken());
-			ret.add(s);
+					"String submitted to method '" + method
+							+ "' not properly encoded: " + val);
 		}
-		return ret;
+		return end;
 	}
 
-	static private Collection<Annotation> decodeToCollofAnnots(String val,
-			int type) throws FeatureValueEncoderDecoderException {
-		Collection<Annotation> ret = null;
-		if (type == s_SetEncoding) {
-			ret = new HashSet<Annotation>();
-		} else if (type == s_ListEncoding) {
-			ret = new ArrayList<Annotation>();
-		} else {
-			throw new FeatureValueEncoderDecoderException(
-					"Type specified for decoding is unrecognized: " + type);
+	/**
+	 * True if <b>val</b> starts with <b>prefix</b>, or is the empty encoding
+	 * written before empty collections kept their opening brace (^list}).
+	 */
+	static private boolean isEncoding(String val, String prefix) {
+		if (val.startsWith(prefix)) {
+			return true;
 		}
-		int beg = val.indexOf("{");
-		if (beg == -1) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToCollofAnnots' not properly encoded: "
-							+ val);
+		int n = prefix.length() - 1;
+		return (val.length() == n + 1) && val.regionMatches(0, prefix, 0, n)
+				&& (val.charAt(n) == '}');
+	}
+
+	/**
+	 * True if the brace at <b>i</b> opens a nested encoding (^name{) rather
+	 * than being a literal brace left unescaped by the old encoder.
+	 */
+	static private boolean opensEncoding(String val, int i) {
+		int j = i - 1;
+		while ((j >= 0) && Character.isLetter(val.charAt(j))) {
+			j--;
 		}
-		int end = val.indexOf("}");
-		if (end == -1) {
-			throw new FeatureValueEncoderDecoderException(
-					"String submitted to method 'decodeToCollofAnnots' not properly encoded: "
-							+ val);
+		return (j >= 0) && (j < i - 1) && (val.charAt(j) == '^');
+	}
+
+	/**
+	 * Position of the comma (or of <b>end</b>) that ends the element starting
+	 * at <b>pos</b>. Commas inside nested encodings are skipped.
+	 */
+	static private int elementEnd(String val, int pos, int end) {
+		int depth = 0;
+		for (int i = pos; i < end; i++) {
+			char c = val.charAt(i);
+			if ((c == '{') && opensEncoding(val, i)) {
+				depth++;
+			} else if (c == '}') {
+				if (depth > 0) {
+					depth--;
+				}
+			} else if ((c == ',') && (depth == 0)) {
+				return i;
+			}
 		}
-		val = val.substring(beg + 1, end);
-		StringTokenizer toker = new StringTokenizer(val, ",");
-		while (toker.hasMoreTokens()) {
-			Annotation s = decodeToAnnotation(toker.nextToken());
-			ret.add(s);
+		return end;
+	}
+
+	/**
+	 * The element from <b>beg</b> to <b>end</b>: nested encodings as they
+	 * are, string values with their escapes undone.
+	 */
+	static private String element(String val, int beg, int end) {
+		if ((beg < end) && (val.charAt(beg) == '^')) {
+			int brace = val.indexOf('{', beg);
+			if ((brace != -1) && (brace < end)) {
+				return val.substring(beg, end);
+			}
 		}
-		return ret;
+		return deNormalize(val, beg, end);
 	}
 
 	static private Annotation decodeToAnnotation(String s) throws FeatureValueEncoderDecoderException{
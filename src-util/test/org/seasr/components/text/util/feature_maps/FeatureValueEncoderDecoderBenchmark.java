@@ -0,0 +1,265 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */
+
+package org.seasr.components.text.util.feature_maps;
+
+// ==============
+// Java Imports
+// ==============
+
+import java.util.*;
+
+/**
+ * Times FeatureValueEncoderDecoder against the regex and StringTokenizer
+ * based implementation it replaced, which is kept here for comparison.
+ * <p>
+ * It is kept with the tests so it is not part of the component jars. Run it
+ * from the compiled test classes, with the component classes on the
+ * classpath; the optional arguments are the number of timed rounds and the
+ * number of map entries.
+ */
+public class FeatureValueEncoderDecoderBenchmark {
+
+	// ==============
+	// Data Members
+	// ==============
+
+	static private final int WARMUP_ROUNDS = 5;
+
+	static private final int ITERATIONS = 20000;
+
+	// ================
+	// Static Methods
+	// ================
+
+	static public void main(String[] args) throws Exception {
+		int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+		int entries = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		List<String> list = new ArrayList<String>();
+		for (int i = 0; i < entries; i++) {
+			map.put("feature" + i, (i % 3 == 0) ? "a,b" + i : "value" + i);
+			list.add((i % 3 == 0) ? "x,y" + i : "item" + i);
+		}
+		final String mapS = FeatureValueEncoderDecoder.encodeMap(map);
+		final String listS = FeatureValueEncoderDecoder.encodeList(list);
+		if (!mapS.equals(Legacy.encodeMap(map))
+				|| !listS.equals(Legacy.encodeList(list))) {
+			throw new IllegalStateException("Encodings differ: " + mapS
+					+ " " + Legacy.encodeMap(map));
+		}
+		if (!FeatureValueEncoderDecoder.decodeToMap(mapS).equals(
+				Legacy.decodeToMap(mapS))
+				|| !FeatureValueEncoderDecoder.decodeToList(listS).equals(
+						Legacy.decodeToList(listS))) {
+			throw new IllegalStateException("Decodings differ.");
+		}
+
+		System.out.println("map: " + mapS);
+		System.out.println("list: " + listS);
+		System.out.println(ITERATIONS + " operations per round, " + rounds
+				+ " rounds, ns per operation:");
+
+		final Map<String, String> fmap = map;
+		final List<String> flist = list;
+		final StringBuilder sb = new StringBuilder();
+		final HashMap<String, String> into = new HashMap<String, String>();
+		final ArrayList<String> intoList = new ArrayList<String>();
+
+		run("encodeMap legacy", rounds, new Op() {
+			public Object run() throws Exception {
+				return Legacy.encodeMap(fmap);
+			}
+		});
+		run("encodeMap", rounds, new Op() {
+			public Object run() throws Exception {
+				return FeatureValueEncoderDecoder.encodeMap(fmap);
+			}
+		});
+		run("encodeMap reused builder", rounds, new Op() {
+			public Object run() throws Exception {
+				sb.setLength(0);
+				return FeatureValueEncoderDecoder.encodeMap(fmap, sb);
+			}
+		});
+		run("decodeToMap legacy", rounds, new Op() {
+			public Object run() throws Exception {
+				return Legacy.decodeToMap(mapS);
+			}
+		});
+		run("decodeToMap", rounds, new Op() {
+			public Object run() throws Exception {
+				return FeatureValueEncoderDecoder.decodeToMap(mapS);
+			}
+		});
+		run("decodeToMap reused map", rounds, new Op() {
+			public Object run() throws Exception {
+				into.clear();
+				return FeatureValueEncoderDecoder.decodeToMap(mapS, into);
+			}
+		});
+		run("encodeList legacy", rounds, new Op() {
+			public Object run() throws Exception {
+				return Legacy.encodeList(flist);
+			}
+		});
+		run("encodeList", rounds, new Op() {
+			public Object run() throws Exception {
+				return FeatureValueEncoderDecoder.encodeList(flist);
+			}
+		});
+		run("decodeToList legacy", rounds, new Op() {
+			public Object run() throws Exception {
+				return Legacy.decodeToList(listS);
+			}
+		});
+		run("decodeToList reused list", rounds, new Op() {
+			public Object run() throws Exception {
+				intoList.clear();
+				return FeatureValueEncoderDecoder.decodeToCollection(listS,
+						intoList);
+			}
+		});
+	}
+
+	// =================
+	// Private Methods
+	// =================
+
+	static private void run(String name, int rounds, Op op) throws Exception {
+		int sink = 0;
+		for (int r = 0; r < WARMUP_ROUNDS; r++) {
+			for (int i = 0; i < ITERATIONS; i++) {
+				sink += op.run().hashCode();
+			}
+		}
+		long best = Long.MAX_VALUE;
+		long total = 0;
+		for (int r = 0; r < rounds; r++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				sink += op.run().hashCode();
+			}
+			long t = System.nanoTime() - start;
+			best = Math.min(best, t);
+			total += t;
+		}
+		System.out.println(name + ": best " + (best / ITERATIONS)
+				+ ", mean " + (total / rounds / ITERATIONS)
+				+ ((sink == 42) ? " " : ""));
+	}
+
+	// =================
+	// Inner Class(es)
+	// =================
+
+	private interface Op {
+		public Object run() throws Exception;
+	}
+
+	/**
+	 * The previous implementation of the string codec.
+	 */
+	static private class Legacy {
+
+		static HashMap<String, String> decodeToMap(String val) {
+			HashMap<String, String> ret = new HashMap<String, String>();
+			int beg = val.indexOf("{");
+			int end = val.indexOf("}");
+			val = val.substring(beg + 1, end);
+			StringTokenizer toker = new StringTokenizer(val, ",");
+			while (toker.hasMoreTokens()) {
+				String k = deNormalize(toker.nextToken());
+				String v = deNormalize(toker.nextToken());
+				ret.put(k, v);
+			}
+			return ret;
+		}
+
+		static ArrayList<String> decodeToList(String val) {
+			ArrayList<String> ret = new ArrayList<String>();
+			int beg = val.indexOf("{");
+			int end = val.indexOf("}");
+			val = val.substring(beg + 1, end);
+			StringTokenizer toker = new StringTokenizer(val, ",");
+			while (toker.hasMoreTokens()) {
+				ret.add(deNormalize(toker.nextToken()));
+			}
+			return ret;
+		}
+
+		static String encodeMap(Map<String, String> val) {
+			StringBuffer ret = new StringBuffer();
+			ret.append("^map{");
+			for (String s : val.keySet()) {
+				ret.append(normalize(s));
+				ret.append(",");
+				ret.append(normalize(val.get(s)));
+				ret.append(",");
+			}
+			ret.deleteCharAt(ret.length() - 1);
+			ret.append("}");
+			return ret.toString();
+		}
+
+		static String encodeList(List<String> val) {
+			StringBuffer ret = new StringBuffer();
+			ret.append("^list{");
+			for (String s : val) {
+				ret.append(normalize(s));
+				ret.append(",");
+			}
+			ret.deleteCharAt(ret.length() - 1);
+			ret.append("}");
+			return ret.toString();
+		}
+
+		static private String normalize(String s) {
+			return s.replaceAll(",", ";&comma");
+		}
+
+		static private String deNormalize(String s) {
+			return s.replaceAll(";&comma", ",");
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * University of Illinois/NCSA
+ * Open Source License
+ * 
+ * Copyright (c) 2008, Board of Trustees-University of Illinois.  
+ * All rights reserved.
+ * 
+ * Developed by: 
+ * 
+ * Automated Learning Group
+ * National Center for Supercomputing Applications
+ * http://www.seasr.org
+ * 
+ *  
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal with the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions: 
+ * 
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimers. 
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimers in the 
+ *    documentation and/or other materials provided with the distribution. 
+ * 
+ *  * Neither the names of Automated Learning Group, The National Center for
+ *    Supercomputing Applications, or University of Illinois, nor the names of
+ *    its contributors may be used to endorse or promote products derived from
+ *    this Software without specific prior written permission. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * CONTRIBUTORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * WITH THE SOFTWARE.
+ */ 
+
+package org.seasr.components.text.util.feature_maps;
+
+//==============
+// Java Imports
+//==============
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+//===============
+// Other Imports
+//===============
+
+import org.seasr.components.text.datatype.corpora.Annotation;
+import org.seasr.components.text.datatype.corpora.impl.AnnotationImpl;
+import org.seasr.components.text.datatype.corpora.impl.FeatureMapImpl;
+
+/**
+ * Round trips values through <code>FeatureValueEncoderDecoder</code> and
+ * decodes values written by the old encoder.
+ */
+public class FeatureValueEncoderDecoderTest {
+
+	// ================
+	// Public Methods
+	// ================
+
+	@Test
+	public void stringValuesRoundTrip() throws Exception {
+		List<String> list = Arrays.asList("a", "go,stop,go", "x{y}z", "}{",
+				"", ";&semi");
+		assertEquals(list, FeatureValueEncoderDecoder
+				.decodeToList(FeatureValueEncoderDecoder.encodeList(list)));
+		assertEquals(new HashSet<String>(list), FeatureValueEncoderDecoder
+				.decodeToSet(FeatureValueEncoderDecoder
+						.encodeSet(new HashSet<String>(list))));
+
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		map.put("k,1", "v{1}");
+		map.put("k2", "^list{not,nested}");
+		assertEquals(map, FeatureValueEncoderDecoder
+				.decodeToMap(FeatureValueEncoderDecoder.encodeMap(map)));
+	}
+
+	@Test
+	public void emptyValuesRoundTrip() throws Exception {
+		assertEquals("^list{}", FeatureValueEncoderDecoder
+				.encodeList(new ArrayList<String>()));
+		assertTrue(FeatureValueEncoderDecoder.decodeToList("^list{}")
+				.isEmpty());
+		assertTrue(FeatureValueEncoderDecoder.decodeToSet("^set{}").isEmpty());
+		assertTrue(FeatureValueEncoderDecoder.decodeToMap("^map{}").isEmpty());
+		assertArrayEquals(new int[0], FeatureValueEncoderDecoder
+				.decodeToIds("^list{}"));
+	}
+
+	@Test
+	public void annotationsRoundTrip() throws Exception {
+		FeatureMapImpl fm = new FeatureMapImpl();
+		fm.put("pos", "NN,S");
+		List<Annotation> annots = new ArrayList<Annotation>();
+		annots.add(new AnnotationImpl(3, 0, 4, "token", fm));
+		annots.add(new AnnotationImpl(5, 5, 9, "token", new FeatureMapImpl()));
+		String encoded = FeatureValueEncoderDecoder
+				.encodeListofAnnotations(annots);
+
+		List<Annotation> decoded = FeatureValueEncoderDecoder
+				.decodeToListofAnnotations(encoded);
+		assertEquals(2, decoded.size());
+		assertEquals(3, decoded.get(0).getId());
+		assertEquals("NN,S", decoded.get(0).getFeatures().get("pos"));
+		assertEquals(9, decoded.get(1).getEndNodeOffset());
+		assertTrue(decoded.get(1).getFeatures().isEmpty());
+		assertArrayEquals(new int[] { 3, 5 }, FeatureValueEncoderDecoder
+				.decodeToIds(encoded));
+		assertArrayEquals(new int[] { 3, 5 }, FeatureValueEncoderDecoder
+				.decodeToIds(FeatureValueEncoderDecoder
+						.encodeIds(new int[] { 3, 5 })));
+	}
+
+	@Test
+	public void oldEmptyFormsDecodeAsEmpty() throws Exception {
+		assertTrue(FeatureValueEncoderDecoder.decodeToList("^list}").isEmpty());
+		assertTrue(FeatureValueEncoderDecoder.decodeToSet("^set}").isEmpty());
+		assertTrue(FeatureValueEncoderDecoder.decodeToMap("^map}").isEmpty());
+		assertArrayEquals(new int[0], FeatureValueEncoderDecoder
+				.decodeToIds("^list}"));
+
+		// an annotation without features, as the old encoder wrote it
+		List<Annotation> decoded = FeatureValueEncoderDecoder
+				.decodeToListofAnnotations("^list{^annot{1,token,0,3,^map}},"
+						+ "^annot{2,token,4,6,^map{pos,NN}}}");
+		assertEquals(2, decoded.size());
+		assertTrue(decoded.get(0).getFeatures().isEmpty());
+		assertEquals("NN", decoded.get(1).getFeatures().get("pos"));
+	}
+
+	@Test
+	public void oldUnescapedOpeningBracesAreLiteral() throws Exception {
+		assertEquals(Arrays.asList("a{b", "c"), FeatureValueEncoderDecoder
+				.decodeToList("^list{a{b,c}"));
+		Map<String, String> expected = new HashMap<String, String>();
+		expected.put("k{", "v");
+		expected.put("x", "{y");
+		assertEquals(expected, FeatureValueEncoderDecoder
+				.decodeToMap("^map{k{,v,x,{y}"));
+	}
+}